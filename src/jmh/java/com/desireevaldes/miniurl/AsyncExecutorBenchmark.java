@@ -0,0 +1,68 @@
+package com.desireevaldes.miniurl;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Compares the two execution models of MINIURL_VIRTUAL_THREADS_ENABLED for @Async calls:
+ * a platform pool of DB_POOL_SIZE threads vs virtual threads capped at DB_POOL_SIZE concurrent tasks.
+ * Each task blocks for a fixed time, like a repository call waiting on the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AsyncExecutorBenchmark {
+
+    private static final int POOL_SIZE = 10;
+    private static final int TASKS = 200;
+
+    @Param({"platform", "virtual"})
+    public String executorType;
+
+    @Param({"100"})
+    public long taskMicros;
+
+    private AsyncTaskExecutor executor;
+
+    @Setup
+    public void setUp() {
+        if (executorType.equals("virtual")) {
+            SimpleAsyncTaskExecutor virtualExecutor = new SimpleAsyncTaskExecutor("bench-");
+            virtualExecutor.setVirtualThreads(true);
+            virtualExecutor.setConcurrencyLimit(POOL_SIZE);
+            executor = virtualExecutor;
+        } else {
+            ThreadPoolTaskExecutor platformExecutor = new ThreadPoolTaskExecutor();
+            platformExecutor.setCorePoolSize(POOL_SIZE);
+            platformExecutor.setThreadNamePrefix("bench-");
+            platformExecutor.initialize();
+            executor = platformExecutor;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executor instanceof ThreadPoolTaskExecutor platformExecutor) {
+            platformExecutor.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void fanOut() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[TASKS];
+        long taskNanos = TimeUnit.MICROSECONDS.toNanos(taskMicros);
+        for (int i = 0; i < TASKS; i++) {
+            futures[i] = executor.submitCompletable(() -> LockSupport.parkNanos(taskNanos));
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+}
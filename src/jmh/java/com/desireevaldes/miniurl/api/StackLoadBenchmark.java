@@ -0,0 +1,157 @@
+package com.desireevaldes.miniurl.api;
+
+import com.desireevaldes.miniurl.MiniurlApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load test of the servlet and reactive stacks on the same machine and database: waves of {@code concurrency}
+ * concurrent GET /{miniKey} redirects of random existing miniKeys, sent over HTTP/1.1 from this JVM.
+ * <p>
+ * Unlike the other benchmarks it needs Postgres with the mini_urls schema, from DB_URL, DB_USER and DB_PASS.
+ * With the default {@code cacheMaxSize} of 0 every redirect reads the database, through DB_POOL_SIZE JDBC connections
+ * (servlet) or as many R2DBC connections (reactive). The "resolves" and "errors" counters are per second;
+ * errors are responses other than 302 and failed connections.
+ * <pre>
+ * mvn -P jmh -DskipTests verify -Djmh.args="StackLoadBenchmark -p concurrency=10000"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class StackLoadBenchmark {
+
+    private static final Pattern MINI_KEY = Pattern.compile("\"miniKey\":\"([^\"]+)\"");
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"servlet", "servlet-virtual", "reactive"})
+    public String stack;
+
+    @Param({"256", "2048"})
+    public int concurrency;
+
+    @Param({"0"})
+    public long cacheMaxSize;
+
+    @Param({"10000"})
+    public int keys;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private HttpRequest[] redirectRequests;
+    private String urlPrefix;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long resolves;
+        public long errors;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            resolves = 0;
+            errors = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.profiles.active=bench",
+                "--spring.datasource.url=" + System.getenv("DB_URL"),
+                "--spring.datasource.username=" + System.getenv("DB_USER"),
+                "--spring.datasource.password=" + System.getenv("DB_PASS"),
+                "--server.port=0",
+                "--MINIURL_CACHE_MAX_SIZE=" + cacheMaxSize,
+                "--spring.output.ansi.enabled=NEVER",
+                "--logging.level.root=WARN",
+                "--logging.level.com.desireevaldes=WARN"
+        ));
+        WebApplicationType webApplicationType = WebApplicationType.SERVLET;
+        switch (stack) {
+            case "servlet" -> {
+            }
+            case "servlet-virtual" -> args.add("--spring.threads.virtual.enabled=true");
+            case "reactive" -> webApplicationType = WebApplicationType.REACTIVE;
+            default -> throw new IllegalArgumentException("Unknown stack " + stack);
+        }
+        context = new SpringApplicationBuilder(MiniurlApplication.class)
+                .web(webApplicationType)
+                .run(args.toArray(String[]::new));
+        String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+
+        urlPrefix = "https://bench.example.com/" + UUID.randomUUID() + "/";
+        List<String> miniKeys = new ArrayList<>(keys);
+        for (int first = 0; first < keys; first += BATCH_SIZE) {
+            StringBuilder body = new StringBuilder("{\"fullUrls\":[");
+            for (int i = first; i < Math.min(first + BATCH_SIZE, keys); i++) {
+                body.append(i == first ? "\"" : ",\"").append(urlPrefix).append(i).append('"');
+            }
+            body.append("]}");
+            HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/miniurls/batch"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            Matcher matcher = MINI_KEY.matcher(response.body());
+            while (matcher.find()) {
+                miniKeys.add(matcher.group(1));
+            }
+        }
+        if (miniKeys.size() != keys) {
+            throw new IllegalStateException("Created " + miniKeys.size() + " of " + keys + " miniKeys");
+        }
+        redirectRequests = miniKeys.stream()
+                .map(miniKey -> HttpRequest.newBuilder(URI.create(baseUrl + "/" + miniKey)).build())
+                .toArray(HttpRequest[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.getBean(JdbcTemplate.class).update("DELETE FROM mini_urls WHERE full_url LIKE ?", urlPrefix + "%");
+        httpClient.close();
+        context.close();
+    }
+
+    @Benchmark
+    public void resolve(Counters counters) {
+        List<CompletableFuture<Integer>> responses = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            HttpRequest request = redirectRequests[ThreadLocalRandom.current().nextInt(redirectRequests.length)];
+            responses.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .thenApply(HttpResponse::statusCode)
+                    .exceptionally(exception -> -1));
+        }
+        for (CompletableFuture<Integer> response : responses) {
+            if (response.join() == 302) {
+                counters.resolves++;
+            } else {
+                counters.errors++;
+            }
+        }
+    }
+}
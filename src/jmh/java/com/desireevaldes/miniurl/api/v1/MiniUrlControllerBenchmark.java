@@ -0,0 +1,33 @@
+package com.desireevaldes.miniurl.api.v1;
+
+import com.desireevaldes.miniurl.dto.MiniUrlResponseDto;
+import com.desireevaldes.miniurl.models.MiniUrl;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MiniUrlControllerBenchmark {
+
+    private MiniUrl miniUrl;
+
+    @Setup
+    public void setUp() {
+        miniUrl = new MiniUrl();
+        miniUrl.setMiniKey("abc1234X");
+        miniUrl.setFullUrl("https://www.example.com/some/long/path?with=query&and=more");
+        miniUrl.setCreatedAt(Instant.now());
+        miniUrl.setUpdatedAt(Instant.now());
+    }
+
+    @Benchmark
+    public MiniUrlResponseDto toResponseDto() {
+        return MiniUrlController.toResponseDto(miniUrl);
+    }
+}
@@ -0,0 +1,71 @@
+package com.desireevaldes.miniurl.repositories;
+
+import com.desireevaldes.miniurl.BenchmarkContext;
+import com.desireevaldes.miniurl.models.MiniUrl;
+import com.desireevaldes.miniurl.services.MiniUrlService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The database read of a resolve, against in-memory H2: the JPA entity load the resolve path used, in a read-only
+ * transaction, and the prepared statement of {@link JpaMiniUrlStore#findReadOnlyByMiniKey} it uses now.
+ * Run with {@code -prof gc} to compare {@code gc.alloc.rate.norm}, the bytes allocated per read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MiniUrlRepositoryBenchmark {
+
+    private static final int PRELOADED_URLS = 10_000;
+
+    private ConfigurableApplicationContext context;
+    private MiniUrlRepository miniUrlRepository;
+    private MiniUrlStore miniUrlStore;
+    private String[] miniKeys;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkContext.start();
+        miniUrlRepository = context.getBean(MiniUrlRepository.class);
+        miniUrlStore = context.getBean(MiniUrlStore.class);
+        MiniUrlService miniUrlService = context.getBean(MiniUrlService.class);
+
+        List<String> fullUrls = new ArrayList<>(PRELOADED_URLS);
+        for (int i = 0; i < PRELOADED_URLS; i++) {
+            fullUrls.add("https://example.com/preloaded/" + i);
+        }
+        List<MiniUrl> miniUrls = new ArrayList<>(PRELOADED_URLS);
+        for (int i = 0; i < PRELOADED_URLS; i += 1000) {
+            miniUrls.addAll(miniUrlService.getOrCreateMiniUrlsAsync(fullUrls.subList(i, i + 1000)).get());
+        }
+        miniKeys = miniUrls.stream().map(MiniUrl::getMiniKey).toArray(String[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private String randomMiniKey() {
+        return miniKeys[ThreadLocalRandom.current().nextInt(miniKeys.length)];
+    }
+
+    @Benchmark
+    public Optional<MiniUrl> findEntityById() {
+        return miniUrlRepository.findById(randomMiniKey());
+    }
+
+    @Benchmark
+    public Optional<MiniUrl> findReadOnlyByMiniKey() {
+        return miniUrlStore.findReadOnlyByMiniKey(randomMiniKey());
+    }
+}
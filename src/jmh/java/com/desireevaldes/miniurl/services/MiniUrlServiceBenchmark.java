@@ -0,0 +1,92 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.BenchmarkContext;
+import com.desireevaldes.miniurl.models.MiniUrl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end create and resolve paths through the Spring context, against in-memory H2.
+ * Measures the application overhead around the database; absolute numbers are not comparable to Postgres.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MiniUrlServiceBenchmark {
+
+    private static final int PRELOADED_URLS = 10_000;
+
+    @Param({"random", "block"})
+    public String keyStrategy;
+
+    // 0 disables the cache, so every resolve goes to the database
+    @Param({"0", "100000"})
+    public String cacheMaxSize;
+
+    private final AtomicLong urlCounter = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+    private MiniUrlService miniUrlService;
+    private String[] miniKeys;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkContext.start(
+                "--MINIURL_KEY_STRATEGY=" + keyStrategy,
+                "--MINIURL_CACHE_MAX_SIZE=" + cacheMaxSize);
+        context.getBean(JdbcTemplate.class).execute(
+                "CREATE SEQUENCE IF NOT EXISTS mini_key_block_seq START WITH 0 MINVALUE 0 INCREMENT BY 1");
+        miniUrlService = context.getBean(MiniUrlService.class);
+
+        List<String> fullUrls = new ArrayList<>(PRELOADED_URLS);
+        for (int i = 0; i < PRELOADED_URLS; i++) {
+            fullUrls.add("https://example.com/preloaded/" + i);
+        }
+        List<MiniUrl> miniUrls = new ArrayList<>(PRELOADED_URLS);
+        for (int i = 0; i < PRELOADED_URLS; i += 1000) {
+            miniUrls.addAll(miniUrlService.getOrCreateMiniUrlsAsync(fullUrls.subList(i, i + 1000)).get());
+        }
+        miniKeys = miniUrls.stream().map(MiniUrl::getMiniKey).toArray(String[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private String randomMiniKey() {
+        return miniKeys[ThreadLocalRandom.current().nextInt(miniKeys.length)];
+    }
+
+    @Benchmark
+    public MiniUrl createMiniUrl() throws Exception {
+        return miniUrlService.getOrCreateMiniUrlAsync("https://example.com/new/" + urlCounter.incrementAndGet()).get();
+    }
+
+    @Benchmark
+    public MiniUrl getExistingMiniUrl() throws Exception {
+        return miniUrlService.getOrCreateMiniUrlAsync(
+                "https://example.com/preloaded/" + ThreadLocalRandom.current().nextInt(PRELOADED_URLS)).get();
+    }
+
+    @Benchmark
+    public MiniUrl getMiniUrlByMiniKey() throws Exception {
+        return miniUrlService.getMiniUrlByMiniKey(randomMiniKey()).get();
+    }
+
+    // The redirect path
+    @Benchmark
+    public String resolveFullUrl() {
+        return miniUrlService.resolveFullUrl(randomMiniKey());
+    }
+}
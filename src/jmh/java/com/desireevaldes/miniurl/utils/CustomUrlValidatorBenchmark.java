@@ -0,0 +1,59 @@
+package com.desireevaldes.miniurl.utils;
+
+import com.desireevaldes.miniurl.BenchmarkContext;
+import org.apache.commons.validator.routines.UrlValidator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * URL validation over the corpus in src/jmh/resources/url-corpus.txt:
+ * commons-validator's UrlValidator (the previous implementation) vs UrlNormalizer.
+ * One operation is one pass over the whole corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomUrlValidatorBenchmark {
+
+    @Param({"commons", "normalizer"})
+    public String engine;
+
+    private String[] corpus;
+    private UrlValidator commonsUrlValidator;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkContext.quietLogging();
+        commonsUrlValidator = new UrlValidator();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                CustomUrlValidatorBenchmark.class.getResourceAsStream("/url-corpus.txt"), StandardCharsets.UTF_8))) {
+            List<String> urls = reader.lines()
+                    .filter(line -> !line.isBlank() && !line.startsWith("#"))
+                    .toList();
+            corpus = urls.toArray(String[]::new);
+        }
+    }
+
+    @Benchmark
+    public void validateCorpus(Blackhole blackhole) {
+        if (engine.equals("commons")) {
+            for (String url : corpus) {
+                blackhole.consume(commonsUrlValidator.isValid(url));
+            }
+        } else {
+            for (String url : corpus) {
+                blackhole.consume(UrlNormalizer.normalize(url));
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.desireevaldes.miniurl.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RandomKeyGeneratorBenchmark {
+
+    @Param({
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz",
+            "0123456789abcdefghijklmnopqrstuvwxyz"
+    })
+    public String alphabet;
+
+    @Param({"7", "8", "12"})
+    public int keyLength;
+
+    @Param({RandomKeyGenerator.SHARED_MODE, RandomKeyGenerator.STRIPED_MODE})
+    public String mode;
+
+    private RandomKeyGenerator randomKeyGenerator;
+
+    @Setup
+    public void setUp() {
+        randomKeyGenerator = new RandomKeyGenerator(alphabet, keyLength, mode);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String generateKey() {
+        return randomKeyGenerator.generateKey();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generateKey_4Threads() {
+        return randomKeyGenerator.generateKey();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String generateKey_16Threads() {
+        return randomKeyGenerator.generateKey();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String generateKey_MaxThreads() {
+        return randomKeyGenerator.generateKey();
+    }
+}
@@ -0,0 +1,146 @@
+package com.desireevaldes.miniurl.api;
+
+import com.desireevaldes.miniurl.services.MiniUrlMetrics;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.function.IntSupplier;
+
+/**
+ * Refuses requests with a fast 503 while the application is saturated, enabled by MINIURL_LOAD_SHEDDING_ENABLED=true.
+ * <p>
+ * Saturation is read live on every request, from the tasks queued on the {@code @Async} executor and the threads
+ * waiting for a connection of the primary pool. Creates, updates, listings and exports are shed once either exceeds
+ * its threshold; resolves (redirects and miniKey lookups) keep being served until MINIURL_LOAD_SHEDDING_RESOLVE_HEADROOM
+ * times the thresholds, so the cheap traffic most users see outlives a burst of writes. Actuator and metrics
+ * endpoints are never shed.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "MINIURL_LOAD_SHEDDING_ENABLED", havingValue = "true")
+public class LoadSheddingFilter extends OncePerRequestFilter {
+
+    static final String RESOLVE_TRAFFIC = "resolve";
+    static final String OTHER_TRAFFIC = "other";
+
+    private static final String API_PATH = "/api/";
+    private static final String MINI_URLS_PATH = RateLimitFilter.LIMITED_PATH + "/";
+
+    private final IntSupplier queuedTasks;
+    private final IntSupplier waitingForConnection;
+    private final MiniUrlMetrics miniUrlMetrics;
+    private final int queueThreshold;
+    private final int poolWaitThreshold;
+    private final int resolveHeadroom;
+
+    @Autowired
+    public LoadSheddingFilter(
+            @Qualifier("applicationTaskExecutor") Executor executor,
+            ObjectProvider<HikariDataSource> primaryPool,
+            MiniUrlMetrics miniUrlMetrics,
+            @Value("${MINIURL_LOAD_SHEDDING_QUEUE_THRESHOLD:100}") int queueThreshold,
+            @Value("${MINIURL_LOAD_SHEDDING_POOL_WAIT_THRESHOLD:${DB_POOL_SIZE:10}}") int poolWaitThreshold,
+            @Value("${MINIURL_LOAD_SHEDDING_RESOLVE_HEADROOM:4}") int resolveHeadroom
+    ) {
+        this(queuedTasks(executor), waitingForConnection(primaryPool.getIfUnique()), miniUrlMetrics,
+                queueThreshold, poolWaitThreshold, resolveHeadroom);
+    }
+
+    LoadSheddingFilter(IntSupplier queuedTasks, IntSupplier waitingForConnection, MiniUrlMetrics miniUrlMetrics,
+                       int queueThreshold, int poolWaitThreshold, int resolveHeadroom) {
+        if (queueThreshold < 1 || poolWaitThreshold < 1 || resolveHeadroom < 1) {
+            throw new IllegalStateException("MINIURL_LOAD_SHEDDING_QUEUE_THRESHOLD, MINIURL_LOAD_SHEDDING_POOL_WAIT_THRESHOLD"
+                    + " and MINIURL_LOAD_SHEDDING_RESOLVE_HEADROOM must be positive");
+        }
+        this.queuedTasks = queuedTasks;
+        this.waitingForConnection = waitingForConnection;
+        this.miniUrlMetrics = miniUrlMetrics;
+        this.queueThreshold = queueThreshold;
+        this.poolWaitThreshold = poolWaitThreshold;
+        this.resolveHeadroom = resolveHeadroom;
+    }
+
+    // Virtual threads run @Async tasks without a queue: callers wait on the concurrency limit, then on the pool
+    private static IntSupplier queuedTasks(Executor executor) {
+        if (executor instanceof ThreadPoolTaskExecutor threadPoolTaskExecutor) {
+            return threadPoolTaskExecutor::getQueueSize;
+        }
+        return () -> 0;
+    }
+
+    // Shard and replica pools are not beans: only the primary pool (DB_URL) is watched
+    private static IntSupplier waitingForConnection(HikariDataSource primaryPool) {
+        if (primaryPool == null) {
+            return () -> 0;
+        }
+        return () -> {
+            HikariPoolMXBean pool = primaryPool.getHikariPoolMXBean();
+            return pool == null ? 0 : pool.getThreadsAwaitingConnection();
+        };
+    }
+
+    static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    /**
+     * Redirects (GET /{miniKey}) and lookups (GET /api/v1/miniurls/{miniKey}) are resolves, everything else is other.
+     */
+    static String trafficOf(HttpServletRequest request) {
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return OTHER_TRAFFIC;
+        }
+        String path = pathOf(request);
+        if (path.indexOf('/', 1) < 0) {
+            return path.length() > 1 ? RESOLVE_TRAFFIC : OTHER_TRAFFIC;
+        }
+        if (path.startsWith(MINI_URLS_PATH) && path.indexOf('/', MINI_URLS_PATH.length()) < 0
+                && !path.equals(MINI_URLS_PATH + "export")) {
+            return RESOLVE_TRAFFIC;
+        }
+        return OTHER_TRAFFIC;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = pathOf(request);
+        return path.startsWith("/actuator") || (path.startsWith(API_PATH) && !path.startsWith(RateLimitFilter.LIMITED_PATH));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String traffic = trafficOf(request);
+        int headroom = RESOLVE_TRAFFIC.equals(traffic) ? resolveHeadroom : 1;
+        if (queuedTasks.getAsInt() <= queueThreshold * headroom
+                && waitingForConnection.getAsInt() <= poolWaitThreshold * headroom) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        miniUrlMetrics.recordRejection(MiniUrlMetrics.SHED, traffic);
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.getWriter().write("Overloaded, retry later");
+    }
+}
@@ -0,0 +1,85 @@
+package com.desireevaldes.miniurl.api;
+
+import com.desireevaldes.miniurl.services.MiniUrlMetrics;
+import com.desireevaldes.miniurl.utils.TokenBucketRateLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Per-client token buckets in front of the /api/v1/miniurls endpoints, enabled by MINIURL_RATE_LIMIT_ENABLED=true.
+ * <p>
+ * Each client (remote address) may send MINIURL_RATE_LIMIT_BURST requests at once, then
+ * MINIURL_RATE_LIMIT_PER_SECOND per second. Requests over the limit get a 429 with a Retry-After header and never
+ * reach the service, so a single client cannot exhaust the thread and connection pools. Redirects are not limited.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "MINIURL_RATE_LIMIT_ENABLED", havingValue = "true")
+public class RateLimitFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    static final String LIMITED_PATH = "/api/v1/miniurls";
+
+    private final TokenBucketRateLimiter rateLimiter;
+    private final MiniUrlMetrics miniUrlMetrics;
+
+    public RateLimitFilter(
+            MiniUrlMetrics miniUrlMetrics,
+            @Value("${MINIURL_RATE_LIMIT_PER_SECOND:20}") double tokensPerSecond,
+            @Value("${MINIURL_RATE_LIMIT_BURST:40}") int burst,
+            @Value("${MINIURL_RATE_LIMIT_MAX_CLIENTS:100000}") int maxClients
+    ) {
+        if (tokensPerSecond <= 0 || burst < 1 || maxClients < 1) {
+            throw new IllegalStateException("MINIURL_RATE_LIMIT_PER_SECOND, MINIURL_RATE_LIMIT_BURST and MINIURL_RATE_LIMIT_MAX_CLIENTS must be positive");
+        }
+        this.rateLimiter = new TokenBucketRateLimiter(tokensPerSecond, burst, maxClients);
+        this.miniUrlMetrics = miniUrlMetrics;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !LoadSheddingFilter.pathOf(request).startsWith(LIMITED_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long waitNanos = rateLimiter.tryAcquire(request.getRemoteAddr(), System.nanoTime());
+        if (waitNanos == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        miniUrlMetrics.recordRejection(MiniUrlMetrics.RATE_LIMITED, LoadSheddingFilter.trafficOf(request));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L)));
+        response.getWriter().write("Too many requests, retry later");
+    }
+
+    /**
+     * Drops the buckets of clients that are full again, so memory follows the active clients.
+     */
+    @Scheduled(fixedDelayString = "${MINIURL_RATE_LIMIT_SWEEP_INTERVAL_MS:60000}")
+    public void evictIdleClients() {
+        int evicted = rateLimiter.evictIdle(System.nanoTime());
+        if (evicted > 0) {
+            logger.debug("Evicted {} idle rate limit clients, {} left", evicted, rateLimiter.getClientCount());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.desireevaldes.miniurl.api;
+
+import com.desireevaldes.miniurl.services.ReactiveMiniUrlService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link RedirectController} for the reactive stack: the redirect is written once the lookup completes,
+ * without a thread waiting on it.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveRedirectController {
+
+    private final ReactiveMiniUrlService miniUrlService;
+    private final HttpStatus redirectStatus;
+
+    public ReactiveRedirectController(
+            ReactiveMiniUrlService miniUrlService,
+            @Value("${MINIURL_REDIRECT_STATUS:302}") int redirectStatus
+    ) {
+        this.miniUrlService = miniUrlService;
+        this.redirectStatus = RedirectController.validateRedirectStatus(redirectStatus);
+    }
+
+    @GetMapping("/{miniKey}")
+    public Mono<ResponseEntity<Void>> redirect(@PathVariable String miniKey) {
+        return miniUrlService.resolveFullUrl(miniKey)
+                .map(fullUrl -> ResponseEntity.status(redirectStatus)
+                        .header(HttpHeaders.LOCATION, fullUrl)
+                        .build());
+    }
+}
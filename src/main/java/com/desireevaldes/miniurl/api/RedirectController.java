@@ -0,0 +1,48 @@
+package com.desireevaldes.miniurl.api;
+
+import com.desireevaldes.miniurl.services.MiniUrlService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Resolves a miniKey straight to an HTTP redirect.
+ * This is the hot path for real traffic, so it skips DTO mapping, JSON serialization
+ * and the CompletableFuture chain used by the JSON API.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class RedirectController {
+
+    private final MiniUrlService miniUrlService;
+    private final HttpStatus redirectStatus;
+
+    public RedirectController(
+            MiniUrlService miniUrlService,
+            @Value("${MINIURL_REDIRECT_STATUS:302}") int redirectStatus
+    ) {
+        this.miniUrlService = miniUrlService;
+        this.redirectStatus = validateRedirectStatus(redirectStatus);
+    }
+
+    static HttpStatus validateRedirectStatus(int redirectStatus) {
+        HttpStatus status = HttpStatus.valueOf(redirectStatus);
+        if (status != HttpStatus.MOVED_PERMANENTLY && status != HttpStatus.FOUND) {
+            throw new IllegalArgumentException("Redirect status must be 301 or 302");
+        }
+        return status;
+    }
+
+    @GetMapping("/{miniKey}")
+    public ResponseEntity<Void> redirect(@PathVariable String miniKey) {
+        String fullUrl = miniUrlService.resolveFullUrl(miniKey);
+        return ResponseEntity.status(redirectStatus)
+                .header(HttpHeaders.LOCATION, fullUrl)
+                .build();
+    }
+}
@@ -0,0 +1,69 @@
+package com.desireevaldes.miniurl.api.v1;
+
+import com.desireevaldes.miniurl.dto.ClickBucketDto;
+import com.desireevaldes.miniurl.dto.ClickStatsResponseDto;
+import com.desireevaldes.miniurl.models.MiniUrlClickStats;
+import com.desireevaldes.miniurl.services.ClickStatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/v1/miniurls")
+public class ClickStatsController {
+    private static final Logger logger = LoggerFactory.getLogger(ClickStatsController.class);
+
+    static final Duration DEFAULT_WINDOW = Duration.ofHours(24);
+
+    private final ClickStatsService clickStatsService;
+
+    public ClickStatsController(ClickStatsService clickStatsService) {
+        this.clickStatsService = clickStatsService;
+    }
+
+    @GetMapping("/{miniKey}/stats")
+    public CompletableFuture<ClickStatsResponseDto> getClickStats(
+            @PathVariable String miniKey,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        Instant windowEnd = to != null ? to : Instant.now();
+        Instant windowStart = from != null ? from : windowEnd.minus(DEFAULT_WINDOW);
+        if (!windowStart.isBefore(windowEnd)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+
+        logger.info("Received GET request to get click stats for miniKey: {}", miniKey);
+        return clickStatsService.getClickStatsAsync(miniKey, windowStart, windowEnd)
+                .thenApply(clickStats -> toResponseDto(miniKey, windowStart, windowEnd, clickStats));
+    }
+
+    private static ClickStatsResponseDto toResponseDto(String miniKey, Instant from, Instant to,
+                                                       List<MiniUrlClickStats> clickStats) {
+        List<ClickBucketDto> buckets = clickStats.stream()
+                .map(stats -> {
+                    ClickBucketDto bucketDto = new ClickBucketDto();
+                    bucketDto.setBucketStart(stats.getBucketStart());
+                    bucketDto.setClicks(stats.getClicks());
+                    return bucketDto;
+                })
+                .toList();
+
+        ClickStatsResponseDto responseDto = new ClickStatsResponseDto();
+        responseDto.setMiniKey(miniKey);
+        responseDto.setFrom(from);
+        responseDto.setTo(to);
+        responseDto.setTotalClicks(buckets.stream().mapToLong(ClickBucketDto::getClicks).sum());
+        responseDto.setBuckets(buckets);
+        return responseDto;
+    }
+}
@@ -0,0 +1,64 @@
+package com.desireevaldes.miniurl.api.v1;
+
+import com.desireevaldes.miniurl.config.MeteredDataSource;
+import com.desireevaldes.miniurl.config.ReplicaRoutingDataSource;
+import com.desireevaldes.miniurl.dto.CacheStatsResponseDto;
+import com.desireevaldes.miniurl.dto.DataSourceStatsResponseDto;
+import com.desireevaldes.miniurl.services.MiniUrlCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/metrics")
+public class MetricsController {
+
+    private final MiniUrlCache miniUrlCache;
+    private final ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSource;
+
+    public MetricsController(MiniUrlCache miniUrlCache, ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSource) {
+        this.miniUrlCache = miniUrlCache;
+        this.replicaRoutingDataSource = replicaRoutingDataSource;
+    }
+
+    @GetMapping("/cache")
+    public CacheStatsResponseDto getCacheStats() {
+        CacheStats stats = miniUrlCache.stats();
+        CacheStatsResponseDto responseDto = new CacheStatsResponseDto();
+        responseDto.setHitCount(stats.hitCount());
+        responseDto.setMissCount(stats.missCount());
+        responseDto.setEvictionCount(stats.evictionCount());
+        responseDto.setEstimatedSize(miniUrlCache.estimatedSize());
+        responseDto.setHitRate(stats.hitRate());
+        return responseDto;
+    }
+
+    /**
+     * Connection counts and latencies of the primary and each replica. Empty when no replica is configured.
+     */
+    @GetMapping("/datasources")
+    public List<DataSourceStatsResponseDto> getDataSourceStats() {
+        ReplicaRoutingDataSource routingDataSource = replicaRoutingDataSource.getIfAvailable();
+        if (routingDataSource == null) {
+            return List.of();
+        }
+        return routingDataSource.getDataSources().stream()
+                .map(MetricsController::toDataSourceStats)
+                .toList();
+    }
+
+    private static DataSourceStatsResponseDto toDataSourceStats(MeteredDataSource dataSource) {
+        DataSourceStatsResponseDto responseDto = new DataSourceStatsResponseDto();
+        responseDto.setName(dataSource.getName());
+        responseDto.setHealthy(dataSource.isHealthy());
+        responseDto.setConnectionCount(dataSource.getConnectionCount());
+        responseDto.setFailureCount(dataSource.getFailureCount());
+        responseDto.setMeanMillis(dataSource.getMeanMillis());
+        responseDto.setMaxMillis(dataSource.getMaxMillis());
+        return responseDto;
+    }
+}
@@ -1,44 +1,72 @@
 package com.desireevaldes.miniurl.api.v1;
 
+import com.desireevaldes.miniurl.dto.MiniUrlBatchRequestDto;
 import com.desireevaldes.miniurl.dto.MiniUrlRequestDto;
 import com.desireevaldes.miniurl.dto.MiniUrlResponseDto;
 import com.desireevaldes.miniurl.models.MiniUrl;
 import com.desireevaldes.miniurl.services.MiniUrlService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/v1/miniurls")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class MiniUrlController {
     private static final Logger logger = LoggerFactory.getLogger(MiniUrlController.class);
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final MiniUrlService miniUrlService;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter lineWriter;
 
-    public MiniUrlController(MiniUrlService miniUrlService) {
+    public MiniUrlController(MiniUrlService miniUrlService, ObjectMapper objectMapper) {
         this.miniUrlService = miniUrlService;
+        this.objectMapper = objectMapper;
+        this.lineWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
-    private static MiniUrlResponseDto toResponseDto(MiniUrl miniUrl) {
+    static MiniUrlResponseDto toResponseDto(MiniUrl miniUrl) {
         MiniUrlResponseDto responseDto = new MiniUrlResponseDto();
         responseDto.setMiniKey(miniUrl.getMiniKey());
         responseDto.setFullUrl(miniUrl.getFullUrl());
         responseDto.setCreatedAt(miniUrl.getCreatedAt());
         responseDto.setUpdatedAt(miniUrl.getUpdatedAt());
+        responseDto.setExpiresAt(miniUrl.getExpiresAt());
         return responseDto;
     }
 
     @PostMapping
     public CompletableFuture<MiniUrlResponseDto> createMiniUrl(@Valid @RequestBody MiniUrlRequestDto requestDto) {
         logger.info("Received POST request to create or get if exists mini-URL for URL: {}", requestDto.getFullUrl());
-        return miniUrlService.getOrCreateMiniUrlAsync(requestDto.getFullUrl())
+        return miniUrlService.getOrCreateMiniUrlAsync(requestDto.getFullUrl(), requestDto.getExpiresAt())
                 .thenApply(miniUrl -> toResponseDto(miniUrl));
     }
 
+    @PostMapping("/batch")
+    public CompletableFuture<List<MiniUrlResponseDto>> createMiniUrls(@Valid @RequestBody MiniUrlBatchRequestDto requestDto) {
+        logger.info("Received POST request to create or get if exists mini-URLs for {} URLs", requestDto.getFullUrls().size());
+        return miniUrlService.getOrCreateMiniUrlsAsync(requestDto.getFullUrls())
+                .thenApply(miniUrls -> miniUrls.stream()
+                        .map(miniUrl -> MiniUrlController.toResponseDto(miniUrl))
+                        .toList());
+    }
+
     @GetMapping("/{miniKey}")
     public CompletableFuture<MiniUrlResponseDto> getMiniUrl(@PathVariable String miniKey) {
         logger.info("Received GET request to get mini-URL with miniKey: {}", miniKey);
@@ -61,11 +89,42 @@ public class MiniUrlController {
     }
 
     @GetMapping
-    public CompletableFuture<List<MiniUrlResponseDto>> getAllMiniUrls() {
-        logger.info("Received GET request to list all mini-URLs");
-        return miniUrlService.getAllMiniUrlsAsync()
-                .thenApply(miniUrls -> miniUrls.stream()
-                        .map(miniUrl -> MiniUrlController.toResponseDto(miniUrl))
-                        .toList());
+    public CompletableFuture<ResponseEntity<List<MiniUrlResponseDto>>> getAllMiniUrls(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int size) {
+        logger.info("Received GET request to list mini-URLs after miniKey: {}", after);
+        return miniUrlService.getMiniUrlsPageAsync(after, size)
+                .thenApply(miniUrls -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (miniUrls.size() == size) {
+                        response.header(NEXT_CURSOR_HEADER, miniUrls.get(miniUrls.size() - 1).getMiniKey());
+                    }
+                    return response.body(miniUrls.stream()
+                            .map(miniUrl -> MiniUrlController.toResponseDto(miniUrl))
+                            .toList());
+                });
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportMiniUrls() {
+        logger.info("Received GET request to export all mini-URLs");
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                miniUrlService.exportMiniUrls(miniUrl -> writeLine(generator, toResponseDto(miniUrl)));
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private void writeLine(JsonGenerator generator, MiniUrlResponseDto responseDto) {
+        try {
+            lineWriter.writeValue(generator, responseDto);
+            generator.writeRaw('\n');
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
     }
 }
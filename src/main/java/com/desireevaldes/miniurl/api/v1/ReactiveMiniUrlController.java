@@ -0,0 +1,95 @@
+package com.desireevaldes.miniurl.api.v1;
+
+import com.desireevaldes.miniurl.dto.MiniUrlBatchRequestDto;
+import com.desireevaldes.miniurl.dto.MiniUrlRequestDto;
+import com.desireevaldes.miniurl.dto.MiniUrlResponseDto;
+import com.desireevaldes.miniurl.services.ReactiveMiniUrlService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * {@link MiniUrlController} for the reactive stack, with the same endpoints and responses.
+ */
+@RestController
+@RequestMapping("/api/v1/miniurls")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveMiniUrlController {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveMiniUrlController.class);
+
+    private final ReactiveMiniUrlService miniUrlService;
+
+    public ReactiveMiniUrlController(ReactiveMiniUrlService miniUrlService) {
+        this.miniUrlService = miniUrlService;
+    }
+
+    @PostMapping
+    public Mono<MiniUrlResponseDto> createMiniUrl(@Valid @RequestBody MiniUrlRequestDto requestDto) {
+        logger.info("Received POST request to create or get if exists mini-URL for URL: {}", requestDto.getFullUrl());
+        return miniUrlService.getOrCreateMiniUrl(requestDto.getFullUrl(), requestDto.getExpiresAt())
+                .map(MiniUrlController::toResponseDto);
+    }
+
+    @PostMapping("/batch")
+    public Mono<List<MiniUrlResponseDto>> createMiniUrls(@Valid @RequestBody MiniUrlBatchRequestDto requestDto) {
+        logger.info("Received POST request to create or get if exists mini-URLs for {} URLs", requestDto.getFullUrls().size());
+        return miniUrlService.getOrCreateMiniUrls(requestDto.getFullUrls())
+                .map(miniUrls -> miniUrls.stream()
+                        .map(MiniUrlController::toResponseDto)
+                        .toList());
+    }
+
+    @GetMapping("/{miniKey}")
+    public Mono<MiniUrlResponseDto> getMiniUrl(@PathVariable String miniKey) {
+        logger.info("Received GET request to get mini-URL with miniKey: {}", miniKey);
+        return miniUrlService.getMiniUrlByMiniKey(miniKey)
+                .map(MiniUrlController::toResponseDto);
+    }
+
+    @PutMapping("/{miniKey}")
+    public Mono<MiniUrlResponseDto> updateMiniUrl(@PathVariable String miniKey,
+                                                  @Valid @RequestBody MiniUrlRequestDto requestDto) {
+        logger.info("Received PUT request to update mini-URL with miniKey: {}", miniKey);
+        return miniUrlService.updateMiniUrl(miniKey, requestDto.getFullUrl())
+                .map(MiniUrlController::toResponseDto);
+    }
+
+    @DeleteMapping("/{miniKey}")
+    public Mono<Void> deleteMiniUrl(@PathVariable String miniKey) {
+        logger.info("Received DELETE request to delete mini-URL with miniKey: {}", miniKey);
+        return miniUrlService.deleteMiniUrl(miniKey);
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<List<MiniUrlResponseDto>>> getAllMiniUrls(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int size) {
+        logger.info("Received GET request to list mini-URLs after miniKey: {}", after);
+        return miniUrlService.getMiniUrlsPage(after, size)
+                .map(miniUrls -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (miniUrls.size() == size) {
+                        response.header(MiniUrlController.NEXT_CURSOR_HEADER, miniUrls.get(miniUrls.size() - 1).getMiniKey());
+                    }
+                    return response.body(miniUrls.stream()
+                            .map(MiniUrlController::toResponseDto)
+                            .toList());
+                });
+    }
+
+    // Each element is written as one JSON line, as the client reads them
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MiniUrlResponseDto> exportMiniUrls() {
+        logger.info("Received GET request to export all mini-URLs");
+        return miniUrlService.exportMiniUrls()
+                .map(MiniUrlController::toResponseDto);
+    }
+}
@@ -0,0 +1,106 @@
+package com.desireevaldes.miniurl.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the connections taken from a DataSource and how long each one is used, from getConnection() to close(),
+ * which covers the queries or the transaction run on it. Also carries the health flag set by replica health checks.
+ */
+public class MeteredDataSource extends DelegatingDataSource {
+
+    private final String name;
+    private final LongAdder connectionCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private volatile boolean healthy = true;
+
+    public MeteredDataSource(String name, DataSource targetDataSource) {
+        super(targetDataSource);
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public void setHealthy(boolean healthy) {
+        this.healthy = healthy;
+    }
+
+    public long getConnectionCount() {
+        return connectionCount.sum();
+    }
+
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    public double getMeanMillis() {
+        long connections = connectionCount.sum();
+        return connections == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / connections;
+    }
+
+    public double getTotalMillis() {
+        return totalNanos.sum() / 1_000_000.0;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long startNanos = System.nanoTime();
+        Connection connection;
+        try {
+            connection = super.getConnection();
+        } catch (SQLException | RuntimeException exception) {
+            failureCount.increment();
+            throw exception;
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                new ClosingHandler(connection, startNanos));
+    }
+
+    private final class ClosingHandler implements InvocationHandler {
+        private final Connection connection;
+        private final long startNanos;
+        private boolean closed;
+
+        private ClosingHandler(Connection connection, long startNanos) {
+            this.connection = connection;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("close".equals(method.getName()) && !closed) {
+                closed = true;
+                long nanos = System.nanoTime() - startNanos;
+                connectionCount.increment();
+                totalNanos.add(nanos);
+                maxNanos.accumulate(nanos);
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException exception) {
+                throw exception.getTargetException();
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.desireevaldes.miniurl.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Reactive stack, enabled by the "reactive" profile (spring.main.web-application-type=reactive).
+ * <p>
+ * Requests are served by WebFlux on a few Reactor Netty event-loop threads, and the JSON API and redirects read and
+ * write mini_urls through {@link com.desireevaldes.miniurl.repositories.R2dbcMiniUrlRepository}, so no thread waits
+ * on a socket. The servlet-only controllers are replaced by their reactive counterparts, the other beans are shared.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveStackConfig {
+
+    // Tomcat is on the classpath for the servlet stack, and Spring Boot would pick it over Netty for WebFlux too
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
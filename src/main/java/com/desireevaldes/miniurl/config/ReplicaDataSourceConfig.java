@@ -0,0 +1,95 @@
+package com.desireevaldes.miniurl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas, enabled by listing their JDBC URLs in MINIURL_REPLICA_URLS (comma-separated).
+ * <p>
+ * The application DataSource becomes a LazyConnectionDataSourceProxy over the primary pool. Connections of read-only
+ * transactions are fetched from {@link ReplicaRoutingDataSource} instead, when the first statement runs, so
+ * {@code @Transactional(readOnly = true)} decides the route. Everything else, including the reads of the create path,
+ * stays on the primary. Replicas use the primary's credentials and driver.
+ */
+@Configuration(proxyBeanMethods = false)
+@Conditional(ReplicaDataSourceConfig.ReplicaUrlsCondition.class)
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            HikariDataSource primaryDataSource,
+            DataSourceProperties dataSourceProperties,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${MINIURL_REPLICA_URLS}") List<String> replicaUrls,
+            @Value("${MINIURL_REPLICA_POOL_SIZE:${DB_POOL_SIZE:10}}") int poolSize,
+            @Value("${MINIURL_REPLICA_CONNECTION_TIMEOUT_MS:1000}") long connectionTimeoutMillis
+    ) {
+        List<MeteredDataSource> replicas = new ArrayList<>(replicaUrls.size());
+        for (String replicaUrl : replicaUrls) {
+            String name = "replica-" + (replicas.size() + 1);
+            HikariDataSource replica = dataSourceProperties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(replicaUrl.trim())
+                    .build();
+            replica.setPoolName(name);
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            // Fail fast to the next replica or the primary, and start even if a replica is down
+            replica.setConnectionTimeout(connectionTimeoutMillis);
+            replica.setInitializationFailTimeout(-1);
+            // Pool meters (hikaricp.*), the primary pool is bound by Spring Boot as a bean
+            meterRegistry.ifAvailable(replica::setMetricRegistry);
+            replicas.add(new MeteredDataSource(name, replica));
+        }
+        return new ReplicaRoutingDataSource(new MeteredDataSource("primary", primaryDataSource), replicas,
+                (int) Math.max(1, connectionTimeoutMillis / 1000));
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(replicaRoutingDataSource.getPrimary());
+        dataSource.setReadOnlyDataSource(replicaRoutingDataSource);
+        return dataSource;
+    }
+
+    @Bean
+    public TaskDecorator replicaRoutingTaskDecorator() {
+        return ReplicaRoutingDataSource::propagatePrimaryForced;
+    }
+
+    // Reads the property as is: pasted into a SpEL literal, a quote in a JDBC URL would break the startup
+    static class ReplicaUrlsCondition extends SpringBootCondition {
+        @Override
+        public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            String replicaUrls = context.getEnvironment().getProperty("MINIURL_REPLICA_URLS", "");
+            return replicaUrls.isBlank()
+                    ? ConditionOutcome.noMatch("MINIURL_REPLICA_URLS is blank")
+                    : ConditionOutcome.match("MINIURL_REPLICA_URLS is set");
+        }
+    }
+}
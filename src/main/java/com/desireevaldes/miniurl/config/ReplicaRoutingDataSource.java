@@ -0,0 +1,156 @@
+package com.desireevaldes.miniurl.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Read-only DataSource that spreads connections over the healthy replicas, round-robin.
+ * A replica that fails to hand out a connection is marked unhealthy and skipped until a health check passes again;
+ * with no healthy replica, or inside {@link #runOnPrimary}, connections come from the primary.
+ * Used as the read-only variant of the application's LazyConnectionDataSourceProxy, see {@link ReplicaDataSourceConfig}.
+ * Per-datasource statistics are published as the {@code miniurl.datasource.*} meters, tagged with the datasource name.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable, MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private static final ThreadLocal<Boolean> primaryForced = new ThreadLocal<>();
+
+    private final MeteredDataSource primary;
+    private final List<MeteredDataSource> replicas;
+    private final int healthCheckTimeoutSeconds;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(MeteredDataSource primary, List<MeteredDataSource> replicas, int healthCheckTimeoutSeconds) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.healthCheckTimeoutSeconds = healthCheckTimeoutSeconds;
+    }
+
+    /**
+     * Runs the action with read-only connections taken from the primary, for reads that must see the latest writes.
+     * Carried over to @Async tasks submitted by the action, see {@link #propagatePrimaryForced}.
+     */
+    public static <T> T runOnPrimary(Supplier<T> action) {
+        Boolean previous = primaryForced.get();
+        primaryForced.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            primaryForced.set(previous);
+        }
+    }
+
+    public static boolean isPrimaryForced() {
+        return Boolean.TRUE.equals(primaryForced.get());
+    }
+
+    /**
+     * TaskDecorator function: runs the task with the primary forced if it was when the task was submitted.
+     */
+    public static Runnable propagatePrimaryForced(Runnable task) {
+        if (!isPrimaryForced()) {
+            return task;
+        }
+        return () -> runOnPrimary(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public MeteredDataSource getPrimary() {
+        return primary;
+    }
+
+    public List<MeteredDataSource> getDataSources() {
+        List<MeteredDataSource> dataSources = new ArrayList<>(replicas.size() + 1);
+        dataSources.add(primary);
+        dataSources.addAll(replicas);
+        return dataSources;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!isPrimaryForced()) {
+            int start = nextReplica.getAndIncrement();
+            for (int i = 0; i < replicas.size(); i++) {
+                MeteredDataSource replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+                if (!replica.isHealthy()) {
+                    continue;
+                }
+                try {
+                    return replica.getConnection();
+                } catch (SQLException exception) {
+                    replica.setHealthy(false);
+                    logger.warn("Replica {} is unavailable, reading from the next one or the primary: {}",
+                            replica.getName(), exception.getMessage());
+                }
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica connections use the configured credentials");
+    }
+
+    @Scheduled(fixedDelayString = "${MINIURL_REPLICA_HEALTH_INTERVAL_MS:5000}")
+    public void checkHealth() {
+        for (MeteredDataSource replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.getTargetDataSource().getConnection()) {
+                healthy = connection.isValid(healthCheckTimeoutSeconds);
+            } catch (SQLException exception) {
+                healthy = false;
+            }
+            if (healthy != replica.isHealthy()) {
+                logger.info("Replica {} is now {}", replica.getName(), healthy ? "healthy" : "unhealthy");
+                replica.setHealthy(healthy);
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (MeteredDataSource dataSource : getDataSources()) {
+            FunctionTimer.builder("miniurl.datasource.connections", dataSource,
+                            MeteredDataSource::getConnectionCount, MeteredDataSource::getTotalMillis, TimeUnit.MILLISECONDS)
+                    .description("Connections taken from the datasource, and how long they were held")
+                    .tag("name", dataSource.getName())
+                    .register(registry);
+            FunctionCounter.builder("miniurl.datasource.failures", dataSource, MeteredDataSource::getFailureCount)
+                    .description("Failed attempts to get a connection from the datasource")
+                    .tag("name", dataSource.getName())
+                    .register(registry);
+            Gauge.builder("miniurl.datasource.healthy", dataSource, metered -> metered.isHealthy() ? 1 : 0)
+                    .description("1 while the datasource is used for reads, 0 after a failure until a health check passes")
+                    .tag("name", dataSource.getName())
+                    .register(registry);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (MeteredDataSource replica : replicas) {
+            if (replica.getTargetDataSource() instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
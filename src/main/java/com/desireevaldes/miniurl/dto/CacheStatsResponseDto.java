@@ -0,0 +1,75 @@
+package com.desireevaldes.miniurl.dto;
+
+import java.util.Objects;
+
+public class CacheStatsResponseDto {
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long estimatedSize;
+    private double hitRate;
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public void setHitCount(long hitCount) {
+        this.hitCount = hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public void setMissCount(long missCount) {
+        this.missCount = missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public void setEvictionCount(long evictionCount) {
+        this.evictionCount = evictionCount;
+    }
+
+    public long getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    public void setEstimatedSize(long estimatedSize) {
+        this.estimatedSize = estimatedSize;
+    }
+
+    public double getHitRate() {
+        return hitRate;
+    }
+
+    public void setHitRate(double hitRate) {
+        this.hitRate = hitRate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        CacheStatsResponseDto that = (CacheStatsResponseDto) o;
+        return hitCount == that.hitCount && missCount == that.missCount && evictionCount == that.evictionCount && estimatedSize == that.estimatedSize && Double.compare(hitRate, that.hitRate) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(hitCount, missCount, evictionCount, estimatedSize, hitRate);
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatsResponseDto{" +
+                "hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                ", estimatedSize=" + estimatedSize +
+                ", hitRate=" + hitRate +
+                '}';
+    }
+}
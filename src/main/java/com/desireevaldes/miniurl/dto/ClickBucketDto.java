@@ -0,0 +1,46 @@
+package com.desireevaldes.miniurl.dto;
+
+import java.time.Instant;
+import java.util.Objects;
+
+public class ClickBucketDto {
+
+    private Instant bucketStart;
+    private long clicks;
+
+    public Instant getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(Instant bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public long getClicks() {
+        return clicks;
+    }
+
+    public void setClicks(long clicks) {
+        this.clicks = clicks;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        ClickBucketDto that = (ClickBucketDto) o;
+        return clicks == that.clicks && Objects.equals(bucketStart, that.bucketStart);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bucketStart, clicks);
+    }
+
+    @Override
+    public String toString() {
+        return "ClickBucketDto{" +
+                "bucketStart=" + bucketStart +
+                ", clicks=" + clicks +
+                '}';
+    }
+}
@@ -0,0 +1,77 @@
+package com.desireevaldes.miniurl.dto;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+
+public class ClickStatsResponseDto {
+
+    private String miniKey;
+    private Instant from;
+    private Instant to;
+    private long totalClicks;
+    private List<ClickBucketDto> buckets;
+
+    public String getMiniKey() {
+        return miniKey;
+    }
+
+    public void setMiniKey(String miniKey) {
+        this.miniKey = miniKey;
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public void setFrom(Instant from) {
+        this.from = from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+
+    public void setTo(Instant to) {
+        this.to = to;
+    }
+
+    public long getTotalClicks() {
+        return totalClicks;
+    }
+
+    public void setTotalClicks(long totalClicks) {
+        this.totalClicks = totalClicks;
+    }
+
+    public List<ClickBucketDto> getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(List<ClickBucketDto> buckets) {
+        this.buckets = buckets;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        ClickStatsResponseDto that = (ClickStatsResponseDto) o;
+        return totalClicks == that.totalClicks && Objects.equals(miniKey, that.miniKey) && Objects.equals(from, that.from) && Objects.equals(to, that.to) && Objects.equals(buckets, that.buckets);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(miniKey, from, to, totalClicks, buckets);
+    }
+
+    @Override
+    public String toString() {
+        return "ClickStatsResponseDto{" +
+                "miniKey='" + miniKey + '\'' +
+                ", from=" + from +
+                ", to=" + to +
+                ", totalClicks=" + totalClicks +
+                ", buckets=" + buckets +
+                '}';
+    }
+}
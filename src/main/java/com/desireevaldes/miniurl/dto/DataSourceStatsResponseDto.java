@@ -0,0 +1,85 @@
+package com.desireevaldes.miniurl.dto;
+
+import java.util.Objects;
+
+public class DataSourceStatsResponseDto {
+
+    private String name;
+    private boolean healthy;
+    private long connectionCount;
+    private long failureCount;
+    private double meanMillis;
+    private double maxMillis;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public void setHealthy(boolean healthy) {
+        this.healthy = healthy;
+    }
+
+    public long getConnectionCount() {
+        return connectionCount;
+    }
+
+    public void setConnectionCount(long connectionCount) {
+        this.connectionCount = connectionCount;
+    }
+
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    public void setFailureCount(long failureCount) {
+        this.failureCount = failureCount;
+    }
+
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    public void setMeanMillis(double meanMillis) {
+        this.meanMillis = meanMillis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    public void setMaxMillis(double maxMillis) {
+        this.maxMillis = maxMillis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        DataSourceStatsResponseDto that = (DataSourceStatsResponseDto) o;
+        return healthy == that.healthy && connectionCount == that.connectionCount && failureCount == that.failureCount && Double.compare(meanMillis, that.meanMillis) == 0 && Double.compare(maxMillis, that.maxMillis) == 0 && Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, healthy, connectionCount, failureCount, meanMillis, maxMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "DataSourceStatsResponseDto{" +
+                "name='" + name + '\'' +
+                ", healthy=" + healthy +
+                ", connectionCount=" + connectionCount +
+                ", failureCount=" + failureCount +
+                ", meanMillis=" + meanMillis +
+                ", maxMillis=" + maxMillis +
+                '}';
+    }
+}
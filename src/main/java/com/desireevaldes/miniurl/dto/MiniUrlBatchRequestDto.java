@@ -0,0 +1,42 @@
+package com.desireevaldes.miniurl.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+import java.util.Objects;
+
+public class MiniUrlBatchRequestDto {
+    @NotEmpty(message = "Urls must not be empty")
+    @Size(max = 1000, message = "A batch must not exceed 1000 urls")
+    private List<@NotBlank(message = "Url must not be blank")
+                 @Size(max = 2048, message = "Url must not exceed 2048 characters") String> fullUrls;
+
+    public List<String> getFullUrls() {
+        return fullUrls;
+    }
+
+    public void setFullUrls(List<String> fullUrls) {
+        this.fullUrls = fullUrls;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        MiniUrlBatchRequestDto that = (MiniUrlBatchRequestDto) o;
+        return Objects.equals(fullUrls, that.fullUrls);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(fullUrls);
+    }
+
+    @Override
+    public String toString() {
+        return "MiniUrlBatchRequestDto{" +
+                "fullUrls=" + fullUrls +
+                '}';
+    }
+}
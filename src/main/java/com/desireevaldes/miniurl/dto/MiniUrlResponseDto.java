@@ -1,18 +1,14 @@
 package com.desireevaldes.miniurl.dto;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import java.time.Instant;
 import java.util.Objects;
 
 public class MiniUrlResponseDto {
-    private static final Logger logger = LoggerFactory.getLogger(MiniUrlResponseDto.class);
-
     private String miniKey;
     private String fullUrl;
     private Instant createdAt;
     private Instant updatedAt;
+    private Instant expiresAt;
 
     public String getMiniKey() {
         return miniKey;
@@ -20,7 +16,6 @@ public class MiniUrlResponseDto {
 
     public void setMiniKey(String miniKey) {
         this.miniKey = miniKey;
-        logger.debug("Set miniKey: {}", miniKey);
     }
 
     public String getFullUrl() {
@@ -29,7 +24,6 @@ public class MiniUrlResponseDto {
 
     public void setFullUrl(String fullUrl) {
         this.fullUrl = fullUrl;
-        logger.debug("Set fullUrl: {}", fullUrl);
     }
 
     public Instant getCreatedAt() {
@@ -48,16 +42,24 @@ public class MiniUrlResponseDto {
         this.updatedAt = updatedAt;
     }
 
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
         MiniUrlResponseDto that = (MiniUrlResponseDto) o;
-        return Objects.equals(miniKey, that.miniKey) && Objects.equals(fullUrl, that.fullUrl) && Objects.equals(createdAt, that.createdAt) && Objects.equals(updatedAt, that.updatedAt);
+        return Objects.equals(miniKey, that.miniKey) && Objects.equals(fullUrl, that.fullUrl) && Objects.equals(createdAt, that.createdAt) && Objects.equals(updatedAt, that.updatedAt) && Objects.equals(expiresAt, that.expiresAt);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(miniKey, fullUrl, createdAt, updatedAt);
+        return Objects.hash(miniKey, fullUrl, createdAt, updatedAt, expiresAt);
     }
 
     @Override
@@ -67,6 +69,7 @@ public class MiniUrlResponseDto {
                 ", fullUrl='" + fullUrl + '\'' +
                 ", createdAt=" + createdAt +
                 ", updatedAt=" + updatedAt +
+                ", expiresAt=" + expiresAt +
                 '}';
     }
 }
@@ -1,5 +1,6 @@
 package com.desireevaldes.miniurl.exceptions;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -12,6 +13,17 @@ public class ApiExceptionHandler {
         return ResponseEntity.notFound().build();
     }
 
+    // Unique key generation gave up: the keyspace is crowded, retrying later or with longer keys can succeed
+    @ExceptionHandler(MiniKeyGenerationException.class)
+    public ResponseEntity<String> handleKeyGeneration(MiniKeyGenerationException miniKeyGenerationException) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(miniKeyGenerationException.getMessage());
+    }
+
+    @ExceptionHandler(MiniUrlUnavailableException.class)
+    public ResponseEntity<String> handleUnavailable(MiniUrlUnavailableException miniUrlUnavailableException) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(miniUrlUnavailableException.getMessage());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleOther(Exception exception) {
         return ResponseEntity.badRequest().body(exception.getMessage());
@@ -0,0 +1,8 @@
+package com.desireevaldes.miniurl.exceptions;
+
+// A generated miniKey was taken by a concurrent create after its existence check: the create draws another one
+public class MiniKeyConflictException extends RuntimeException {
+    public MiniKeyConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.desireevaldes.miniurl.exceptions;
+
+public class MiniKeyGenerationException extends RuntimeException {
+    public MiniKeyGenerationException(String message) {
+        super(message);
+    }
+}
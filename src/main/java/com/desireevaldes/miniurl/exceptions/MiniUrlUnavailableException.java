@@ -0,0 +1,8 @@
+package com.desireevaldes.miniurl.exceptions;
+
+// A dependency of the request failed for now: retrying the same request later can succeed
+public class MiniUrlUnavailableException extends RuntimeException {
+    public MiniUrlUnavailableException(String message) {
+        super(message);
+    }
+}
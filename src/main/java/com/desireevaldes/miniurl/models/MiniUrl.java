@@ -5,13 +5,18 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Persistable;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.util.Objects;
+import java.util.UUID;
 
 @Entity
 @Table(name = "mini_urls")
-public class MiniUrl {
+public class MiniUrl implements Persistable<String> {
     private static final Logger logger = LoggerFactory.getLogger(MiniUrl.class);
 
     @Id
@@ -24,22 +29,67 @@ public class MiniUrl {
     @Size(max = 2048, message = "Url must not exceed 2048 characters")
     private String fullUrl;
 
+    // First 128 bits of the SHA-256 of fullUrl, indexed for dedupe lookups instead of the full TEXT column.
+    @Column(nullable = false)
+    private UUID fullUrlHash;
+
     @Column(nullable = false, updatable = false)
     private Instant createdAt;
 
     @Column(nullable = false)
     private Instant updatedAt;
 
+    // Null for links that never expire. Expired links are not served, and MiniUrlReaper deletes them later.
+    // Set once on insert: a partitioned mini_urls (v7) refuses to move a row to another month.
+    @Column(updatable = false)
+    private Instant expiresAt;
+
+    // miniKeys are assigned by the application, so track newness explicitly to let save() insert
+    // directly instead of merging (which selects first and would overwrite an existing row on a key clash).
+    @Transient
+    private boolean newEntity = true;
+
+    public MiniUrl() {
+    }
+
+    // Read-only copy of a stored row, built by projection queries without going through the persistence context
+    public MiniUrl(String miniKey, String fullUrl, UUID fullUrlHash, Instant createdAt, Instant updatedAt, Instant expiresAt) {
+        this.miniKey = miniKey;
+        this.fullUrl = fullUrl;
+        this.fullUrlHash = fullUrlHash;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.expiresAt = expiresAt;
+        this.newEntity = false;
+    }
+
     @PrePersist
     protected void onCreate() {
         this.createdAt = this.updatedAt = Instant.now();
-        logger.debug("MiniUrl created: {}", this);
+        logger.debug("MiniUrl created with miniKey: {}", miniKey);
     }
 
     @PreUpdate
     protected void onUpdate() {
         this.updatedAt = Instant.now();
-        logger.debug("MiniUrl updated: {}", this);
+        logger.debug("MiniUrl updated with miniKey: {}", miniKey);
+    }
+
+    // Also called by the stores that bypass JPA once they stored the MiniUrl
+    @PostLoad
+    @PostPersist
+    public void markNotNew() {
+        this.newEntity = false;
+    }
+
+    @Override
+    public String getId() {
+        return miniKey;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
     }
 
     public String getMiniKey() {
@@ -56,6 +106,35 @@ public class MiniUrl {
 
     public void setFullUrl(String fullUrl) {
         this.fullUrl = fullUrl;
+        this.fullUrlHash = hashFullUrl(fullUrl);
+    }
+
+    // For storage backends that keep fullUrlHash next to fullUrl, so reads do not hash it again
+    public void setFullUrl(String fullUrl, UUID fullUrlHash) {
+        this.fullUrl = fullUrl;
+        this.fullUrlHash = fullUrlHash;
+    }
+
+    public UUID getFullUrlHash() {
+        return fullUrlHash;
+    }
+
+    public static UUID hashFullUrl(String fullUrl) {
+        if (fullUrl == null) {
+            return null;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(fullUrl.getBytes(StandardCharsets.UTF_8));
+            long mostSigBits = 0;
+            long leastSigBits = 0;
+            for (int i = 0; i < 8; i++) {
+                mostSigBits = (mostSigBits << 8) | (digest[i] & 0xFF);
+                leastSigBits = (leastSigBits << 8) | (digest[i + 8] & 0xFF);
+            }
+            return new UUID(mostSigBits, leastSigBits);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
     }
 
     public Instant getCreatedAt() {
@@ -74,16 +153,28 @@ public class MiniUrl {
         this.updatedAt = updatedAt;
     }
 
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isExpiredAt(Instant now) {
+        return expiresAt != null && !expiresAt.isAfter(now);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
         MiniUrl miniUrl = (MiniUrl) o;
-        return Objects.equals(miniKey, miniUrl.miniKey) && Objects.equals(fullUrl, miniUrl.fullUrl) && Objects.equals(createdAt, miniUrl.createdAt) && Objects.equals(updatedAt, miniUrl.updatedAt);
+        return Objects.equals(miniKey, miniUrl.miniKey) && Objects.equals(fullUrl, miniUrl.fullUrl) && Objects.equals(createdAt, miniUrl.createdAt) && Objects.equals(updatedAt, miniUrl.updatedAt) && Objects.equals(expiresAt, miniUrl.expiresAt);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(miniKey, fullUrl, createdAt, updatedAt);
+        return Objects.hash(miniKey, fullUrl, createdAt, updatedAt, expiresAt);
     }
 
     @Override
@@ -93,6 +184,7 @@ public class MiniUrl {
                 ", fullUrl='" + fullUrl + '\'' +
                 ", createdAt=" + createdAt +
                 ", updatedAt=" + updatedAt +
+                ", expiresAt=" + expiresAt +
                 '}';
     }
 }
@@ -0,0 +1,67 @@
+package com.desireevaldes.miniurl.models;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.Objects;
+
+@Entity
+@Table(name = "mini_url_click_stats")
+@IdClass(MiniUrlClickStatsId.class)
+public class MiniUrlClickStats {
+
+    @Id
+    @Column(length = 32)
+    private String miniKey;
+
+    @Id
+    private Instant bucketStart;
+
+    @Column(nullable = false)
+    private long clicks;
+
+    public String getMiniKey() {
+        return miniKey;
+    }
+
+    public void setMiniKey(String miniKey) {
+        this.miniKey = miniKey;
+    }
+
+    public Instant getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(Instant bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public long getClicks() {
+        return clicks;
+    }
+
+    public void setClicks(long clicks) {
+        this.clicks = clicks;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        MiniUrlClickStats that = (MiniUrlClickStats) o;
+        return clicks == that.clicks && Objects.equals(miniKey, that.miniKey) && Objects.equals(bucketStart, that.bucketStart);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(miniKey, bucketStart, clicks);
+    }
+
+    @Override
+    public String toString() {
+        return "MiniUrlClickStats{" +
+                "miniKey='" + miniKey + '\'' +
+                ", bucketStart=" + bucketStart +
+                ", clicks=" + clicks +
+                '}';
+    }
+}
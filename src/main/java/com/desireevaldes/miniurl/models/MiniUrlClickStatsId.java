@@ -0,0 +1,30 @@
+package com.desireevaldes.miniurl.models;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+public class MiniUrlClickStatsId implements Serializable {
+    private String miniKey;
+    private Instant bucketStart;
+
+    public MiniUrlClickStatsId() {
+    }
+
+    public MiniUrlClickStatsId(String miniKey, Instant bucketStart) {
+        this.miniKey = miniKey;
+        this.bucketStart = bucketStart;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        MiniUrlClickStatsId that = (MiniUrlClickStatsId) o;
+        return Objects.equals(miniKey, that.miniKey) && Objects.equals(bucketStart, that.bucketStart);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(miniKey, bucketStart);
+    }
+}
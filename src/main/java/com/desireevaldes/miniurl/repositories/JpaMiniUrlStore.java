@@ -0,0 +1,125 @@
+package com.desireevaldes.miniurl.repositories;
+
+import com.desireevaldes.miniurl.models.MiniUrl;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Default storage backend: mini_urls in Postgres through {@link MiniUrlRepository}.
+ * Resolves read their row with a plain prepared statement instead, see {@link #findReadOnlyByMiniKey}.
+ */
+@Component
+@ConditionalOnProperty(name = "MINIURL_STORAGE_BACKEND", havingValue = MiniUrlStore.JPA_BACKEND, matchIfMissing = true)
+public class JpaMiniUrlStore implements MiniUrlStore {
+
+    private static final String FIND_BY_MINI_KEY_SQL =
+            "SELECT " + MiniUrlRows.COLUMNS + " FROM mini_urls WHERE mini_key = ?";
+
+    private final MiniUrlRepository miniUrlRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    public JpaMiniUrlStore(MiniUrlRepository miniUrlRepository, JdbcTemplate jdbcTemplate) {
+        this.miniUrlRepository = miniUrlRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public CompletableFuture<Optional<MiniUrl>> findByMiniKey(String miniKey) {
+        return miniUrlRepository.findByMiniKey(miniKey);
+    }
+
+    @Override
+    public Optional<MiniUrl> findById(String miniKey) {
+        return miniUrlRepository.findById(miniKey);
+    }
+
+    // No EntityManager, persistence context entry or dirty-checking snapshot: one statement mapped to a plain MiniUrl.
+    // Outside a transaction the connection is marked read-only before the statement, so with read replicas it is
+    // routed like a read-only transaction would be.
+    @Override
+    public Optional<MiniUrl> findReadOnlyByMiniKey(String miniKey) {
+        return jdbcTemplate.execute((ConnectionCallback<Optional<MiniUrl>>) connection -> {
+            if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+                connection.setReadOnly(true);
+            }
+            try (PreparedStatement statement = connection.prepareStatement(FIND_BY_MINI_KEY_SQL)) {
+                statement.setString(1, miniKey);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next()
+                            ? Optional.of(MiniUrlRows.mapMiniUrl(resultSet, 0))
+                            : Optional.empty();
+                }
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<MiniUrl>> findByFullUrlHash(UUID fullUrlHash) {
+        return miniUrlRepository.findByFullUrlHash(fullUrlHash);
+    }
+
+    @Override
+    public CompletableFuture<List<MiniUrl>> findByFullUrlHashIn(Collection<UUID> fullUrlHashes) {
+        return miniUrlRepository.findByFullUrlHashIn(fullUrlHashes);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> existsByMiniKey(String miniKey) {
+        return miniUrlRepository.existsByMiniKey(miniKey);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> findExistingMiniKeys(Collection<String> miniKeys) {
+        return miniUrlRepository.findExistingMiniKeys(miniKeys);
+    }
+
+    @Override
+    public CompletableFuture<List<MiniUrl>> findByMiniKeyGreaterThanOrderByMiniKeyAsc(String miniKey, Limit limit) {
+        return miniUrlRepository.findByMiniKeyGreaterThanOrderByMiniKeyAsc(miniKey, limit);
+    }
+
+    @Override
+    public Stream<MiniUrl> streamAll() {
+        return miniUrlRepository.streamAll();
+    }
+
+    @Override
+    public Stream<String> streamAllMiniKeys() {
+        return miniUrlRepository.streamAllMiniKeys();
+    }
+
+    @Override
+    public MiniUrl save(MiniUrl miniUrl) {
+        return miniUrlRepository.save(miniUrl);
+    }
+
+    @Override
+    public List<MiniUrl> saveAll(List<MiniUrl> miniUrls) {
+        return miniUrlRepository.saveAll(miniUrls);
+    }
+
+    @Override
+    public void deleteById(String miniKey) {
+        miniUrlRepository.deleteById(miniKey);
+    }
+
+    @Override
+    public int deleteExpired(Instant now, int limit) {
+        return jdbcTemplate.update(MiniUrlRows.DELETE_EXPIRED_SQL, Timestamp.from(now), limit);
+    }
+}
@@ -0,0 +1,19 @@
+package com.desireevaldes.miniurl.repositories;
+
+import com.desireevaldes.miniurl.models.MiniUrlClickStats;
+import com.desireevaldes.miniurl.models.MiniUrlClickStatsId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Repository
+public interface MiniUrlClickStatsRepository extends JpaRepository<MiniUrlClickStats, MiniUrlClickStatsId> {
+
+    @Async
+    CompletableFuture<List<MiniUrlClickStats>> findByMiniKeyAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStartAsc(
+            String miniKey, Instant from, Instant to);
+}
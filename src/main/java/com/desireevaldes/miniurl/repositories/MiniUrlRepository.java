@@ -1,25 +1,62 @@
 package com.desireevaldes.miniurl.repositories;
 
 import com.desireevaldes.miniurl.models.MiniUrl;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 @Repository
 public interface MiniUrlRepository extends JpaRepository<MiniUrl, String> {
 
+    // Read-only transactions may be served by a replica (MINIURL_REPLICA_URLS), the other queries run on the primary
     @Async
+    @Transactional(readOnly = true)
     CompletableFuture<Optional<MiniUrl>> findByMiniKey(String miniKey);
 
     @Async
-    CompletableFuture<Optional<MiniUrl>> findByFullUrl(String fullUrl);
+    CompletableFuture<List<MiniUrl>> findByFullUrlHash(UUID fullUrlHash);
 
     @Async
-    CompletableFuture<Boolean> existsByFullUrl(String fullUrl);
+    CompletableFuture<List<MiniUrl>> findByFullUrlHashIn(Collection<UUID> fullUrlHashes);
 
     @Async
     CompletableFuture<Boolean> existsByMiniKey(String miniKey);
+
+    @Async
+    @Transactional(readOnly = true)
+    CompletableFuture<List<MiniUrl>> findByMiniKeyGreaterThanOrderByMiniKeyAsc(String miniKey, Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT m FROM MiniUrl m ORDER BY m.miniKey")
+    Stream<MiniUrl> streamAll();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT m.miniKey FROM MiniUrl m")
+    Stream<String> streamAllMiniKeys();
+
+    @Async
+    @Query("SELECT m.miniKey FROM MiniUrl m WHERE m.miniKey IN :miniKeys")
+    CompletableFuture<List<String>> findExistingMiniKeys(Collection<String> miniKeys);
+
+    @Query(value = "SELECT nextval('mini_key_block_seq')", nativeQuery = true)
+    long nextMiniKeyBlock();
 }
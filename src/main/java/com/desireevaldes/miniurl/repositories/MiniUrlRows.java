@@ -0,0 +1,35 @@
+package com.desireevaldes.miniurl.repositories;
+
+import com.desireevaldes.miniurl.models.MiniUrl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * mini_urls rows read and written over plain JDBC, by the stores that bypass JPA.
+ */
+final class MiniUrlRows {
+
+    static final String COLUMNS = "mini_key, full_url, full_url_hash, created_at, updated_at, expires_at";
+    // At most ? rows, so each statement holds its locks briefly
+    static final String DELETE_EXPIRED_SQL = "DELETE FROM mini_urls WHERE mini_key IN"
+            + " (SELECT mini_key FROM mini_urls WHERE expires_at <= ? LIMIT ?)";
+
+    private MiniUrlRows() {
+    }
+
+    // Maps a row of COLUMNS
+    static MiniUrl mapMiniUrl(ResultSet resultSet, int rowNum) throws SQLException {
+        Timestamp expiresAt = resultSet.getTimestamp(6);
+        return new MiniUrl(resultSet.getString(1), resultSet.getString(2), resultSet.getObject(3, UUID.class),
+                resultSet.getTimestamp(4).toInstant(), resultSet.getTimestamp(5).toInstant(),
+                expiresAt == null ? null : expiresAt.toInstant());
+    }
+
+    static Timestamp toTimestamp(Instant instant) {
+        return instant == null ? null : Timestamp.from(instant);
+    }
+}
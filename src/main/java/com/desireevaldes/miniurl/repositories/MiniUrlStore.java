@@ -0,0 +1,78 @@
+package com.desireevaldes.miniurl.repositories;
+
+import com.desireevaldes.miniurl.models.MiniUrl;
+import org.springframework.data.domain.Limit;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Storage backend for MiniUrls, selected with MINIURL_STORAGE_BACKEND:
+ * "jpa" (default, {@link JpaMiniUrlStore} over Postgres), "offheap" ({@link OffHeapMiniUrlStore}, local files) or
+ * "sharded" ({@link ShardedMiniUrlStore}, mini_urls spread over several Postgres databases).
+ * Method names and semantics follow {@link MiniUrlRepository}.
+ */
+public interface MiniUrlStore {
+
+    String JPA_BACKEND = "jpa";
+    String OFF_HEAP_BACKEND = "offheap";
+    String SHARDED_BACKEND = "sharded";
+
+    /**
+     * Characters new miniKeys for this fullUrl must start with. Sharded storage routes a miniKey by its first
+     * characters, so keys created with this prefix live on the shard that dedupe lookups of the fullUrl query.
+     */
+    default String miniKeyPrefix(UUID fullUrlHash) {
+        return "";
+    }
+
+    CompletableFuture<Optional<MiniUrl>> findByMiniKey(String miniKey);
+
+    Optional<MiniUrl> findById(String miniKey);
+
+    /**
+     * Same as {@link #findById}, for reads that only serve the MiniUrl, like redirects: JPA then loads it without
+     * managing it. Backends that build plain MiniUrls anyway keep this default.
+     */
+    default Optional<MiniUrl> findReadOnlyByMiniKey(String miniKey) {
+        return findById(miniKey);
+    }
+
+    CompletableFuture<List<MiniUrl>> findByFullUrlHash(UUID fullUrlHash);
+
+    CompletableFuture<List<MiniUrl>> findByFullUrlHashIn(Collection<UUID> fullUrlHashes);
+
+    CompletableFuture<Boolean> existsByMiniKey(String miniKey);
+
+    CompletableFuture<List<String>> findExistingMiniKeys(Collection<String> miniKeys);
+
+    CompletableFuture<List<MiniUrl>> findByMiniKeyGreaterThanOrderByMiniKeyAsc(String miniKey, Limit limit);
+
+    /**
+     * Every MiniUrl ordered by miniKey. Must be closed, and called inside a read-only transaction for JPA.
+     */
+    Stream<MiniUrl> streamAll();
+
+    /**
+     * Every miniKey, in no particular order. Must be closed, and called inside a read-only transaction for JPA.
+     */
+    Stream<String> streamAllMiniKeys();
+
+    MiniUrl save(MiniUrl miniUrl);
+
+    List<MiniUrl> saveAll(List<MiniUrl> miniUrls);
+
+    void deleteById(String miniKey);
+
+    /**
+     * Deletes up to limit MiniUrls that expired at or before now, see {@link MiniUrl#getExpiresAt}.
+     *
+     * @return the number of MiniUrls deleted
+     */
+    int deleteExpired(Instant now, int limit);
+}
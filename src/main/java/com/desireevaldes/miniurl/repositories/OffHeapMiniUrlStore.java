@@ -0,0 +1,469 @@
+package com.desireevaldes.miniurl.repositories;
+
+import com.desireevaldes.miniurl.exceptions.MiniKeyConflictException;
+import com.desireevaldes.miniurl.models.MiniUrl;
+import com.desireevaldes.miniurl.utils.MappedRecordLog;
+import com.desireevaldes.miniurl.utils.OffHeapHashIndex;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Embedded storage backend, selected with MINIURL_STORAGE_BACKEND=offheap: MiniUrls live in a memory-mapped,
+ * append-only {@link MappedRecordLog} and are found through two {@link OffHeapHashIndex}es (by miniKey and by
+ * fullUrlHash) that hold record addresses, so no Java object is kept per stored MiniUrl.
+ * <p>
+ * Saves append a new version of the record and deletes append a tombstone. Once superseded records take more space
+ * than live ones, compaction copies the live records to a new log generation and swaps it in. The indexes are rebuilt
+ * by replaying the log on startup. Lookups by miniKey and fullUrlHash are O(1); pages and exports scan the index.
+ */
+@Component
+@ConditionalOnProperty(name = "MINIURL_STORAGE_BACKEND", havingValue = MiniUrlStore.OFF_HEAP_BACKEND)
+public class OffHeapMiniUrlStore implements MiniUrlStore {
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapMiniUrlStore.class);
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    // PUT with an expiresAt, see the record layout below
+    private static final byte PUT_EXPIRING = 3;
+    // Compaction is not worth it below this many superseded bytes
+    private static final long MIN_COMPACTION_BYTES = 1 << 20;
+
+    private final int segmentBytes;
+    private final int expectedKeys;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private MappedRecordLog log;
+    // hash(miniKey) -> address of the latest record, hash(fullUrlHash) -> addresses of records with that fullUrl
+    private OffHeapHashIndex miniKeyIndex;
+    private OffHeapHashIndex fullUrlIndex;
+    private long liveBytes;
+    private long deadBytes;
+
+    public OffHeapMiniUrlStore(
+            @Value("${MINIURL_OFFHEAP_DIR:data}") String directory,
+            @Value("${MINIURL_OFFHEAP_SEGMENT_MB:64}") int segmentMegabytes,
+            @Value("${MINIURL_OFFHEAP_EXPECTED_KEYS:1000000}") int expectedKeys
+    ) {
+        this.segmentBytes = segmentMegabytes << 20;
+        this.expectedKeys = expectedKeys;
+        this.miniKeyIndex = new OffHeapHashIndex(expectedKeys);
+        this.fullUrlIndex = new OffHeapHashIndex(expectedKeys);
+        this.log = MappedRecordLog.open(Paths.get(directory), segmentBytes);
+        log.forEachRecord(this::replayRecord);
+        logger.info("Off-heap MiniUrl store opened in {} with {} MiniUrls ({} live bytes, {} superseded bytes)",
+                Paths.get(directory).toAbsolutePath(), miniKeyIndex.size(), liveBytes, deadBytes);
+    }
+
+    private void replayRecord(long address, ByteBuffer record) {
+        byte[] miniKey = readMiniKey(record);
+        long miniKeyHash = OffHeapHashIndex.hash(miniKey);
+        long previousAddress = findAddress(miniKeyHash, miniKey);
+        if (previousAddress >= 0) {
+            removeFromIndexes(miniKeyHash, previousAddress);
+        }
+        if (record.get(0) != DELETE) {
+            addToIndexes(miniKeyHash, address, record);
+        } else {
+            deadBytes += MappedRecordLog.recordBytes(record.remaining());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Optional<MiniUrl>> findByMiniKey(String miniKey) {
+        return CompletableFuture.completedFuture(findById(miniKey));
+    }
+
+    @Override
+    public Optional<MiniUrl> findById(String miniKey) {
+        byte[] miniKeyBytes = miniKey.getBytes(StandardCharsets.UTF_8);
+        lock.readLock().lock();
+        try {
+            long address = findAddress(OffHeapHashIndex.hash(miniKeyBytes), miniKeyBytes);
+            return address < 0 ? Optional.empty() : Optional.of(readMiniUrl(log.read(address)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<MiniUrl>> findByFullUrlHash(UUID fullUrlHash) {
+        lock.readLock().lock();
+        try {
+            List<MiniUrl> miniUrls = new ArrayList<>(1);
+            fullUrlIndex.forEach(fullUrlHash.getMostSignificantBits(), address -> {
+                ByteBuffer record = log.read(address);
+                if (fullUrlHash.equals(readFullUrlHash(record))) {
+                    miniUrls.add(readMiniUrl(record));
+                }
+            });
+            return CompletableFuture.completedFuture(miniUrls);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<MiniUrl>> findByFullUrlHashIn(Collection<UUID> fullUrlHashes) {
+        List<MiniUrl> miniUrls = new ArrayList<>(fullUrlHashes.size());
+        for (UUID fullUrlHash : fullUrlHashes) {
+            miniUrls.addAll(findByFullUrlHash(fullUrlHash).join());
+        }
+        return CompletableFuture.completedFuture(miniUrls);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> existsByMiniKey(String miniKey) {
+        return CompletableFuture.completedFuture(exists(miniKey));
+    }
+
+    private boolean exists(String miniKey) {
+        byte[] miniKeyBytes = miniKey.getBytes(StandardCharsets.UTF_8);
+        lock.readLock().lock();
+        try {
+            return findAddress(OffHeapHashIndex.hash(miniKeyBytes), miniKeyBytes) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<String>> findExistingMiniKeys(Collection<String> miniKeys) {
+        return CompletableFuture.completedFuture(miniKeys.stream().filter(this::exists).toList());
+    }
+
+    @Override
+    public CompletableFuture<List<MiniUrl>> findByMiniKeyGreaterThanOrderByMiniKeyAsc(String miniKey, Limit limit) {
+        int pageSize = limit.isLimited() ? limit.max() : Integer.MAX_VALUE;
+        lock.readLock().lock();
+        try {
+            // Keeps the pageSize smallest miniKeys after the cursor, largest on top
+            PriorityQueue<Entry> page = new PriorityQueue<>(Comparator.comparing(Entry::miniKey).reversed());
+            miniKeyIndex.forEachValue(address -> {
+                String candidate = new String(readMiniKey(log.read(address)), StandardCharsets.UTF_8);
+                if (candidate.compareTo(miniKey) > 0) {
+                    if (page.size() < pageSize) {
+                        page.add(new Entry(candidate, address));
+                    } else if (candidate.compareTo(page.peek().miniKey()) < 0) {
+                        page.poll();
+                        page.add(new Entry(candidate, address));
+                    }
+                }
+            });
+            List<Entry> entries = new ArrayList<>(page);
+            entries.sort(Comparator.comparing(Entry::miniKey));
+            return CompletableFuture.completedFuture(entries.stream()
+                    .map(entry -> readMiniUrl(log.read(entry.address())))
+                    .toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sorts the miniKeys up front, then reads each MiniUrl lazily from the log generation current at the call,
+     * which stays readable if it is compacted meanwhile.
+     */
+    @Override
+    public Stream<MiniUrl> streamAll() {
+        lock.readLock().lock();
+        try {
+            MappedRecordLog snapshot = log;
+            List<Entry> entries = new ArrayList<>(miniKeyIndex.size());
+            miniKeyIndex.forEachValue(address -> entries.add(
+                    new Entry(new String(readMiniKey(snapshot.read(address)), StandardCharsets.UTF_8), address)));
+            entries.sort(Comparator.comparing(Entry::miniKey));
+            return entries.stream().map(entry -> readMiniUrl(snapshot.read(entry.address())));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Stream<String> streamAllMiniKeys() {
+        lock.readLock().lock();
+        try {
+            List<String> miniKeys = new ArrayList<>(miniKeyIndex.size());
+            miniKeyIndex.forEachValue(address -> miniKeys.add(new String(readMiniKey(log.read(address)), StandardCharsets.UTF_8)));
+            return miniKeys.stream();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts a new MiniUrl or replaces a stored one, setting its timestamps like the JPA entity callbacks do.
+     *
+     * @throws MiniKeyConflictException if the MiniUrl is new and its miniKey is already stored, like the JPA insert
+     */
+    @Override
+    public MiniUrl save(MiniUrl miniUrl) {
+        lock.writeLock().lock();
+        try {
+            byte[] miniKey = miniUrl.getMiniKey().getBytes(StandardCharsets.UTF_8);
+            long miniKeyHash = OffHeapHashIndex.hash(miniKey);
+            long previousAddress = findAddress(miniKeyHash, miniKey);
+            if (miniUrl.isNew() && previousAddress >= 0) {
+                throw conflict(miniUrl);
+            }
+            // Microsecond precision, as stored in the log and in Postgres
+            Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+            if (miniUrl.getCreatedAt() == null) {
+                miniUrl.setCreatedAt(now);
+            }
+            miniUrl.setUpdatedAt(now);
+            ByteBuffer record = writeMiniUrl(miniKey, miniUrl);
+            long address = log.append(record);
+            if (previousAddress >= 0) {
+                removeFromIndexes(miniKeyHash, previousAddress);
+            }
+            addToIndexes(miniKeyHash, address, record);
+            miniUrl.markNotNew();
+            return miniUrl;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Checks every new MiniUrl before saving any, so a conflict leaves the batch unsaved like a failed JPA transaction
+    @Override
+    public List<MiniUrl> saveAll(List<MiniUrl> miniUrls) {
+        lock.writeLock().lock();
+        try {
+            Set<String> newMiniKeys = new HashSet<>();
+            for (MiniUrl miniUrl : miniUrls) {
+                if (!miniUrl.isNew()) {
+                    continue;
+                }
+                byte[] miniKey = miniUrl.getMiniKey().getBytes(StandardCharsets.UTF_8);
+                if (!newMiniKeys.add(miniUrl.getMiniKey()) || findAddress(OffHeapHashIndex.hash(miniKey), miniKey) >= 0) {
+                    throw conflict(miniUrl);
+                }
+            }
+            miniUrls.forEach(this::save);
+            return miniUrls;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static MiniKeyConflictException conflict(MiniUrl miniUrl) {
+        return new MiniKeyConflictException("miniKey " + miniUrl.getMiniKey() + " is already stored");
+    }
+
+    @Override
+    public void deleteById(String miniKey) {
+        byte[] miniKeyBytes = miniKey.getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            long miniKeyHash = OffHeapHashIndex.hash(miniKeyBytes);
+            long address = findAddress(miniKeyHash, miniKeyBytes);
+            if (address < 0) {
+                return;
+            }
+            ByteBuffer tombstone = ByteBuffer.allocate(1 + Short.BYTES + miniKeyBytes.length)
+                    .put(DELETE)
+                    .putShort((short) miniKeyBytes.length)
+                    .put(miniKeyBytes)
+                    .flip();
+            log.append(tombstone);
+            removeFromIndexes(miniKeyHash, address);
+            deadBytes += MappedRecordLog.recordBytes(tombstone.limit());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Scans the index, like pages do
+    @Override
+    public int deleteExpired(Instant now, int limit) {
+        lock.writeLock().lock();
+        try {
+            List<String> expiredMiniKeys = new ArrayList<>();
+            miniKeyIndex.forEachValue(address -> {
+                ByteBuffer record = log.read(address);
+                if (expiredMiniKeys.size() < limit && record.get(0) == PUT_EXPIRING
+                        && !readExpiresAt(record).isAfter(now)) {
+                    expiredMiniKeys.add(new String(readMiniKey(record), StandardCharsets.UTF_8));
+                }
+            });
+            expiredMiniKeys.forEach(this::deleteById);
+            return expiredMiniKeys.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return miniKeyIndex.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Forces recent writes to disk, then compacts the log once superseded records outweigh live ones.
+     */
+    @Scheduled(fixedDelayString = "${MINIURL_OFFHEAP_FORCE_INTERVAL_MS:1000}")
+    public void maintain() {
+        lock.writeLock().lock();
+        try {
+            log.force();
+            if (deadBytes > MIN_COMPACTION_BYTES && deadBytes > liveBytes) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the live records to a new log generation and rebuilds the indexes over it. Blocks reads and writes.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            long startNanos = System.nanoTime();
+            long previousBytes = log.sizeBytes();
+            MappedRecordLog compactedLog = log.nextGeneration();
+            OffHeapHashIndex compactedMiniKeyIndex = new OffHeapHashIndex(Math.max(expectedKeys, miniKeyIndex.size()));
+            OffHeapHashIndex compactedFullUrlIndex = new OffHeapHashIndex(Math.max(expectedKeys, miniKeyIndex.size()));
+            MappedRecordLog currentLog = log;
+            miniKeyIndex.forEachValue(address -> {
+                ByteBuffer record = currentLog.read(address);
+                long compactedAddress = compactedLog.append(record.duplicate());
+                compactedMiniKeyIndex.add(OffHeapHashIndex.hash(readMiniKey(record)), compactedAddress);
+                compactedFullUrlIndex.add(readFullUrlHash(record).getMostSignificantBits(), compactedAddress);
+            });
+            compactedLog.commit();
+            log = compactedLog;
+            miniKeyIndex = compactedMiniKeyIndex;
+            fullUrlIndex = compactedFullUrlIndex;
+            deadBytes = 0;
+            currentLog.deleteFiles();
+            logger.info("Compacted off-heap MiniUrl store from {} to {} bytes in {} ms",
+                    previousBytes, log.sizeBytes(), (System.nanoTime() - startNanos) / 1_000_000);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            log.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long findAddress(long miniKeyHash, byte[] miniKey) {
+        return miniKeyIndex.find(miniKeyHash, address -> hasMiniKey(log.read(address), miniKey));
+    }
+
+    private void addToIndexes(long miniKeyHash, long address, ByteBuffer record) {
+        miniKeyIndex.add(miniKeyHash, address);
+        fullUrlIndex.add(readFullUrlHash(record).getMostSignificantBits(), address);
+        liveBytes += MappedRecordLog.recordBytes(record.remaining());
+    }
+
+    private void removeFromIndexes(long miniKeyHash, long address) {
+        ByteBuffer record = log.read(address);
+        miniKeyIndex.remove(miniKeyHash, address);
+        fullUrlIndex.remove(readFullUrlHash(record).getMostSignificantBits(), address);
+        int recordBytes = MappedRecordLog.recordBytes(record.remaining());
+        liveBytes -= recordBytes;
+        deadBytes += recordBytes;
+    }
+
+    // Record: [byte type][short miniKey length][miniKey][long createdAt micros][long updatedAt micros]
+    //         ([long expiresAt micros] for PUT_EXPIRING)[long fullUrlHash msb][long fullUrlHash lsb][fullUrl],
+    //         tombstones stop after the miniKey.
+
+    private static ByteBuffer writeMiniUrl(byte[] miniKey, MiniUrl miniUrl) {
+        byte[] fullUrl = miniUrl.getFullUrl().getBytes(StandardCharsets.UTF_8);
+        byte type = miniUrl.getExpiresAt() == null ? PUT : PUT_EXPIRING;
+        ByteBuffer record = ByteBuffer.allocate(1 + Short.BYTES + miniKey.length + (timestamps(type) + 2) * Long.BYTES + fullUrl.length)
+                .put(type)
+                .putShort((short) miniKey.length)
+                .put(miniKey)
+                .putLong(ChronoUnit.MICROS.between(Instant.EPOCH, miniUrl.getCreatedAt()))
+                .putLong(ChronoUnit.MICROS.between(Instant.EPOCH, miniUrl.getUpdatedAt()));
+        if (type == PUT_EXPIRING) {
+            record.putLong(ChronoUnit.MICROS.between(Instant.EPOCH, miniUrl.getExpiresAt()));
+        }
+        return record
+                .putLong(miniUrl.getFullUrlHash().getMostSignificantBits())
+                .putLong(miniUrl.getFullUrlHash().getLeastSignificantBits())
+                .put(fullUrl)
+                .flip();
+    }
+
+    private static byte[] readMiniKey(ByteBuffer record) {
+        byte[] miniKey = new byte[record.getShort(1)];
+        record.get(1 + Short.BYTES, miniKey);
+        return miniKey;
+    }
+
+    private static boolean hasMiniKey(ByteBuffer record, byte[] miniKey) {
+        return record.getShort(1) == miniKey.length
+                && record.slice(1 + Short.BYTES, miniKey.length).equals(ByteBuffer.wrap(miniKey));
+    }
+
+    // Timestamps stored before the fullUrlHash by records of this type
+    private static int timestamps(byte type) {
+        return type == PUT_EXPIRING ? 3 : 2;
+    }
+
+    private static UUID readFullUrlHash(ByteBuffer record) {
+        int offset = 1 + Short.BYTES + record.getShort(1) + timestamps(record.get(0)) * Long.BYTES;
+        return new UUID(record.getLong(offset), record.getLong(offset + Long.BYTES));
+    }
+
+    // Only for PUT_EXPIRING records
+    private static Instant readExpiresAt(ByteBuffer record) {
+        return Instant.EPOCH.plus(record.getLong(1 + Short.BYTES + record.getShort(1) + 2 * Long.BYTES), ChronoUnit.MICROS);
+    }
+
+    private static MiniUrl readMiniUrl(ByteBuffer record) {
+        byte[] miniKey = readMiniKey(record);
+        int offset = 1 + Short.BYTES + miniKey.length;
+        int fullUrlOffset = offset + (timestamps(record.get(0)) + 2) * Long.BYTES;
+        byte[] fullUrl = new byte[record.limit() - fullUrlOffset];
+        record.get(fullUrlOffset, fullUrl);
+        // Not new, so saving it back updates the record
+        return new MiniUrl(new String(miniKey, StandardCharsets.UTF_8), new String(fullUrl, StandardCharsets.UTF_8),
+                readFullUrlHash(record), Instant.EPOCH.plus(record.getLong(offset), ChronoUnit.MICROS),
+                Instant.EPOCH.plus(record.getLong(offset + Long.BYTES), ChronoUnit.MICROS),
+                record.get(0) == PUT_EXPIRING ? readExpiresAt(record) : null);
+    }
+
+    private record Entry(String miniKey, long address) {
+    }
+}
@@ -0,0 +1,196 @@
+package com.desireevaldes.miniurl.repositories;
+
+import com.desireevaldes.miniurl.models.MiniUrl;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Readable;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * mini_urls through R2DBC, for the reactive stack. Queries run on the Reactor Netty event loops and no thread waits
+ * for the database, so concurrent requests are bounded by the pool size (MINIURL_R2DBC_POOL_SIZE) instead of threads.
+ * <p>
+ * The pool connects to the database of spring.datasource (DB_URL, DB_USER, DB_PASS), with the JDBC URL read as an
+ * R2DBC URL. Method names and semantics follow {@link MiniUrlRepository}.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class R2dbcMiniUrlRepository {
+
+    private static final String COLUMNS = "mini_key, full_url, full_url_hash, created_at, updated_at, expires_at";
+
+    private final ConnectionPool connectionPool;
+    private final DatabaseClient databaseClient;
+
+    public R2dbcMiniUrlRepository(
+            DataSourceProperties dataSourceProperties,
+            @Value("${MINIURL_R2DBC_POOL_SIZE:${DB_POOL_SIZE:10}}") int poolSize,
+            @Value("${MINIURL_R2DBC_ACQUIRE_TIMEOUT_MS:5000}") long acquireTimeoutMillis
+    ) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(toR2dbcUrl(dataSourceProperties.determineUrl()))
+                .mutate()
+                .option(ConnectionFactoryOptions.USER, dataSourceProperties.determineUsername())
+                .option(ConnectionFactoryOptions.PASSWORD, dataSourceProperties.determinePassword())
+                .build();
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("r2dbc")
+                .initialSize(Math.min(poolSize, 2))
+                .maxSize(poolSize)
+                .maxAcquireTime(Duration.ofMillis(acquireTimeoutMillis))
+                .build());
+        this.databaseClient = DatabaseClient.create(connectionPool);
+    }
+
+    static String toR2dbcUrl(String jdbcUrl) {
+        if (jdbcUrl == null || !jdbcUrl.startsWith("jdbc:")) {
+            throw new IllegalStateException("The reactive stack needs a JDBC URL in spring.datasource.url, was " + jdbcUrl);
+        }
+        return "r2dbc:" + jdbcUrl.substring("jdbc:".length());
+    }
+
+    @PreDestroy
+    public void close() {
+        connectionPool.dispose();
+    }
+
+    private static MiniUrl toMiniUrl(Readable row) {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(row.get("mini_key", String.class));
+        miniUrl.setFullUrl(row.get("full_url", String.class), row.get("full_url_hash", UUID.class));
+        miniUrl.setCreatedAt(row.get("created_at", Instant.class));
+        miniUrl.setUpdatedAt(row.get("updated_at", Instant.class));
+        miniUrl.setExpiresAt(row.get("expires_at", Instant.class));
+        return miniUrl;
+    }
+
+    // Postgres keeps microseconds, so the returned MiniUrl matches what later reads return
+    private static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    public Mono<MiniUrl> findByMiniKey(String miniKey) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM mini_urls WHERE mini_key = $1")
+                .bind(0, miniKey)
+                .map(R2dbcMiniUrlRepository::toMiniUrl)
+                .one();
+    }
+
+    public Flux<MiniUrl> findByFullUrlHash(UUID fullUrlHash) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM mini_urls WHERE full_url_hash = $1")
+                .bind(0, fullUrlHash)
+                .map(R2dbcMiniUrlRepository::toMiniUrl)
+                .all();
+    }
+
+    public Flux<MiniUrl> findByFullUrlHashIn(Collection<UUID> fullUrlHashes) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM mini_urls WHERE full_url_hash = ANY($1)")
+                .bind(0, fullUrlHashes.toArray(UUID[]::new))
+                .map(R2dbcMiniUrlRepository::toMiniUrl)
+                .all();
+    }
+
+    public Flux<String> findExistingMiniKeys(Collection<String> miniKeys) {
+        return databaseClient.sql("SELECT mini_key FROM mini_urls WHERE mini_key = ANY($1)")
+                .bind(0, miniKeys.toArray(String[]::new))
+                .map(row -> row.get("mini_key", String.class))
+                .all();
+    }
+
+    public Flux<MiniUrl> findByMiniKeyGreaterThanOrderByMiniKeyAsc(String miniKey, int limit) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM mini_urls WHERE mini_key > $1 ORDER BY mini_key LIMIT $2")
+                .bind(0, miniKey)
+                .bind(1, limit)
+                .map(R2dbcMiniUrlRepository::toMiniUrl)
+                .all();
+    }
+
+    /**
+     * Every MiniUrl ordered by miniKey. Rows are read from the connection as the subscriber requests them.
+     */
+    public Flux<MiniUrl> findAll() {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM mini_urls ORDER BY mini_key")
+                .map(R2dbcMiniUrlRepository::toMiniUrl)
+                .all();
+    }
+
+    public Mono<MiniUrl> insert(MiniUrl miniUrl) {
+        Instant now = now();
+        DatabaseClient.GenericExecuteSpec insert = databaseClient.sql("INSERT INTO mini_urls (" + COLUMNS + ") VALUES ($1, $2, $3, $4, $4, $5)")
+                .bind(0, miniUrl.getMiniKey())
+                .bind(1, miniUrl.getFullUrl())
+                .bind(2, miniUrl.getFullUrlHash())
+                .bind(3, now);
+        insert = miniUrl.getExpiresAt() == null ? insert.bindNull(4, Instant.class) : insert.bind(4, miniUrl.getExpiresAt());
+        return insert
+                .then()
+                .then(Mono.fromSupplier(() -> {
+                    miniUrl.setCreatedAt(now);
+                    miniUrl.setUpdatedAt(now);
+                    return miniUrl;
+                }));
+    }
+
+    /**
+     * Inserts all MiniUrls with one statement, the columns bound as arrays. Batches never expire.
+     */
+    public Mono<List<MiniUrl>> insertAll(List<MiniUrl> miniUrls) {
+        Instant now = now();
+        return databaseClient.sql("INSERT INTO mini_urls (mini_key, full_url, full_url_hash, created_at, updated_at)"
+                        + " SELECT mini_key, full_url, full_url_hash, $4, $4"
+                        + " FROM unnest($1::varchar[], $2::text[], $3::uuid[]) AS rows (mini_key, full_url, full_url_hash)")
+                .bind(0, miniUrls.stream().map(MiniUrl::getMiniKey).toArray(String[]::new))
+                .bind(1, miniUrls.stream().map(MiniUrl::getFullUrl).toArray(String[]::new))
+                .bind(2, miniUrls.stream().map(MiniUrl::getFullUrlHash).toArray(UUID[]::new))
+                .bind(3, now)
+                .then()
+                .then(Mono.fromSupplier(() -> {
+                    for (MiniUrl miniUrl : miniUrls) {
+                        miniUrl.setCreatedAt(now);
+                        miniUrl.setUpdatedAt(now);
+                    }
+                    return miniUrls;
+                }));
+    }
+
+    /**
+     * Points the miniKey at a new fullUrl, and returns the updated MiniUrl, or nothing when the miniKey does not exist
+     * or has expired.
+     */
+    public Mono<MiniUrl> updateFullUrl(String miniKey, String fullUrl) {
+        return databaseClient.sql("UPDATE mini_urls SET full_url = $2, full_url_hash = $3, updated_at = $4"
+                        + " WHERE mini_key = $1 AND (expires_at IS NULL OR expires_at > $4) RETURNING " + COLUMNS)
+                .bind(0, miniKey)
+                .bind(1, fullUrl)
+                .bind(2, MiniUrl.hashFullUrl(fullUrl))
+                .bind(3, now())
+                .map(R2dbcMiniUrlRepository::toMiniUrl)
+                .one();
+    }
+
+    /**
+     * Deletes the miniKey, and returns whether it existed.
+     */
+    public Mono<Boolean> deleteByMiniKey(String miniKey) {
+        return databaseClient.sql("DELETE FROM mini_urls WHERE mini_key = $1")
+                .bind(0, miniKey)
+                .fetch()
+                .rowsUpdated()
+                .map(rowsUpdated -> rowsUpdated > 0);
+    }
+}
@@ -0,0 +1,724 @@
+package com.desireevaldes.miniurl.repositories;
+
+import com.desireevaldes.miniurl.models.MiniUrl;
+import com.desireevaldes.miniurl.utils.ConsistentHashRing;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Storage backend selected with MINIURL_STORAGE_BACKEND=sharded: mini_urls is hash-partitioned over the Postgres
+ * databases listed in MINIURL_SHARD_URLS (comma-separated), each with the mini_urls schema, its own connection pool and
+ * the credentials of DB_URL. DB_URL itself keeps everything else, like click stats.
+ * <p>
+ * The first {@value #SHARD_HINT_LENGTH} characters of a miniKey pick its shard on a {@link ConsistentHashRing}. New
+ * miniKeys start with characters derived from the fullUrlHash ({@link #miniKeyPrefix}), so a fullUrl and its miniKeys
+ * share a shard: lookups by miniKey query a single shard without a lookup table, and so do dedupe lookups by fullUrl.
+ * The few miniKeys stored away from the shard of their fullUrl, after an update of their fullUrl, are listed on that
+ * shard in mini_url_full_url_refs.
+ * Batches are split by shard, pages and exports merge the shards in miniKey order.
+ * <p>
+ * After shards are appended to MINIURL_SHARD_URLS, MINIURL_SHARD_PREVIOUS_COUNT keeps the ring of the previous shards:
+ * miniKeys missing from their new shard are looked up on their previous one and deletes hit both, while
+ * {@link #rebalance} moves the rows online. Statements run outside the JPA transactions, each one committing alone.
+ */
+@Component
+@ConditionalOnProperty(name = "MINIURL_STORAGE_BACKEND", havingValue = MiniUrlStore.SHARDED_BACKEND)
+public class ShardedMiniUrlStore implements MiniUrlStore {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedMiniUrlStore.class);
+
+    public static final int SHARD_HINT_LENGTH = 2;
+    private static final int STREAM_PAGE_SIZE = 500;
+    private static final int MINI_KEY_PAGE_SIZE = 5000;
+    private final List<Shard> shards;
+    private final ConsistentHashRing ring;
+    // Ring before the last shards were added, null when no rows are being moved
+    private final ConsistentHashRing previousRing;
+    private final String alphabet;
+    private final Executor executor;
+
+    @Autowired
+    public ShardedMiniUrlStore(
+            DataSourceProperties dataSourceProperties,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Qualifier("applicationTaskExecutor") Executor executor,
+            @Value("${MINIURL_SHARD_URLS:}") String shardUrls,
+            @Value("${MINIURL_SHARD_PREVIOUS_COUNT:0}") int previousShardCount,
+            @Value("${MINIURL_SHARD_VIRTUAL_NODES:256}") int virtualNodes,
+            @Value("${MINIURL_SHARD_POOL_SIZE:${DB_POOL_SIZE:10}}") int poolSize,
+            @Value("${MINIURL_CUSTOM_ALPHABET:0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz}") String alphabet
+    ) {
+        this(openShardPools(dataSourceProperties, meterRegistry, shardUrls, poolSize), previousShardCount, virtualNodes,
+                alphabet, executor);
+    }
+
+    public ShardedMiniUrlStore(List<DataSource> dataSources, int previousShardCount, int virtualNodes, String alphabet,
+                               Executor executor) {
+        if (dataSources.isEmpty()) {
+            throw new IllegalStateException("MINIURL_STORAGE_BACKEND=" + SHARDED_BACKEND + " requires MINIURL_SHARD_URLS");
+        }
+        if (previousShardCount < 0 || previousShardCount >= dataSources.size()) {
+            throw new IllegalStateException("MINIURL_SHARD_PREVIOUS_COUNT must be 0, or lower than the number of MINIURL_SHARD_URLS ("
+                    + dataSources.size() + ")");
+        }
+        List<Shard> shards = new ArrayList<>(dataSources.size());
+        for (DataSource dataSource : dataSources) {
+            shards.add(new Shard(shards.size(), dataSource));
+        }
+        this.shards = List.copyOf(shards);
+        this.ring = new ConsistentHashRing(dataSources.size(), virtualNodes);
+        this.previousRing = previousShardCount > 0 ? new ConsistentHashRing(previousShardCount, virtualNodes) : null;
+        this.alphabet = alphabet;
+        this.executor = executor;
+        logger.info("Sharded MiniUrl store over {} shards{}", shards.size(),
+                previousRing != null ? ", moving rows from the previous " + previousShardCount : "");
+    }
+
+    private static List<DataSource> openShardPools(DataSourceProperties dataSourceProperties,
+                                                   ObjectProvider<MeterRegistry> meterRegistry, String shardUrls, int poolSize) {
+        List<DataSource> pools = new ArrayList<>();
+        for (String shardUrl : shardUrls.split(",")) {
+            if (shardUrl.isBlank()) {
+                continue;
+            }
+            HikariDataSource pool = dataSourceProperties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(shardUrl.trim())
+                    .driverClassName(DatabaseDriver.fromJdbcUrl(shardUrl.trim()).getDriverClassName())
+                    .build();
+            pool.setPoolName("shard-" + (pools.size() + 1));
+            pool.setMaximumPoolSize(poolSize);
+            meterRegistry.ifAvailable(pool::setMetricRegistry);
+            pools.add(pool);
+        }
+        return pools;
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Shard shard : shards) {
+            if (shard.dataSource instanceof HikariDataSource pool) {
+                pool.close();
+            }
+        }
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    // 0 unless rows are being moved
+    public int getPreviousShardCount() {
+        return previousRing == null ? 0 : previousRing.getShardCount();
+    }
+
+    public long countMiniUrls(int shard) {
+        Long count = shards.get(shard).jdbcTemplate.queryForObject("SELECT COUNT(*) FROM mini_urls", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Characters picked from the top bits of the fullUrlHash. They only depend on the fullUrl, not on the number of
+     * shards, so adding shards never changes which miniKeys dedupe lookups expect on a shard.
+     */
+    @Override
+    public String miniKeyPrefix(UUID fullUrlHash) {
+        long bits = fullUrlHash.getMostSignificantBits();
+        char[] prefix = new char[SHARD_HINT_LENGTH];
+        for (int i = 0; i < prefix.length; i++) {
+            prefix[i] = alphabet.charAt(Math.floorMod((int) (bits >>> (32 * i)), alphabet.length()));
+        }
+        return new String(prefix);
+    }
+
+    private static String shardHint(String miniKey) {
+        return miniKey.length() > SHARD_HINT_LENGTH ? miniKey.substring(0, SHARD_HINT_LENGTH) : miniKey;
+    }
+
+    private Shard shardOf(String miniKey) {
+        return shards.get(ring.shardFor(shardHint(miniKey)));
+    }
+
+    // The shard of a hint, then the one its rows may still be on while they are being moved
+    private List<Shard> shardsOf(String hint) {
+        Shard shard = shards.get(ring.shardFor(hint));
+        if (previousRing == null) {
+            return List.of(shard);
+        }
+        Shard previousShard = shards.get(previousRing.shardFor(hint));
+        return previousShard == shard ? List.of(shard) : List.of(shard, previousShard);
+    }
+
+    // Runs the query on every shard the values may be on, concurrently, and concatenates the results
+    private <T, R> CompletableFuture<List<R>> queryShards(Collection<T> values, Function<T, List<Shard>> shardsOfValue,
+                                                          BiFunction<Shard, List<T>, List<R>> query) {
+        Map<Shard, List<T>> valuesByShard = new LinkedHashMap<>();
+        for (T value : values) {
+            for (Shard shard : shardsOfValue.apply(value)) {
+                valuesByShard.computeIfAbsent(shard, ignored -> new ArrayList<>()).add(value);
+            }
+        }
+        List<CompletableFuture<List<R>>> results = new ArrayList<>(valuesByShard.size());
+        valuesByShard.forEach((shard, shardValues) ->
+                results.add(CompletableFuture.supplyAsync(() -> query.apply(shard, shardValues), executor)));
+        return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> results.stream().flatMap(result -> result.join().stream()).toList());
+    }
+
+    @Override
+    public CompletableFuture<Optional<MiniUrl>> findByMiniKey(String miniKey) {
+        return CompletableFuture.supplyAsync(() -> findById(miniKey), executor);
+    }
+
+    @Override
+    public Optional<MiniUrl> findById(String miniKey) {
+        for (Shard shard : shardsOf(shardHint(miniKey))) {
+            List<MiniUrl> miniUrls = shard.jdbcTemplate.query(
+                    "SELECT " + MiniUrlRows.COLUMNS + " FROM mini_urls WHERE mini_key = ?", MiniUrlRows::mapMiniUrl, miniKey);
+            if (!miniUrls.isEmpty()) {
+                return Optional.of(miniUrls.getFirst());
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public CompletableFuture<List<MiniUrl>> findByFullUrlHash(UUID fullUrlHash) {
+        return findByFullUrlHashIn(List.of(fullUrlHash));
+    }
+
+    // Asks the shard of each fullUrlHash only, for its rows and for the miniKeys listed there that live on other
+    // shards, because their fullUrl was updated or they were created before sharding. Those are then read by miniKey.
+    @Override
+    public CompletableFuture<List<MiniUrl>> findByFullUrlHashIn(Collection<UUID> fullUrlHashes) {
+        CompletableFuture<List<MiniUrl>> miniUrls = queryShards(fullUrlHashes, this::fullUrlShardsOf, Shard::findByFullUrlHashIn);
+        CompletableFuture<List<FullUrlRef>> refs = queryShards(fullUrlHashes, this::fullUrlShardsOf, Shard::findFullUrlRefs);
+        return miniUrls.thenCompose(foundMiniUrls -> refs.thenCompose(foundRefs -> {
+            Set<String> foundMiniKeys = new HashSet<>();
+            foundMiniUrls.forEach(miniUrl -> foundMiniKeys.add(miniUrl.getMiniKey()));
+            List<String> referencedMiniKeys = foundRefs.stream()
+                    .map(FullUrlRef::miniKey)
+                    .filter(miniKey -> !foundMiniKeys.contains(miniKey))
+                    .distinct()
+                    .toList();
+            if (referencedMiniKeys.isEmpty()) {
+                return CompletableFuture.completedFuture(distinctByMiniKey(foundMiniUrls));
+            }
+            Set<UUID> wantedFullUrlHashes = new HashSet<>(fullUrlHashes);
+            return queryShards(referencedMiniKeys, miniKey -> shardsOf(shardHint(miniKey)), Shard::findByMiniKeyIn)
+                    .thenApply(referencedMiniUrls -> distinctByMiniKey(Stream.concat(foundMiniUrls.stream(),
+                            // Skips the entries left behind by a later update or a delete
+                            referencedMiniUrls.stream().filter(miniUrl -> wantedFullUrlHashes.contains(miniUrl.getFullUrlHash()))).toList()));
+        }));
+    }
+
+    private Shard fullUrlShardOf(UUID fullUrlHash) {
+        return shardOf(miniKeyPrefix(fullUrlHash));
+    }
+
+    private List<Shard> fullUrlShardsOf(UUID fullUrlHash) {
+        return shardsOf(miniKeyPrefix(fullUrlHash));
+    }
+
+    // Lists the miniKeys stored away from the shard of their fullUrl on that shard, before their rows are written, so
+    // a dedupe lookup never misses a row
+    private void indexFullUrls(List<MiniUrl> miniUrls) {
+        Map<Shard, List<FullUrlRef>> refsByShard = new LinkedHashMap<>();
+        for (MiniUrl miniUrl : miniUrls) {
+            Shard fullUrlShard = fullUrlShardOf(miniUrl.getFullUrlHash());
+            if (fullUrlShard != shardOf(miniUrl.getMiniKey())) {
+                refsByShard.computeIfAbsent(fullUrlShard, ignored -> new ArrayList<>())
+                        .add(new FullUrlRef(miniUrl.getFullUrlHash(), miniUrl.getMiniKey()));
+            }
+        }
+        refsByShard.forEach(Shard::insertFullUrlRefs);
+    }
+
+    // A row being moved can be on two shards for a moment
+    private static List<MiniUrl> distinctByMiniKey(List<MiniUrl> miniUrls) {
+        Map<String, MiniUrl> miniUrlsByMiniKey = new LinkedHashMap<>();
+        miniUrls.forEach(miniUrl -> miniUrlsByMiniKey.putIfAbsent(miniUrl.getMiniKey(), miniUrl));
+        return new ArrayList<>(miniUrlsByMiniKey.values());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> existsByMiniKey(String miniKey) {
+        return findExistingMiniKeys(List.of(miniKey)).thenApply(miniKeys -> !miniKeys.isEmpty());
+    }
+
+    @Override
+    public CompletableFuture<List<String>> findExistingMiniKeys(Collection<String> miniKeys) {
+        return queryShards(miniKeys, miniKey -> shardsOf(shardHint(miniKey)), Shard::existingMiniKeys)
+                .thenApply(existingMiniKeys -> existingMiniKeys.stream().distinct().toList());
+    }
+
+    @Override
+    public CompletableFuture<List<MiniUrl>> findByMiniKeyGreaterThanOrderByMiniKeyAsc(String miniKey, Limit limit) {
+        int pageSize = limit.isLimited() ? limit.max() : Integer.MAX_VALUE;
+        List<CompletableFuture<List<MiniUrl>>> pages = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            pages.add(CompletableFuture.supplyAsync(() -> shard.page(miniKey, pageSize), executor));
+        }
+        return CompletableFuture.allOf(pages.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    TreeMap<String, MiniUrl> merged = new TreeMap<>();
+                    for (int i = 0; i < shards.size(); i++) {
+                        Shard shard = shards.get(i);
+                        for (MiniUrl miniUrl : pages.get(i).join()) {
+                            // While rows are being moved a miniKey can be on two shards, its current shard has the latest row
+                            if (!merged.containsKey(miniUrl.getMiniKey()) || shardOf(miniUrl.getMiniKey()) == shard) {
+                                merged.put(miniUrl.getMiniKey(), miniUrl);
+                            }
+                        }
+                    }
+                    return merged.values().stream().limit(pageSize).toList();
+                });
+    }
+
+    /**
+     * Merges the keyset-paged shards in miniKey order, {@value #STREAM_PAGE_SIZE} rows per query. No transaction needed.
+     */
+    @Override
+    public Stream<MiniUrl> streamAll() {
+        PriorityQueue<ShardCursor> cursors = new PriorityQueue<>(shards.size(),
+                Comparator.comparing(cursor -> cursor.peek().getMiniKey()));
+        for (Shard shard : shards) {
+            ShardCursor cursor = new ShardCursor(shard, STREAM_PAGE_SIZE);
+            if (cursor.peek() != null) {
+                cursors.add(cursor);
+            }
+        }
+        Iterator<MiniUrl> merged = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !cursors.isEmpty();
+            }
+
+            @Override
+            public MiniUrl next() {
+                if (cursors.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                ShardCursor cursor = cursors.poll();
+                MiniUrl miniUrl = cursor.next();
+                requeue(cursor);
+                while (!cursors.isEmpty() && cursors.peek().peek().getMiniKey().equals(miniUrl.getMiniKey())) {
+                    ShardCursor duplicate = cursors.poll();
+                    MiniUrl duplicateMiniUrl = duplicate.next();
+                    if (shardOf(duplicateMiniUrl.getMiniKey()) == duplicate.shard) {
+                        miniUrl = duplicateMiniUrl;
+                    }
+                    requeue(duplicate);
+                }
+                return miniUrl;
+            }
+
+            private void requeue(ShardCursor cursor) {
+                if (cursor.peek() != null) {
+                    cursors.add(cursor);
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Every miniKey shard after shard, {@value #MINI_KEY_PAGE_SIZE} per query. While rows are being moved a miniKey
+     * may be listed twice.
+     */
+    @Override
+    public Stream<String> streamAllMiniKeys() {
+        return shards.stream().flatMap(shard -> Stream.iterate(
+                        shard.miniKeyPage("", MINI_KEY_PAGE_SIZE),
+                        page -> !page.isEmpty(),
+                        page -> page.size() < MINI_KEY_PAGE_SIZE ? List.of() : shard.miniKeyPage(page.getLast(), MINI_KEY_PAGE_SIZE))
+                .flatMap(List::stream));
+    }
+
+    // Sets the timestamps like the JPA entity callbacks do, returns true for a MiniUrl that was never saved
+    private static boolean touch(MiniUrl miniUrl) {
+        // Microsecond precision, as stored in Postgres
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        boolean created = miniUrl.getCreatedAt() == null;
+        if (created) {
+            miniUrl.setCreatedAt(now);
+        }
+        miniUrl.setUpdatedAt(now);
+        return created;
+    }
+
+    @Override
+    public MiniUrl save(MiniUrl miniUrl) {
+        Shard shard = shardOf(miniUrl.getMiniKey());
+        boolean created = touch(miniUrl);
+        indexFullUrls(List.of(miniUrl));
+        if (created) {
+            shard.insert(List.of(miniUrl));
+            return miniUrl;
+        }
+        // While rows are being moved an updated row may only be on its previous shard. It is then written to its
+        // current shard, where reads look first, and the rebalancer drops the old row.
+        if (shard.update(miniUrl) == 0) {
+            try {
+                shard.insert(List.of(miniUrl));
+            } catch (DuplicateKeyException exception) {
+                // Copied there by the rebalancer in between
+                shard.update(miniUrl);
+            }
+        }
+        return miniUrl;
+    }
+
+    @Override
+    public List<MiniUrl> saveAll(List<MiniUrl> miniUrls) {
+        Map<Shard, List<MiniUrl>> newMiniUrlsByShard = new LinkedHashMap<>();
+        for (MiniUrl miniUrl : miniUrls) {
+            if (miniUrl.getCreatedAt() == null) {
+                touch(miniUrl);
+                newMiniUrlsByShard.computeIfAbsent(shardOf(miniUrl.getMiniKey()), ignored -> new ArrayList<>()).add(miniUrl);
+            } else {
+                save(miniUrl);
+            }
+        }
+        indexFullUrls(newMiniUrlsByShard.values().stream().flatMap(List::stream).toList());
+        newMiniUrlsByShard.forEach(Shard::insert);
+        return miniUrls;
+    }
+
+    @Override
+    public void deleteById(String miniKey) {
+        for (Shard shard : shardsOf(shardHint(miniKey))) {
+            shard.jdbcTemplate.update("DELETE FROM mini_urls WHERE mini_key = ?", miniKey);
+        }
+    }
+
+    @Override
+    public int deleteExpired(Instant now, int limit) {
+        int deleted = 0;
+        for (Shard shard : shards) {
+            if (deleted >= limit) {
+                break;
+            }
+            deleted += shard.jdbcTemplate.update(MiniUrlRows.DELETE_EXPIRED_SQL, Timestamp.from(now), limit - deleted);
+        }
+        return deleted;
+    }
+
+    /**
+     * Moves every row that is not on the shard of its miniKey, typically after shards were added, to that shard.
+     * Each shard is scanned in batches of batchSize rows: misplaced rows are copied unless their miniKey is already on
+     * the target, which then holds a newer row, and deleted from the source once copied. Rows stay readable during
+     * the move and it can be interrupted and run again. Reports each batch of moved rows to progress.
+     * <p>
+     * The scan also lists the rows stored away from the shard of their fullUrl, like the ones created before sharding,
+     * on that shard for dedupe lookups. Then the listed miniKeys are moved to the shard of their fullUrl as well, and
+     * the ones deleted or updated meanwhile are dropped.
+     *
+     * @return the number of rows moved
+     */
+    public long rebalance(int batchSize, LongConsumer progress) {
+        long movedRows = 0;
+        for (Shard source : shards) {
+            ShardCursor cursor = new ShardCursor(source, batchSize);
+            List<MiniUrl> scanned = new ArrayList<>(batchSize);
+            List<MiniUrl> misplaced = new ArrayList<>(batchSize);
+            while (cursor.peek() != null) {
+                MiniUrl miniUrl = cursor.next();
+                scanned.add(miniUrl);
+                if (shardOf(miniUrl.getMiniKey()) != source) {
+                    misplaced.add(miniUrl);
+                }
+                if (scanned.size() == batchSize || cursor.peek() == null) {
+                    indexFullUrls(scanned);
+                    scanned.clear();
+                }
+                if (!misplaced.isEmpty() && (misplaced.size() == batchSize || cursor.peek() == null)) {
+                    int moved = move(source, misplaced);
+                    movedRows += moved;
+                    progress.accept(moved);
+                    misplaced.clear();
+                }
+            }
+            logger.info("Rebalanced shard {} of {}, {} rows moved so far", source.index + 1, shards.size(), movedRows);
+        }
+        for (Shard shard : shards) {
+            rebalanceFullUrlRefs(shard, batchSize);
+        }
+        return movedRows;
+    }
+
+    // A miniKey stays listed on the shard of its fullUrl while its row has that fullUrl and lives on another shard
+    private void rebalanceFullUrlRefs(Shard shard, int batchSize) {
+        FullUrlRef afterRef = null;
+        List<FullUrlRef> refs;
+        do {
+            refs = shard.fullUrlRefPage(afterRef, batchSize);
+            if (refs.isEmpty()) {
+                break;
+            }
+            afterRef = refs.getLast();
+            Map<String, MiniUrl> miniUrlsByMiniKey = new LinkedHashMap<>();
+            queryShards(refs.stream().map(FullUrlRef::miniKey).distinct().toList(), miniKey -> shardsOf(shardHint(miniKey)),
+                    Shard::findByMiniKeyIn).join()
+                    .forEach(miniUrl -> miniUrlsByMiniKey.putIfAbsent(miniUrl.getMiniKey(), miniUrl));
+            List<MiniUrl> listedMiniUrls = new ArrayList<>();
+            List<FullUrlRef> droppedRefs = new ArrayList<>();
+            for (FullUrlRef ref : refs) {
+                MiniUrl miniUrl = miniUrlsByMiniKey.get(ref.miniKey());
+                if (miniUrl != null && miniUrl.getFullUrlHash().equals(ref.fullUrlHash())
+                        && fullUrlShardOf(ref.fullUrlHash()) != shardOf(ref.miniKey())) {
+                    if (fullUrlShardOf(ref.fullUrlHash()) != shard) {
+                        listedMiniUrls.add(miniUrl);
+                        droppedRefs.add(ref);
+                    }
+                } else {
+                    droppedRefs.add(ref);
+                }
+            }
+            indexFullUrls(listedMiniUrls);
+            shard.deleteFullUrlRefs(droppedRefs);
+        } while (refs.size() == batchSize);
+        logger.info("Rebalanced the fullUrl index of shard {} of {}", shard.index + 1, shards.size());
+    }
+
+    private int move(Shard source, List<MiniUrl> miniUrls) {
+        Map<Shard, List<MiniUrl>> miniUrlsByTarget = new LinkedHashMap<>();
+        for (MiniUrl miniUrl : miniUrls) {
+            miniUrlsByTarget.computeIfAbsent(shardOf(miniUrl.getMiniKey()), ignored -> new ArrayList<>()).add(miniUrl);
+        }
+        miniUrlsByTarget.forEach((target, targetMiniUrls) -> {
+            List<String> miniKeys = targetMiniUrls.stream().map(MiniUrl::getMiniKey).toList();
+            Set<String> onTarget = new HashSet<>(target.existingMiniKeys(miniKeys));
+            List<MiniUrl> copies = targetMiniUrls.stream().filter(miniUrl -> !onTarget.contains(miniUrl.getMiniKey())).toList();
+            try {
+                target.insert(copies);
+            } catch (DuplicateKeyException exception) {
+                // Some were written by the application meanwhile, their rows are newer
+                for (MiniUrl copy : copies) {
+                    try {
+                        target.insert(List.of(copy));
+                    } catch (DuplicateKeyException ignored) {
+                        // Keep the newer row
+                    }
+                }
+            }
+            // Rows gone from the source meanwhile were deleted by the application, and their copies must go too
+            Set<String> onSource = new HashSet<>(source.existingMiniKeys(miniKeys));
+            List<String> deletedMiniKeys = copies.stream()
+                    .map(MiniUrl::getMiniKey)
+                    .filter(miniKey -> !onSource.contains(miniKey))
+                    .toList();
+            target.delete(deletedMiniKeys);
+            source.delete(List.copyOf(onSource));
+        });
+        return miniUrls.size();
+    }
+
+    private static final class Shard {
+        private final int index;
+        private final DataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+        private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+        // mini_key compared and sorted like String.compareTo, which merges across shards rely on
+        private final String orderedMiniKey;
+
+        private Shard(int index, DataSource dataSource) {
+            this.index = index;
+            this.dataSource = dataSource;
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+            this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+            this.orderedMiniKey = isPostgres(dataSource) ? "mini_key COLLATE \"C\"" : "mini_key";
+        }
+
+        private static boolean isPostgres(DataSource dataSource) {
+            try {
+                return "PostgreSQL".equals(JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName));
+            } catch (MetaDataAccessException exception) {
+                throw new IllegalStateException("Cannot connect to MiniUrl shard", exception);
+            }
+        }
+
+        private List<MiniUrl> page(String afterMiniKey, int pageSize) {
+            return jdbcTemplate.query("SELECT " + MiniUrlRows.COLUMNS + " FROM mini_urls WHERE " + orderedMiniKey + " > ? ORDER BY "
+                    + orderedMiniKey + " LIMIT ?", MiniUrlRows::mapMiniUrl, afterMiniKey, pageSize);
+        }
+
+        private List<String> miniKeyPage(String afterMiniKey, int pageSize) {
+            return jdbcTemplate.queryForList("SELECT mini_key FROM mini_urls WHERE " + orderedMiniKey + " > ? ORDER BY "
+                    + orderedMiniKey + " LIMIT ?", String.class, afterMiniKey, pageSize);
+        }
+
+        private List<MiniUrl> findByMiniKeyIn(List<String> miniKeys) {
+            return namedParameterJdbcTemplate.query("SELECT " + MiniUrlRows.COLUMNS + " FROM mini_urls WHERE mini_key IN (:miniKeys)",
+                    Map.of("miniKeys", miniKeys), MiniUrlRows::mapMiniUrl);
+        }
+
+        private List<MiniUrl> findByFullUrlHashIn(List<UUID> fullUrlHashes) {
+            return namedParameterJdbcTemplate.query(
+                    "SELECT " + MiniUrlRows.COLUMNS + " FROM mini_urls WHERE full_url_hash IN (:fullUrlHashes)",
+                    Map.of("fullUrlHashes", fullUrlHashes), MiniUrlRows::mapMiniUrl);
+        }
+
+        private List<FullUrlRef> findFullUrlRefs(List<UUID> fullUrlHashes) {
+            return namedParameterJdbcTemplate.query(
+                    "SELECT full_url_hash, mini_key FROM mini_url_full_url_refs WHERE full_url_hash IN (:fullUrlHashes)",
+                    Map.of("fullUrlHashes", fullUrlHashes), Shard::mapFullUrlRef);
+        }
+
+        private List<FullUrlRef> fullUrlRefPage(FullUrlRef afterRef, int pageSize) {
+            if (afterRef == null) {
+                return jdbcTemplate.query("SELECT full_url_hash, mini_key FROM mini_url_full_url_refs ORDER BY full_url_hash, mini_key"
+                        + " LIMIT ?", Shard::mapFullUrlRef, pageSize);
+            }
+            return jdbcTemplate.query("SELECT full_url_hash, mini_key FROM mini_url_full_url_refs WHERE (full_url_hash, mini_key) > (?, ?)"
+                    + " ORDER BY full_url_hash, mini_key LIMIT ?", Shard::mapFullUrlRef, afterRef.fullUrlHash(), afterRef.miniKey(), pageSize);
+        }
+
+        private static FullUrlRef mapFullUrlRef(ResultSet resultSet, int rowNum) throws SQLException {
+            return new FullUrlRef(resultSet.getObject(1, UUID.class), resultSet.getString(2));
+        }
+
+        private void insertFullUrlRefs(List<FullUrlRef> refs) {
+            if (refs.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO mini_url_full_url_refs (full_url_hash, mini_key) VALUES (?, ?) ON CONFLICT DO NOTHING",
+                    refs, refs.size(), (PreparedStatement statement, FullUrlRef ref) -> {
+                        statement.setObject(1, ref.fullUrlHash());
+                        statement.setString(2, ref.miniKey());
+                    });
+        }
+
+        private void deleteFullUrlRefs(List<FullUrlRef> refs) {
+            if (refs.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.batchUpdate("DELETE FROM mini_url_full_url_refs WHERE full_url_hash = ? AND mini_key = ?",
+                    refs, refs.size(), (PreparedStatement statement, FullUrlRef ref) -> {
+                        statement.setObject(1, ref.fullUrlHash());
+                        statement.setString(2, ref.miniKey());
+                    });
+        }
+
+        private List<String> existingMiniKeys(List<String> miniKeys) {
+            if (miniKeys.isEmpty()) {
+                return List.of();
+            }
+            return namedParameterJdbcTemplate.queryForList("SELECT mini_key FROM mini_urls WHERE mini_key IN (:miniKeys)",
+                    Map.of("miniKeys", miniKeys), String.class);
+        }
+
+        private void insert(List<MiniUrl> miniUrls) {
+            if (miniUrls.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO mini_urls (" + MiniUrlRows.COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)", miniUrls,
+                    miniUrls.size(), (PreparedStatement statement, MiniUrl miniUrl) -> {
+                        statement.setString(1, miniUrl.getMiniKey());
+                        statement.setString(2, miniUrl.getFullUrl());
+                        statement.setObject(3, miniUrl.getFullUrlHash());
+                        statement.setTimestamp(4, Timestamp.from(miniUrl.getCreatedAt()));
+                        statement.setTimestamp(5, Timestamp.from(miniUrl.getUpdatedAt()));
+                        statement.setTimestamp(6, MiniUrlRows.toTimestamp(miniUrl.getExpiresAt()));
+                    });
+        }
+
+        private int update(MiniUrl miniUrl) {
+            return jdbcTemplate.update("UPDATE mini_urls SET full_url = ?, full_url_hash = ?, updated_at = ?, expires_at = ?"
+                            + " WHERE mini_key = ?", miniUrl.getFullUrl(), miniUrl.getFullUrlHash(), Timestamp.from(miniUrl.getUpdatedAt()),
+                    MiniUrlRows.toTimestamp(miniUrl.getExpiresAt()), miniUrl.getMiniKey());
+        }
+
+        private void delete(List<String> miniKeys) {
+            if (!miniKeys.isEmpty()) {
+                namedParameterJdbcTemplate.update("DELETE FROM mini_urls WHERE mini_key IN (:miniKeys)", Map.of("miniKeys", miniKeys));
+            }
+        }
+    }
+
+    // A miniKey listed on the shard of its fullUrl, away from its own shard
+    private record FullUrlRef(UUID fullUrlHash, String miniKey) {
+    }
+
+    // Keyset pages of one shard, in miniKey order
+    private static final class ShardCursor {
+        private final Shard shard;
+        private final int pageSize;
+        private final Deque<MiniUrl> page = new ArrayDeque<>();
+        private String lastMiniKey = "";
+        private boolean exhausted;
+
+        private ShardCursor(Shard shard, int pageSize) {
+            this.shard = shard;
+            this.pageSize = pageSize;
+        }
+
+        private MiniUrl peek() {
+            if (page.isEmpty() && !exhausted) {
+                List<MiniUrl> nextPage = shard.page(lastMiniKey, pageSize);
+                exhausted = nextPage.size() < pageSize;
+                if (!nextPage.isEmpty()) {
+                    page.addAll(nextPage);
+                    lastMiniKey = nextPage.getLast().getMiniKey();
+                }
+            }
+            return page.peekFirst();
+        }
+
+        private MiniUrl next() {
+            MiniUrl miniUrl = peek();
+            page.removeFirst();
+            return miniUrl;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.models.MiniUrlClickStats;
+import com.desireevaldes.miniurl.repositories.MiniUrlClickStatsRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-key click counters for resolved miniKeys.
+ * Clicks are counted in memory (one LongAdder per key and time bucket, no locks, no I/O on the
+ * resolve path) and flushed periodically as batched upserts into mini_url_click_stats.
+ * Counting is best effort: clicks still in memory are lost if the process dies. Rows of a failed flush are merged per
+ * bucket and miniKey and retried by the next flushes, then dropped and counted after MINIURL_ANALYTICS_MAX_FLUSH_ATTEMPTS,
+ * so a database outage cannot grow the backlog without bound.
+ */
+@Service
+public class ClickStatsService {
+    private static final Logger logger = LoggerFactory.getLogger(ClickStatsService.class);
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO mini_url_click_stats (mini_key, bucket_start, clicks) VALUES (?, ?, ?)
+            ON CONFLICT (mini_key, bucket_start) DO UPDATE SET clicks = mini_url_click_stats.clicks + EXCLUDED.clicks
+            """;
+    // Buckets swapped out less than this long ago may still see a late increment from a resolve in flight.
+    private static final long RETIRE_GRACE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final MiniUrlClickStatsRepository clickStatsRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long bucketMillis;
+    private final int maxFlushAttempts;
+    private final Clock clock;
+
+    private final AtomicReference<Bucket> currentBucket;
+    private final ConcurrentLinkedQueue<Bucket> retiredBuckets = new ConcurrentLinkedQueue<>();
+    // Buckets of failed flushes by start, only used by flushes, which hold the lock of this service
+    private final Map<Long, Bucket> failedBuckets = new HashMap<>();
+    private final LongAdder droppedClicks = new LongAdder();
+
+    @Autowired
+    public ClickStatsService(
+            MiniUrlClickStatsRepository clickStatsRepository,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${MINIURL_ANALYTICS_ENABLED:false}") boolean enabled,
+            @Value("${MINIURL_ANALYTICS_BUCKET_SECONDS:60}") long bucketSeconds,
+            @Value("${MINIURL_ANALYTICS_MAX_FLUSH_ATTEMPTS:12}") int maxFlushAttempts
+    ) {
+        this(clickStatsRepository, jdbcTemplate, transactionTemplate, enabled, bucketSeconds, maxFlushAttempts, Clock.systemUTC());
+    }
+
+    ClickStatsService(MiniUrlClickStatsRepository clickStatsRepository, JdbcTemplate jdbcTemplate,
+                      TransactionTemplate transactionTemplate, boolean enabled, long bucketSeconds, int maxFlushAttempts,
+                      Clock clock) {
+        if (maxFlushAttempts < 1) {
+            throw new IllegalStateException("MINIURL_ANALYTICS_MAX_FLUSH_ATTEMPTS must be positive");
+        }
+        this.clickStatsRepository = clickStatsRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.bucketMillis = TimeUnit.SECONDS.toMillis(bucketSeconds);
+        this.maxFlushAttempts = maxFlushAttempts;
+        this.clock = clock;
+        this.currentBucket = new AtomicReference<>(new Bucket(currentBucketStart()));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Clicks given up after MINIURL_ANALYTICS_MAX_FLUSH_ATTEMPTS failed flushes
+    public long getDroppedClicks() {
+        return droppedClicks.sum();
+    }
+
+    public void recordClick(String miniKey) {
+        if (!enabled) {
+            return;
+        }
+        Map<String, LongAdder> clicks = bucketFor(currentBucketStart()).clicks;
+        LongAdder counter = clicks.get(miniKey);
+        if (counter == null) {
+            counter = clicks.computeIfAbsent(miniKey, key -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    private long currentBucketStart() {
+        long now = clock.millis();
+        return now - Math.floorMod(now, bucketMillis);
+    }
+
+    private Bucket bucketFor(long bucketStart) {
+        Bucket bucket = currentBucket.get();
+        while (bucket.start < bucketStart) {
+            Bucket nextBucket = new Bucket(bucketStart);
+            if (currentBucket.compareAndSet(bucket, nextBucket)) {
+                retire(bucket);
+                return nextBucket;
+            }
+            bucket = currentBucket.get();
+        }
+        return bucket;
+    }
+
+    private void retire(Bucket bucket) {
+        bucket.retiredAtNanos = System.nanoTime();
+        retiredBuckets.add(bucket);
+    }
+
+    @Scheduled(fixedDelayString = "${MINIURL_ANALYTICS_FLUSH_INTERVAL_MS:5000}")
+    public synchronized void flush() {
+        if (!enabled) {
+            return;
+        }
+        List<Bucket> readyBuckets = drainRetiredBuckets(System.nanoTime() - RETIRE_GRACE_NANOS);
+        retire(currentBucket.getAndSet(new Bucket(currentBucketStart())));
+        write(readyBuckets);
+    }
+
+    @PreDestroy
+    public synchronized void flushAll() {
+        if (!enabled) {
+            return;
+        }
+        retire(currentBucket.getAndSet(new Bucket(currentBucketStart())));
+        write(drainRetiredBuckets(Long.MAX_VALUE));
+    }
+
+    // Buckets are retired in time order, so the ready ones are at the head of the queue
+    private List<Bucket> drainRetiredBuckets(long retiredBeforeNanos) {
+        List<Bucket> readyBuckets = new ArrayList<>();
+        Bucket bucket;
+        while ((bucket = retiredBuckets.peek()) != null && bucket.retiredAtNanos - retiredBeforeNanos <= 0) {
+            readyBuckets.add(retiredBuckets.poll());
+        }
+        return readyBuckets;
+    }
+
+    private void write(List<Bucket> readyBuckets) {
+        List<Bucket> buckets = new ArrayList<>(failedBuckets.values());
+        failedBuckets.clear();
+        buckets.addAll(readyBuckets);
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Bucket bucket : buckets) {
+            Timestamp bucketStart = new Timestamp(bucket.start);
+            bucket.clicks.forEach((miniKey, counter) -> rows.add(new Object[]{miniKey, bucketStart, counter.sum()}));
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT_SQL, rows));
+            logger.debug("Flushed {} click stats rows", rows.size());
+        } catch (RuntimeException exception) {
+            logger.warn("Failed to flush {} click stats rows, retrying on next flush: {}", rows.size(), exception.getMessage());
+            buckets.forEach(this::keepForRetry);
+        }
+    }
+
+    private void keepForRetry(Bucket bucket) {
+        bucket.flushAttempts++;
+        Bucket failedBucket = failedBuckets.putIfAbsent(bucket.start, bucket);
+        if (failedBucket != null) {
+            bucket.clicks.forEach((miniKey, counter) ->
+                    failedBucket.clicks.computeIfAbsent(miniKey, key -> new LongAdder()).add(counter.sum()));
+            failedBucket.flushAttempts = Math.max(failedBucket.flushAttempts, bucket.flushAttempts);
+            bucket = failedBucket;
+        }
+        if (bucket.flushAttempts >= maxFlushAttempts) {
+            failedBuckets.remove(bucket.start);
+            long clicks = bucket.clicks.values().stream().mapToLong(LongAdder::sum).sum();
+            droppedClicks.add(clicks);
+            logger.warn("Dropped {} clicks of bucket {} after {} failed flushes", clicks, Instant.ofEpochMilli(bucket.start),
+                    bucket.flushAttempts);
+        }
+    }
+
+    public CompletableFuture<List<MiniUrlClickStats>> getClickStatsAsync(String miniKey, Instant from, Instant to) {
+        return clickStatsRepository.findByMiniKeyAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStartAsc(
+                miniKey, from, to);
+    }
+
+    private static final class Bucket {
+        private final long start;
+        private final ConcurrentHashMap<String, LongAdder> clicks = new ConcurrentHashMap<>();
+        private volatile long retiredAtNanos;
+        private int flushAttempts;
+
+        private Bucket(long start) {
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.models.MiniUrl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Stand-in for the shared tier inside one JVM, for tests and local runs. Unbounded and without expiry, so it is
+ * not meant for production; two services built on the same instance behave like two nodes sharing a cache.
+ * Invalidations leave tombstones like {@link RedisSharedMiniUrlCache} does.
+ */
+@Component
+@ConditionalOnProperty(name = "MINIURL_SHARED_CACHE", havingValue = SharedMiniUrlCache.IN_PROCESS)
+public class InProcessSharedMiniUrlCache implements SharedMiniUrlCache {
+
+    private final ConcurrentMap<String, MiniUrl> entries = new ConcurrentHashMap<>();
+    // miniKey -> epoch millis until which puts are ignored
+    private final ConcurrentMap<String, Long> tombstones = new ConcurrentHashMap<>();
+    private final long tombstoneMillis;
+    private final Clock clock;
+
+    @Autowired
+    public InProcessSharedMiniUrlCache(
+            @Value("${MINIURL_SHARED_CACHE_TOMBSTONE_MS:${MINIURL_REPLICA_MAX_LAG_MS:5000}}") long tombstoneMillis
+    ) {
+        this(tombstoneMillis, Clock.systemUTC());
+    }
+
+    InProcessSharedMiniUrlCache(long tombstoneMillis, Clock clock) {
+        if (tombstoneMillis < 1) {
+            throw new IllegalStateException("MINIURL_SHARED_CACHE_TOMBSTONE_MS must be positive");
+        }
+        this.tombstoneMillis = tombstoneMillis;
+        this.clock = clock;
+    }
+
+    @Override
+    public CompletableFuture<MiniUrl> get(String miniKey) {
+        return CompletableFuture.completedFuture(entries.get(miniKey));
+    }
+
+    // Synchronized with invalidate, as the Lua scripts are in Redis
+    @Override
+    public synchronized void put(MiniUrl miniUrl) {
+        Long tombstoneExpiry = tombstones.get(miniUrl.getMiniKey());
+        if (tombstoneExpiry != null) {
+            if (tombstoneExpiry > clock.millis()) {
+                return;
+            }
+            tombstones.remove(miniUrl.getMiniKey());
+        }
+        entries.put(miniUrl.getMiniKey(), miniUrl);
+    }
+
+    @Override
+    public synchronized CompletableFuture<Void> invalidate(String miniKey) {
+        tombstones.put(miniKey, clock.millis() + tombstoneMillis);
+        entries.remove(miniKey);
+        return CompletableFuture.completedFuture(null);
+    }
+}
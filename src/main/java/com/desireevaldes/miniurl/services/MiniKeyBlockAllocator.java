@@ -0,0 +1,95 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.repositories.MiniUrlRepository;
+import com.desireevaldes.miniurl.repositories.MiniUrlStore;
+import com.desireevaldes.miniurl.utils.RandomKeyGenerator;
+import com.desireevaldes.miniurl.utils.ShuffledKeyEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out guaranteed-unique miniKeys from memory.
+ * Each instance leases a block of ids from the mini_key_block_seq database sequence
+ * and encodes them with a {@link ShuffledKeyEncoder}, so no existence check is needed.
+ * Only active when MINIURL_KEY_STRATEGY is set to "block". The sequence stays in Postgres with every storage backend,
+ * but block keys carry no shard hint, so the sharded backend needs random keys.
+ */
+@Component
+public class MiniKeyBlockAllocator {
+    private static final Logger logger = LoggerFactory.getLogger(MiniKeyBlockAllocator.class);
+
+    static final String RANDOM_STRATEGY = "random";
+    static final String BLOCK_STRATEGY = "block";
+
+    private final MiniUrlRepository miniUrlRepository;
+    private final boolean enabled;
+    private final int blockSize;
+    private final ShuffledKeyEncoder shuffledKeyEncoder;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long nextId;
+    private long blockEnd;
+
+    public MiniKeyBlockAllocator(
+            MiniUrlRepository miniUrlRepository,
+            @Value("${MINIURL_KEY_STRATEGY:random}") String keyStrategy,
+            @Value("${MINIURL_KEY_BLOCK_SIZE:1000}") int blockSize,
+            @Value("${MINIURL_KEY_SECRET:0}") long secret,
+            @Value("${MINIURL_CUSTOM_ALPHABET:0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz}") String customAlphabet,
+            @Value("${MINIURL_KEY_LENGTH:8}") int keyLength,
+            @Value("${MINIURL_STORAGE_BACKEND:" + MiniUrlStore.JPA_BACKEND + "}") String storageBackend
+    ) {
+        this.miniUrlRepository = miniUrlRepository;
+        this.enabled = validateKeyStrategy(keyStrategy);
+        if (enabled && MiniUrlStore.SHARDED_BACKEND.equals(storageBackend)) {
+            throw new IllegalStateException("MINIURL_KEY_STRATEGY=" + BLOCK_STRATEGY + " does not work with MINIURL_STORAGE_BACKEND="
+                    + MiniUrlStore.SHARDED_BACKEND + ", use " + RANDOM_STRATEGY + " keys");
+        }
+        if (blockSize < 1) {
+            throw new IllegalStateException("MINIURL_KEY_BLOCK_SIZE must be positive");
+        }
+        this.blockSize = blockSize;
+        this.shuffledKeyEncoder = enabled
+                ? new ShuffledKeyEncoder(customAlphabet, RandomKeyGenerator.validateKeyLength(keyLength), secret)
+                : null;
+    }
+
+    private boolean validateKeyStrategy(String keyStrategy) {
+        if (BLOCK_STRATEGY.equals(keyStrategy)) {
+            return true;
+        }
+        if (RANDOM_STRATEGY.equals(keyStrategy)) {
+            return false;
+        }
+        throw new IllegalArgumentException("Unknown MINIURL_KEY_STRATEGY: " + keyStrategy);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String nextKey() {
+        long id;
+        lock.lock();
+        try {
+            if (nextId >= blockEnd) {
+                leaseBlock();
+            }
+            id = nextId++;
+        } finally {
+            lock.unlock();
+        }
+        return shuffledKeyEncoder.encode(id);
+    }
+
+    private void leaseBlock() {
+        long block = miniUrlRepository.nextMiniKeyBlock();
+        nextId = block * blockSize;
+        blockEnd = nextId + blockSize;
+        logger.debug("Leased miniKey block {} [{}, {})", block, nextId, blockEnd);
+    }
+}
@@ -0,0 +1,97 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.config.ReplicaRoutingDataSource;
+import com.desireevaldes.miniurl.repositories.MiniUrlStore;
+import com.desireevaldes.miniurl.utils.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * In-memory Bloom filter of every existing miniKey, used to answer "definitely absent" without a database query.
+ * The filter is loaded from the MiniUrl store once the application is ready, and keys created by this instance are added
+ * before they are saved. Deleted keys stay in the filter and simply fall through to the database.
+ * Only safe with a single application instance: keys created by another instance are unknown to this filter. The startup
+ * fails when it is combined with settings that only make sense with several instances: cache invalidation, a shared
+ * cache or the sharded storage backend.
+ */
+@Component
+public class MiniKeyFilter {
+    private static final Logger logger = LoggerFactory.getLogger(MiniKeyFilter.class);
+
+    private final MiniUrlStore miniUrlStore;
+    private final boolean enabled;
+    private final long expectedKeys;
+    private final BloomFilter bloomFilter;
+    private final LongAdder addedKeys = new LongAdder();
+
+    private volatile boolean loaded;
+
+    public MiniKeyFilter(
+            MiniUrlStore miniUrlStore,
+            @Value("${MINIURL_KEY_FILTER_ENABLED:false}") boolean enabled,
+            @Value("${MINIURL_KEY_FILTER_EXPECTED_KEYS:1000000}") long expectedKeys,
+            @Value("${MINIURL_KEY_FILTER_FPP:0.01}") double falsePositiveProbability,
+            @Value("${MINIURL_CACHE_INVALIDATION_ENABLED:false}") boolean invalidationEnabled,
+            @Value("${MINIURL_SHARED_CACHE:" + SharedMiniUrlCache.NONE + "}") String sharedCache,
+            @Value("${MINIURL_STORAGE_BACKEND:" + MiniUrlStore.JPA_BACKEND + "}") String storageBackend
+    ) {
+        if (enabled && (invalidationEnabled || !SharedMiniUrlCache.NONE.equals(sharedCache)
+                || MiniUrlStore.SHARDED_BACKEND.equals(storageBackend))) {
+            throw new IllegalStateException("MINIURL_KEY_FILTER_ENABLED only works with a single instance: it does not work with"
+                    + " MINIURL_CACHE_INVALIDATION_ENABLED, MINIURL_SHARED_CACHE or MINIURL_STORAGE_BACKEND=" + MiniUrlStore.SHARDED_BACKEND);
+        }
+        this.miniUrlStore = miniUrlStore;
+        this.enabled = enabled;
+        this.expectedKeys = expectedKeys;
+        this.bloomFilter = enabled ? new BloomFilter(expectedKeys, falsePositiveProbability) : null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        logger.info("Loading miniKey filter ({} bits, {} hashes)", bloomFilter.getBitSize(), bloomFilter.getHashCount());
+        // From the primary: a lagging replica would miss recent keys, which would then be reported as absent
+        ReplicaRoutingDataSource.runOnPrimary(() -> {
+            try (Stream<String> miniKeys = miniUrlStore.streamAllMiniKeys()) {
+                miniKeys.forEach(this::add);
+            }
+            return null;
+        });
+        loaded = true;
+        logger.info("MiniKey filter loaded with {} keys", addedKeys.sum());
+        warnIfOverCapacity();
+    }
+
+    /**
+     * True only when the miniKey was never created. False while the filter is still loading.
+     */
+    public boolean isDefinitelyAbsent(String miniKey) {
+        return loaded && !bloomFilter.mightContain(miniKey);
+    }
+
+    public void add(String miniKey) {
+        if (!enabled) {
+            return;
+        }
+        bloomFilter.put(miniKey);
+        addedKeys.increment();
+    }
+
+    private void warnIfOverCapacity() {
+        if (addedKeys.sum() > expectedKeys) {
+            logger.warn("MiniKey filter holds {} keys, more than MINIURL_KEY_FILTER_EXPECTED_KEYS={}: false positives will increase",
+                    addedKeys.sum(), expectedKeys);
+        }
+    }
+}
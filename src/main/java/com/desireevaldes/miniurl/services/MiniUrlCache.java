@@ -0,0 +1,169 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.models.MiniUrl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded in-process read-through cache for miniKey lookups.
+ * Backed by Caffeine (W-TinyLFU admission), evicting by size and by time since write. Entries restored from a
+ * {@link MiniUrlCacheSnapshot} keep the time they had left, so a restart does not extend how long an entry is served.
+ * An expiring MiniUrl is cached no longer than until its expiresAt: Caffeine keeps variable expirations on a
+ * hierarchical timing wheel, and the system scheduler evicts them when their time comes instead of on the next access.
+ * Its statistics are published as the {@code cache.*} meters, tagged {@code cache=miniUrls}.
+ * <p>
+ * Every invalidation bumps a generation of its miniKey. A read-through load takes the generation before reading and
+ * caches its result with {@link #putIfCurrent}, which is skipped if an update or delete invalidated the miniKey
+ * meanwhile: the load may have read the old row.
+ */
+@Component
+public class MiniUrlCache implements MeterBinder {
+
+    // Generations are kept per stripe of miniKeys, so memory stays fixed: invalidating a miniKey also skips the
+    // concurrent loads of the other miniKeys of its stripe, which are then cached by the next read
+    private static final int GENERATION_STRIPES = 4096;
+
+    private final Cache<String, MiniUrl> cache;
+    private final Policy.VarExpiration<String, MiniUrl> expiration;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    private final AtomicLong allGeneration = new AtomicLong();
+
+    public MiniUrlCache(
+            @Value("${MINIURL_CACHE_MAX_SIZE:100000}") long maxSize,
+            @Value("${MINIURL_CACHE_TTL_SECONDS:600}") long ttlSeconds
+    ) {
+        long ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, MiniUrl>() {
+                    @Override
+                    public long expireAfterCreate(String miniKey, MiniUrl miniUrl, long currentTime) {
+                        return cappedNanos(miniUrl, ttlNanos);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String miniKey, MiniUrl miniUrl, long currentTime, long currentDuration) {
+                        return cappedNanos(miniUrl, ttlNanos);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String miniKey, MiniUrl miniUrl, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .scheduler(Scheduler.systemScheduler())
+                .recordStats()
+                .build();
+        this.expiration = cache.policy().expireVariably().orElseThrow();
+    }
+
+    // At most the time left before the MiniUrl expires
+    private static long cappedNanos(MiniUrl miniUrl, long nanos) {
+        Instant now = Instant.now();
+        if (miniUrl.getExpiresAt() == null || miniUrl.getExpiresAt().isAfter(now.plusNanos(nanos))) {
+            return nanos;
+        }
+        return Math.max(0, Duration.between(now, miniUrl.getExpiresAt()).toNanos());
+    }
+
+    public MiniUrl getIfPresent(String miniKey) {
+        return cache.getIfPresent(miniKey);
+    }
+
+    public void put(MiniUrl miniUrl) {
+        cache.put(miniUrl.getMiniKey(), miniUrl);
+    }
+
+    private static int stripe(String miniKey) {
+        return Math.floorMod(miniKey.hashCode(), GENERATION_STRIPES);
+    }
+
+    /**
+     * Changes whenever the miniKey is invalidated, to be taken before reading the MiniUrl for {@link #putIfCurrent}.
+     */
+    public long generation(String miniKey) {
+        return generations.get(stripe(miniKey)) + allGeneration.get();
+    }
+
+    /**
+     * Caches the MiniUrl unless its miniKey was invalidated since the generation was taken.
+     *
+     * @return false if the MiniUrl was not cached
+     */
+    public boolean putIfCurrent(MiniUrl miniUrl, long generation) {
+        if (generation(miniUrl.getMiniKey()) != generation) {
+            return false;
+        }
+        boolean[] cached = {false};
+        // Under the lock of the miniKey, which invalidate takes too
+        cache.asMap().compute(miniUrl.getMiniKey(), (miniKey, cachedMiniUrl) -> {
+            if (generation(miniKey) != generation) {
+                return cachedMiniUrl;
+            }
+            cached[0] = true;
+            return miniUrl;
+        });
+        return cached[0];
+    }
+
+    // False if the miniKey is already cached, the cached entry is then kept
+    public boolean putIfAbsent(MiniUrl miniUrl, Duration expiresAfter) {
+        Duration cappedExpiresAfter = Duration.ofNanos(cappedNanos(miniUrl, expiresAfter.toNanos()));
+        return expiration.putIfAbsent(miniUrl.getMiniKey(), miniUrl, cappedExpiresAfter) == null;
+    }
+
+    // Time left before the entry expires, zero if it is not cached
+    public Duration expiresAfter(String miniKey) {
+        return expiration.getExpiresAfter(miniKey).orElse(Duration.ZERO);
+    }
+
+    /**
+     * Up to {@code limit} of the entries the eviction policy would keep longest: those used again since they were
+     * cached, most recently used first, then the others by estimated access frequency.
+     */
+    public Map<String, MiniUrl> hottest(int limit) {
+        // Apply the buffered reads first, so they count
+        cache.cleanUp();
+        return cache.policy().eviction().orElseThrow().hottest(limit);
+    }
+
+    public void invalidate(String miniKey) {
+        cache.asMap().compute(miniKey, (key, cachedMiniUrl) -> {
+            generations.incrementAndGet(stripe(key));
+            return null;
+        });
+    }
+
+    public void invalidateAll() {
+        allGeneration.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "miniUrls");
+    }
+}
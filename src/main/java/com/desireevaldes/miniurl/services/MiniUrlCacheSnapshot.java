@@ -0,0 +1,210 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.models.MiniUrl;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Persists the hottest entries of the {@link MiniUrlCache} to a local file, and restores them on startup,
+ * so a restarted instance serves its hot miniKeys from memory instead of sending every first resolve to the database.
+ * <p>
+ * The snapshot is written every MINIURL_CACHE_SNAPSHOT_INTERVAL_MS and on shutdown, and loaded on a background thread
+ * at startup. Until it is loaded this bean reports OUT_OF_SERVICE, which keeps the readiness probe down.
+ * Entries keep the time they had left in the cache, so they are never served longer than MINIURL_CACHE_TTL_SECONDS
+ * after they were read from the database.
+ * <p>
+ * Snapshots are ignored when MINIURL_CACHE_INVALIDATION_ENABLED or a MINIURL_SHARED_CACHE is set: other instances may
+ * update a miniKey while this one is down, and the broadcast that would have evicted the restored entry is lost.
+ */
+@Component
+public class MiniUrlCacheSnapshot implements HealthIndicator {
+    private static final Logger logger = LoggerFactory.getLogger(MiniUrlCacheSnapshot.class);
+
+    // File layout: magic, version, entry count, entries, CRC32 of everything before it
+    private static final int MAGIC = 0x4D55434B;
+    private static final int VERSION = 2;
+
+    private final MiniUrlCache miniUrlCache;
+    private final boolean enabled;
+    private final Path file;
+    private final int size;
+    private final Clock clock;
+
+    private volatile boolean loaded;
+    private volatile int loadedEntries;
+
+    @Autowired
+    public MiniUrlCacheSnapshot(
+            MiniUrlCache miniUrlCache,
+            @Value("${MINIURL_CACHE_SNAPSHOT_ENABLED:false}") boolean enabled,
+            @Value("${MINIURL_CACHE_SNAPSHOT_FILE:snapshot/miniurl-cache.bin}") String file,
+            @Value("${MINIURL_CACHE_SNAPSHOT_SIZE:10000}") int size,
+            @Value("${MINIURL_CACHE_INVALIDATION_ENABLED:false}") boolean invalidationEnabled,
+            @Value("${MINIURL_SHARED_CACHE:" + SharedMiniUrlCache.NONE + "}") String sharedCache
+    ) {
+        this(miniUrlCache, enabled && isSingleInstance(invalidationEnabled, sharedCache), file, size, Clock.systemUTC());
+    }
+
+    private static boolean isSingleInstance(boolean invalidationEnabled, String sharedCache) {
+        if (invalidationEnabled || !SharedMiniUrlCache.NONE.equals(sharedCache)) {
+            logger.warn("Ignoring MINIURL_CACHE_SNAPSHOT_ENABLED: restored entries could miss updates made by other instances");
+            return false;
+        }
+        return true;
+    }
+
+    MiniUrlCacheSnapshot(MiniUrlCache miniUrlCache, boolean enabled, String file, int size, Clock clock) {
+        this.miniUrlCache = miniUrlCache;
+        this.enabled = enabled;
+        this.file = Paths.get(file);
+        this.size = size;
+        this.clock = clock;
+        this.loaded = !enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            Thread.ofPlatform().name("miniurl-cache-snapshot-loader").daemon().start(this::load);
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    void load() {
+        try {
+            loadedEntries = read();
+            logger.info("Restored {} MiniUrl cache entries from {}", loadedEntries, file.toAbsolutePath());
+        } catch (NoSuchFileException exception) {
+            logger.info("No MiniUrl cache snapshot in {}, starting with an empty cache", file.toAbsolutePath());
+        } catch (IOException | RuntimeException exception) {
+            logger.warn("Ignoring unreadable MiniUrl cache snapshot {}: {}", file.toAbsolutePath(), exception.toString());
+        } finally {
+            loaded = true;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${MINIURL_CACHE_SNAPSHOT_INTERVAL_MS:60000}")
+    public void save() {
+        // Before the snapshot is loaded, the cache is colder than the file: keep the file
+        if (!enabled || !loaded) {
+            return;
+        }
+        try {
+            int entries = write();
+            logger.debug("Saved {} MiniUrl cache entries to {}", entries, file.toAbsolutePath());
+        } catch (IOException | RuntimeException exception) {
+            logger.warn("Failed to save MiniUrl cache snapshot {}: {}", file.toAbsolutePath(), exception.toString());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        save();
+    }
+
+    @Override
+    public Health health() {
+        if (!loaded) {
+            return Health.outOfService().withDetail("file", file.toString()).build();
+        }
+        return Health.up().withDetail("restoredEntries", loadedEntries).build();
+    }
+
+    // Entry layout: miniKey, fullUrl, createdAt, updatedAt and expiresAt (0 if none) in epoch millis, cache expiry in
+    // epoch millis. Version 1 had no expiresAt, its snapshots are ignored.
+    private int write() throws IOException {
+        Map<String, MiniUrl> hottest = miniUrlCache.hottest(size);
+        long now = clock.millis();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * hottest.size() + 16);
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(hottest.size());
+        for (MiniUrl miniUrl : hottest.values()) {
+            long expiresAfterMillis = miniUrlCache.expiresAfter(miniUrl.getMiniKey()).toMillis();
+            output.writeUTF(miniUrl.getMiniKey());
+            output.writeUTF(miniUrl.getFullUrl());
+            output.writeLong(miniUrl.getCreatedAt() == null ? 0 : miniUrl.getCreatedAt().toEpochMilli());
+            output.writeLong(miniUrl.getUpdatedAt() == null ? 0 : miniUrl.getUpdatedAt().toEpochMilli());
+            output.writeLong(miniUrl.getExpiresAt() == null ? 0 : miniUrl.getExpiresAt().toEpochMilli());
+            output.writeLong(now + expiresAfterMillis);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        output.writeInt((int) crc.getValue());
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporaryFile, bytes.toByteArray());
+            Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+        return hottest.size();
+    }
+
+    private int read() throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length < 4 * Integer.BYTES) {
+            throw new IOException("Truncated snapshot");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - Integer.BYTES);
+        if ((int) crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - Integer.BYTES, Integer.BYTES).getInt()) {
+            throw new IOException("Checksum mismatch");
+        }
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - Integer.BYTES));
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            throw new IOException("Unknown snapshot format");
+        }
+        int count = input.readInt();
+        long now = clock.millis();
+        int restored = 0;
+        for (int i = 0; i < count; i++) {
+            MiniUrl miniUrl = new MiniUrl();
+            miniUrl.setMiniKey(input.readUTF());
+            miniUrl.setFullUrl(input.readUTF());
+            miniUrl.setCreatedAt(Instant.ofEpochMilli(input.readLong()));
+            miniUrl.setUpdatedAt(Instant.ofEpochMilli(input.readLong()));
+            long expiresAtMillis = input.readLong();
+            miniUrl.setExpiresAt(expiresAtMillis == 0 ? null : Instant.ofEpochMilli(expiresAtMillis));
+            long expiresAfterMillis = input.readLong() - now;
+            // Entries cached since startup were read from the database after the snapshot: keep them
+            if (expiresAfterMillis > 0 && miniUrlCache.putIfAbsent(miniUrl, Duration.ofMillis(expiresAfterMillis))) {
+                restored++;
+            }
+        }
+        return restored;
+    }
+}
@@ -0,0 +1,181 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.config.ReplicaRoutingDataSource;
+import com.desireevaldes.miniurl.repositories.MiniUrlStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.Driver;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Tells every instance to drop a miniKey from its {@link MiniUrlCache} after it was updated or deleted, through
+ * Postgres LISTEN/NOTIFY on the {@value #CHANNEL} channel, so other nodes stop serving the old fullUrl within
+ * milliseconds instead of after MINIURL_CACHE_TTL_SECONDS. Enabled with MINIURL_CACHE_INVALIDATION_ENABLED.
+ * <p>
+ * A sender thread batches the broadcast miniKeys into one NOTIFY statement on a pooled primary connection. A listener
+ * thread keeps its own connection outside the pool, and reconnects after MINIURL_CACHE_INVALIDATION_RECONNECT_MS when
+ * it is lost; notifications sent in between are missed, so the whole cache is dropped when it is back.
+ */
+@Component
+public class MiniUrlInvalidationBroadcaster {
+    private static final Logger logger = LoggerFactory.getLogger(MiniUrlInvalidationBroadcaster.class);
+
+    public static final String CHANNEL = "miniurl_invalidation";
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int POLL_TIMEOUT_MILLIS = 500;
+
+    private final boolean enabled;
+    private final MiniUrlCache miniUrlCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final SimpleDriverDataSource listenerDataSource;
+    private final long reconnectDelayMillis;
+    private final BlockingQueue<String> pendingMiniKeys = new LinkedBlockingQueue<>();
+
+    private volatile boolean running;
+    private volatile boolean listening;
+    private Thread sender;
+    private Thread listener;
+
+    public MiniUrlInvalidationBroadcaster(
+            MiniUrlCache miniUrlCache,
+            JdbcTemplate jdbcTemplate,
+            DataSourceProperties dataSourceProperties,
+            @Value("${MINIURL_CACHE_INVALIDATION_ENABLED:false}") boolean enabled,
+            @Value("${MINIURL_CACHE_INVALIDATION_RECONNECT_MS:1000}") long reconnectDelayMillis,
+            @Value("${MINIURL_STORAGE_BACKEND:" + MiniUrlStore.JPA_BACKEND + "}") String storageBackend
+    ) {
+        // Off-heap nodes each own their data, the others share a database to notify through
+        if (enabled && MiniUrlStore.OFF_HEAP_BACKEND.equals(storageBackend)) {
+            throw new IllegalStateException("MINIURL_CACHE_INVALIDATION_ENABLED does not work with MINIURL_STORAGE_BACKEND=" + MiniUrlStore.OFF_HEAP_BACKEND);
+        }
+        this.enabled = enabled;
+        this.miniUrlCache = miniUrlCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.listenerDataSource = enabled ? new SimpleDriverDataSource(new Driver(),
+                dataSourceProperties.determineUrl(), dataSourceProperties.determineUsername(),
+                dataSourceProperties.determinePassword()) : null;
+        this.reconnectDelayMillis = reconnectDelayMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            running = true;
+            sender = Thread.ofPlatform().name("miniurl-invalidation-sender").daemon().start(this::send);
+            listener = Thread.ofPlatform().name("miniurl-invalidation-listener").daemon().start(this::listen);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (enabled) {
+            sender.interrupt();
+            sender.join();
+            listener.join();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // True while the listener connection is up, notifications are missed otherwise
+    public boolean isListening() {
+        return listening;
+    }
+
+    /**
+     * Sends the miniKey to every instance, this one included, without waiting. Call it once the change is committed
+     * and the shared cache tier no longer has the miniKey, otherwise other instances could reload the old fullUrl.
+     */
+    public void broadcast(String miniKey) {
+        if (enabled) {
+            pendingMiniKeys.add(miniKey);
+        }
+    }
+
+    private void send() {
+        List<String> miniKeys = new ArrayList<>();
+        while (running) {
+            try {
+                miniKeys.add(pendingMiniKeys.take());
+            } catch (InterruptedException exception) {
+                break;
+            }
+            pendingMiniKeys.drainTo(miniKeys, MAX_BATCH_SIZE - 1);
+            try {
+                ReplicaRoutingDataSource.runOnPrimary(() -> jdbcTemplate.execute(notifyAll(miniKeys)));
+            } catch (RuntimeException exception) {
+                // Other instances then serve the old fullUrl until their cache entry expires
+                logger.warn("Failed to broadcast {} MiniUrl cache invalidations: {}", miniKeys.size(), exception.toString());
+            }
+            miniKeys.clear();
+        }
+    }
+
+    private static ConnectionCallback<Boolean> notifyAll(List<String> miniKeys) {
+        return connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT pg_notify(?, mini_key) FROM unnest(?) AS keys (mini_key)")) {
+                statement.setString(1, CHANNEL);
+                statement.setArray(2, connection.createArrayOf("text", miniKeys.toArray()));
+                return statement.execute();
+            }
+        };
+    }
+
+    private void listen() {
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = listenerDataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + CHANNEL);
+                listening = true;
+                if (reconnecting) {
+                    miniUrlCache.invalidateAll();
+                    logger.info("Reconnected to MiniUrl cache invalidations, dropped the cache");
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            miniUrlCache.invalidate(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException exception) {
+                listening = false;
+                reconnecting = true;
+                if (running) {
+                    logger.warn("Lost MiniUrl cache invalidations, reconnecting in {} ms: {}", reconnectDelayMillis, exception.toString());
+                    try {
+                        Thread.sleep(reconnectDelayMillis);
+                    } catch (InterruptedException interruptedException) {
+                        return;
+                    }
+                }
+            }
+        }
+        listening = false;
+    }
+}
@@ -0,0 +1,538 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.exceptions.MiniKeyConflictException;
+import com.desireevaldes.miniurl.exceptions.MiniUrlUnavailableException;
+import com.desireevaldes.miniurl.models.MiniUrl;
+import com.desireevaldes.miniurl.repositories.MiniUrlStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Write-behind store for new MiniUrls.
+ * <p>
+ * Appends are acknowledged once they are in a local append-only journal and fsynced. A single writer thread
+ * takes every append queued while the previous fsync was running and writes them with one write and one fsync
+ * (group commit). Journaled MiniUrls are served from memory until a scheduled drain inserts them into mini_urls
+ * in large JDBC batches; the drained journal segment is then deleted. Segments left by a crash are replayed
+ * on startup. Inserts ignore miniKeys already in the database, so replaying a segment twice is harmless. They name
+ * no conflict target, which a partitioned mini_urls (v7) would not have a matching unique index for. A row skipped
+ * because its miniKey already maps to another URL is logged as an error.
+ * <p>
+ * Appends reserve their miniKeys atomically: an append with a miniKey already pending or being written fails with
+ * {@link MiniKeyConflictException}, so two concurrent creates that drew the same key are never both acknowledged.
+ * <p>
+ * Only safe with a single application instance: other instances cannot see MiniUrls that are not drained yet.
+ */
+@Component
+public class MiniUrlJournal {
+    private static final Logger logger = LoggerFactory.getLogger(MiniUrlJournal.class);
+
+    private static final String INSERT_SQL = """
+            INSERT INTO mini_urls (mini_key, full_url, full_url_hash, created_at, updated_at) VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT DO NOTHING
+            """;
+    private static final String SELECT_FULL_URLS_SQL = "SELECT mini_key, full_url FROM mini_urls WHERE mini_key = ANY (?)";
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int MAX_GROUP_SIZE = 1024;
+    private static final Append STOP = new Append(List.of());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MiniKeyFilter miniKeyFilter;
+    private final boolean enabled;
+    private final Path directory;
+    private final int batchSize;
+
+    // Journaled MiniUrls that are not in the database yet
+    private final ConcurrentMap<String, MiniUrl> pendingByMiniKey = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, MiniUrl> pendingByFullUrl = new ConcurrentHashMap<>();
+    // miniKeys of pending MiniUrls and of appends not written yet
+    private final Set<String> reservedMiniKeys = ConcurrentHashMap.newKeySet();
+
+    private final BlockingQueue<Append> appendQueue = new LinkedBlockingQueue<>();
+    private final ReentrantLock segmentLock = new ReentrantLock();
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final Deque<Segment> sealedSegments = new ArrayDeque<>();
+    private Segment currentSegment;
+    private long nextSegmentId;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    public MiniUrlJournal(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            MiniKeyFilter miniKeyFilter,
+            @Value("${MINIURL_WRITE_BEHIND_ENABLED:false}") boolean enabled,
+            @Value("${MINIURL_JOURNAL_DIR:journal}") String directory,
+            @Value("${MINIURL_JOURNAL_BATCH_SIZE:1000}") int batchSize,
+            @Value("${MINIURL_STORAGE_BACKEND:" + MiniUrlStore.JPA_BACKEND + "}") String storageBackend
+    ) {
+        if (enabled && !MiniUrlStore.JPA_BACKEND.equals(storageBackend)) {
+            throw new IllegalStateException("MINIURL_WRITE_BEHIND_ENABLED requires MINIURL_STORAGE_BACKEND=" + MiniUrlStore.JPA_BACKEND);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.miniKeyFilter = miniKeyFilter;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.batchSize = batchSize;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            replay();
+            currentSegment = openSegment(nextSegmentId++);
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Cannot open MiniUrl journal in " + directory.toAbsolutePath(), exception);
+        }
+        running = true;
+        writerThread = Thread.ofPlatform().name("miniurl-journal-writer").daemon().start(this::writeLoop);
+        logger.info("MiniUrl write-behind journal enabled in {}", directory.toAbsolutePath());
+    }
+
+    /**
+     * Journals the MiniUrls. The future completes once they are durable on disk and visible to the lookups below.
+     */
+    public CompletableFuture<List<MiniUrl>> append(List<MiniUrl> miniUrls) {
+        // Millisecond precision, as stored in the journal
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        for (MiniUrl miniUrl : miniUrls) {
+            miniUrl.setCreatedAt(now);
+            miniUrl.setUpdatedAt(now);
+        }
+        Append append = new Append(miniUrls);
+        if (!running) {
+            append.result.completeExceptionally(new IllegalStateException("MiniUrl journal is not running"));
+            return append.result;
+        }
+        for (int i = 0; i < miniUrls.size(); i++) {
+            if (!reservedMiniKeys.add(miniUrls.get(i).getMiniKey())) {
+                release(miniUrls.subList(0, i));
+                append.result.completeExceptionally(new MiniKeyConflictException(
+                        "miniKey " + miniUrls.get(i).getMiniKey() + " is already journaled"));
+                return append.result;
+            }
+        }
+        appendQueue.add(append);
+        return append.result;
+    }
+
+    public MiniUrl getPending(String miniKey) {
+        return pendingByMiniKey.get(miniKey);
+    }
+
+    public MiniUrl getPendingByFullUrl(String fullUrl) {
+        return pendingByFullUrl.get(fullUrl);
+    }
+
+    // Also true while an append of the miniKey is being written
+    public boolean isPending(String miniKey) {
+        return reservedMiniKeys.contains(miniKey);
+    }
+
+    public int pendingCount() {
+        return pendingByMiniKey.size();
+    }
+
+    /**
+     * Drains right away if the miniKey is not in the database yet, so it can be updated or deleted there.
+     *
+     * @throws MiniUrlUnavailableException if the miniKey is still pending: the drain failed, or its append is not
+     *                                     written yet. The database does not hold the MiniUrl, retrying later can
+     */
+    public void flushIfPending(String miniKey) {
+        if (!isPending(miniKey)) {
+            return;
+        }
+        drain();
+        if (isPending(miniKey)) {
+            throw new MiniUrlUnavailableException("MiniUrl with miniKey " + miniKey + " is not saved to the database yet, retry the request");
+        }
+    }
+
+    private void writeLoop() {
+        List<Append> group = new ArrayList<>();
+        while (true) {
+            try {
+                group.add(appendQueue.take());
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            appendQueue.drainTo(group, MAX_GROUP_SIZE - 1);
+            boolean stop = group.remove(STOP);
+            try {
+                write(group);
+            } catch (RuntimeException exception) {
+                logger.error("Failed to journal {} MiniUrl appends", group.size(), exception);
+                for (Append append : group) {
+                    release(append.miniUrls);
+                    append.result.completeExceptionally(exception);
+                }
+            }
+            group.clear();
+            if (stop) {
+                return;
+            }
+        }
+    }
+
+    private void write(List<Append> group) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (Append append : group) {
+            for (MiniUrl miniUrl : append.miniUrls) {
+                writeRecord(buffer, miniUrl);
+            }
+        }
+
+        segmentLock.lock();
+        try {
+            Segment segment = currentSegment;
+            try {
+                ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+                while (bytes.hasRemaining()) {
+                    segment.channel.write(bytes);
+                }
+                segment.channel.force(false);
+            } catch (IOException exception) {
+                logger.error("Failed to write {} MiniUrl appends to the journal: {}", group.size(), exception.getMessage());
+                truncate(segment);
+                for (Append append : group) {
+                    release(append.miniUrls);
+                    append.result.completeExceptionally(new IllegalStateException("Failed to write MiniUrl journal", exception));
+                }
+                return;
+            }
+            segment.size += buffer.size();
+            for (Append append : group) {
+                segment.miniUrls.addAll(append.miniUrls);
+                for (MiniUrl miniUrl : append.miniUrls) {
+                    pendingByMiniKey.put(miniUrl.getMiniKey(), miniUrl);
+                    pendingByFullUrl.putIfAbsent(miniUrl.getFullUrl(), miniUrl);
+                }
+            }
+        } finally {
+            segmentLock.unlock();
+        }
+
+        for (Append append : group) {
+            append.result.complete(append.miniUrls);
+        }
+    }
+
+    private void release(List<MiniUrl> miniUrls) {
+        for (MiniUrl miniUrl : miniUrls) {
+            reservedMiniKeys.remove(miniUrl.getMiniKey());
+        }
+    }
+
+    // Removes a partially written group, so it is neither acknowledged nor replayed
+    private static void truncate(Segment segment) {
+        try {
+            segment.channel.truncate(segment.size);
+            segment.channel.position(segment.size);
+        } catch (IOException exception) {
+            logger.warn("Failed to truncate journal segment {}: {}", segment.path, exception.getMessage());
+        }
+    }
+
+    /**
+     * Writes journaled MiniUrls to the database, oldest segment first. A failed drain is retried on the next run.
+     */
+    @Scheduled(fixedDelayString = "${MINIURL_JOURNAL_DRAIN_INTERVAL_MS:200}")
+    public void drain() {
+        if (!enabled) {
+            return;
+        }
+        drainLock.lock();
+        try {
+            drainSegments();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void drainSegments() {
+        sealCurrentSegment();
+        while (!sealedSegments.isEmpty()) {
+            Segment segment = sealedSegments.peekFirst();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.batchUpdate(INSERT_SQL, segment.miniUrls, batchSize,
+                            (statement, miniUrl) -> {
+                                statement.setString(1, miniUrl.getMiniKey());
+                                statement.setString(2, miniUrl.getFullUrl());
+                                statement.setObject(3, miniUrl.getFullUrlHash());
+                                statement.setTimestamp(4, Timestamp.from(miniUrl.getCreatedAt()));
+                                statement.setTimestamp(5, Timestamp.from(miniUrl.getUpdatedAt()));
+                            });
+                    logConflicts(segment.miniUrls);
+                });
+            } catch (RuntimeException exception) {
+                logger.warn("Failed to drain {} journaled MiniUrls, {} pending, retrying on next drain: {}",
+                        segment.miniUrls.size(), pendingByMiniKey.size(), exception.getMessage());
+                return;
+            }
+            sealedSegments.removeFirst();
+            for (MiniUrl miniUrl : segment.miniUrls) {
+                pendingByMiniKey.remove(miniUrl.getMiniKey(), miniUrl);
+                pendingByFullUrl.remove(miniUrl.getFullUrl(), miniUrl);
+                reservedMiniKeys.remove(miniUrl.getMiniKey());
+            }
+            deleteSegment(segment);
+            logger.debug("Drained {} journaled MiniUrls", segment.miniUrls.size());
+        }
+    }
+
+    /**
+     * Rows skipped by ON CONFLICT DO NOTHING are acknowledged creates the database does not hold, unless the row already
+     * there is the same MiniUrl (a replay). Reads the drained miniKeys back and logs the ones mapping to another URL.
+     */
+    private void logConflicts(List<MiniUrl> miniUrls) {
+        List<String> conflictingMiniKeys = new ArrayList<>();
+        for (int from = 0; from < miniUrls.size(); from += batchSize) {
+            List<MiniUrl> chunk = miniUrls.subList(from, Math.min(from + batchSize, miniUrls.size()));
+            Map<String, String> storedFullUrls = new HashMap<>(chunk.size());
+            jdbcTemplate.query(SELECT_FULL_URLS_SQL, resultSet -> {
+                storedFullUrls.put(resultSet.getString(1), resultSet.getString(2));
+            }, (Object) chunk.stream().map(MiniUrl::getMiniKey).toArray(String[]::new));
+            for (MiniUrl miniUrl : chunk) {
+                String storedFullUrl = storedFullUrls.get(miniUrl.getMiniKey());
+                if (storedFullUrl != null && !storedFullUrl.equals(miniUrl.getFullUrl())) {
+                    conflictingMiniKeys.add(miniUrl.getMiniKey());
+                }
+            }
+        }
+        if (!conflictingMiniKeys.isEmpty()) {
+            logger.error("{} journaled MiniUrls were not inserted, their miniKey already maps to another URL: {}",
+                    conflictingMiniKeys.size(), conflictingMiniKeys);
+        }
+    }
+
+    private void sealCurrentSegment() {
+        segmentLock.lock();
+        try {
+            if (currentSegment == null || currentSegment.miniUrls.isEmpty()) {
+                return;
+            }
+            Segment sealedSegment = currentSegment;
+            currentSegment = openSegment(nextSegmentId++);
+            sealedSegment.channel.close();
+            sealedSegments.addLast(sealedSegment);
+        } catch (IOException exception) {
+            logger.warn("Failed to roll journal segment, draining later: {}", exception.getMessage());
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        appendQueue.add(STOP);
+        try {
+            writerThread.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        Append append;
+        while ((append = appendQueue.poll()) != null) {
+            release(append.miniUrls);
+            append.result.completeExceptionally(new IllegalStateException("MiniUrl journal is not running"));
+        }
+
+        drain();
+        segmentLock.lock();
+        try {
+            currentSegment.channel.close();
+            if (currentSegment.miniUrls.isEmpty()) {
+                deleteSegment(currentSegment);
+            }
+        } catch (IOException exception) {
+            logger.warn("Failed to close journal segment {}: {}", currentSegment.path, exception.getMessage());
+        } finally {
+            segmentLock.unlock();
+        }
+        if (!pendingByMiniKey.isEmpty()) {
+            logger.warn("{} journaled MiniUrls were not drained, they will be replayed on next start", pendingByMiniKey.size());
+        }
+    }
+
+    private void replay() throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .forEach(path -> segments.add(new Segment(segmentId(path), path)));
+        }
+        segments.sort((first, second) -> Long.compare(first.id, second.id));
+
+        int replayed = 0;
+        for (Segment segment : segments) {
+            nextSegmentId = segment.id + 1;
+            readSegment(segment);
+            if (segment.miniUrls.isEmpty()) {
+                deleteSegment(segment);
+                continue;
+            }
+            for (MiniUrl miniUrl : segment.miniUrls) {
+                pendingByMiniKey.put(miniUrl.getMiniKey(), miniUrl);
+                pendingByFullUrl.putIfAbsent(miniUrl.getFullUrl(), miniUrl);
+                reservedMiniKeys.add(miniUrl.getMiniKey());
+                // The Bloom filter is loaded from the database, which may not have these keys yet
+                miniKeyFilter.add(miniUrl.getMiniKey());
+            }
+            sealedSegments.addLast(segment);
+            replayed += segment.miniUrls.size();
+        }
+        if (replayed > 0) {
+            logger.info("Replaying {} journaled MiniUrls from {} segments", replayed, sealedSegments.size());
+        }
+    }
+
+    private static long segmentId(Path path) {
+        String fileName = path.getFileName().toString();
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private Segment openSegment(long id) throws IOException {
+        Segment segment = new Segment(id, directory.resolve(SEGMENT_PREFIX + id + SEGMENT_SUFFIX));
+        segment.channel = FileChannel.open(segment.path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        return segment;
+    }
+
+    private static void deleteSegment(Segment segment) {
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException exception) {
+            logger.warn("Failed to delete journal segment {}: {}", segment.path, exception.getMessage());
+        }
+    }
+
+    // Record layout: payload length, CRC32 of the payload, payload (miniKey, fullUrl, createdAt in epoch millis).
+    private static void writeRecord(ByteArrayOutputStream buffer, MiniUrl miniUrl) {
+        try {
+            ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+            DataOutputStream payload = new DataOutputStream(payloadBytes);
+            payload.writeUTF(miniUrl.getMiniKey());
+            payload.writeUTF(miniUrl.getFullUrl());
+            payload.writeLong(miniUrl.getCreatedAt().toEpochMilli());
+
+            CRC32 crc = new CRC32();
+            crc.update(payloadBytes.toByteArray());
+            DataOutputStream record = new DataOutputStream(buffer);
+            record.writeInt(payloadBytes.size());
+            record.writeInt((int) crc.getValue());
+            payloadBytes.writeTo(record);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    // Stops at the first incomplete or corrupt record: a crash can only tear the last write.
+    private static void readSegment(Segment segment) throws IOException {
+        ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(segment.path));
+        while (records.hasRemaining()) {
+            if (records.remaining() < 2 * Integer.BYTES) {
+                logger.warn("Ignoring incomplete record at the end of journal segment {}", segment.path);
+                return;
+            }
+            int length = records.getInt();
+            int checksum = records.getInt();
+            if (length <= 0 || length > records.remaining()) {
+                logger.warn("Ignoring incomplete record at the end of journal segment {}", segment.path);
+                return;
+            }
+            byte[] payload = new byte[length];
+            records.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                logger.warn("Ignoring corrupt record at the end of journal segment {}", segment.path);
+                return;
+            }
+
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+            MiniUrl miniUrl = new MiniUrl();
+            miniUrl.setMiniKey(record.readUTF());
+            miniUrl.setFullUrl(record.readUTF());
+            miniUrl.setCreatedAt(Instant.ofEpochMilli(record.readLong()));
+            miniUrl.setUpdatedAt(miniUrl.getCreatedAt());
+            segment.miniUrls.add(miniUrl);
+        }
+    }
+
+    private static final class Segment {
+        private final long id;
+        private final Path path;
+        private final List<MiniUrl> miniUrls = new ArrayList<>();
+        private FileChannel channel;
+        private long size;
+
+        private Segment(long id, Path path) {
+            this.id = id;
+            this.path = path;
+        }
+    }
+
+    private static final class Append {
+        private final List<MiniUrl> miniUrls;
+        private final CompletableFuture<List<MiniUrl>> result = new CompletableFuture<>();
+
+        private Append(List<MiniUrl> miniUrls) {
+            this.miniUrls = miniUrls;
+        }
+    }
+}
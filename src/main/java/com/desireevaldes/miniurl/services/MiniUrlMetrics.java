@@ -0,0 +1,130 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.exceptions.MiniUrlNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters of the service hot paths, scraped from /actuator/prometheus.
+ * <p>
+ * Timers are tagged with the operation and its outcome only (never the miniKey), and looked up once per tag pair,
+ * so recording is a map lookup and a few atomic updates. Percentiles come from the histogram buckets enabled in
+ * application.properties and are computed by Prometheus, not in the application.
+ */
+@Component
+public class MiniUrlMetrics {
+    public static final String OPERATION_TIMER = "miniurl.operation";
+    public static final String KEY_GENERATION_TIMER = "miniurl.keygen";
+    public static final String KEY_COLLISIONS_COUNTER = "miniurl.keygen.collisions";
+    public static final String REJECTED_COUNTER = "miniurl.rejected";
+
+    public static final String CREATE = "create";
+    public static final String CREATE_BATCH = "create_batch";
+    public static final String LOOKUP = "lookup";
+    public static final String RESOLVE = "resolve";
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+
+    public static final String RATE_LIMITED = "rate_limited";
+    public static final String SHED = "shed";
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, Timer> operationTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> keyGenerationTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> rejectionCounters = new ConcurrentHashMap<>();
+    private final Counter keyCollisions;
+
+    public MiniUrlMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.keyCollisions = Counter.builder(KEY_COLLISIONS_COUNTER)
+                .description("Generated miniKeys that already existed and were regenerated")
+                .register(meterRegistry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * Times the asynchronous operation from the call until its future completes.
+     */
+    public <T> CompletableFuture<T> timeAsync(String operation, Supplier<CompletableFuture<T>> action) {
+        Timer.Sample sample = start();
+        CompletableFuture<T> result;
+        try {
+            result = action.get();
+        } catch (RuntimeException exception) {
+            stop(sample, operation, exception);
+            throw exception;
+        }
+        return result.whenComplete((value, exception) -> stop(sample, operation, exception));
+    }
+
+    /**
+     * Times the reactive operation from each subscription until it completes. Cancelled subscriptions are not recorded.
+     */
+    public <T> Mono<T> timeMono(String operation, Supplier<Mono<T>> action) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = start();
+            return Mono.defer(action)
+                    .doOnSuccess(value -> stop(sample, operation, null))
+                    .doOnError(exception -> stop(sample, operation, exception));
+        });
+    }
+
+    public void stop(Timer.Sample sample, String operation, Throwable exception) {
+        String outcome = outcome(exception);
+        sample.stop(operationTimers.computeIfAbsent(operation + '|' + outcome, key -> Timer.builder(OPERATION_TIMER)
+                .description("MiniUrl service operations, from call to completion")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)));
+    }
+
+    public void stopKeyGeneration(Timer.Sample sample, String strategy) {
+        sample.stop(keyGenerationTimers.computeIfAbsent(strategy, key -> Timer.builder(KEY_GENERATION_TIMER)
+                .description("Generation of unique miniKeys, including existence checks and regenerations")
+                .tag("strategy", strategy)
+                .register(meterRegistry)));
+    }
+
+    public void recordKeyCollisions(int collisions) {
+        keyCollisions.increment(collisions);
+    }
+
+    /**
+     * Counts a request refused before reaching a controller, by reason and by traffic class (resolve or other).
+     */
+    public void recordRejection(String reason, String traffic) {
+        rejectionCounters.computeIfAbsent(reason + '|' + traffic, key -> Counter.builder(REJECTED_COUNTER)
+                .description("Requests refused by rate limiting or load shedding")
+                .tag("reason", reason)
+                .tag("traffic", traffic)
+                .register(meterRegistry)).increment();
+    }
+
+    private static String outcome(Throwable exception) {
+        if (exception instanceof CompletionException && exception.getCause() != null) {
+            exception = exception.getCause();
+        }
+        if (exception == null) {
+            return "success";
+        }
+        if (exception instanceof MiniUrlNotFoundException) {
+            return "not_found";
+        }
+        if (exception instanceof IllegalArgumentException) {
+            return "invalid";
+        }
+        return "error";
+    }
+}
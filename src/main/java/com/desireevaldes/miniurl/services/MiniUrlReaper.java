@@ -0,0 +1,187 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.repositories.MiniUrlStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Deletes expired MiniUrls every MINIURL_EXPIRY_REAPER_INTERVAL_MS. Resolves stop serving a link as soon as it
+ * expires, the reaper only reclaims its row.
+ * <p>
+ * Rows are deleted MINIURL_EXPIRY_REAPER_BATCH_SIZE at a time, each batch its own short statement, up to
+ * MINIURL_EXPIRY_REAPER_MAX_BATCHES per run, so a backlog of expired links never holds locks for long.
+ * <p>
+ * With the JPA backend, once mini_urls is partitioned by month of expires_at (v7 scripts), the reaper also creates the
+ * partitions of the current month and the MINIURL_EXPIRY_PARTITIONS_AHEAD next ones, moving there the rows of that
+ * month from the default partition, and detaches and drops the partitions of past months, whose links have all
+ * expired. The batched deletes then only find expired rows in the partition of the current month, and in the default
+ * one when a partition could not be created.
+ */
+@Component
+public class MiniUrlReaper {
+    private static final Logger logger = LoggerFactory.getLogger(MiniUrlReaper.class);
+
+    private static final String PARTITION_PREFIX = "mini_urls_p";
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern PARTITION_NAME = Pattern.compile(PARTITION_PREFIX + "(\\d{6})");
+    private static final String IS_PARTITIONED_SQL = "SELECT COUNT(*) FROM pg_class WHERE oid = to_regclass('mini_urls') AND relkind = 'p'";
+    private static final String PARTITIONS_SQL = """
+            SELECT child.relname FROM pg_inherits
+            JOIN pg_class child ON child.oid = pg_inherits.inhrelid
+            WHERE pg_inherits.inhparent = 'mini_urls'::regclass
+            """;
+
+    private final MiniUrlStore miniUrlStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxBatches;
+    private final int partitionsAhead;
+    private final boolean jpaBackend;
+    private final Clock clock;
+
+    @Autowired
+    public MiniUrlReaper(
+            MiniUrlStore miniUrlStore,
+            JdbcTemplate jdbcTemplate,
+            @Value("${MINIURL_EXPIRY_REAPER_ENABLED:true}") boolean enabled,
+            @Value("${MINIURL_EXPIRY_REAPER_BATCH_SIZE:1000}") int batchSize,
+            @Value("${MINIURL_EXPIRY_REAPER_MAX_BATCHES:100}") int maxBatches,
+            @Value("${MINIURL_EXPIRY_PARTITIONS_AHEAD:3}") int partitionsAhead,
+            @Value("${MINIURL_STORAGE_BACKEND:" + MiniUrlStore.JPA_BACKEND + "}") String storageBackend
+    ) {
+        this(miniUrlStore, jdbcTemplate, enabled, batchSize, maxBatches, partitionsAhead, storageBackend, Clock.systemUTC());
+    }
+
+    MiniUrlReaper(MiniUrlStore miniUrlStore, JdbcTemplate jdbcTemplate, boolean enabled, int batchSize, int maxBatches,
+                  int partitionsAhead, String storageBackend, Clock clock) {
+        if (batchSize < 1 || maxBatches < 1 || partitionsAhead < 0) {
+            throw new IllegalStateException("MINIURL_EXPIRY_REAPER_BATCH_SIZE and MINIURL_EXPIRY_REAPER_MAX_BATCHES must be positive,"
+                    + " MINIURL_EXPIRY_PARTITIONS_AHEAD must not be negative");
+        }
+        this.miniUrlStore = miniUrlStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.partitionsAhead = partitionsAhead;
+        this.jpaBackend = MiniUrlStore.JPA_BACKEND.equals(storageBackend);
+        this.clock = clock;
+    }
+
+    /**
+     * Runs the partition maintenance, then the batched deletes.
+     *
+     * @return the number of rows deleted by batches, dropped partitions aside
+     */
+    @Scheduled(fixedDelayString = "${MINIURL_EXPIRY_REAPER_INTERVAL_MS:60000}")
+    public int reap() {
+        if (!enabled) {
+            return 0;
+        }
+        Instant now = clock.instant();
+        if (jpaBackend) {
+            maintainPartitions(now);
+        }
+
+        int deleted = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int batchDeleted;
+            try {
+                batchDeleted = miniUrlStore.deleteExpired(now, batchSize);
+            } catch (DataAccessException exception) {
+                logger.warn("Failed to delete expired MiniUrls after {} deleted, retrying on next run: {}", deleted, exception.getMessage());
+                break;
+            }
+            deleted += batchDeleted;
+            if (batchDeleted < batchSize) {
+                break;
+            }
+        }
+        if (deleted > 0) {
+            logger.info("Deleted {} expired MiniUrls", deleted);
+        }
+        return deleted;
+    }
+
+    private void maintainPartitions(Instant now) {
+        try {
+            if (jdbcTemplate.queryForObject(IS_PARTITIONED_SQL, Long.class) == 0) {
+                return;
+            }
+        } catch (DataAccessException exception) {
+            // Not Postgres, or not reachable: the batched deletes report the latter
+            return;
+        }
+
+        YearMonth currentMonth = YearMonth.from(now.atZone(ZoneOffset.UTC));
+        List<String> partitions = jdbcTemplate.queryForList(PARTITIONS_SQL, String.class);
+        for (int ahead = 0; ahead <= partitionsAhead; ahead++) {
+            YearMonth month = currentMonth.plusMonths(ahead);
+            if (!partitions.contains(PARTITION_PREFIX + month.format(PARTITION_MONTH))) {
+                createPartition(month);
+            }
+        }
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (matcher.matches() && YearMonth.parse(matcher.group(1), PARTITION_MONTH).isBefore(currentMonth)) {
+                drop(partition);
+            }
+        }
+    }
+
+    private static Instant startOf(YearMonth month) {
+        return month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    // Links created with an expiry beyond the last partition wait in the default partition. Their rows are copied into
+    // the new table before it is attached, which fires no trigger, and deleted from the default partition, which
+    // releases their miniKeys, registered again right after. One batch of statements, so one implicit transaction.
+    // The mini_keys table keeps miniKeys unique across partitions, the index per partition serves lookups.
+    private void createPartition(YearMonth month) {
+        String partition = PARTITION_PREFIX + month.format(PARTITION_MONTH);
+        String range = "expires_at >= '" + startOf(month) + "' AND expires_at < '" + startOf(month.plusMonths(1)) + "'";
+        try {
+            jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE mini_urls INCLUDING DEFAULTS); "
+                    + "INSERT INTO " + partition + " SELECT * FROM mini_urls_default WHERE " + range + "; "
+                    + "DELETE FROM mini_urls_default WHERE " + range + "; "
+                    + "INSERT INTO mini_keys (mini_key) SELECT mini_key FROM " + partition + " ON CONFLICT DO NOTHING; "
+                    + "CREATE UNIQUE INDEX " + partition + "_mini_key_idx ON " + partition + " (mini_key); "
+                    + "ALTER TABLE mini_urls ATTACH PARTITION " + partition + " FOR VALUES FROM ('" + startOf(month)
+                    + "') TO ('" + startOf(month.plusMonths(1)) + "')");
+            logger.info("Created MiniUrl partition {}", partition);
+        } catch (DataAccessException exception) {
+            // Typically created by another instance meanwhile
+            logger.warn("Failed to create MiniUrl partition {}: {}", partition, exception.getMessage());
+        }
+    }
+
+    // Every link of a past month has expired
+    private void drop(String partition) {
+        try {
+            // One batch of statements, so one implicit transaction: dropping rows does not fire the trigger that
+            // releases their miniKeys, they are released explicitly
+            jdbcTemplate.execute("ALTER TABLE mini_urls DETACH PARTITION " + partition + "; "
+                    + "DELETE FROM mini_keys WHERE mini_key IN (SELECT mini_key FROM " + partition + "); "
+                    + "DROP TABLE " + partition);
+            logger.info("Dropped expired MiniUrl partition {}", partition);
+        } catch (DataAccessException exception) {
+            logger.warn("Failed to drop expired MiniUrl partition {}: {}", partition, exception.getMessage());
+        }
+    }
+}
@@ -1,48 +1,111 @@
 package com.desireevaldes.miniurl.services;
 
+import com.desireevaldes.miniurl.config.ReplicaRoutingDataSource;
+import com.desireevaldes.miniurl.exceptions.MiniKeyConflictException;
+import com.desireevaldes.miniurl.exceptions.MiniKeyGenerationException;
 import com.desireevaldes.miniurl.exceptions.MiniUrlNotFoundException;
+import com.desireevaldes.miniurl.exceptions.MiniUrlUnavailableException;
 import com.desireevaldes.miniurl.models.MiniUrl;
-import com.desireevaldes.miniurl.repositories.MiniUrlRepository;
+import com.desireevaldes.miniurl.repositories.MiniUrlStore;
 import com.desireevaldes.miniurl.utils.CustomUrlValidator;
 import com.desireevaldes.miniurl.utils.RandomKeyGenerator;
+import com.desireevaldes.miniurl.utils.SingleFlight;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 public class MiniUrlService {
     private static final Logger logger = LoggerFactory.getLogger(MiniUrlService.class);
+    public static final int MAX_PAGE_SIZE = 1000;
 
-    private final MiniUrlRepository miniUrlRepository;
+    private final MiniUrlStore miniUrlStore;
     private final CustomUrlValidator customUrlValidator;
     private final RandomKeyGenerator randomKeyGenerator;
+    private final MiniUrlCache miniUrlCache;
+    private final SharedMiniUrlCache sharedMiniUrlCache;
+    private final MiniUrlInvalidationBroadcaster miniUrlInvalidationBroadcaster;
+    private final MiniKeyBlockAllocator miniKeyBlockAllocator;
+    private final EntityManager entityManager;
+    private final ClickStatsService clickStatsService;
+    private final MiniKeyFilter miniKeyFilter;
+    private final MiniUrlJournal miniUrlJournal;
+    private final ReplicaLagGuard replicaLagGuard;
+    private final MiniUrlMetrics miniUrlMetrics;
+    // Concurrent identical requests share one in-flight call: creates by normalized fullUrl and expiresAt, lookups by miniKey
+    private final SingleFlight<String, MiniUrl> createFlights = new SingleFlight<>();
+    private final SingleFlight<String, Optional<MiniUrl>> lookupFlights = new SingleFlight<>();
 
-    public MiniUrlService(MiniUrlRepository miniUrlRepository, CustomUrlValidator customUrlValidator, RandomKeyGenerator randomKeyGenerator) {
-        this.miniUrlRepository = miniUrlRepository;
+    public MiniUrlService(MiniUrlStore miniUrlStore, CustomUrlValidator customUrlValidator, RandomKeyGenerator randomKeyGenerator, MiniUrlCache miniUrlCache, SharedMiniUrlCache sharedMiniUrlCache, MiniUrlInvalidationBroadcaster miniUrlInvalidationBroadcaster, MiniKeyBlockAllocator miniKeyBlockAllocator, EntityManager entityManager, ClickStatsService clickStatsService, MiniKeyFilter miniKeyFilter, MiniUrlJournal miniUrlJournal, ReplicaLagGuard replicaLagGuard, MiniUrlMetrics miniUrlMetrics) {
+        this.miniUrlStore = miniUrlStore;
         this.customUrlValidator = customUrlValidator;
         this.randomKeyGenerator = randomKeyGenerator;
+        this.miniUrlCache = miniUrlCache;
+        this.sharedMiniUrlCache = sharedMiniUrlCache;
+        this.miniUrlInvalidationBroadcaster = miniUrlInvalidationBroadcaster;
+        this.miniKeyBlockAllocator = miniKeyBlockAllocator;
+        this.entityManager = entityManager;
+        this.clickStatsService = clickStatsService;
+        this.miniKeyFilter = miniKeyFilter;
+        this.miniUrlJournal = miniUrlJournal;
+        this.replicaLagGuard = replicaLagGuard;
+        this.miniUrlMetrics = miniUrlMetrics;
     }
 
     @Transactional
-    public CompletableFuture<MiniUrl> getOrCreateMiniUrlAsync(String fullUrl) {
+    public CompletableFuture<MiniUrl> getOrCreateMiniUrlAsync(String rawFullUrl) {
+        return getOrCreateMiniUrlAsync(rawFullUrl, null);
+    }
+
+    /**
+     * Same as {@link #getOrCreateMiniUrlAsync(String)} for a link that expires at expiresAt, or never when null.
+     * Only a MiniUrl of the same fullUrl and expiresAt is reused.
+     */
+    @Transactional
+    public CompletableFuture<MiniUrl> getOrCreateMiniUrlAsync(String rawFullUrl, Instant expiresAt) {
+        return miniUrlMetrics.timeAsync(MiniUrlMetrics.CREATE, () -> getOrCreate(rawFullUrl, expiresAt));
+    }
+
+    private CompletableFuture<MiniUrl> getOrCreate(String rawFullUrl, Instant rawExpiresAt) {
         try {
-            customUrlValidator.validateUrl(fullUrl);
+            String fullUrl = customUrlValidator.normalizeUrl(rawFullUrl);
+            Instant expiresAt = validateExpiresAt(rawExpiresAt);
 
-            return findMiniUrlByFullUrlAsync(fullUrl)
+            String flightKey = expiresAt == null ? fullUrl : fullUrl + " " + expiresAt;
+            return createFlights.execute(flightKey, () -> findMiniUrlByFullUrlAsync(fullUrl, expiresAt)
                     .thenCompose(existingMiniUrl -> {
                         MiniUrl url = existingMiniUrl.orElse(null);
                         if (url != null) {
                             logger.info("MiniUrl already exists for this Url.");
                             return CompletableFuture.completedFuture(url);
                         } else {
-                            return createAndSaveMiniUrlAsync(fullUrl);
+                            return createAndSaveMiniUrlAsync(fullUrl, expiresAt);
                         }
-                    });
+                    }));
 
         } catch (Exception exception) {
             CompletableFuture<MiniUrl> failedResult = new CompletableFuture<>();
@@ -51,53 +114,379 @@ public class MiniUrlService {
         }
     }
 
+    // Microsecond precision, as stored in Postgres and the off-heap log
+    static Instant validateExpiresAt(Instant expiresAt) {
+        if (expiresAt == null) {
+            return null;
+        }
+        if (!expiresAt.isAfter(Instant.now())) {
+            throw new IllegalArgumentException("expiresAt must be in the future");
+        }
+        return expiresAt.truncatedTo(ChronoUnit.MICROS);
+    }
+
+    // Expired MiniUrls are not served anymore, even before MiniUrlReaper deletes them
+    static boolean isLive(MiniUrl miniUrl) {
+        return miniUrl != null && !miniUrl.isExpiredAt(Instant.now());
+    }
+
+    @Transactional
+    public CompletableFuture<List<MiniUrl>> getOrCreateMiniUrlsAsync(List<String> fullUrls) {
+        return miniUrlMetrics.timeAsync(MiniUrlMetrics.CREATE_BATCH, () -> getOrCreateAll(fullUrls));
+    }
+
+    private CompletableFuture<List<MiniUrl>> getOrCreateAll(List<String> fullUrls) {
+        try {
+            List<String> normalizedFullUrls = new ArrayList<>(fullUrls.size());
+            for (String fullUrl : fullUrls) {
+                normalizedFullUrls.add(customUrlValidator.normalizeUrl(fullUrl));
+            }
+            Set<String> uniqueFullUrls = new LinkedHashSet<>(normalizedFullUrls);
+
+            Set<UUID> fullUrlHashes = new HashSet<>(uniqueFullUrls.size());
+            for (String fullUrl : uniqueFullUrls) {
+                fullUrlHashes.add(MiniUrl.hashFullUrl(fullUrl));
+            }
+
+            return miniUrlStore.findByFullUrlHashIn(fullUrlHashes)
+                    .thenCompose(existingMiniUrls -> {
+                        Map<String, MiniUrl> miniUrlsByFullUrl = new HashMap<>();
+                        for (MiniUrl existingMiniUrl : existingMiniUrls) {
+                            if (uniqueFullUrls.contains(existingMiniUrl.getFullUrl()) && existingMiniUrl.getExpiresAt() == null) {
+                                miniUrlsByFullUrl.putIfAbsent(existingMiniUrl.getFullUrl(), existingMiniUrl);
+                            }
+                        }
+                        if (miniUrlJournal.isEnabled()) {
+                            for (String fullUrl : uniqueFullUrls) {
+                                MiniUrl pendingMiniUrl = miniUrlJournal.getPendingByFullUrl(fullUrl);
+                                if (pendingMiniUrl != null) {
+                                    miniUrlsByFullUrl.putIfAbsent(fullUrl, pendingMiniUrl);
+                                }
+                            }
+                        }
+                        List<String> missingFullUrls = uniqueFullUrls.stream()
+                                .filter(fullUrl -> !miniUrlsByFullUrl.containsKey(fullUrl))
+                                .toList();
+                        logger.info("Batch of {} Urls: {} already exist, {} to create",
+                                uniqueFullUrls.size(), uniqueFullUrls.size() - missingFullUrls.size(), missingFullUrls.size());
+
+                        return createAndSaveMiniUrlsAsync(missingFullUrls)
+                                .thenApply(createdMiniUrls -> {
+                                    for (MiniUrl createdMiniUrl : createdMiniUrls) {
+                                        miniUrlsByFullUrl.put(createdMiniUrl.getFullUrl(), createdMiniUrl);
+                                    }
+                                    return normalizedFullUrls.stream()
+                                            .map(miniUrlsByFullUrl::get)
+                                            .toList();
+                                });
+                    });
+
+        } catch (Exception exception) {
+            CompletableFuture<List<MiniUrl>> failedResult = new CompletableFuture<>();
+            failedResult.completeExceptionally(exception);
+            return failedResult;
+        }
+    }
+
     private CompletableFuture<Optional<MiniUrl>> findMiniUrlByMiniKeyAsync(String miniKey) {
-        return miniUrlRepository.findByMiniKey(miniKey);
+        return miniUrlStore.findByMiniKey(miniKey);
+    }
+
+    // Caches the result in the near cache: the generation is taken by the caller that reads, not by those joining it
+    private CompletableFuture<Optional<MiniUrl>> lookupMiniUrlByMiniKeyAsync(String miniKey) {
+        if (replicaLagGuard.isRecentlyWritten(miniKey)) {
+            long generation = miniUrlCache.generation(miniKey);
+            return findMiniUrlOnPrimaryAsync(miniKey).thenApply(optionalMiniUrl -> cacheIfCurrent(optionalMiniUrl, generation));
+        }
+        return lookupFlights.execute(miniKey, () -> {
+            long generation = miniUrlCache.generation(miniKey);
+            return sharedMiniUrlCache.get(miniKey)
+                    .thenCompose(sharedMiniUrl -> sharedMiniUrl != null
+                            ? CompletableFuture.completedFuture(Optional.of(sharedMiniUrl))
+                            : findMiniUrlByMiniKeyAsync(miniKey).thenApply(this::share))
+                    .thenApply(optionalMiniUrl -> cacheIfCurrent(optionalMiniUrl, generation));
+        });
+    }
+
+    // Skipped if an update or delete invalidated the miniKey since the generation was taken: the read may predate it
+    private Optional<MiniUrl> cacheIfCurrent(Optional<MiniUrl> optionalMiniUrl, long generation) {
+        optionalMiniUrl.filter(MiniUrlService::isLive).ifPresent(miniUrl -> miniUrlCache.putIfCurrent(miniUrl, generation));
+        return optionalMiniUrl;
+    }
+
+    // Read from the database after a miss of both cache tiers: the other instances can then skip the database too.
+    // The shared tier ignores it for a while after an invalidation, in case the read predates an update.
+    private Optional<MiniUrl> share(Optional<MiniUrl> optionalMiniUrl) {
+        optionalMiniUrl.ifPresent(sharedMiniUrlCache::put);
+        return optionalMiniUrl;
+    }
+
+    // After an update or delete: the shared tier first, so instances reloading after the broadcast miss it too.
+    // The near caches are dropped even if the shared tier failed, the failure then fails the update or delete.
+    private CompletableFuture<Void> invalidateEverywhere(String miniKey) {
+        return sharedMiniUrlCache.invalidate(miniKey).whenComplete((ignored, exception) -> {
+            miniUrlCache.invalidate(miniKey);
+            miniUrlInvalidationBroadcaster.broadcast(miniKey);
+        });
+    }
+
+    // For reads that must see the latest write even when replicas are configured
+    private CompletableFuture<Optional<MiniUrl>> findMiniUrlOnPrimaryAsync(String miniKey) {
+        return ReplicaRoutingDataSource.runOnPrimary(() -> findMiniUrlByMiniKeyAsync(miniKey));
+    }
+
+    private CompletableFuture<Optional<MiniUrl>> findMiniUrlByFullUrlAsync(String fullUrl, Instant expiresAt) {
+        MiniUrl pendingMiniUrl = expiresAt == null ? miniUrlJournal.getPendingByFullUrl(fullUrl) : null;
+        if (pendingMiniUrl != null) {
+            return CompletableFuture.completedFuture(Optional.of(pendingMiniUrl));
+        }
+        return miniUrlStore.findByFullUrlHash(MiniUrl.hashFullUrl(fullUrl))
+                .thenApply(miniUrls -> miniUrls.stream()
+                        .filter(miniUrl -> fullUrl.equals(miniUrl.getFullUrl()) && Objects.equals(expiresAt, miniUrl.getExpiresAt()))
+                        .findFirst());
+    }
+
+    private CompletableFuture<MiniUrl> createAndSaveMiniUrlAsync(String fullUrl, Instant expiresAt) {
+        return retryOnConflict(() -> generateUniqueMiniKeyAsync(miniUrlStore.miniKeyPrefix(MiniUrl.hashFullUrl(fullUrl)))
+                .thenCompose(miniKey -> buildAndSaveMiniUrl(miniKey, fullUrl, expiresAt)), 1);
     }
 
-    private CompletableFuture<Optional<MiniUrl>> findMiniUrlByFullUrlAsync(String fullUrl) {
-        return miniUrlRepository.findByFullUrl(fullUrl);
+    /**
+     * The journal refuses a miniKey another create journaled since the existence check: generate the keys again,
+     * within the same round budget as the existence checks.
+     */
+    private <T> CompletableFuture<T> retryOnConflict(Supplier<CompletableFuture<T>> create, int attempt) {
+        return create.get().exceptionallyCompose(exception -> {
+            Throwable cause = exception instanceof CompletionException ? exception.getCause() : exception;
+            if (!(cause instanceof MiniKeyConflictException)) {
+                return CompletableFuture.failedFuture(exception);
+            }
+            if (attempt >= randomKeyGenerator.getMaxRounds()) {
+                return failedKeyGeneration(attempt);
+            }
+            logger.debug("{}, regenerating...", cause.getMessage());
+            return retryOnConflict(create, attempt + 1);
+        });
     }
 
-    private CompletableFuture<MiniUrl> createAndSaveMiniUrlAsync(String fullUrl) {
-        return generateUniqueMiniKeyAsync()
-                .thenCompose(miniKey -> buildAndSaveMiniUrl(miniKey, fullUrl));
+    private CompletableFuture<List<MiniUrl>> createAndSaveMiniUrlsAsync(List<String> fullUrls) {
+        if (fullUrls.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        return retryOnConflict(() -> generateAndSaveMiniUrlsAsync(fullUrls), 1);
+    }
+
+    private CompletableFuture<List<MiniUrl>> generateAndSaveMiniUrlsAsync(List<String> fullUrls) {
+        List<String> prefixes = new ArrayList<>(fullUrls.size());
+        List<Integer> indexes = new ArrayList<>(fullUrls.size());
+        for (String fullUrl : fullUrls) {
+            prefixes.add(miniUrlStore.miniKeyPrefix(MiniUrl.hashFullUrl(fullUrl)));
+            indexes.add(indexes.size());
+        }
+        return generateUniqueMiniKeysAsync(prefixes, Arrays.asList(new String[fullUrls.size()]), new HashSet<>(), indexes, 1)
+                .thenCompose(miniKeys -> {
+                    List<MiniUrl> miniUrls = new ArrayList<>(fullUrls.size());
+                    for (int i = 0; i < fullUrls.size(); i++) {
+                        MiniUrl miniUrl = new MiniUrl();
+                        miniUrl.setMiniKey(miniKeys.get(i));
+                        miniUrl.setFullUrl(fullUrls.get(i));
+                        miniUrls.add(miniUrl);
+                        miniKeyFilter.add(miniUrl.getMiniKey());
+                        replicaLagGuard.recordWrite(miniUrl.getMiniKey());
+                    }
+                    if (miniUrlJournal.isEnabled()) {
+                        logger.info("Journaling {} new MiniUrls in batch", miniUrls.size());
+                        return miniUrlJournal.append(miniUrls);
+                    }
+                    logger.info("Saving {} new MiniUrls in batch", miniUrls.size());
+                    return CompletableFuture.completedFuture(miniUrlStore.saveAll(miniUrls));
+                });
     }
 
-    private CompletableFuture<String> generateUniqueMiniKeyAsync() {
-        String newMiniKey = randomKeyGenerator.generateKey();
-        return checkIfMiniKeyExistsAsync(newMiniKey)
-                .thenCompose(exists -> handleMiniKeyAlreadyExists(exists, newMiniKey)
-        );
+    /**
+     * Fills the missing miniKeys, each one starting with the prefix at the same index, in as few rounds of one
+     * existence query as possible. Keys that collide are drawn again, with their own prefix, in the next round.
+     */
+    private CompletableFuture<List<String>> generateUniqueMiniKeysAsync(List<String> prefixes, List<String> miniKeys,
+                                                                       Set<String> uniqueMiniKeys, List<Integer> missingIndexes, int round) {
+        if (miniKeyBlockAllocator.isEnabled()) {
+            for (int index : missingIndexes) {
+                miniKeys.set(index, miniKeyBlockAllocator.nextKey());
+            }
+            return CompletableFuture.completedFuture(miniKeys);
+        }
+
+        // Candidate miniKey -> index of the miniKey it is drawn for
+        Map<String, Integer> candidateMiniKeys = new LinkedHashMap<>(missingIndexes.size());
+        int pendingMiniKeys = 0;
+        for (int index : missingIndexes) {
+            while (true) {
+                String candidateMiniKey = randomKeyGenerator.generateKey(prefixes.get(index));
+                if (miniUrlJournal.isPending(candidateMiniKey)) {
+                    pendingMiniKeys++;
+                } else if (!uniqueMiniKeys.contains(candidateMiniKey) && !candidateMiniKeys.containsKey(candidateMiniKey)) {
+                    candidateMiniKeys.put(candidateMiniKey, index);
+                    break;
+                }
+            }
+        }
+        List<String> possiblyExistingMiniKeys = new ArrayList<>(candidateMiniKeys.size());
+        for (String candidateMiniKey : candidateMiniKeys.keySet()) {
+            if (!miniKeyFilter.isDefinitelyAbsent(candidateMiniKey)) {
+                possiblyExistingMiniKeys.add(candidateMiniKey);
+            }
+        }
+        int candidates = missingIndexes.size() + pendingMiniKeys;
+        int pendingCollisions = pendingMiniKeys;
+        if (possiblyExistingMiniKeys.isEmpty()) {
+            randomKeyGenerator.recordCollisions(candidates, pendingCollisions);
+            assignMiniKeys(candidateMiniKeys, miniKeys, uniqueMiniKeys);
+            return CompletableFuture.completedFuture(miniKeys);
+        }
+
+        return miniUrlStore.findExistingMiniKeys(possiblyExistingMiniKeys)
+                .thenCompose(existingMiniKeys -> {
+                    int collisions = pendingCollisions + existingMiniKeys.size();
+                    randomKeyGenerator.recordCollisions(candidates, collisions);
+                    List<Integer> collidedIndexes = new ArrayList<>(existingMiniKeys.size());
+                    for (String existingMiniKey : existingMiniKeys) {
+                        Integer index = candidateMiniKeys.remove(existingMiniKey);
+                        if (index != null) {
+                            collidedIndexes.add(index);
+                        }
+                    }
+                    assignMiniKeys(candidateMiniKeys, miniKeys, uniqueMiniKeys);
+                    if (collidedIndexes.isEmpty()) {
+                        return CompletableFuture.completedFuture(miniKeys);
+                    }
+                    miniUrlMetrics.recordKeyCollisions(collisions);
+                    if (round >= randomKeyGenerator.getMaxRounds()) {
+                        return failedKeyGeneration(round);
+                    }
+                    logger.debug("{} miniKeys already exist, regenerating...", collidedIndexes.size());
+                    return generateUniqueMiniKeysAsync(prefixes, miniKeys, uniqueMiniKeys, collidedIndexes, round + 1);
+                });
     }
 
-    private CompletableFuture<Boolean> checkIfMiniKeyExistsAsync(String miniKey) {
-        return miniUrlRepository.existsByMiniKey(miniKey);
+    private static void assignMiniKeys(Map<String, Integer> candidateMiniKeys, List<String> miniKeys, Set<String> uniqueMiniKeys) {
+        candidateMiniKeys.forEach((miniKey, index) -> {
+            miniKeys.set(index, miniKey);
+            uniqueMiniKeys.add(miniKey);
+        });
     }
 
-    private CompletableFuture<String> handleMiniKeyAlreadyExists(boolean exists, String miniKey) {
-        if (exists) {
-            logger.debug("MiniKey already exists: {}, regenerating a new miniKey...", miniKey);
-            return generateUniqueMiniKeyAsync();
-        } else {
+    private CompletableFuture<String> generateUniqueMiniKeyAsync(String prefix) {
+        Timer.Sample sample = miniUrlMetrics.start();
+        if (miniKeyBlockAllocator.isEnabled()) {
+            String miniKey = miniKeyBlockAllocator.nextKey();
+            miniUrlMetrics.stopKeyGeneration(sample, "block");
             return CompletableFuture.completedFuture(miniKey);
         }
+        return generateUniqueRandomMiniKeyAsync(prefix, 1)
+                .whenComplete((miniKey, exception) -> miniUrlMetrics.stopKeyGeneration(sample, "random"));
+    }
+
+    /**
+     * Each round draws up to MINIURL_KEY_CANDIDATES keys and checks the ones the MiniKey filter cannot rule out with a
+     * single query, so a crowded keyspace costs a few rounds instead of one query per collision. Observed collisions
+     * are reported to the key generator, which grows the key length when they become frequent.
+     */
+    private CompletableFuture<String> generateUniqueRandomMiniKeyAsync(String prefix, int round) {
+        int candidatesPerRound = randomKeyGenerator.getCandidatesPerRound();
+        Set<String> candidateMiniKeys = new LinkedHashSet<>(candidatesPerRound);
+        int pendingMiniKeys = 0;
+        for (int i = 0; i < candidatesPerRound; i++) {
+            String candidateMiniKey = randomKeyGenerator.generateKey(prefix);
+            if (miniUrlJournal.isPending(candidateMiniKey)) {
+                pendingMiniKeys++;
+            } else if (miniKeyFilter.isDefinitelyAbsent(candidateMiniKey)) {
+                // Keys the filter could not rule out count as collisions, there is no need to query them anymore
+                randomKeyGenerator.recordCollisions(i + 1, i);
+                return CompletableFuture.completedFuture(candidateMiniKey);
+            } else {
+                candidateMiniKeys.add(candidateMiniKey);
+            }
+        }
+        if (candidateMiniKeys.isEmpty()) {
+            return nextKeyGenerationRound(prefix, round, candidatesPerRound, pendingMiniKeys);
+        }
+
+        int pendingCollisions = pendingMiniKeys;
+        return miniUrlStore.findExistingMiniKeys(candidateMiniKeys)
+                .thenCompose(existingMiniKeys -> {
+                    int collisions = pendingCollisions + existingMiniKeys.size();
+                    existingMiniKeys.forEach(candidateMiniKeys::remove);
+                    if (candidateMiniKeys.isEmpty()) {
+                        return nextKeyGenerationRound(prefix, round, candidatesPerRound, collisions);
+                    }
+                    randomKeyGenerator.recordCollisions(candidatesPerRound, collisions);
+                    miniUrlMetrics.recordKeyCollisions(collisions);
+                    return CompletableFuture.completedFuture(candidateMiniKeys.iterator().next());
+                });
+    }
+
+    private CompletableFuture<String> nextKeyGenerationRound(String prefix, int round, int candidates, int collisions) {
+        randomKeyGenerator.recordCollisions(candidates, collisions);
+        miniUrlMetrics.recordKeyCollisions(collisions);
+        if (round >= randomKeyGenerator.getMaxRounds()) {
+            return failedKeyGeneration(round);
+        }
+        logger.debug("All {} candidate miniKeys already exist, regenerating...", candidates);
+        return generateUniqueRandomMiniKeyAsync(prefix, round + 1);
     }
 
-    private CompletableFuture<MiniUrl> buildAndSaveMiniUrl(String miniKey, String fullUrl) {
+    private <T> CompletableFuture<T> failedKeyGeneration(int rounds) {
+        CompletableFuture<T> failedResult = new CompletableFuture<>();
+        failedResult.completeExceptionally(new MiniKeyGenerationException(
+                "Could not generate a unique miniKey in " + rounds + " rounds, the keyspace of "
+                        + randomKeyGenerator.getKeyLength() + " character keys is crowded. Try again later"));
+        return failedResult;
+    }
+
+    // Expiring MiniUrls are saved right away, the journal only holds MiniUrls that never expire
+    private CompletableFuture<MiniUrl> buildAndSaveMiniUrl(String miniKey, String fullUrl, Instant expiresAt) {
         MiniUrl miniUrl = new MiniUrl();
         miniUrl.setMiniKey(miniKey);
         miniUrl.setFullUrl(fullUrl);
-        logger.info("Saving new MiniUrl: {}", miniUrl);
-        return CompletableFuture.completedFuture(miniUrlRepository.save(miniUrl));
+        miniUrl.setExpiresAt(expiresAt);
+        miniKeyFilter.add(miniKey);
+        replicaLagGuard.recordWrite(miniKey);
+        if (miniUrlJournal.isEnabled() && expiresAt == null) {
+            logger.info("Journaling new MiniUrl with miniKey: {}", miniKey);
+            return miniUrlJournal.append(List.of(miniUrl)).thenApply(List::getFirst);
+        }
+        logger.info("Saving new MiniUrl with miniKey: {}", miniKey);
+        return CompletableFuture.completedFuture(miniUrlStore.save(miniUrl));
+    }
+
+    // Cached, or journaled and not in the database yet
+    private MiniUrl getInMemory(String miniKey) {
+        MiniUrl cachedMiniUrl = miniUrlCache.getIfPresent(miniKey);
+        return cachedMiniUrl != null ? cachedMiniUrl : miniUrlJournal.getPending(miniKey);
     }
 
     @Transactional(readOnly = true)
     public CompletableFuture<MiniUrl> getMiniUrlByMiniKey(String miniKey) {
-        return findMiniUrlByMiniKeyAsync(miniKey)
+        return miniUrlMetrics.timeAsync(MiniUrlMetrics.LOOKUP, () -> lookup(miniKey));
+    }
+
+    private CompletableFuture<MiniUrl> lookup(String miniKey) {
+        MiniUrl cachedMiniUrl = getInMemory(miniKey);
+        if (isLive(cachedMiniUrl)) {
+            clickStatsService.recordClick(miniKey);
+            return CompletableFuture.completedFuture(cachedMiniUrl);
+        }
+        if (miniKeyFilter.isDefinitelyAbsent(miniKey)) {
+            CompletableFuture<MiniUrl> failedResult = new CompletableFuture<>();
+            failedResult.completeExceptionally(new MiniUrlNotFoundException("MiniUrl not found with miniKey: " + miniKey));
+            return failedResult;
+        }
+
+        return lookupMiniUrlByMiniKeyAsync(miniKey)
                 .thenCompose(optionalMiniUrl -> {
                     MiniUrl url = optionalMiniUrl.orElse(null);
-                    if (url != null) {
+                    if (isLive(url)) {
+                        clickStatsService.recordClick(miniKey);
                         return CompletableFuture.completedFuture(url);
                     } else {
                         CompletableFuture<MiniUrl> failedResult = new CompletableFuture<>();
@@ -107,24 +496,84 @@ public class MiniUrlService {
                 });
     }
 
+    public String resolveFullUrl(String miniKey) {
+        Timer.Sample sample = miniUrlMetrics.start();
+        try {
+            String fullUrl = resolve(miniKey);
+            miniUrlMetrics.stop(sample, MiniUrlMetrics.RESOLVE, null);
+            return fullUrl;
+        } catch (RuntimeException exception) {
+            miniUrlMetrics.stop(sample, MiniUrlMetrics.RESOLVE, exception);
+            throw exception;
+        }
+    }
+
+    private String resolve(String miniKey) {
+        MiniUrl cachedMiniUrl = getInMemory(miniKey);
+        if (isLive(cachedMiniUrl)) {
+            clickStatsService.recordClick(miniKey);
+            return cachedMiniUrl.getFullUrl();
+        }
+        if (miniKeyFilter.isDefinitelyAbsent(miniKey)) {
+            throw new MiniUrlNotFoundException("MiniUrl not found with miniKey: " + miniKey);
+        }
+
+        MiniUrl miniUrl;
+        try {
+            // The first caller reads the shared tier, then the database, on its own thread; concurrent callers for the
+            // same miniKey wait for its result
+            if (replicaLagGuard.isRecentlyWritten(miniKey)) {
+                long generation = miniUrlCache.generation(miniKey);
+                miniUrl = cacheIfCurrent(ReplicaRoutingDataSource.runOnPrimary(() -> miniUrlStore.findReadOnlyByMiniKey(miniKey)),
+                        generation).orElse(null);
+            } else {
+                miniUrl = lookupFlights.execute(miniKey, () -> {
+                            long generation = miniUrlCache.generation(miniKey);
+                            MiniUrl sharedMiniUrl = sharedMiniUrlCache.get(miniKey).join();
+                            return CompletableFuture.completedFuture(cacheIfCurrent(sharedMiniUrl != null
+                                    ? Optional.of(sharedMiniUrl)
+                                    : share(miniUrlStore.findReadOnlyByMiniKey(miniKey)), generation));
+                        })
+                        .join()
+                        .orElse(null);
+            }
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw exception;
+        }
+        if (!isLive(miniUrl)) {
+            throw new MiniUrlNotFoundException("MiniUrl not found with miniKey: " + miniKey);
+        }
+        clickStatsService.recordClick(miniKey);
+        return miniUrl.getFullUrl();
+    }
+
     @Transactional
-    public CompletableFuture<MiniUrl> updateMiniUrlAsync(String miniKey, String newFullUrl) {
+    public CompletableFuture<MiniUrl> updateMiniUrlAsync(String miniKey, String rawNewFullUrl) {
+        return miniUrlMetrics.timeAsync(MiniUrlMetrics.UPDATE, () -> update(miniKey, rawNewFullUrl));
+    }
+
+    private CompletableFuture<MiniUrl> update(String miniKey, String rawNewFullUrl) {
         try {
-            customUrlValidator.validateUrl(newFullUrl);
+            String newFullUrl = customUrlValidator.normalizeUrl(rawNewFullUrl);
+            miniUrlJournal.flushIfPending(miniKey);
 
-            return findMiniUrlByMiniKeyAsync(miniKey)
+            return findMiniUrlOnPrimaryAsync(miniKey)
                     .thenCompose(optionalMiniUrl -> {
                         MiniUrl miniUrl = optionalMiniUrl.orElse(null);
-                        if (miniUrl == null) {
+                        if (!isLive(miniUrl)) {
                             CompletableFuture<MiniUrl> failedResult = new CompletableFuture<>();
                             failedResult.completeExceptionally(
                                     new MiniUrlNotFoundException("MiniUrl not found with miniKey: " + miniKey));
                             return failedResult;
                         }
                         miniUrl.setFullUrl(newFullUrl);
-                        logger.info("Updating MiniUrl with miniKey: {}", miniUrl);
-                        MiniUrl savedMiniUrl = miniUrlRepository.save(miniUrl);
-                        return CompletableFuture.completedFuture(savedMiniUrl);
+                        replicaLagGuard.recordWrite(miniKey);
+                        logger.info("Updating MiniUrl with miniKey: {}", miniKey);
+                        MiniUrl savedMiniUrl = miniUrlStore.save(miniUrl);
+                        return invalidateEverywhere(miniKey).thenApply(ignored -> savedMiniUrl);
                     });
 
         } catch (Exception exception) {
@@ -136,7 +585,18 @@ public class MiniUrlService {
 
     @Transactional
     public CompletableFuture<Void> deleteMiniUrlAsync(String miniKey) {
-        return findMiniUrlByMiniKeyAsync(miniKey)
+        return miniUrlMetrics.timeAsync(MiniUrlMetrics.DELETE, () -> delete(miniKey));
+    }
+
+    private CompletableFuture<Void> delete(String miniKey) {
+        try {
+            miniUrlJournal.flushIfPending(miniKey);
+        } catch (MiniUrlUnavailableException exception) {
+            CompletableFuture<Void> failedResult = new CompletableFuture<>();
+            failedResult.completeExceptionally(exception);
+            return failedResult;
+        }
+        return findMiniUrlOnPrimaryAsync(miniKey)
                 .thenCompose(optionalMiniUrl -> {
                     MiniUrl miniUrl = optionalMiniUrl.orElse(null);
                     if (miniUrl == null) {
@@ -146,14 +606,39 @@ public class MiniUrlService {
                         return failedResult;
                     }
                     logger.info("Deleting MiniUrl with miniKey: {}", miniKey);
-                    miniUrlRepository.deleteById(miniKey);
-                    return CompletableFuture.completedFuture(null);
+                    replicaLagGuard.recordWrite(miniKey);
+                    miniUrlStore.deleteById(miniKey);
+                    // The key stays in miniKeyFilter: Bloom filters cannot remove, later lookups fall through to the database
+
+                    return invalidateEverywhere(miniKey);
                 });
     }
 
     @Transactional(readOnly = true)
-    public CompletableFuture<List<MiniUrl>> getAllMiniUrlsAsync() {
-        logger.info("Fetching all MiniUrls");
-        return CompletableFuture.supplyAsync(() -> miniUrlRepository.findAll());
+    public CompletableFuture<List<MiniUrl>> getMiniUrlsPageAsync(String afterMiniKey, int pageSize) {
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            CompletableFuture<List<MiniUrl>> failedResult = new CompletableFuture<>();
+            failedResult.completeExceptionally(
+                    new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE));
+            return failedResult;
+        }
+        logger.info("Fetching {} MiniUrls after miniKey: {}", pageSize, afterMiniKey);
+        return miniUrlStore.findByMiniKeyGreaterThanOrderByMiniKeyAsc(
+                afterMiniKey == null ? "" : afterMiniKey, Limit.of(pageSize));
+    }
+
+    /**
+     * Streams every MiniUrl, ordered by miniKey, through a server-side cursor with the JPA backend.
+     * Each entity is detached once consumed, so memory stays constant regardless of table size.
+     */
+    @Transactional(readOnly = true)
+    public void exportMiniUrls(Consumer<MiniUrl> consumer) {
+        logger.info("Exporting all MiniUrls");
+        try (Stream<MiniUrl> miniUrls = miniUrlStore.streamAll()) {
+            miniUrls.forEach(miniUrl -> {
+                consumer.accept(miniUrl);
+                entityManager.detach(miniUrl);
+            });
+        }
     }
 }
@@ -0,0 +1,32 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.models.MiniUrl;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * No shared tier: every miss of the in-process cache reads the database.
+ */
+@Component
+@ConditionalOnProperty(name = "MINIURL_SHARED_CACHE", havingValue = SharedMiniUrlCache.NONE, matchIfMissing = true)
+public class NoOpSharedMiniUrlCache implements SharedMiniUrlCache {
+
+    private static final CompletableFuture<MiniUrl> MISS = CompletableFuture.completedFuture(null);
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    @Override
+    public CompletableFuture<MiniUrl> get(String miniKey) {
+        return MISS;
+    }
+
+    @Override
+    public void put(MiniUrl miniUrl) {
+    }
+
+    @Override
+    public CompletableFuture<Void> invalidate(String miniKey) {
+        return DONE;
+    }
+}
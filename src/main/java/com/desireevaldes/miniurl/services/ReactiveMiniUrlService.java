@@ -0,0 +1,383 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.exceptions.MiniKeyGenerationException;
+import com.desireevaldes.miniurl.exceptions.MiniUrlNotFoundException;
+import com.desireevaldes.miniurl.models.MiniUrl;
+import com.desireevaldes.miniurl.repositories.MiniUrlStore;
+import com.desireevaldes.miniurl.repositories.R2dbcMiniUrlRepository;
+import com.desireevaldes.miniurl.utils.CustomUrlValidator;
+import com.desireevaldes.miniurl.utils.RandomKeyGenerator;
+import com.desireevaldes.miniurl.utils.SingleFlight;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * {@link MiniUrlService} for the reactive stack: the same flows, with every database call through
+ * {@link R2dbcMiniUrlRepository}, so a request never holds a thread while it waits.
+ * <p>
+ * Shares both cache tiers and their invalidation, the MiniKey filter, click analytics, key generation and metrics
+ * with the servlet stack. Write-behind creates and the off-heap storage backend are servlet-only, and reads always go to the primary.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveMiniUrlService {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveMiniUrlService.class);
+
+    private final R2dbcMiniUrlRepository miniUrlRepository;
+    private final CustomUrlValidator customUrlValidator;
+    private final RandomKeyGenerator randomKeyGenerator;
+    private final MiniUrlCache miniUrlCache;
+    private final SharedMiniUrlCache sharedMiniUrlCache;
+    private final MiniUrlInvalidationBroadcaster miniUrlInvalidationBroadcaster;
+    private final MiniKeyBlockAllocator miniKeyBlockAllocator;
+    private final ClickStatsService clickStatsService;
+    private final MiniKeyFilter miniKeyFilter;
+    private final MiniUrlMetrics miniUrlMetrics;
+    // Concurrent identical requests share one in-flight call: creates by normalized fullUrl and expiresAt, lookups by miniKey
+    private final SingleFlight<String, MiniUrl> createFlights = new SingleFlight<>();
+    private final SingleFlight<String, Optional<MiniUrl>> lookupFlights = new SingleFlight<>();
+
+    public ReactiveMiniUrlService(
+            R2dbcMiniUrlRepository miniUrlRepository,
+            CustomUrlValidator customUrlValidator,
+            RandomKeyGenerator randomKeyGenerator,
+            MiniUrlCache miniUrlCache,
+            SharedMiniUrlCache sharedMiniUrlCache,
+            MiniUrlInvalidationBroadcaster miniUrlInvalidationBroadcaster,
+            MiniKeyBlockAllocator miniKeyBlockAllocator,
+            ClickStatsService clickStatsService,
+            MiniKeyFilter miniKeyFilter,
+            MiniUrlMetrics miniUrlMetrics,
+            @Value("${MINIURL_WRITE_BEHIND_ENABLED:false}") boolean writeBehindEnabled,
+            @Value("${MINIURL_STORAGE_BACKEND:" + MiniUrlStore.JPA_BACKEND + "}") String storageBackend
+    ) {
+        if (writeBehindEnabled || !MiniUrlStore.JPA_BACKEND.equals(storageBackend)) {
+            throw new IllegalStateException("The reactive profile requires MINIURL_STORAGE_BACKEND="
+                    + MiniUrlStore.JPA_BACKEND + " and MINIURL_WRITE_BEHIND_ENABLED=false");
+        }
+        this.miniUrlRepository = miniUrlRepository;
+        this.customUrlValidator = customUrlValidator;
+        this.randomKeyGenerator = randomKeyGenerator;
+        this.miniUrlCache = miniUrlCache;
+        this.sharedMiniUrlCache = sharedMiniUrlCache;
+        this.miniUrlInvalidationBroadcaster = miniUrlInvalidationBroadcaster;
+        this.miniKeyBlockAllocator = miniKeyBlockAllocator;
+        this.clickStatsService = clickStatsService;
+        this.miniKeyFilter = miniKeyFilter;
+        this.miniUrlMetrics = miniUrlMetrics;
+    }
+
+    private static <T> Mono<T> notFound(String miniKey) {
+        return Mono.error(new MiniUrlNotFoundException("MiniUrl not found with miniKey: " + miniKey));
+    }
+
+    public Mono<MiniUrl> getOrCreateMiniUrl(String rawFullUrl) {
+        return getOrCreateMiniUrl(rawFullUrl, null);
+    }
+
+    /**
+     * Same as {@link MiniUrlService#getOrCreateMiniUrlAsync(String, Instant)}.
+     */
+    public Mono<MiniUrl> getOrCreateMiniUrl(String rawFullUrl, Instant rawExpiresAt) {
+        return miniUrlMetrics.timeMono(MiniUrlMetrics.CREATE, () -> {
+            String fullUrl = customUrlValidator.normalizeUrl(rawFullUrl);
+            Instant expiresAt = MiniUrlService.validateExpiresAt(rawExpiresAt);
+            String flightKey = expiresAt == null ? fullUrl : fullUrl + " " + expiresAt;
+            return Mono.fromFuture(() -> createFlights.execute(flightKey, () -> findMiniUrlByFullUrl(fullUrl, expiresAt)
+                    .doOnNext(miniUrl -> logger.info("MiniUrl already exists for this Url."))
+                    .switchIfEmpty(Mono.defer(() -> createAndSaveMiniUrl(fullUrl, expiresAt)))
+                    .toFuture()));
+        });
+    }
+
+    public Mono<List<MiniUrl>> getOrCreateMiniUrls(List<String> fullUrls) {
+        return miniUrlMetrics.timeMono(MiniUrlMetrics.CREATE_BATCH, () -> {
+            List<String> normalizedFullUrls = new ArrayList<>(fullUrls.size());
+            for (String fullUrl : fullUrls) {
+                normalizedFullUrls.add(customUrlValidator.normalizeUrl(fullUrl));
+            }
+            Set<String> uniqueFullUrls = new LinkedHashSet<>(normalizedFullUrls);
+
+            Set<UUID> fullUrlHashes = new HashSet<>(uniqueFullUrls.size());
+            for (String fullUrl : uniqueFullUrls) {
+                fullUrlHashes.add(MiniUrl.hashFullUrl(fullUrl));
+            }
+
+            return miniUrlRepository.findByFullUrlHashIn(fullUrlHashes)
+                    .collectList()
+                    .flatMap(existingMiniUrls -> {
+                        Map<String, MiniUrl> miniUrlsByFullUrl = new HashMap<>();
+                        for (MiniUrl existingMiniUrl : existingMiniUrls) {
+                            if (uniqueFullUrls.contains(existingMiniUrl.getFullUrl()) && existingMiniUrl.getExpiresAt() == null) {
+                                miniUrlsByFullUrl.putIfAbsent(existingMiniUrl.getFullUrl(), existingMiniUrl);
+                            }
+                        }
+                        List<String> missingFullUrls = uniqueFullUrls.stream()
+                                .filter(fullUrl -> !miniUrlsByFullUrl.containsKey(fullUrl))
+                                .toList();
+                        logger.info("Batch of {} Urls: {} already exist, {} to create",
+                                uniqueFullUrls.size(), uniqueFullUrls.size() - missingFullUrls.size(), missingFullUrls.size());
+
+                        return createAndSaveMiniUrls(missingFullUrls)
+                                .map(createdMiniUrls -> {
+                                    for (MiniUrl createdMiniUrl : createdMiniUrls) {
+                                        miniUrlsByFullUrl.put(createdMiniUrl.getFullUrl(), createdMiniUrl);
+                                    }
+                                    return normalizedFullUrls.stream()
+                                            .map(miniUrlsByFullUrl::get)
+                                            .toList();
+                                });
+                    });
+        });
+    }
+
+    private Mono<MiniUrl> findMiniUrlByFullUrl(String fullUrl, Instant expiresAt) {
+        return miniUrlRepository.findByFullUrlHash(MiniUrl.hashFullUrl(fullUrl))
+                .filter(miniUrl -> fullUrl.equals(miniUrl.getFullUrl()) && Objects.equals(expiresAt, miniUrl.getExpiresAt()))
+                .next();
+    }
+
+    private Mono<MiniUrl> createAndSaveMiniUrl(String fullUrl, Instant expiresAt) {
+        return generateUniqueMiniKey()
+                .flatMap(miniKey -> {
+                    MiniUrl miniUrl = new MiniUrl();
+                    miniUrl.setMiniKey(miniKey);
+                    miniUrl.setFullUrl(fullUrl);
+                    miniUrl.setExpiresAt(expiresAt);
+                    miniKeyFilter.add(miniKey);
+                    logger.info("Saving new MiniUrl with miniKey: {}", miniKey);
+                    return miniUrlRepository.insert(miniUrl);
+                });
+    }
+
+    private Mono<List<MiniUrl>> createAndSaveMiniUrls(List<String> fullUrls) {
+        if (fullUrls.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return generateUniqueMiniKeys(fullUrls.size(), new ArrayList<>(fullUrls.size()), 1)
+                .flatMap(miniKeys -> {
+                    List<MiniUrl> miniUrls = new ArrayList<>(fullUrls.size());
+                    for (int i = 0; i < fullUrls.size(); i++) {
+                        MiniUrl miniUrl = new MiniUrl();
+                        miniUrl.setMiniKey(miniKeys.get(i));
+                        miniUrl.setFullUrl(fullUrls.get(i));
+                        miniUrls.add(miniUrl);
+                        miniKeyFilter.add(miniUrl.getMiniKey());
+                    }
+                    logger.info("Saving {} new MiniUrls in batch", miniUrls.size());
+                    return miniUrlRepository.insertAll(miniUrls);
+                });
+    }
+
+    // Leasing a new block queries the sequence through JDBC, so block keys are taken off the event loop
+    private Mono<String> nextBlockKey() {
+        return Mono.fromCallable(miniKeyBlockAllocator::nextKey).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<List<String>> generateUniqueMiniKeys(int count, List<String> uniqueMiniKeys, int round) {
+        if (miniKeyBlockAllocator.isEnabled()) {
+            return nextBlockKey().repeat(count - 1).collectList();
+        }
+
+        Set<String> candidateMiniKeys = new LinkedHashSet<>(count);
+        while (candidateMiniKeys.size() < count) {
+            String candidateMiniKey = randomKeyGenerator.generateKey();
+            if (!uniqueMiniKeys.contains(candidateMiniKey)) {
+                candidateMiniKeys.add(candidateMiniKey);
+            }
+        }
+        List<String> possiblyExistingMiniKeys = new ArrayList<>(candidateMiniKeys.size());
+        for (String candidateMiniKey : candidateMiniKeys) {
+            if (!miniKeyFilter.isDefinitelyAbsent(candidateMiniKey)) {
+                possiblyExistingMiniKeys.add(candidateMiniKey);
+            }
+        }
+        if (possiblyExistingMiniKeys.isEmpty()) {
+            randomKeyGenerator.recordCollisions(count, 0);
+            uniqueMiniKeys.addAll(candidateMiniKeys);
+            return Mono.just(uniqueMiniKeys);
+        }
+
+        return miniUrlRepository.findExistingMiniKeys(possiblyExistingMiniKeys)
+                .collectList()
+                .flatMap(existingMiniKeys -> {
+                    randomKeyGenerator.recordCollisions(count, existingMiniKeys.size());
+                    existingMiniKeys.forEach(candidateMiniKeys::remove);
+                    uniqueMiniKeys.addAll(candidateMiniKeys);
+                    if (existingMiniKeys.isEmpty()) {
+                        return Mono.just(uniqueMiniKeys);
+                    }
+                    miniUrlMetrics.recordKeyCollisions(existingMiniKeys.size());
+                    if (round >= randomKeyGenerator.getMaxRounds()) {
+                        return failedKeyGeneration(round);
+                    }
+                    logger.debug("{} miniKeys already exist, regenerating...", existingMiniKeys.size());
+                    return generateUniqueMiniKeys(existingMiniKeys.size(), uniqueMiniKeys, round + 1);
+                });
+    }
+
+    private Mono<String> generateUniqueMiniKey() {
+        return Mono.defer(() -> {
+            Timer.Sample sample = miniUrlMetrics.start();
+            if (miniKeyBlockAllocator.isEnabled()) {
+                return nextBlockKey()
+                        .doOnTerminate(() -> miniUrlMetrics.stopKeyGeneration(sample, "block"));
+            }
+            return generateUniqueRandomMiniKey(1)
+                    .doOnTerminate(() -> miniUrlMetrics.stopKeyGeneration(sample, "random"));
+        });
+    }
+
+    /**
+     * Same rounds as {@link MiniUrlService}: up to MINIURL_KEY_CANDIDATES keys per round, the ones the MiniKey filter
+     * cannot rule out checked with a single query, and collisions reported to the key generator.
+     */
+    private Mono<String> generateUniqueRandomMiniKey(int round) {
+        int candidatesPerRound = randomKeyGenerator.getCandidatesPerRound();
+        Set<String> candidateMiniKeys = new LinkedHashSet<>(candidatesPerRound);
+        for (int i = 0; i < candidatesPerRound; i++) {
+            String candidateMiniKey = randomKeyGenerator.generateKey();
+            if (miniKeyFilter.isDefinitelyAbsent(candidateMiniKey)) {
+                // Keys the filter could not rule out count as collisions, there is no need to query them anymore
+                randomKeyGenerator.recordCollisions(i + 1, i);
+                return Mono.just(candidateMiniKey);
+            }
+            candidateMiniKeys.add(candidateMiniKey);
+        }
+
+        return miniUrlRepository.findExistingMiniKeys(candidateMiniKeys)
+                .collectList()
+                .flatMap(existingMiniKeys -> {
+                    existingMiniKeys.forEach(candidateMiniKeys::remove);
+                    randomKeyGenerator.recordCollisions(candidatesPerRound, existingMiniKeys.size());
+                    miniUrlMetrics.recordKeyCollisions(existingMiniKeys.size());
+                    if (!candidateMiniKeys.isEmpty()) {
+                        return Mono.just(candidateMiniKeys.iterator().next());
+                    }
+                    if (round >= randomKeyGenerator.getMaxRounds()) {
+                        return failedKeyGeneration(round);
+                    }
+                    logger.debug("All {} candidate miniKeys already exist, regenerating...", candidatesPerRound);
+                    return generateUniqueRandomMiniKey(round + 1);
+                });
+    }
+
+    private <T> Mono<T> failedKeyGeneration(int rounds) {
+        return Mono.error(new MiniKeyGenerationException(
+                "Could not generate a unique miniKey in " + rounds + " rounds, the keyspace of "
+                        + randomKeyGenerator.getKeyLength() + " character keys is crowded. Try again later"));
+    }
+
+    public Mono<MiniUrl> getMiniUrlByMiniKey(String miniKey) {
+        return miniUrlMetrics.timeMono(MiniUrlMetrics.LOOKUP, () -> lookup(miniKey));
+    }
+
+    public Mono<String> resolveFullUrl(String miniKey) {
+        return miniUrlMetrics.timeMono(MiniUrlMetrics.RESOLVE, () -> lookup(miniKey).map(MiniUrl::getFullUrl));
+    }
+
+    private Mono<MiniUrl> lookup(String miniKey) {
+        MiniUrl cachedMiniUrl = miniUrlCache.getIfPresent(miniKey);
+        if (MiniUrlService.isLive(cachedMiniUrl)) {
+            clickStatsService.recordClick(miniKey);
+            return Mono.just(cachedMiniUrl);
+        }
+        if (miniKeyFilter.isDefinitelyAbsent(miniKey)) {
+            return notFound(miniKey);
+        }
+
+        // The caller that reads caches the result, with the generation it took before reading
+        return Mono.fromFuture(() -> lookupFlights.execute(miniKey, () -> {
+                    long generation = miniUrlCache.generation(miniKey);
+                    return Mono.fromFuture(() -> sharedMiniUrlCache.get(miniKey))
+                            .switchIfEmpty(Mono.defer(() -> miniUrlRepository.findByMiniKey(miniKey)
+                                    .doOnNext(sharedMiniUrlCache::put)))
+                            .doOnNext(miniUrl -> {
+                                if (MiniUrlService.isLive(miniUrl)) {
+                                    miniUrlCache.putIfCurrent(miniUrl, generation);
+                                }
+                            })
+                            .map(Optional::of)
+                            .defaultIfEmpty(Optional.empty())
+                            .toFuture();
+                }))
+                .flatMap(optionalMiniUrl -> {
+                    MiniUrl miniUrl = optionalMiniUrl.orElse(null);
+                    if (!MiniUrlService.isLive(miniUrl)) {
+                        return notFound(miniKey);
+                    }
+                    clickStatsService.recordClick(miniKey);
+                    return Mono.just(miniUrl);
+                });
+    }
+
+    public Mono<MiniUrl> updateMiniUrl(String miniKey, String rawNewFullUrl) {
+        return miniUrlMetrics.timeMono(MiniUrlMetrics.UPDATE, () -> {
+            String newFullUrl = customUrlValidator.normalizeUrl(rawNewFullUrl);
+            logger.info("Updating MiniUrl with miniKey: {}", miniKey);
+            return miniUrlRepository.updateFullUrl(miniKey, newFullUrl)
+                    .switchIfEmpty(Mono.defer(() -> notFound(miniKey)))
+                    .flatMap(miniUrl -> invalidateEverywhere(miniKey).thenReturn(miniUrl));
+        });
+    }
+
+    public Mono<Void> deleteMiniUrl(String miniKey) {
+        return miniUrlMetrics.timeMono(MiniUrlMetrics.DELETE, () -> {
+            logger.info("Deleting MiniUrl with miniKey: {}", miniKey);
+            return miniUrlRepository.deleteByMiniKey(miniKey)
+                    .flatMap(deleted -> {
+                        if (!deleted) {
+                            return notFound(miniKey);
+                        }
+                        // The key stays in miniKeyFilter: Bloom filters cannot remove, later lookups fall through to the database
+                        return invalidateEverywhere(miniKey);
+                    });
+        });
+    }
+
+    // After an update or delete: the shared tier first, so instances reloading after the broadcast miss it too.
+    // The near caches are dropped even if the shared tier failed, the failure then fails the update or delete.
+    private Mono<Void> invalidateEverywhere(String miniKey) {
+        return Mono.fromFuture(() -> sharedMiniUrlCache.invalidate(miniKey))
+                .doOnTerminate(() -> {
+                    miniUrlCache.invalidate(miniKey);
+                    miniUrlInvalidationBroadcaster.broadcast(miniKey);
+                });
+    }
+
+    public Mono<List<MiniUrl>> getMiniUrlsPage(String afterMiniKey, int pageSize) {
+        if (pageSize < 1 || pageSize > MiniUrlService.MAX_PAGE_SIZE) {
+            return Mono.error(new IllegalArgumentException("Page size must be between 1 and " + MiniUrlService.MAX_PAGE_SIZE));
+        }
+        logger.info("Fetching {} MiniUrls after miniKey: {}", pageSize, afterMiniKey);
+        return miniUrlRepository.findByMiniKeyGreaterThanOrderByMiniKeyAsc(afterMiniKey == null ? "" : afterMiniKey, pageSize)
+                .collectList();
+    }
+
+    /**
+     * Every MiniUrl, ordered by miniKey, read as fast as the client consumes them.
+     */
+    public Flux<MiniUrl> exportMiniUrls() {
+        logger.info("Exporting all MiniUrls");
+        return miniUrlRepository.findAll();
+    }
+}
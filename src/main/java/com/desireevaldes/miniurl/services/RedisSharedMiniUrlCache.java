@@ -0,0 +1,192 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.exceptions.MiniUrlUnavailableException;
+import com.desireevaldes.miniurl.models.MiniUrl;
+import com.desireevaldes.miniurl.repositories.MiniUrlStore;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.TimeoutOptions;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.metrics.MicrometerCommandLatencyRecorder;
+import io.lettuce.core.metrics.MicrometerOptions;
+import io.lettuce.core.resource.ClientResources;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Shared tier in Redis (MINIURL_SHARED_CACHE_URL), through one multiplexed, non-blocking Lettuce connection.
+ * <p>
+ * Entries are plain strings under {@code miniurl:2:<miniKey>}, expiring MINIURL_SHARED_CACHE_TTL_SECONDS after they were
+ * written, or when the link expires if that is sooner. Every command times out after MINIURL_SHARED_CACHE_TIMEOUT_MS and then reads as a miss, so a slow or
+ * unreachable Redis sends resolves to the database instead of failing them. Command latencies are published as the
+ * {@code lettuce.command.*} meters.
+ * <p>
+ * An invalidation leaves a tombstone under {@code miniurl:2:tombstone:<miniKey>} for MINIURL_SHARED_CACHE_TOMBSTONE_MS,
+ * and puts are skipped while it exists. Both are Lua scripts, so the check and the write cannot interleave. A failed
+ * invalidation is retried up to MINIURL_SHARED_CACHE_INVALIDATION_ATTEMPTS times, then fails the update or delete.
+ */
+@Component
+@ConditionalOnProperty(name = "MINIURL_SHARED_CACHE", havingValue = SharedMiniUrlCache.REDIS)
+public class RedisSharedMiniUrlCache implements SharedMiniUrlCache {
+    private static final Logger logger = LoggerFactory.getLogger(RedisSharedMiniUrlCache.class);
+
+    // Versioned with the value format, so entries written by older instances are not decoded
+    static final String KEY_PREFIX = "miniurl:2:";
+    static final String TOMBSTONE_PREFIX = KEY_PREFIX + "tombstone:";
+
+    // KEYS: entry, tombstone. ARGV: value, time to live in milliseconds
+    private static final String PUT_SCRIPT = """
+            if redis.call('EXISTS', KEYS[2]) == 1 then
+                return 0
+            end
+            redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+            return 1
+            """;
+    // KEYS: entry, tombstone. ARGV: tombstone time to live in milliseconds
+    private static final String INVALIDATE_SCRIPT = """
+            redis.call('SET', KEYS[2], '1', 'PX', ARGV[1])
+            return redis.call('DEL', KEYS[1])
+            """;
+
+    private final ClientResources clientResources;
+    private final RedisClient redisClient;
+    private final StatefulRedisConnection<String, String> connection;
+    private final RedisAsyncCommands<String, String> commands;
+    private final long ttlMillis;
+    private final long tombstoneMillis;
+    private final int invalidationAttempts;
+
+    public RedisSharedMiniUrlCache(
+            @Value("${MINIURL_SHARED_CACHE_URL:redis://localhost:6379}") String url,
+            @Value("${MINIURL_SHARED_CACHE_TTL_SECONDS:3600}") long ttlSeconds,
+            @Value("${MINIURL_SHARED_CACHE_TIMEOUT_MS:100}") long timeoutMillis,
+            @Value("${MINIURL_SHARED_CACHE_TOMBSTONE_MS:${MINIURL_REPLICA_MAX_LAG_MS:5000}}") long tombstoneMillis,
+            @Value("${MINIURL_SHARED_CACHE_INVALIDATION_ATTEMPTS:3}") int invalidationAttempts,
+            @Value("${MINIURL_STORAGE_BACKEND:" + MiniUrlStore.JPA_BACKEND + "}") String storageBackend,
+            MeterRegistry meterRegistry
+    ) {
+        // Off-heap nodes each own their data, a cache shared between them would mix it up
+        if (MiniUrlStore.OFF_HEAP_BACKEND.equals(storageBackend)) {
+            throw new IllegalStateException("MINIURL_SHARED_CACHE=" + REDIS + " does not work with MINIURL_STORAGE_BACKEND=" + MiniUrlStore.OFF_HEAP_BACKEND);
+        }
+        if (tombstoneMillis < 1 || invalidationAttempts < 1) {
+            throw new IllegalStateException("MINIURL_SHARED_CACHE_TOMBSTONE_MS and MINIURL_SHARED_CACHE_INVALIDATION_ATTEMPTS must be positive");
+        }
+        RedisURI redisUri = RedisURI.create(url);
+        this.clientResources = ClientResources.builder()
+                .commandLatencyRecorder(new MicrometerCommandLatencyRecorder(meterRegistry, MicrometerOptions.create()))
+                .build();
+        this.redisClient = RedisClient.create(clientResources, redisUri);
+        redisClient.setOptions(ClientOptions.builder()
+                // Commands only: connecting keeps the longer timeout of the URL
+                .timeoutOptions(TimeoutOptions.builder().fixedTimeout(Duration.ofMillis(timeoutMillis)).build())
+                .build());
+        this.connection = redisClient.connect();
+        this.commands = connection.async();
+        this.ttlMillis = Duration.ofSeconds(ttlSeconds).toMillis();
+        this.tombstoneMillis = tombstoneMillis;
+        this.invalidationAttempts = invalidationAttempts;
+        logger.info("Shared MiniUrl cache connected to {}:{}", redisUri.getHost(), redisUri.getPort());
+    }
+
+    @PreDestroy
+    public void close() {
+        connection.close();
+        redisClient.shutdown();
+        clientResources.shutdown();
+    }
+
+    // createdAt, updatedAt, expiresAt and fullUrl separated by spaces, the fullUrl last so it may contain spaces itself
+    static String encode(MiniUrl miniUrl) {
+        return format(miniUrl.getCreatedAt()) + ' ' + format(miniUrl.getUpdatedAt()) + ' ' + format(miniUrl.getExpiresAt())
+                + ' ' + miniUrl.getFullUrl();
+    }
+
+    static MiniUrl decode(String miniKey, String value) {
+        String[] fields = value.split(" ", 4);
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(miniKey);
+        miniUrl.setFullUrl(fields[3]);
+        miniUrl.setCreatedAt(parse(fields[0]));
+        miniUrl.setUpdatedAt(parse(fields[1]));
+        miniUrl.setExpiresAt(parse(fields[2]));
+        return miniUrl;
+    }
+
+    private static String format(Instant instant) {
+        return instant == null ? "-" : instant.toString();
+    }
+
+    private static Instant parse(String field) {
+        return "-".equals(field) ? null : Instant.parse(field);
+    }
+
+    @Override
+    public CompletableFuture<MiniUrl> get(String miniKey) {
+        return commands.get(KEY_PREFIX + miniKey)
+                .toCompletableFuture()
+                .thenApply(value -> value == null ? null : decode(miniKey, value))
+                .exceptionally(exception -> {
+                    logger.warn("Shared MiniUrl cache read of miniKey {} failed: {}", miniKey, exception.getMessage());
+                    return null;
+                });
+    }
+
+    // Expired MiniUrls are not written
+    @Override
+    public void put(MiniUrl miniUrl) {
+        long miniUrlTtlMillis = ttlMillis;
+        if (miniUrl.getExpiresAt() != null) {
+            long expiresAfterMillis = Duration.between(Instant.now(), miniUrl.getExpiresAt()).toMillis();
+            if (expiresAfterMillis <= 0) {
+                return;
+            }
+            miniUrlTtlMillis = Math.min(miniUrlTtlMillis, expiresAfterMillis);
+        }
+        commands.<Long>eval(PUT_SCRIPT, ScriptOutputType.INTEGER,
+                        new String[]{KEY_PREFIX + miniUrl.getMiniKey(), TOMBSTONE_PREFIX + miniUrl.getMiniKey()},
+                        encode(miniUrl), String.valueOf(miniUrlTtlMillis))
+                .exceptionally(exception -> {
+                    logger.warn("Shared MiniUrl cache write of miniKey {} failed: {}", miniUrl.getMiniKey(), exception.getMessage());
+                    return null;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Void> invalidate(String miniKey) {
+        return invalidate(miniKey, 1);
+    }
+
+    // Unlike a failed read, a failed invalidation would let every instance serve the old MiniUrl for the whole TTL
+    private CompletableFuture<Void> invalidate(String miniKey, int attempt) {
+        return commands.<Long>eval(INVALIDATE_SCRIPT, ScriptOutputType.INTEGER,
+                        new String[]{KEY_PREFIX + miniKey, TOMBSTONE_PREFIX + miniKey}, String.valueOf(tombstoneMillis))
+                .toCompletableFuture()
+                .handle((removed, exception) -> exception)
+                .thenCompose(exception -> {
+                    if (exception == null) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    if (attempt >= invalidationAttempts) {
+                        logger.error("Shared MiniUrl cache invalidation of miniKey {} failed {} times: {}", miniKey, attempt,
+                                exception.getMessage());
+                        return CompletableFuture.failedFuture(new MiniUrlUnavailableException(
+                                "The shared cache could not be invalidated for miniKey " + miniKey + ", retry the request"));
+                    }
+                    logger.warn("Shared MiniUrl cache invalidation of miniKey {} failed, retrying: {}", miniKey, exception.getMessage());
+                    return invalidate(miniKey, attempt + 1);
+                });
+    }
+}
@@ -0,0 +1,39 @@
+package com.desireevaldes.miniurl.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Remembers miniKeys written in the last MINIURL_REPLICA_MAX_LAG_MS, so lookups of them read from the primary
+ * instead of a replica that may not have the write yet. Does nothing when no replica is configured.
+ */
+@Component
+public class ReplicaLagGuard {
+
+    private final Cache<String, Boolean> recentWrites;
+
+    public ReplicaLagGuard(
+            @Value("${MINIURL_REPLICA_URLS:}") String replicaUrls,
+            @Value("${MINIURL_REPLICA_MAX_LAG_MS:5000}") long maxLagMillis,
+            @Value("${MINIURL_REPLICA_MAX_TRACKED_WRITES:100000}") long maxTrackedWrites
+    ) {
+        this.recentWrites = replicaUrls.isBlank() ? null : Caffeine.newBuilder()
+                .maximumSize(maxTrackedWrites)
+                .expireAfterWrite(Duration.ofMillis(maxLagMillis))
+                .build();
+    }
+
+    public void recordWrite(String miniKey) {
+        if (recentWrites != null) {
+            recentWrites.put(miniKey, Boolean.TRUE);
+        }
+    }
+
+    public boolean isRecentlyWritten(String miniKey) {
+        return recentWrites != null && recentWrites.getIfPresent(miniKey) != null;
+    }
+}
@@ -0,0 +1,102 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.repositories.MiniUrlStore;
+import com.desireevaldes.miniurl.repositories.ShardedMiniUrlStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Actuator endpoint {@code /actuator/shards} of the sharded storage backend. GET lists the shards with their row
+ * counts and the state of the last rebalance. POST starts a rebalance on a background thread: the rows whose shard
+ * changed when shards were appended to MINIURL_SHARD_URLS are moved, MINIURL_SHARD_REBALANCE_BATCH_SIZE at a time,
+ * while the application keeps serving them. Once it is done, MINIURL_SHARD_PREVIOUS_COUNT can be removed.
+ */
+@Component
+@Endpoint(id = "shards")
+@ConditionalOnProperty(name = "MINIURL_STORAGE_BACKEND", havingValue = MiniUrlStore.SHARDED_BACKEND)
+public class ShardRebalancer {
+    private static final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    public static final String IDLE = "idle";
+    public static final String RUNNING = "running";
+    public static final String DONE = "done";
+    public static final String FAILED = "failed";
+
+    private final ShardedMiniUrlStore shardedMiniUrlStore;
+    private final int batchSize;
+    private final AtomicLong movedMiniUrls = new AtomicLong();
+
+    private volatile String state = IDLE;
+    private volatile String error;
+
+    public ShardRebalancer(
+            ShardedMiniUrlStore shardedMiniUrlStore,
+            @Value("${MINIURL_SHARD_REBALANCE_BATCH_SIZE:1000}") int batchSize
+    ) {
+        this.shardedMiniUrlStore = shardedMiniUrlStore;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    @ReadOperation
+    public Map<String, Object> shards() {
+        List<Map<String, Object>> shards = new ArrayList<>(shardedMiniUrlStore.getShardCount());
+        for (int shard = 0; shard < shardedMiniUrlStore.getShardCount(); shard++) {
+            Map<String, Object> shardDetails = new LinkedHashMap<>();
+            shardDetails.put("shard", shard + 1);
+            shardDetails.put("miniUrls", shardedMiniUrlStore.countMiniUrls(shard));
+            shards.add(shardDetails);
+        }
+        Map<String, Object> rebalance = new LinkedHashMap<>();
+        rebalance.put("state", state);
+        rebalance.put("movedMiniUrls", movedMiniUrls.get());
+        rebalance.put("error", error);
+
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("shards", shards);
+        details.put("previousShardCount", shardedMiniUrlStore.getPreviousShardCount());
+        details.put("rebalance", rebalance);
+        return details;
+    }
+
+    // Does nothing while a rebalance is running
+    @WriteOperation
+    public synchronized Map<String, Object> rebalance() {
+        if (!RUNNING.equals(state)) {
+            state = RUNNING;
+            error = null;
+            movedMiniUrls.set(0);
+            Thread.ofPlatform().name("miniurl-shard-rebalancer").daemon().start(this::run);
+        }
+        return shards();
+    }
+
+    private void run() {
+        logger.info("Rebalancing {} MiniUrl shards", shardedMiniUrlStore.getShardCount());
+        try {
+            long moved = shardedMiniUrlStore.rebalance(batchSize, movedMiniUrls::addAndGet);
+            logger.info("Rebalanced MiniUrl shards, {} rows moved", moved);
+            state = DONE;
+        } catch (RuntimeException exception) {
+            // Rows copied so far stay readable, a new rebalance picks up the others
+            logger.error("Failed to rebalance MiniUrl shards after moving {} rows", movedMiniUrls.get(), exception);
+            error = exception.toString();
+            state = FAILED;
+        }
+    }
+}
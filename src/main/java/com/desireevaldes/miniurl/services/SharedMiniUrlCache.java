@@ -0,0 +1,38 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.exceptions.MiniUrlUnavailableException;
+import com.desireevaldes.miniurl.models.MiniUrl;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Cache tier shared by every instance, between each instance's {@link MiniUrlCache} and the database, selected with
+ * MINIURL_SHARED_CACHE: "none" (default, {@link NoOpSharedMiniUrlCache}), "redis" ({@link RedisSharedMiniUrlCache})
+ * or "in-process" ({@link InProcessSharedMiniUrlCache}, a stand-in for tests and local runs).
+ * <p>
+ * It is a cache, not a store: a failed read or write is logged and reads as a miss. Only an invalidation that keeps
+ * failing completes exceptionally, with {@link MiniUrlUnavailableException}: the old MiniUrl may still be cached.
+ */
+public interface SharedMiniUrlCache {
+
+    String NONE = "none";
+    String IN_PROCESS = "in-process";
+    String REDIS = "redis";
+
+    /**
+     * The cached MiniUrl, or null when it is not cached.
+     */
+    CompletableFuture<MiniUrl> get(String miniKey);
+
+    /**
+     * Caches the MiniUrl without waiting for the write.
+     */
+    void put(MiniUrl miniUrl);
+
+    /**
+     * Removes the miniKey, completing once it is gone. Puts of the miniKey are then ignored for
+     * MINIURL_SHARED_CACHE_TOMBSTONE_MS, so a resolve that read the database before the update cannot share the old
+     * MiniUrl again.
+     */
+    CompletableFuture<Void> invalidate(String miniKey);
+}
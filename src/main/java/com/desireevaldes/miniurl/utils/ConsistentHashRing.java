@@ -0,0 +1,57 @@
+package com.desireevaldes.miniurl.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Consistent hashing of string keys onto shards 0 to shardCount - 1.
+ * <p>
+ * Each shard owns virtualNodes points on a 64-bit ring and a key belongs to the shard of the first point at or after
+ * its hash. Points only depend on the shard number, so the ring of N + 1 shards keeps every point of the ring of N:
+ * growing it moves about 1 / (N + 1) of the keys, all of them to the new shard. Immutable and thread-safe.
+ */
+public class ConsistentHashRing {
+
+    private final int shardCount;
+    // Sorted ring positions, and the shard owning each of them
+    private final long[] points;
+    private final int[] owners;
+
+    public ConsistentHashRing(int shardCount, int virtualNodes) {
+        if (shardCount < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("A hash ring needs at least one shard and one virtual node per shard");
+        }
+        this.shardCount = shardCount;
+        long[][] nodes = new long[shardCount * virtualNodes][];
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                nodes[shard * virtualNodes + node] = new long[]{hash("shard-" + shard + "#" + node), shard};
+            }
+        }
+        // Ties are broken by shard number, so every instance builds the same ring
+        Arrays.sort(nodes, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        this.points = new long[nodes.length];
+        this.owners = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            points[i] = nodes[i][0];
+            owners[i] = (int) nodes[i][1];
+        }
+    }
+
+    // Stable across JVMs and restarts, unlike String.hashCode() it uses all 64 bits
+    public static long hash(String key) {
+        return OffHeapHashIndex.hash(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int shardFor(String key) {
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+}
@@ -1,6 +1,5 @@
 package com.desireevaldes.miniurl.utils;
 
-import org.apache.commons.validator.routines.UrlValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -10,21 +9,16 @@ public class CustomUrlValidator {
 
     private static final Logger logger = LoggerFactory.getLogger(CustomUrlValidator.class);
 
-    private final UrlValidator urlValidator;
-
-    public CustomUrlValidator(UrlValidator urlValidator) {
-        this.urlValidator = urlValidator;
-    }
-
-    public boolean validateUrl(String url) {
-        logger.debug("Validating URL: {}", url);
-
-        if(!urlValidator.isValid(url)) {
-            logger.warn("Invalid URL format: {}", url);
+    /**
+     * Validates the URL and returns its canonical form (see {@link UrlNormalizer}),
+     * so that equivalent spellings of a URL map to the same miniKey.
+     */
+    public String normalizeUrl(String url) {
+        String normalizedUrl = UrlNormalizer.normalize(url);
+        if (normalizedUrl == null) {
+            logger.debug("Invalid URL format: {}", url);
             throw new IllegalArgumentException("Invalid URL format");
         }
-
-        logger.info("URL is valid: {}", url);
-        return true;
+        return normalizedUrl;
     }
 }
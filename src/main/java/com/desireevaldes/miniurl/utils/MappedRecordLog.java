@@ -0,0 +1,280 @@
+package com.desireevaldes.miniurl.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of opaque records in memory-mapped segment files {@code data-<generation>-<segment>.log}.
+ * <p>
+ * Records are {@code [int length][int crc32][payload]} and never span segments; the length is written last, so a
+ * record torn by a crash reads as the end of the log when it is opened again. A record is addressed by {@code segment << 32 | offset}.
+ * Rewriting the log (compaction) goes to a new generation, which only replaces the current one once
+ * {@link #commit()} has forced it and switched the MANIFEST file; files of any other generation are deleted on open.
+ * <p>
+ * Appends are visible to reads right away and survive a process crash through the page cache, but only survive an
+ * OS crash once {@link #force()} has run. Segments stay mapped until their buffers are garbage collected, so records
+ * of a replaced generation can still be read. Not thread-safe for appends: callers serialize writers.
+ */
+public class MappedRecordLog {
+
+    private static final int HEADER_BYTES = 8;
+    private static final String MANIFEST = "MANIFEST";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("data-(\\d+)-(\\d+)\\.log");
+
+    private final Path directory;
+    private final long generation;
+    private final int segmentBytes;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    // End offset of every segment but the current one
+    private final List<Integer> segmentEnds = new ArrayList<>();
+    private MappedByteBuffer currentSegment;
+    private int position;
+    // First segment written since the last force, or -1
+    private int unforcedSegment = -1;
+
+    @FunctionalInterface
+    public interface RecordVisitor {
+        void visit(long address, ByteBuffer payload);
+    }
+
+    private MappedRecordLog(Path directory, long generation, int segmentBytes) {
+        this.directory = directory;
+        this.generation = generation;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Opens the committed generation in the directory. The log ends at the first torn or corrupt record.
+     */
+    public static MappedRecordLog open(Path directory, int segmentBytes) {
+        try {
+            Files.createDirectories(directory);
+            Path manifest = directory.resolve(MANIFEST);
+            long generation = Files.exists(manifest)
+                    ? Long.parseLong(Files.readString(manifest, StandardCharsets.US_ASCII).trim())
+                    : 0;
+            MappedRecordLog log = new MappedRecordLog(directory, generation, segmentBytes);
+            List<Path> segmentFiles = new ArrayList<>();
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                    if (!matcher.matches()) {
+                        continue;
+                    }
+                    if (Long.parseLong(matcher.group(1)) == generation) {
+                        segmentFiles.add(file);
+                    } else {
+                        Files.delete(file);
+                    }
+                }
+            }
+            segmentFiles.sort((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)));
+            for (int i = 0; i < segmentFiles.size(); i++) {
+                if (segmentNumber(segmentFiles.get(i)) != i) {
+                    throw new IllegalStateException("Missing log segment " + i + " of generation " + generation + " in " + directory);
+                }
+                log.segments.add(map(segmentFiles.get(i), Math.max(Files.size(segmentFiles.get(i)), segmentBytes)));
+            }
+            if (log.segments.isEmpty()) {
+                log.segments.add(map(log.segmentPath(0), segmentBytes));
+            }
+            log.recover();
+            return log;
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Cannot open record log in " + directory.toAbsolutePath(), exception);
+        }
+    }
+
+    private static long segmentNumber(Path file) {
+        Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+        matcher.matches();
+        return Long.parseLong(matcher.group(2));
+    }
+
+    private static MappedByteBuffer map(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve("data-" + generation + "-" + segment + ".log");
+    }
+
+    private void recover() {
+        for (int segment = 0; segment < segments.size(); segment++) {
+            MappedByteBuffer buffer = segments.get(segment);
+            int offset = 0;
+            while (offset + HEADER_BYTES <= buffer.capacity()) {
+                int length = buffer.getInt(offset);
+                if (length <= 0 || length > buffer.capacity() - offset - HEADER_BYTES
+                        || crc(buffer, offset + HEADER_BYTES, length) != buffer.getInt(offset + 4)) {
+                    break;
+                }
+                offset += HEADER_BYTES + length;
+            }
+            segmentEnds.add(offset);
+            if (segment == segments.size() - 1) {
+                // Clear a torn record, so a shorter record appended over it cannot be followed by its leftovers
+                clear(buffer, offset);
+            } else if (offset + HEADER_BYTES <= buffer.capacity() && buffer.getInt(offset) != 0) {
+                throw new IllegalStateException("Corrupt record in log segment " + segmentPath(segment));
+            }
+        }
+        currentSegment = segments.getLast();
+        position = segmentEnds.removeLast();
+    }
+
+    /**
+     * Passes every record to the visitor, in append order.
+     */
+    public void forEachRecord(RecordVisitor visitor) {
+        for (int segment = 0; segment < segments.size(); segment++) {
+            MappedByteBuffer buffer = segments.get(segment);
+            int end = segment < segmentEnds.size() ? segmentEnds.get(segment) : position;
+            for (int offset = 0; offset < end; offset += HEADER_BYTES + buffer.getInt(offset)) {
+                visitor.visit(address(segment, offset), buffer.slice(offset + HEADER_BYTES, buffer.getInt(offset)).asReadOnlyBuffer());
+            }
+        }
+    }
+
+    private static void clear(MappedByteBuffer buffer, int from) {
+        int end = buffer.capacity();
+        while (end - Long.BYTES >= from && buffer.getLong(end - Long.BYTES) == 0) {
+            end -= Long.BYTES;
+        }
+        while (end > from && buffer.get(end - 1) == 0) {
+            end--;
+        }
+        if (end > from) {
+            buffer.put(from, new byte[end - from]);
+        }
+    }
+
+    private static int crc(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    private static long address(int segment, int offset) {
+        return (long) segment << 32 | offset;
+    }
+
+    public static int recordBytes(int payloadBytes) {
+        return HEADER_BYTES + payloadBytes;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Appends the payload and returns its address.
+     */
+    public long append(ByteBuffer payload) {
+        int length = payload.remaining();
+        if (length == 0 || HEADER_BYTES + length > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + length + " bytes does not fit in a " + segmentBytes + " bytes segment");
+        }
+        if (position + HEADER_BYTES + length > currentSegment.capacity()) {
+            try {
+                currentSegment = map(segmentPath(segments.size()), segmentBytes);
+            } catch (IOException exception) {
+                throw new UncheckedIOException("Cannot create log segment in " + directory.toAbsolutePath(), exception);
+            }
+            segments.add(currentSegment);
+            segmentEnds.add(position);
+            position = 0;
+        }
+        int offset = position;
+        currentSegment.put(offset + HEADER_BYTES, payload, payload.position(), length);
+        currentSegment.putInt(offset + 4, crc(currentSegment, offset + HEADER_BYTES, length));
+        currentSegment.putInt(offset, length);
+        position += HEADER_BYTES + length;
+        if (unforcedSegment < 0) {
+            unforcedSegment = segments.size() - 1;
+        }
+        return address(segments.size() - 1, offset);
+    }
+
+    /**
+     * Returns a read-only view of the payload at the address. Safe to call concurrently with one appender.
+     */
+    public ByteBuffer read(long address) {
+        MappedByteBuffer segment = segments.get((int) (address >>> 32));
+        int offset = (int) address;
+        return segment.slice(offset + HEADER_BYTES, segment.getInt(offset)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Starts an empty log for the next generation, which is ignored on open until it is committed.
+     */
+    public MappedRecordLog nextGeneration() {
+        MappedRecordLog next = new MappedRecordLog(directory, generation + 1, segmentBytes);
+        try {
+            next.currentSegment = map(next.segmentPath(0), segmentBytes);
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Cannot create log segment in " + directory.toAbsolutePath(), exception);
+        }
+        next.segments.add(next.currentSegment);
+        return next;
+    }
+
+    /**
+     * Forces this log to disk and makes it the generation opened on the next start.
+     */
+    public void commit() {
+        force();
+        try {
+            Path manifest = directory.resolve(MANIFEST);
+            Path temporaryManifest = directory.resolve(MANIFEST + ".tmp");
+            Files.writeString(temporaryManifest, Long.toString(generation), StandardCharsets.US_ASCII,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+            Files.move(temporaryManifest, manifest, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Cannot commit record log in " + directory.toAbsolutePath(), exception);
+        }
+    }
+
+    public void force() {
+        if (unforcedSegment < 0) {
+            return;
+        }
+        for (int segment = unforcedSegment; segment < segments.size(); segment++) {
+            segments.get(segment).force();
+        }
+        unforcedSegment = -1;
+    }
+
+    /**
+     * Deletes the segment files of this (replaced) generation. Its records stay readable while still mapped.
+     */
+    public void deleteFiles() {
+        try {
+            for (int segment = 0; segment < segments.size(); segment++) {
+                Files.deleteIfExists(segmentPath(segment));
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Cannot delete record log generation " + generation + " in " + directory.toAbsolutePath(), exception);
+        }
+    }
+
+    public long sizeBytes() {
+        return (long) (segments.size() - 1) * segmentBytes + position;
+    }
+}
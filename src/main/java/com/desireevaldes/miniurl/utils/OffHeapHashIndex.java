@@ -0,0 +1,179 @@
+package com.desireevaldes.miniurl.utils;
+
+import java.nio.ByteBuffer;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Open-addressing hash multimap from 64-bit hashes to non-negative 64-bit values, stored in a direct ByteBuffer:
+ * 16 bytes per slot and no Java object per entry. Linear probing with backward-shift deletion (no tombstones);
+ * the table doubles past 70% load. Several values may share a hash, callers check candidates themselves.
+ * Hashes must be well mixed, see {@link #hash(byte[])}. Not thread-safe.
+ */
+public class OffHeapHashIndex {
+
+    private static final int SLOT_BYTES = 16;
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final double MAX_LOAD = 0.7;
+    // Marks an empty slot, hashes equal to it are stored as EMPTY_REPLACEMENT
+    private static final long EMPTY = 0;
+    private static final long EMPTY_REPLACEMENT = 1;
+
+    private ByteBuffer slots;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    public OffHeapHashIndex(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(long size) {
+        long capacity = Long.highestOneBit(Math.max(16, (long) Math.ceil(size / MAX_LOAD)) * 2 - 1);
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Off-heap index cannot hold " + size + " entries");
+        }
+        return (int) capacity;
+    }
+
+    private void allocate(int capacity) {
+        slots = ByteBuffer.allocateDirect(capacity * SLOT_BYTES);
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * MAX_LOAD);
+    }
+
+    // FNV-1a over the bytes, finished with the SplitMix64 mixer.
+    public static long hash(byte[] key) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : key) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+
+    private static long storedHash(long hash) {
+        return hash == EMPTY ? EMPTY_REPLACEMENT : hash;
+    }
+
+    private long hashAt(int slot) {
+        return slots.getLong(slot * SLOT_BYTES);
+    }
+
+    private long valueAt(int slot) {
+        return slots.getLong(slot * SLOT_BYTES + 8);
+    }
+
+    private void set(int slot, long hash, long value) {
+        slots.putLong(slot * SLOT_BYTES, hash);
+        slots.putLong(slot * SLOT_BYTES + 8, value);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long memoryBytes() {
+        return slots.capacity();
+    }
+
+    public void add(long hash, long value) {
+        if (size >= resizeThreshold) {
+            resize();
+        }
+        insert(storedHash(hash), value);
+        size++;
+    }
+
+    private void insert(long hash, long value) {
+        int slot = (int) hash & mask;
+        while (hashAt(slot) != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        set(slot, hash, value);
+    }
+
+    private void resize() {
+        ByteBuffer oldSlots = slots;
+        int oldCapacity = mask + 1;
+        if (oldCapacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("Off-heap index is full");
+        }
+        allocate(oldCapacity * 2);
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            long hash = oldSlots.getLong(slot * SLOT_BYTES);
+            if (hash != EMPTY) {
+                insert(hash, oldSlots.getLong(slot * SLOT_BYTES + 8));
+            }
+        }
+    }
+
+    /**
+     * Returns the first value stored under the hash that the matcher accepts, or -1.
+     */
+    public long find(long hash, LongPredicate matcher) {
+        long storedHash = storedHash(hash);
+        for (int slot = (int) storedHash & mask; hashAt(slot) != EMPTY; slot = (slot + 1) & mask) {
+            if (hashAt(slot) == storedHash && matcher.test(valueAt(slot))) {
+                return valueAt(slot);
+            }
+        }
+        return -1;
+    }
+
+    public void forEach(long hash, LongConsumer consumer) {
+        long storedHash = storedHash(hash);
+        for (int slot = (int) storedHash & mask; hashAt(slot) != EMPTY; slot = (slot + 1) & mask) {
+            if (hashAt(slot) == storedHash) {
+                consumer.accept(valueAt(slot));
+            }
+        }
+    }
+
+    public void forEachValue(LongConsumer consumer) {
+        for (int slot = 0; slot <= mask; slot++) {
+            if (hashAt(slot) != EMPTY) {
+                consumer.accept(valueAt(slot));
+            }
+        }
+    }
+
+    public boolean replace(long hash, long oldValue, long newValue) {
+        int slot = slotOf(storedHash(hash), oldValue);
+        if (slot < 0) {
+            return false;
+        }
+        slots.putLong(slot * SLOT_BYTES + 8, newValue);
+        return true;
+    }
+
+    public boolean remove(long hash, long value) {
+        int slot = slotOf(storedHash(hash), value);
+        if (slot < 0) {
+            return false;
+        }
+        // Backward-shift deletion: move later entries of the probe chain into the gap, unless that would
+        // put them before their home slot.
+        int gap = slot;
+        for (int next = (gap + 1) & mask; hashAt(next) != EMPTY; next = (next + 1) & mask) {
+            int home = (int) hashAt(next) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                set(gap, hashAt(next), valueAt(next));
+                gap = next;
+            }
+        }
+        set(gap, EMPTY, 0);
+        size--;
+        return true;
+    }
+
+    private int slotOf(long storedHash, long value) {
+        for (int slot = (int) storedHash & mask; hashAt(slot) != EMPTY; slot = (slot + 1) & mask) {
+            if (hashAt(slot) == storedHash && valueAt(slot) == value) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+}
@@ -1,38 +1,247 @@
 package com.desireevaldes.miniurl.utils;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Generates random miniKeys from a custom alphabet.
+ * <p>
+ * "shared" mode (default) keeps the original behaviour: one SecureRandom and one nextInt call per character.
+ * In the opt-in "striped" mode threads are spread over several independent SecureRandom instances,
+ * each drawing entropy in bulk into a buffer. Bytes are mapped to the alphabet by rejection sampling
+ * (no modulo bias) and the key is built directly as a Latin-1 byte[].
+ * <p>
+ * The key length adapts to the fill of the keyspace: callers report how many of the candidate keys they checked
+ * already existed, and once the share of collisions over a window of MINIURL_KEY_COLLISION_WINDOW candidates exceeds
+ * MINIURL_KEY_COLLISION_THRESHOLD, keys grow by one character, up to the mini_key column limit.
+ */
 @Component
 public class RandomKeyGenerator {
-    private final SecureRandom random = new SecureRandom();
-    private final String customAlphabet;
-    private final int keyLength;
+    private static final Logger logger = LoggerFactory.getLogger(RandomKeyGenerator.class);
+
+    public static final String SHARED_MODE = "shared";
+    public static final String STRIPED_MODE = "striped";
+
     private static final int MINIURL_MIN_KEY_LENGTH = 7;
+    public static final int MINIURL_MAX_KEY_LENGTH = 32;
+    private static final int ENTROPY_BUFFER_SIZE = 256;
+
+    private final String customAlphabet;
+    private volatile int keyLength;
+
+    // adaptive key length, guarded by this
+    private final double collisionThreshold;
+    private final int collisionWindow;
+    private final int candidatesPerRound;
+    private final int maxRounds;
+    private int windowCandidates;
+    private int windowCollisions;
+
+    // shared mode
+    private final SecureRandom random;
 
+    // striped mode
+    private final Stripe[] stripes;
+    private final byte[] alphabetBytes;
+    private final int sampleMask;
+
+    public RandomKeyGenerator(String customAlphabet, int keyLength) {
+        this(customAlphabet, keyLength, SHARED_MODE);
+    }
+
+    public RandomKeyGenerator(String customAlphabet, int keyLength, String mode) {
+        this(customAlphabet, keyLength, mode, 0.1, 1000, 4, 5);
+    }
+
+    @Autowired
     public RandomKeyGenerator(
             @Value("${MINIURL_CUSTOM_ALPHABET:0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz}") String customAlphabet,
-            @Value("${MINIURL_KEY_LENGTH:8}") int keyLength
+            @Value("${MINIURL_KEY_LENGTH:8}") int keyLength,
+            @Value("${MINIURL_KEY_GENERATOR_MODE:shared}") String mode,
+            @Value("${MINIURL_KEY_COLLISION_THRESHOLD:0.1}") double collisionThreshold,
+            @Value("${MINIURL_KEY_COLLISION_WINDOW:1000}") int collisionWindow,
+            @Value("${MINIURL_KEY_CANDIDATES:4}") int candidatesPerRound,
+            @Value("${MINIURL_KEY_MAX_ROUNDS:5}") int maxRounds
     ) {
         this.customAlphabet = customAlphabet;
         this.keyLength = validateKeyLength(keyLength);
+        this.collisionThreshold = collisionThreshold;
+        this.collisionWindow = Math.max(1, collisionWindow);
+        this.candidatesPerRound = Math.max(1, candidatesPerRound);
+        this.maxRounds = Math.max(1, maxRounds);
+
+        if (validateMode(mode) && isByteAlphabet(customAlphabet)) {
+            this.random = null;
+            this.alphabetBytes = customAlphabet.getBytes(StandardCharsets.ISO_8859_1);
+            this.sampleMask = (Integer.highestOneBit(alphabetBytes.length - 1) << 1) - 1;
+            this.stripes = new Stripe[stripeCount()];
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i] = new Stripe(newStripeRandom());
+            }
+        } else {
+            if (STRIPED_MODE.equals(mode)) {
+                logger.warn("MINIURL_CUSTOM_ALPHABET has more than 256 or non Latin-1 characters, using the shared key generator");
+            }
+            this.random = new SecureRandom();
+            this.alphabetBytes = null;
+            this.sampleMask = 0;
+            this.stripes = null;
+        }
     }
 
-    private int validateKeyLength(int keyLength) {
+    public static int validateKeyLength(int keyLength) {
         if (keyLength < MINIURL_MIN_KEY_LENGTH) {
             keyLength = MINIURL_MIN_KEY_LENGTH;
         }
+        if (keyLength > MINIURL_MAX_KEY_LENGTH) {
+            keyLength = MINIURL_MAX_KEY_LENGTH;
+        }
         return keyLength;
     }
 
+    public String getAlphabet() {
+        return customAlphabet;
+    }
+
+    public int getKeyLength() {
+        return keyLength;
+    }
+
+    // Candidate keys checked together, with one query, per round of unique key generation
+    public int getCandidatesPerRound() {
+        return candidatesPerRound;
+    }
+
+    // Rounds of unique key generation before giving up
+    public int getMaxRounds() {
+        return maxRounds;
+    }
+
+    /**
+     * Reports that {@code collisions} of {@code candidates} generated keys already existed.
+     * Grows the key length when the collision rate of the current window exceeds the threshold.
+     */
+    public synchronized void recordCollisions(int candidates, int collisions) {
+        windowCandidates += candidates;
+        windowCollisions += collisions;
+        if (windowCandidates < collisionWindow) {
+            return;
+        }
+        double collisionRate = (double) windowCollisions / windowCandidates;
+        windowCandidates = 0;
+        windowCollisions = 0;
+        if (collisionRate > collisionThreshold && keyLength < MINIURL_MAX_KEY_LENGTH) {
+            keyLength++;
+            logger.warn("{}% of generated miniKeys already existed, growing miniKeys to {} characters. " +
+                    "Set MINIURL_KEY_LENGTH={} to keep this length after a restart.",
+                    Math.round(collisionRate * 100), keyLength, keyLength);
+        }
+    }
+
+    private static boolean validateMode(String mode) {
+        if (STRIPED_MODE.equals(mode)) {
+            return true;
+        }
+        if (SHARED_MODE.equals(mode)) {
+            return false;
+        }
+        throw new IllegalArgumentException("Unknown MINIURL_KEY_GENERATOR_MODE: " + mode);
+    }
+
+    private static boolean isByteAlphabet(String alphabet) {
+        if (alphabet.length() < 2 || alphabet.length() > 256) {
+            return false;
+        }
+        for (int i = 0; i < alphabet.length(); i++) {
+            if (alphabet.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Power of two, so a thread id can be mapped to a stripe with a mask.
+    private static int stripeCount() {
+        return Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+    }
+
+    // The default Linux SecureRandom (NativePRNG) serializes every instance on one global lock; DRBG instances do not.
+    private static SecureRandom newStripeRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException exception) {
+            return new SecureRandom();
+        }
+    }
+
     public String generateKey() {
-        StringBuilder newKey = new StringBuilder(keyLength);
-        for (int i = 0; i < keyLength; i++) {
+        return generateKey("");
+    }
+
+    /**
+     * A key starting with {@code prefix}, which must be made of alphabet characters and count in the key length.
+     * Sharded storage passes a shard hint here, so the key alone tells which shard holds it.
+     */
+    public String generateKey(String prefix) {
+        if (stripes == null) {
+            return generateSharedKey(prefix);
+        }
+
+        int keyLength = this.keyLength;
+        byte[] key = new byte[keyLength];
+        Stripe stripe = stripes[(int) (Thread.currentThread().threadId() & (stripes.length - 1))];
+        stripe.lock.lock();
+        try {
+            int i = 0;
+            while (i < prefix.length()) {
+                key[i] = (byte) prefix.charAt(i++);
+            }
+            while (i < keyLength) {
+                int index = stripe.nextByte() & sampleMask;
+                if (index < alphabetBytes.length) {
+                    key[i++] = alphabetBytes[index];
+                }
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        return new String(key, StandardCharsets.ISO_8859_1);
+    }
+
+    private String generateSharedKey(String prefix) {
+        int keyLength = this.keyLength;
+        StringBuilder newKey = new StringBuilder(keyLength).append(prefix);
+        for (int i = prefix.length(); i < keyLength; i++) {
             int index = random.nextInt(customAlphabet.length());
             newKey.append(customAlphabet.charAt(index));
         }
         return newKey.toString();
     }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final SecureRandom random;
+        private final byte[] buffer = new byte[ENTROPY_BUFFER_SIZE];
+        private int position = ENTROPY_BUFFER_SIZE;
+
+        private Stripe(SecureRandom random) {
+            this.random = random;
+        }
+
+        private byte nextByte() {
+            if (position == buffer.length) {
+                random.nextBytes(buffer);
+                position = 0;
+            }
+            return buffer[position++];
+        }
+    }
 }
@@ -0,0 +1,93 @@
+package com.desireevaldes.miniurl.utils;
+
+/**
+ * Maps sequential ids onto fixed-length keys over a custom alphabet.
+ * Ids are first passed through a keyed Feistel permutation (with cycle walking) over
+ * the whole key space, so consecutive ids produce unrelated keys while every id still
+ * maps to exactly one key.
+ */
+public class ShuffledKeyEncoder {
+    private static final int FEISTEL_ROUNDS = 4;
+    private static final int MAX_KEY_SPACE_BITS = 62;
+
+    private final char[] alphabet;
+    private final int keyLength;
+    private final long keySpace;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] roundKeys = new long[FEISTEL_ROUNDS];
+
+    public ShuffledKeyEncoder(String customAlphabet, int keyLength, long secret) {
+        this.alphabet = customAlphabet.toCharArray();
+        this.keyLength = keyLength;
+        this.keySpace = computeKeySpace(alphabet.length, keyLength);
+
+        int bits = 64 - Long.numberOfLeadingZeros(keySpace - 1);
+        bits = Math.max(2, bits + (bits & 1));
+        this.halfBits = bits / 2;
+        this.halfMask = (1L << halfBits) - 1;
+
+        long seed = secret;
+        for (int i = 0; i < FEISTEL_ROUNDS; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            roundKeys[i] = mix(seed);
+        }
+    }
+
+    private static long computeKeySpace(int alphabetLength, int keyLength) {
+        if (alphabetLength < 2) {
+            throw new IllegalArgumentException("Alphabet must contain at least 2 characters");
+        }
+        long keySpace = 1;
+        for (int i = 0; i < keyLength; i++) {
+            if (keySpace > (1L << MAX_KEY_SPACE_BITS) / alphabetLength) {
+                throw new IllegalArgumentException("Key space of " + alphabetLength + "^" + keyLength
+                        + " is too large for block key allocation, use a shorter key length");
+            }
+            keySpace *= alphabetLength;
+        }
+        return keySpace;
+    }
+
+    public long getKeySpace() {
+        return keySpace;
+    }
+
+    public String encode(long id) {
+        if (id < 0 || id >= keySpace) {
+            throw new IllegalStateException("MiniKey space exhausted, id " + id + " is out of range");
+        }
+
+        long value = permute(id);
+        char[] key = new char[keyLength];
+        for (int i = keyLength - 1; i >= 0; i--) {
+            key[i] = alphabet[(int) (value % alphabet.length)];
+            value /= alphabet.length;
+        }
+        return new String(key);
+    }
+
+    private long permute(long value) {
+        do {
+            value = feistel(value);
+        } while (value >= keySpace);
+        return value;
+    }
+
+    private long feistel(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (long roundKey : roundKeys) {
+            long nextRight = left ^ (mix(right ^ roundKey) & halfMask);
+            left = right;
+            right = nextRight;
+        }
+        return (left << halfBits) | right;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
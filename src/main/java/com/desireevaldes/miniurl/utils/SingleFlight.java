@@ -0,0 +1,48 @@
+package com.desireevaldes.miniurl.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key: while a call is in flight, callers with the same key
+ * share its result instead of starting their own. Once the call completes the key is released,
+ * so later callers start a new call (results are not cached).
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the call unless one is already in flight for the key, and returns a future of its result.
+     * Each caller gets its own copy, so completing or cancelling it does not affect the other callers.
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> result = new CompletableFuture<>();
+        CompletableFuture<V> existingResult = inFlight.putIfAbsent(key, result);
+        if (existingResult != null) {
+            return existingResult.copy();
+        }
+
+        try {
+            call.get().whenComplete((value, throwable) -> {
+                // Released before completion, so dependents see a free key
+                inFlight.remove(key, result);
+                if (throwable != null) {
+                    result.completeExceptionally(throwable);
+                } else {
+                    result.complete(value);
+                }
+            });
+        } catch (RuntimeException exception) {
+            inFlight.remove(key, result);
+            result.completeExceptionally(exception);
+        }
+        return result.copy();
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+}
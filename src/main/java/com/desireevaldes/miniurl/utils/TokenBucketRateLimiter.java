@@ -0,0 +1,122 @@
+package com.desireevaldes.miniurl.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe, lock-free token buckets, one per client.
+ * <p>
+ * Each bucket is a single AtomicLong holding the instant its tokens are all back (the "theoretical arrival time" of
+ * the generic cell rate algorithm): taking a token pushes it one refill interval later, and is refused when that
+ * would put it more than burst intervals ahead of now. A bucket whose instant has passed is full, so it carries no
+ * state and can be dropped: idle clients are evicted without changing any answer.
+ * <p>
+ * Buckets are spread over shards, each holding at most its share of maxClients. A shard that is full is swept of idle
+ * clients first, at most once per refill interval; when still full, the new client shares one overflow bucket with
+ * every other untracked client, so memory stays bounded and a flood of distinct clients is still limited.
+ */
+public class TokenBucketRateLimiter {
+
+    private static final int SHARD_COUNT = 16;
+
+    private final long refillNanos;
+    private final long burstNanos;
+    private final int maxClientsPerShard;
+    private final Shard[] shards = new Shard[SHARD_COUNT];
+    private final AtomicLong overflow = new AtomicLong(System.nanoTime());
+
+    public TokenBucketRateLimiter(double tokensPerSecond, int burst, int maxClients) {
+        if (tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("Tokens per second must be positive");
+        }
+        if (burst < 1 || maxClients < 1) {
+            throw new IllegalArgumentException("Burst and max clients must be positive");
+        }
+        this.refillNanos = Math.max(1, (long) (1_000_000_000L / tokensPerSecond));
+        this.burstNanos = Math.multiplyExact(refillNanos, burst);
+        this.maxClientsPerShard = Math.max(1, (maxClients + SHARD_COUNT - 1) / SHARD_COUNT);
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * Takes one token from the client's bucket.
+     *
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @return 0 when the token was taken, otherwise the nanoseconds until the bucket holds one again
+     */
+    public long tryAcquire(String client, long nowNanos) {
+        AtomicLong bucket = bucket(client, nowNanos);
+        while (true) {
+            long fullAt = bucket.get();
+            long next = (fullAt - nowNanos > 0 ? fullAt : nowNanos) + refillNanos;
+            long ahead = next - nowNanos;
+            if (ahead > burstNanos) {
+                return ahead - burstNanos;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drops the buckets of clients that are full again.
+     *
+     * @return the number of clients dropped
+     */
+    public int evictIdle(long nowNanos) {
+        int evicted = 0;
+        for (Shard shard : shards) {
+            evicted += shard.evictIdle(nowNanos);
+        }
+        return evicted;
+    }
+
+    public long getClientCount() {
+        long count = 0;
+        for (Shard shard : shards) {
+            count += shard.buckets.mappingCount();
+        }
+        return count;
+    }
+
+    private AtomicLong bucket(String client, long nowNanos) {
+        Shard shard = shards[shardOf(client)];
+        AtomicLong bucket = shard.buckets.get(client);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (shard.buckets.mappingCount() >= maxClientsPerShard) {
+            long sweptAt = shard.sweptAt.get();
+            // A bucket needs a refill interval to be full again, sweeping more often would mostly scan for nothing
+            if (nowNanos - sweptAt < refillNanos || !shard.sweptAt.compareAndSet(sweptAt, nowNanos)
+                    || shard.evictIdle(nowNanos) == 0 || shard.buckets.mappingCount() >= maxClientsPerShard) {
+                return overflow;
+            }
+        }
+        return shard.buckets.computeIfAbsent(client, key -> new AtomicLong(nowNanos));
+    }
+
+    private static int shardOf(String client) {
+        int hash = client.hashCode();
+        return (hash ^ (hash >>> 16)) & (SHARD_COUNT - 1);
+    }
+
+    private static final class Shard {
+        private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        private final AtomicLong sweptAt = new AtomicLong(System.nanoTime());
+
+        // A bucket being drained concurrently may be dropped and recreated full: the client gains at most one token
+        private int evictIdle(long nowNanos) {
+            int evicted = 0;
+            for (var entry : buckets.entrySet()) {
+                if (entry.getValue().get() - nowNanos <= 0 && buckets.remove(entry.getKey(), entry.getValue())) {
+                    evicted++;
+                }
+            }
+            return evicted;
+        }
+    }
+}
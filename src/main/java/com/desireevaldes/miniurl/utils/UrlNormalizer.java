@@ -0,0 +1,384 @@
+package com.desireevaldes.miniurl.utils;
+
+import org.apache.commons.validator.routines.DomainValidator;
+import org.apache.commons.validator.routines.InetAddressValidator;
+
+import java.net.IDN;
+import java.util.Arrays;
+
+/**
+ * Single-pass parser that validates an absolute http, https or ftp URL and returns its canonical form.
+ * Accepts the same URLs as commons-validator's default {@code UrlValidator} (which this replaces on the create path),
+ * except percent-encoded ".." segments above the root, such as "/%2E%2E", which are rejected like "/..".
+ * <p>
+ * Canonical form (RFC 3986, section 6.2.2):
+ * <ul>
+ *     <li>scheme and host in lower case, IDN hosts in punycode, no trailing dot on the host</li>
+ *     <li>no default port (80, 443, 21)</li>
+ *     <li>percent-encoding in upper case, with unreserved characters decoded</li>
+ *     <li>"." and ".." path segments resolved, and "/" for an empty path</li>
+ * </ul>
+ * Trailing slashes on non-empty paths are kept: "/a" and "/a/" may be different resources.
+ */
+public final class UrlNormalizer {
+
+    private static final int MAX_HOST_LENGTH = 253;
+    private static final int MAX_LABEL_LENGTH = 63;
+    private static final int MAX_PORT = 65535;
+
+    private static final boolean[] UNRESERVED = charClass("-._~");
+    private static final boolean[] PATH_CHARS = charClass("-._~:@&=+,!*'$;()");
+    private static final boolean[] USERINFO_CHARS = charClass("-._~!$&'()*+,;=:");
+    // Query and fragment characters accepted by java.net.URI, which commons-validator parses with
+    private static final boolean[] QUERY_CHARS = charClass("-._~!*'();/?:@&=+$,[]");
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private UrlNormalizer() {
+    }
+
+    private static boolean[] charClass(String extraChars) {
+        boolean[] charClass = new boolean[128];
+        for (char c = '0'; c <= '9'; c++) charClass[c] = true;
+        for (char c = 'A'; c <= 'Z'; c++) charClass[c] = true;
+        for (char c = 'a'; c <= 'z'; c++) charClass[c] = true;
+        for (char c : extraChars.toCharArray()) charClass[c] = true;
+        return charClass;
+    }
+
+    private static boolean isIn(boolean[] charClass, char c) {
+        return c < 128 && charClass[c];
+    }
+
+    /**
+     * Returns the canonical form of the URL, or null if it is not a valid absolute http, https or ftp URL.
+     */
+    public static String normalize(String url) {
+        if (url == null) {
+            return null;
+        }
+        int length = url.length();
+        StringBuilder out = new StringBuilder(length + 1);
+
+        // scheme
+        int position = 0;
+        while (position < length && isSchemeChar(url.charAt(position), position)) {
+            out.append(Character.toLowerCase(url.charAt(position)));
+            position++;
+        }
+        int defaultPort = defaultPort(out);
+        if (defaultPort < 0 || !url.startsWith("://", position)) {
+            return null;
+        }
+        out.append("://");
+        position += 3;
+
+        // authority
+        int authorityEnd = position;
+        while (authorityEnd < length && !isAuthorityEnd(url.charAt(authorityEnd))) {
+            authorityEnd++;
+        }
+        int hostStart = position;
+        int at = url.lastIndexOf('@', authorityEnd - 1);
+        if (at >= position) {
+            if (!appendEncoded(url, position, at, USERINFO_CHARS, out)) {
+                return null;
+            }
+            out.append('@');
+            hostStart = at + 1;
+        }
+
+        int hostEnd;
+        if (hostStart < authorityEnd && url.charAt(hostStart) == '[') {
+            hostEnd = url.indexOf(']', hostStart);
+            if (hostEnd < 0 || hostEnd >= authorityEnd
+                    || !InetAddressValidator.getInstance().isValidInet6Address(url.substring(hostStart + 1, hostEnd))) {
+                return null;
+            }
+            out.append(url, hostStart, ++hostEnd);
+            lowerCase(out, out.length() - (hostEnd - hostStart));
+        } else {
+            hostEnd = hostStart;
+            while (hostEnd < authorityEnd && url.charAt(hostEnd) != ':') {
+                hostEnd++;
+            }
+            if (!appendHost(url, hostStart, hostEnd, out)) {
+                return null;
+            }
+        }
+
+        if (hostEnd < authorityEnd) {
+            int port = parsePort(url, hostEnd, authorityEnd, defaultPort);
+            if (port < 0) {
+                return null;
+            }
+            if (port != defaultPort) {
+                out.append(':').append(port);
+            }
+        }
+
+        // path, query, fragment
+        position = appendPath(url, authorityEnd, out);
+        if (position < 0) {
+            return null;
+        }
+        if (position < length && url.charAt(position) == '?') {
+            int queryEnd = url.indexOf('#', position);
+            if (queryEnd < 0) {
+                queryEnd = length;
+            }
+            if (!appendEncoded(url, position, queryEnd, QUERY_CHARS, out)) {
+                return null;
+            }
+            position = queryEnd;
+        }
+        if (position < length) {
+            // fragment
+            out.append('#');
+            if (!appendEncoded(url, position + 1, length, QUERY_CHARS, out)) {
+                return null;
+            }
+        }
+        return out.toString();
+    }
+
+    private static boolean isSchemeChar(char c, int position) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+                || (position > 0 && ((c >= '0' && c <= '9') || c == '+' || c == '-' || c == '.'));
+    }
+
+    private static int defaultPort(CharSequence scheme) {
+        return switch (scheme.toString()) {
+            case "http" -> 80;
+            case "https" -> 443;
+            case "ftp" -> 21;
+            default -> -1;
+        };
+    }
+
+    private static boolean isAuthorityEnd(char c) {
+        return c == '/' || c == '?' || c == '#';
+    }
+
+    private static void lowerCase(StringBuilder out, int from) {
+        for (int i = from; i < out.length(); i++) {
+            out.setCharAt(i, Character.toLowerCase(out.charAt(i)));
+        }
+    }
+
+    /**
+     * Parses ":port" in url[colon, end). An empty port is the default port.
+     */
+    private static int parsePort(String url, int colon, int end, int defaultPort) {
+        int digits = end - colon - 1;
+        if (url.charAt(colon) != ':' || digits > 5) {
+            return -1;
+        }
+        if (digits == 0) {
+            return defaultPort;
+        }
+        int port = 0;
+        for (int i = colon + 1; i < end; i++) {
+            char c = url.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            port = port * 10 + (c - '0');
+        }
+        return port <= MAX_PORT ? port : -1;
+    }
+
+    /**
+     * Appends a lower-case host name or IPv4 address. Host names need a known TLD, as in commons-validator.
+     */
+    private static boolean appendHost(String url, int start, int end, StringBuilder out) {
+        boolean trailingDot = end > start && url.charAt(end - 1) == '.';
+        if (trailingDot) {
+            end--;
+        }
+        if (end <= start) {
+            return false;
+        }
+        String host = url.substring(start, end);
+        for (int i = 0; i < host.length(); i++) {
+            if (host.charAt(i) >= 128) {
+                try {
+                    host = IDN.toASCII(host);
+                } catch (IllegalArgumentException exception) {
+                    return false;
+                }
+                break;
+            }
+        }
+        if (host.length() > MAX_HOST_LENGTH) {
+            return false;
+        }
+
+        int hostStart = out.length();
+        int labelStart = hostStart;
+        boolean numeric = true;
+        for (int i = 0; i <= host.length(); i++) {
+            char c = i < host.length() ? Character.toLowerCase(host.charAt(i)) : '.';
+            if (c == '.') {
+                int labelLength = out.length() - labelStart;
+                if (labelLength == 0 || labelLength > MAX_LABEL_LENGTH
+                        || out.charAt(labelStart) == '-' || out.charAt(out.length() - 1) == '-') {
+                    return false;
+                }
+                if (i < host.length()) {
+                    out.append('.');
+                    labelStart = out.length();
+                }
+            } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-') {
+                numeric &= c >= '0' && c <= '9';
+                out.append(c);
+            } else {
+                return false;
+            }
+        }
+
+        if (numeric) {
+            return !trailingDot && isIpv4(out, hostStart);
+        }
+        String tld = out.substring(labelStart);
+        return out.indexOf(".", hostStart) >= 0
+                && Character.isLetter(tld.charAt(0))
+                && DomainValidator.getInstance().isValidTld(tld);
+    }
+
+    private static boolean isIpv4(CharSequence host, int start) {
+        int octets = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = start; i <= host.length(); i++) {
+            char c = i < host.length() ? host.charAt(i) : '.';
+            if (c == '.') {
+                if (digits == 0 || value > 255 || (digits > 1 && host.charAt(i - digits) == '0')) {
+                    return false;
+                }
+                octets++;
+                value = 0;
+                digits = 0;
+            } else {
+                value = value * 10 + (c - '0');
+                if (++digits > 3) {
+                    return false;
+                }
+            }
+        }
+        return octets == 4;
+    }
+
+    /**
+     * Appends the path from start up to '?', '#' or the end, resolving dot segments.
+     * Returns the position after the path, or -1 if the path is invalid.
+     */
+    private static int appendPath(String url, int start, StringBuilder out) {
+        int length = url.length();
+        int pathStart = out.length();
+        if (start == length || url.charAt(start) != '/') {
+            out.append('/');
+            return start;
+        }
+
+        int[] segmentStarts = new int[8];
+        int segments = 0;
+        int position = start;
+        while (position < length && url.charAt(position) == '/') {
+            position++;
+            int segmentStart = out.length();
+            out.append('/');
+            while (position < length) {
+                char c = url.charAt(position);
+                if (c == '/' || c == '?' || c == '#') {
+                    break;
+                }
+                if (c == '%') {
+                    if (!appendPercentEncoded(url, position, out)) {
+                        return -1;
+                    }
+                    position += 3;
+                } else if (isIn(PATH_CHARS, c)) {
+                    out.append(c);
+                    position++;
+                } else {
+                    return -1;
+                }
+            }
+            boolean last = position == length || url.charAt(position) != '/';
+            int segmentLength = out.length() - segmentStart - 1;
+
+            if (segmentLength == 0 && !last) {
+                // "//" inside the path, rejected like commons-validator does
+                return -1;
+            } else if (segmentLength == 1 && out.charAt(segmentStart + 1) == '.') {
+                out.setLength(segmentStart);
+                if (last) {
+                    out.append('/');
+                }
+            } else if (segmentLength == 2 && out.charAt(segmentStart + 1) == '.' && out.charAt(segmentStart + 2) == '.') {
+                if (segments == 0) {
+                    return -1;
+                }
+                out.setLength(segmentStarts[--segments]);
+                if (last) {
+                    out.append('/');
+                }
+            } else if (segmentLength > 0) {
+                if (segments == segmentStarts.length) {
+                    segmentStarts = Arrays.copyOf(segmentStarts, segments * 2);
+                }
+                segmentStarts[segments++] = segmentStart;
+            }
+        }
+        if (out.length() == pathStart) {
+            out.append('/');
+        }
+        return position;
+    }
+
+    /**
+     * Appends url[start, end) with normalized percent-encoding.
+     * ASCII characters must be in allowedChars. Non-ASCII characters are only allowed in the query and fragment,
+     * and must not be spaces or controls.
+     */
+    private static boolean appendEncoded(String url, int start, int end, boolean[] allowedChars, StringBuilder out) {
+        int position = start;
+        while (position < end) {
+            char c = url.charAt(position);
+            if (c == '%') {
+                if (position + 2 >= end || !appendPercentEncoded(url, position, out)) {
+                    return false;
+                }
+                position += 3;
+                continue;
+            }
+            boolean allowed = c < 128
+                    ? allowedChars[c]
+                    : allowedChars == QUERY_CHARS && !Character.isSpaceChar(c) && !Character.isISOControl(c);
+            if (!allowed) {
+                return false;
+            }
+            out.append(c);
+            position++;
+        }
+        return true;
+    }
+
+    private static boolean appendPercentEncoded(String url, int position, StringBuilder out) {
+        if (position + 2 >= url.length()) {
+            return false;
+        }
+        int high = Character.digit(url.charAt(position + 1), 16);
+        int low = Character.digit(url.charAt(position + 2), 16);
+        if (high < 0 || low < 0 || url.charAt(position + 1) > 'f' || url.charAt(position + 2) > 'f') {
+            return false;
+        }
+        char decoded = (char) (high << 4 | low);
+        if (isIn(UNRESERVED, decoded)) {
+            out.append(decoded);
+        } else {
+            out.append('%').append(HEX_DIGITS[high]).append(HEX_DIGITS[low]);
+        }
+        return true;
+    }
+}
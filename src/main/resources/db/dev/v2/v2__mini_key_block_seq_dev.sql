@@ -0,0 +1,3 @@
+-- Sequence leased in blocks by the "block" miniKey strategy (MINIURL_KEY_STRATEGY=block).
+-- Each value is one block of MINIURL_KEY_BLOCK_SIZE ids.
+CREATE SEQUENCE IF NOT EXISTS mini_key_block_seq START WITH 0 MINVALUE 0 INCREMENT BY 1;
@@ -0,0 +1,8 @@
+-- Click counts per miniKey and time bucket, written by ClickStatsService as batched upserts.
+-- No foreign key to mini_urls: stats are append-mostly and must not block deletes.
+CREATE TABLE IF NOT EXISTS mini_url_click_stats (
+    mini_key VARCHAR(32) NOT NULL,
+    bucket_start TIMESTAMPTZ NOT NULL,
+    clicks BIGINT NOT NULL,
+    PRIMARY KEY (mini_key, bucket_start)
+);
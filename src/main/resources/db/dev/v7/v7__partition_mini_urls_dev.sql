@@ -0,0 +1,93 @@
+-- Optional, after v6 and for the JPA backend only: partitions mini_urls by month of expires_at, so every row of a past
+-- month has expired and MiniUrlReaper drops its partition instead of deleting the rows one by one. Links that never
+-- expire, with a null expires_at, live in mini_urls_default and are never dropped. expires_at is set once on insert,
+-- an update never moves a row to another partition.
+-- Postgres only enforces unique keys that include the partition key, so the primary key on mini_key moves to a
+-- mini_keys table, kept by triggers on mini_urls in the same transaction as each insert and delete. An insert whose
+-- miniKey is already registered, in any month, is skipped like an ON CONFLICT DO NOTHING: a JPA save then fails on its
+-- row count, a write-behind drain logs it. Each partition also gets a unique index on mini_key for lookups, which
+-- cannot be pruned to one partition and probe the index of each of them.
+-- Creates a partition for every month since the oldest expiry and the next 3 months, MiniUrlReaper then keeps
+-- MINIURL_EXPIRY_PARTITIONS_AHEAD months ahead. Later expiries land in mini_urls_default until the reaper creates the
+-- partition of their month and moves them there.
+-- Copies the table in one transaction, which blocks writes to mini_urls until it commits.
+BEGIN;
+
+ALTER TABLE mini_urls RENAME TO mini_urls_unpartitioned;
+
+CREATE TABLE mini_urls (
+    mini_key VARCHAR(32) NOT NULL,
+    full_url TEXT NOT NULL,
+    full_url_hash UUID NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    expires_at TIMESTAMPTZ
+) PARTITION BY RANGE (expires_at);
+
+CREATE TABLE mini_urls_default PARTITION OF mini_urls DEFAULT;
+CREATE UNIQUE INDEX mini_urls_default_mini_key_idx ON mini_urls_default (mini_key);
+
+DO $$
+DECLARE
+    month_start TIMESTAMP;
+    partition_name TEXT;
+BEGIN
+    FOR month_start IN
+        SELECT generate_series(date_trunc('month', COALESCE(oldest, NOW()) AT TIME ZONE 'UTC'),
+                               date_trunc('month', NOW() AT TIME ZONE 'UTC') + INTERVAL '3 months',
+                               INTERVAL '1 month')
+        FROM (SELECT MIN(expires_at) AS oldest FROM mini_urls_unpartitioned) AS bounds
+    LOOP
+        partition_name := 'mini_urls_p' || to_char(month_start, 'YYYYMM');
+        EXECUTE format('CREATE TABLE %I PARTITION OF mini_urls FOR VALUES FROM (%L) TO (%L)', partition_name,
+                       month_start AT TIME ZONE 'UTC', (month_start + INTERVAL '1 month') AT TIME ZONE 'UTC');
+        EXECUTE format('CREATE UNIQUE INDEX %I ON %I (mini_key)', partition_name || '_mini_key_idx', partition_name);
+    END LOOP;
+END $$;
+
+CREATE TABLE mini_keys (
+    mini_key VARCHAR(32) PRIMARY KEY
+);
+
+CREATE FUNCTION mini_urls_register_mini_key() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO mini_keys (mini_key) VALUES (NEW.mini_key) ON CONFLICT DO NOTHING;
+    IF NOT FOUND THEN
+        RETURN NULL;
+    END IF;
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION mini_urls_release_mini_key() RETURNS trigger AS $$
+BEGIN
+    DELETE FROM mini_keys WHERE mini_key = OLD.mini_key;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+-- Moving a row to another partition would re-register its own miniKey and drop it
+CREATE FUNCTION mini_urls_keep_mini_key() RETURNS trigger AS $$
+BEGIN
+    RAISE EXCEPTION 'mini_key and expires_at cannot be updated' USING ERRCODE = 'restrict_violation';
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER mini_urls_register_mini_key BEFORE INSERT ON mini_urls
+    FOR EACH ROW EXECUTE FUNCTION mini_urls_register_mini_key();
+CREATE TRIGGER mini_urls_release_mini_key AFTER DELETE ON mini_urls
+    FOR EACH ROW EXECUTE FUNCTION mini_urls_release_mini_key();
+CREATE TRIGGER mini_urls_keep_mini_key BEFORE UPDATE OF mini_key, expires_at ON mini_urls
+    FOR EACH ROW WHEN (OLD.mini_key IS DISTINCT FROM NEW.mini_key OR OLD.expires_at IS DISTINCT FROM NEW.expires_at)
+    EXECUTE FUNCTION mini_urls_keep_mini_key();
+
+INSERT INTO mini_urls (mini_key, full_url, full_url_hash, created_at, updated_at, expires_at)
+SELECT mini_key, full_url, full_url_hash, created_at, updated_at, expires_at FROM mini_urls_unpartitioned;
+
+DROP TABLE mini_urls_unpartitioned;
+
+-- Created on every partition, the current ones and those attached later
+CREATE INDEX idx_mini_urls_full_url_hash ON mini_urls(full_url_hash);
+CREATE INDEX idx_mini_urls_expires_at ON mini_urls(expires_at) WHERE expires_at IS NOT NULL;
+
+COMMIT;
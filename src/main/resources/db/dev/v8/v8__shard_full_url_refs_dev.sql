@@ -0,0 +1,9 @@
+-- Only needed on the databases listed in MINIURL_SHARD_URLS, after v1 and v3 created mini_urls there.
+-- ShardedMiniUrlStore looks up a fullUrl on the shard its hash picks. A miniKey stored on another shard, because its
+-- fullUrl was updated or it was created before sharding, is listed here on the shard of its fullUrl. Entries whose
+-- miniKey was deleted or points elsewhere meanwhile are skipped by lookups and pruned by rebalances.
+CREATE TABLE IF NOT EXISTS mini_url_full_url_refs (
+    full_url_hash UUID NOT NULL,
+    mini_key VARCHAR(32) NOT NULL,
+    PRIMARY KEY (full_url_hash, mini_key)
+);
@@ -0,0 +1,15 @@
+-- Fixed-width digest of full_url used for dedupe lookups.
+-- full_url_hash holds the first 128 bits of SHA-256(full_url), the same value MiniUrl.hashFullUrl computes.
+-- The index is not unique: PUT may point several miniKeys at the same full URL.
+ALTER TABLE mini_urls ADD COLUMN IF NOT EXISTS full_url_hash UUID;
+
+UPDATE mini_urls
+SET full_url_hash = CAST(substring(encode(sha256(convert_to(full_url, 'UTF8')), 'hex') FROM 1 FOR 32) AS UUID)
+WHERE full_url_hash IS NULL;
+
+ALTER TABLE mini_urls ALTER COLUMN full_url_hash SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_mini_urls_full_url_hash ON mini_urls(full_url_hash);
+
+-- The B-tree over the TEXT column is no longer used and fails for very long URLs.
+DROP INDEX IF EXISTS idx_mini_urls_full_url;
@@ -0,0 +1,4 @@
+-- Only needed on the databases listed in MINIURL_SHARD_URLS, after v1 and v3 created mini_urls there.
+-- ShardedMiniUrlStore pages and exports each shard in byte order of mini_key, so shards merge in the same order
+-- whatever their collation. This index serves those keyset scans.
+CREATE INDEX IF NOT EXISTS idx_mini_urls_mini_key_c ON mini_urls (mini_key COLLATE "C");
@@ -0,0 +1,6 @@
+-- Optional expiry of a link, null when it never expires. Expired links are not served, and MiniUrlReaper deletes them.
+-- The partial index serves the reaper's batched deletes without indexing the links that never expire.
+-- Also run on the databases listed in MINIURL_SHARD_URLS.
+ALTER TABLE mini_urls ADD COLUMN IF NOT EXISTS expires_at TIMESTAMPTZ;
+
+CREATE INDEX IF NOT EXISTS idx_mini_urls_expires_at ON mini_urls(expires_at) WHERE expires_at IS NOT NULL;
@@ -0,0 +1,82 @@
+package com.desireevaldes.miniurl.config;
+
+import com.desireevaldes.miniurl.dto.MiniUrlResponseDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.netty.NettyWebServer;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the reactive stack on Netty against the test database, with JPA still available to the shared beans.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive")
+public class ReactiveStackConfigTest {
+
+    @Autowired
+    private ReactiveWebServerApplicationContext applicationContext;
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    public void testServesOnNetty() {
+        assertInstanceOf(NettyWebServer.class, applicationContext.getWebServer());
+    }
+
+    @Test
+    public void testCreateRedirectUpdateDelete() {
+        String fullUrl = "https://example.com/" + UUID.randomUUID();
+        MiniUrlResponseDto created = webTestClient.post().uri("/api/v1/miniurls")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("fullUrl", fullUrl))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(MiniUrlResponseDto.class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(created);
+        String miniKey = created.getMiniKey();
+
+        webTestClient.post().uri("/api/v1/miniurls")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("fullUrl", fullUrl))
+                .exchange()
+                .expectBody()
+                .jsonPath("$.miniKey").isEqualTo(miniKey);
+        webTestClient.get().uri("/" + miniKey)
+                .exchange()
+                .expectStatus().isFound()
+                .expectHeader().valueEquals("Location", fullUrl);
+
+        webTestClient.put().uri("/api/v1/miniurls/" + miniKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("fullUrl", fullUrl + "/updated"))
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.get().uri("/" + miniKey)
+                .exchange()
+                .expectHeader().valueEquals("Location", fullUrl + "/updated");
+
+        webTestClient.delete().uri("/api/v1/miniurls/" + miniKey)
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.get().uri("/api/v1/miniurls/" + miniKey)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void testExposesHealth() {
+        webTestClient.get().uri("/actuator/health")
+                .exchange()
+                .expectStatus().isOk();
+    }
+}
@@ -0,0 +1,66 @@
+package com.desireevaldes.miniurl.config;
+
+import com.desireevaldes.miniurl.models.MiniUrl;
+import com.desireevaldes.miniurl.repositories.MiniUrlStore;
+import com.desireevaldes.miniurl.services.MiniUrlService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs against the test database, with a second pool on the same database standing in for a replica.
+ */
+@SpringBootTest(properties = {"MINIURL_REPLICA_URLS=${DB_URL}", "MINIURL_REPLICA_MAX_LAG_MS=0"})
+public class ReplicaDataSourceConfigTest {
+
+    @Autowired
+    private MiniUrlService miniUrlService;
+    @Autowired
+    private MiniUrlStore miniUrlStore;
+    @Autowired
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Test
+    public void testLookupsGoToReplicaAndWritesToPrimary() throws Exception {
+        MeteredDataSource primary = replicaRoutingDataSource.getDataSources().get(0);
+        MeteredDataSource replica = replicaRoutingDataSource.getDataSources().get(1);
+        long replicaConnections = replica.getConnectionCount();
+
+        MiniUrl miniUrl = miniUrlService.getOrCreateMiniUrlAsync("https://example.com/" + UUID.randomUUID()).get();
+        try {
+            assertEquals(replicaConnections, replica.getConnectionCount(), "Creates must only use the primary");
+            long primaryConnections = primary.getConnectionCount();
+
+            assertEquals(miniUrl.getFullUrl(), miniUrlService.resolveFullUrl(miniUrl.getMiniKey()));
+
+            assertEquals(replicaConnections + 1, replica.getConnectionCount());
+            assertEquals(primaryConnections, primary.getConnectionCount());
+        } finally {
+            miniUrlStore.deleteById(miniUrl.getMiniKey());
+        }
+    }
+
+    @Test
+    public void testReplicaUrlsConditionAcceptsAnyUrl() {
+        assertTrue(replicaUrlsMatch("jdbc:postgresql://replica:5432/miniurl?options=-c%20search_path='mini'"));
+        assertFalse(replicaUrlsMatch(" "));
+        assertFalse(replicaUrlsMatch(null));
+    }
+
+    private static boolean replicaUrlsMatch(String replicaUrls) {
+        MockEnvironment environment = new MockEnvironment();
+        if (replicaUrls != null) {
+            environment.setProperty("MINIURL_REPLICA_URLS", replicaUrls);
+        }
+        ConditionContext context = mock(ConditionContext.class);
+        when(context.getEnvironment()).thenReturn(environment);
+        return new ReplicaDataSourceConfig.ReplicaUrlsCondition().getMatchOutcome(context, null).isMatch();
+    }
+}
@@ -0,0 +1,134 @@
+package com.desireevaldes.miniurl.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private static DataSource embeddedDatabase(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(32))");
+        jdbcTemplate.execute("DELETE FROM node");
+        jdbcTemplate.update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+
+    private static final class Routing {
+        private final ReplicaRoutingDataSource routingDataSource;
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate readWriteTransaction;
+        private final TransactionTemplate readOnlyTransaction;
+
+        private Routing(DataSource... replicas) {
+            List<MeteredDataSource> meteredReplicas = new ArrayList<>();
+            for (DataSource replica : replicas) {
+                meteredReplicas.add(new MeteredDataSource("replica-" + (meteredReplicas.size() + 1), replica));
+            }
+            routingDataSource = new ReplicaRoutingDataSource(
+                    new MeteredDataSource("primary", embeddedDatabase("primary")), meteredReplicas, 1);
+            LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource.getPrimary());
+            dataSource.setReadOnlyDataSource(routingDataSource);
+            jdbcTemplate = new JdbcTemplate(dataSource);
+            readWriteTransaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            readOnlyTransaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            readOnlyTransaction.setReadOnly(true);
+        }
+
+        private String readNode(TransactionTemplate transaction) {
+            return transaction.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+        }
+    }
+
+    @Test
+    public void testReadOnlyTransactionsGoToReplica() {
+        Routing routing = new Routing(embeddedDatabase("replica"));
+
+        assertEquals("replica", routing.readNode(routing.readOnlyTransaction));
+        assertEquals("primary", routing.readNode(routing.readWriteTransaction));
+        assertEquals("primary", routing.jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    @Test
+    public void testRunOnPrimaryOverridesReadOnlyRouting() {
+        Routing routing = new Routing(embeddedDatabase("replica"));
+
+        assertEquals("primary", ReplicaRoutingDataSource.runOnPrimary(() -> routing.readNode(routing.readOnlyTransaction)));
+        assertFalse(ReplicaRoutingDataSource.isPrimaryForced());
+    }
+
+    @Test
+    public void testBalancesReadsOverReplicas() {
+        Routing routing = new Routing(embeddedDatabase("replicaA"), embeddedDatabase("replicaB"));
+
+        List<String> nodes = List.of(routing.readNode(routing.readOnlyTransaction), routing.readNode(routing.readOnlyTransaction));
+
+        assertTrue(nodes.containsAll(List.of("replicaA", "replicaB")), "Both replicas should serve reads, was " + nodes);
+    }
+
+    @Test
+    public void testFallsBackToPrimaryUntilFailedReplicaIsHealthyAgain() throws Exception {
+        DataSource replica = embeddedDatabase("replica");
+        DataSource flakyReplica = mock(DataSource.class);
+        when(flakyReplica.getConnection())
+                .thenThrow(new SQLException("Connection refused"))
+                .thenAnswer(invocation -> replica.getConnection());
+        Routing routing = new Routing(flakyReplica);
+        MeteredDataSource meteredReplica = routing.routingDataSource.getDataSources().get(1);
+
+        assertEquals("primary", routing.readNode(routing.readOnlyTransaction));
+        assertFalse(meteredReplica.isHealthy());
+        assertEquals(1, meteredReplica.getFailureCount());
+        assertEquals("primary", routing.readNode(routing.readOnlyTransaction), "Unhealthy replicas are skipped");
+
+        routing.routingDataSource.checkHealth();
+
+        assertTrue(meteredReplica.isHealthy());
+        assertEquals("replica", routing.readNode(routing.readOnlyTransaction));
+    }
+
+    @Test
+    public void testRecordsConnectionsPerDataSource() {
+        Routing routing = new Routing(embeddedDatabase("replica"));
+        List<MeteredDataSource> dataSources = routing.routingDataSource.getDataSources();
+        // The lazy proxy takes a primary connection once to read the default connection settings
+        routing.readNode(routing.readWriteTransaction);
+        long primaryConnections = dataSources.get(0).getConnectionCount();
+
+        routing.readNode(routing.readOnlyTransaction);
+        routing.readNode(routing.readOnlyTransaction);
+        routing.readNode(routing.readWriteTransaction);
+
+        assertEquals(primaryConnections + 1, dataSources.get(0).getConnectionCount());
+        assertEquals(2, dataSources.get(1).getConnectionCount());
+        assertTrue(dataSources.get(1).getMaxMillis() >= dataSources.get(1).getMeanMillis());
+    }
+
+    @Test
+    public void testPropagatesPrimaryForcedToTasks() throws Exception {
+        try (var executor = Executors.newSingleThreadExecutor()) {
+            CompletableFuture<Boolean> forcedInTask = new CompletableFuture<>();
+            Runnable task = ReplicaRoutingDataSource.runOnPrimary(() -> ReplicaRoutingDataSource.propagatePrimaryForced(
+                    () -> forcedInTask.complete(ReplicaRoutingDataSource.isPrimaryForced())));
+
+            executor.execute(task);
+
+            assertTrue(forcedInTask.get());
+        }
+    }
+}
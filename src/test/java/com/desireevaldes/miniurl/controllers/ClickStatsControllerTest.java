@@ -0,0 +1,73 @@
+package com.desireevaldes.miniurl.controllers;
+
+import com.desireevaldes.miniurl.api.v1.ClickStatsController;
+import com.desireevaldes.miniurl.models.MiniUrlClickStats;
+import com.desireevaldes.miniurl.services.ClickStatsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ClickStatsController.class)
+public class ClickStatsControllerTest {
+
+    private static final String MINI_KEY = "abc1234";
+
+    @MockitoBean
+    private ClickStatsService mockClickStatsService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private static MiniUrlClickStats clickStats(String bucketStart, long clicks) {
+        MiniUrlClickStats stats = new MiniUrlClickStats();
+        stats.setMiniKey(MINI_KEY);
+        stats.setBucketStart(Instant.parse(bucketStart));
+        stats.setClicks(clicks);
+        return stats;
+    }
+
+    @Test
+    public void testGetClickStats() throws Exception {
+        Instant from = Instant.parse("2025-01-01T00:00:00Z");
+        Instant to = Instant.parse("2025-01-02T00:00:00Z");
+        when(mockClickStatsService.getClickStatsAsync(MINI_KEY, from, to))
+                .thenReturn(CompletableFuture.completedFuture(List.of(
+                        clickStats("2025-01-01T10:00:00Z", 3),
+                        clickStats("2025-01-01T10:01:00Z", 4))));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/v1/miniurls/" + MINI_KEY + "/stats")
+                        .param("from", from.toString())
+                        .param("to", to.toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.miniKey").value(MINI_KEY))
+                .andExpect(jsonPath("$.totalClicks").value(7))
+                .andExpect(jsonPath("$.buckets.length()").value(2))
+                .andExpect(jsonPath("$.buckets[1].clicks").value(4));
+    }
+
+    @Test
+    public void testGetClickStats_RejectsEmptyWindow() throws Exception {
+        mockMvc.perform(get("/api/v1/miniurls/" + MINI_KEY + "/stats")
+                        .param("from", "2025-01-02T00:00:00Z")
+                        .param("to", "2025-01-01T00:00:00Z"))
+                .andExpect(status().isBadRequest());
+
+        verify(mockClickStatsService, never()).getClickStatsAsync(any(), any(), any());
+    }
+}
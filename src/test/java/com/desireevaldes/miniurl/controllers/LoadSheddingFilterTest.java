@@ -0,0 +1,101 @@
+package com.desireevaldes.miniurl.controllers;
+
+import com.desireevaldes.miniurl.api.RedirectController;
+import com.desireevaldes.miniurl.api.v1.MetricsController;
+import com.desireevaldes.miniurl.api.v1.MiniUrlController;
+import com.desireevaldes.miniurl.services.MiniUrlCache;
+import com.desireevaldes.miniurl.services.MiniUrlMetrics;
+import com.desireevaldes.miniurl.services.MiniUrlService;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = {MiniUrlController.class, RedirectController.class, MetricsController.class},
+        properties = {"MINIURL_LOAD_SHEDDING_ENABLED=true", "MINIURL_LOAD_SHEDDING_QUEUE_THRESHOLD=10",
+                "MINIURL_LOAD_SHEDDING_RESOLVE_HEADROOM=4"})
+public class LoadSheddingFilterTest {
+
+    private static final String MINI_KEY = "abc1234";
+    private static final String ORIGINAL_URL = "https://example.com";
+
+    @MockitoBean
+    private MiniUrlService mockMiniUrlService;
+    @MockitoBean
+    private MiniUrlCache mockMiniUrlCache;
+    @MockitoBean
+    private MiniUrlMetrics mockMiniUrlMetrics;
+    @MockitoBean(name = "applicationTaskExecutor")
+    private ThreadPoolTaskExecutor mockExecutor;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void testServesEverythingBelowThresholds() throws Exception {
+        when(mockExecutor.getQueueSize()).thenReturn(10);
+        when(mockMiniUrlService.resolveFullUrl(MINI_KEY)).thenReturn(ORIGINAL_URL);
+        when(mockMiniUrlService.getOrCreateMiniUrlAsync(ORIGINAL_URL, null)).thenReturn(new CompletableFuture<>());
+
+        mockMvc.perform(get("/" + MINI_KEY))
+                .andExpect(status().isFound());
+        mockMvc.perform(post("/api/v1/miniurls")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fullUrl\": \"" + ORIGINAL_URL + "\"}"))
+                .andExpect(request().asyncStarted());
+
+        verifyNoInteractions(mockMiniUrlMetrics);
+    }
+
+    @Test
+    public void testShedsCreatesAndListingsBeforeResolves() throws Exception {
+        when(mockExecutor.getQueueSize()).thenReturn(11);
+        when(mockMiniUrlService.resolveFullUrl(MINI_KEY)).thenReturn(ORIGINAL_URL);
+
+        mockMvc.perform(post("/api/v1/miniurls")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fullUrl\": \"" + ORIGINAL_URL + "\"}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+        mockMvc.perform(get("/api/v1/miniurls"))
+                .andExpect(status().isServiceUnavailable());
+        mockMvc.perform(get("/" + MINI_KEY))
+                .andExpect(status().isFound());
+
+        verify(mockMiniUrlService, never()).getOrCreateMiniUrlAsync(any(), any());
+        verify(mockMiniUrlMetrics, times(2)).recordRejection(MiniUrlMetrics.SHED, "other");
+    }
+
+    @Test
+    public void testShedsResolvesAboveTheirHeadroom() throws Exception {
+        when(mockExecutor.getQueueSize()).thenReturn(41);
+
+        mockMvc.perform(get("/" + MINI_KEY))
+                .andExpect(status().isServiceUnavailable());
+        mockMvc.perform(get("/api/v1/miniurls/" + MINI_KEY))
+                .andExpect(status().isServiceUnavailable());
+
+        verifyNoInteractions(mockMiniUrlService);
+        verify(mockMiniUrlMetrics, times(2)).recordRejection(MiniUrlMetrics.SHED, "resolve");
+    }
+
+    @Test
+    public void testNeverShedsMetrics() throws Exception {
+        when(mockMiniUrlCache.stats()).thenReturn(CacheStats.empty());
+
+        mockMvc.perform(get("/api/v1/metrics/cache"))
+                .andExpect(status().isOk());
+
+        verifyNoInteractions(mockExecutor);
+    }
+}
@@ -0,0 +1,45 @@
+package com.desireevaldes.miniurl.controllers;
+
+import com.desireevaldes.miniurl.api.v1.MetricsController;
+import com.desireevaldes.miniurl.services.MiniUrlCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(MetricsController.class)
+public class MetricsControllerTest {
+
+    @MockitoBean
+    private MiniUrlCache mockMiniUrlCache;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void testGetCacheStats() throws Exception {
+        when(mockMiniUrlCache.stats()).thenReturn(CacheStats.of(8, 2, 0, 0, 0, 1, 0));
+        when(mockMiniUrlCache.estimatedSize()).thenReturn(5L);
+
+        mockMvc.perform(get("/api/v1/metrics/cache"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hitCount").value(8))
+                .andExpect(jsonPath("$.missCount").value(2))
+                .andExpect(jsonPath("$.evictionCount").value(1))
+                .andExpect(jsonPath("$.estimatedSize").value(5))
+                .andExpect(jsonPath("$.hitRate").value(0.8));
+    }
+
+    @Test
+    public void testGetDataSourceStatsWithoutReplicas() throws Exception {
+        mockMvc.perform(get("/api/v1/metrics/datasources"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+    }
+}
@@ -2,6 +2,8 @@ package com.desireevaldes.miniurl.controllers;
 
 import com.desireevaldes.miniurl.api.v1.MiniUrlController;
 import com.desireevaldes.miniurl.dto.MiniUrlRequestDto;
+import com.desireevaldes.miniurl.exceptions.MiniKeyGenerationException;
+import com.desireevaldes.miniurl.exceptions.MiniUrlUnavailableException;
 import com.desireevaldes.miniurl.exceptions.MiniUrlNotFoundException;
 import com.desireevaldes.miniurl.models.MiniUrl;
 import com.desireevaldes.miniurl.services.MiniUrlService;
@@ -20,6 +22,7 @@ import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.*;
 import static org.mockito.Mockito.*;
@@ -52,7 +55,7 @@ public class MiniUrlControllerTest {
         miniUrl.setCreatedAt(Instant.now());
         miniUrl.setUpdatedAt(Instant.now());
 
-        when(mockMiniUrlService.getOrCreateMiniUrlAsync(ORIGINAL_URL))
+        when(mockMiniUrlService.getOrCreateMiniUrlAsync(ORIGINAL_URL, null))
                 .thenReturn(CompletableFuture.completedFuture(miniUrl));
 
         MvcResult mvcResult = mockMvc.perform(post("/api/v1/miniurls")
@@ -67,6 +70,79 @@ public class MiniUrlControllerTest {
                 .andExpect(jsonPath("$.fullUrl").value(miniUrl.getFullUrl()));
     }
 
+    @Test
+    public void testCreateExpiringMiniUrl() throws Exception {
+        Instant expiresAt = Instant.parse("2030-01-01T00:00:00Z");
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(MINI_KEY);
+        miniUrl.setFullUrl(ORIGINAL_URL);
+        miniUrl.setExpiresAt(expiresAt);
+
+        when(mockMiniUrlService.getOrCreateMiniUrlAsync(ORIGINAL_URL, expiresAt))
+                .thenReturn(CompletableFuture.completedFuture(miniUrl));
+
+        MvcResult mvcResult = mockMvc.perform(post("/api/v1/miniurls")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(readJson("miniurl-create-expiring.json")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.miniKey").value(MINI_KEY))
+                .andExpect(jsonPath("$.expiresAt").value("2030-01-01T00:00:00Z"));
+    }
+
+    @Test
+    public void testCreateMiniUrl_KeyGenerationExhausted() throws Exception {
+        when(mockMiniUrlService.getOrCreateMiniUrlAsync(ORIGINAL_URL, null))
+                .thenReturn(CompletableFuture.failedFuture(new MiniKeyGenerationException("Could not generate a unique miniKey")));
+
+        MvcResult mvcResult = mockMvc.perform(post("/api/v1/miniurls")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(readJson("miniurl-create.json")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    public void testCreateMiniUrls() throws Exception {
+        MiniUrl miniUrl1 = new MiniUrl();
+        miniUrl1.setMiniKey(MINI_KEY);
+        miniUrl1.setFullUrl(ORIGINAL_URL);
+
+        MiniUrl miniUrl2 = new MiniUrl();
+        miniUrl2.setMiniKey("zyx1234");
+        miniUrl2.setFullUrl(UPDATED_URL);
+
+        when(mockMiniUrlService.getOrCreateMiniUrlsAsync(List.of(ORIGINAL_URL, UPDATED_URL, ORIGINAL_URL)))
+                .thenReturn(CompletableFuture.completedFuture(List.of(miniUrl1, miniUrl2, miniUrl1)));
+
+        MvcResult mvcResult = mockMvc.perform(post("/api/v1/miniurls/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(readJson("miniurl-batch-create.json")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].miniKey", is(MINI_KEY)))
+                .andExpect(jsonPath("$[1].miniKey", is("zyx1234")))
+                .andExpect(jsonPath("$[2].miniKey", is(MINI_KEY)));
+    }
+
+    @Test
+    public void testCreateMiniUrls_EmptyBatch() throws Exception {
+        mockMvc.perform(post("/api/v1/miniurls/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fullUrls\": []}"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testGetMiniUrl() throws Exception {
         MiniUrl existingMiniUrl = new MiniUrl();
@@ -117,6 +193,21 @@ public class MiniUrlControllerTest {
                 .andExpect(jsonPath("$.fullUrl").value(updatedMiniUrl.getFullUrl()));
     }
 
+    @Test
+    public void testUpdateMiniUrl_Unavailable() throws Exception {
+        when(mockMiniUrlService.updateMiniUrlAsync(MINI_KEY, UPDATED_URL))
+                .thenReturn(CompletableFuture.failedFuture(new MiniUrlUnavailableException("Retry the request")));
+
+        MvcResult mvcResult = mockMvc.perform(put("/api/v1/miniurls/" + MINI_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(readJson("miniurl-update.json")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isServiceUnavailable());
+    }
+
     @Test
     public void testDeleteMiniUrl() throws Exception {
         MiniUrl existingMiniUrl = new MiniUrl();
@@ -138,7 +229,7 @@ public class MiniUrlControllerTest {
 
     @Test
     public void testGetAllMiniUrls_Empty() throws Exception {
-        when(mockMiniUrlService.getAllMiniUrlsAsync())
+        when(mockMiniUrlService.getMiniUrlsPageAsync(null, 100))
                 .thenReturn(CompletableFuture.completedFuture(List.of()));
 
         MvcResult mvcResult = mockMvc.perform(get("/api/v1/miniurls"))
@@ -167,7 +258,7 @@ public class MiniUrlControllerTest {
 
         List<MiniUrl> allMiniUrls = List.of(miniUrl1, miniUrl2);
 
-        when(mockMiniUrlService.getAllMiniUrlsAsync())
+        when(mockMiniUrlService.getMiniUrlsPageAsync(null, 100))
                 .thenReturn(CompletableFuture.completedFuture(allMiniUrls));
 
         MvcResult mvcResult = mockMvc.perform(get("/api/v1/miniurls"))
@@ -176,6 +267,7 @@ public class MiniUrlControllerTest {
 
         mockMvc.perform(asyncDispatch(mvcResult))
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(jsonPath("$[0].miniKey", is(MINI_KEY)))
                 .andExpect(jsonPath("$[0].fullUrl", is(ORIGINAL_URL)))
@@ -183,6 +275,60 @@ public class MiniUrlControllerTest {
                 .andExpect(jsonPath("$[1].fullUrl", is("https://bing.com")));
     }
 
+    @Test
+    public void testGetAllMiniUrls_FullPageReturnsNextCursor() throws Exception {
+        MiniUrl miniUrl1 = new MiniUrl();
+        miniUrl1.setMiniKey(MINI_KEY);
+        miniUrl1.setFullUrl(ORIGINAL_URL);
+
+        MiniUrl miniUrl2 = new MiniUrl();
+        miniUrl2.setMiniKey("zyx1234");
+        miniUrl2.setFullUrl("https://bing.com");
+
+        when(mockMiniUrlService.getMiniUrlsPageAsync("aaa1234", 2))
+                .thenReturn(CompletableFuture.completedFuture(List.of(miniUrl1, miniUrl2)));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/v1/miniurls")
+                        .param("after", "aaa1234")
+                        .param("size", "2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "zyx1234"))
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    public void testExportMiniUrls() throws Exception {
+        MiniUrl miniUrl1 = new MiniUrl();
+        miniUrl1.setMiniKey(MINI_KEY);
+        miniUrl1.setFullUrl(ORIGINAL_URL);
+
+        MiniUrl miniUrl2 = new MiniUrl();
+        miniUrl2.setMiniKey("zyx1234");
+        miniUrl2.setFullUrl("https://bing.com");
+
+        doAnswer(invocation -> {
+            Consumer<MiniUrl> consumer = invocation.getArgument(0);
+            consumer.accept(miniUrl1);
+            consumer.accept(miniUrl2);
+            return null;
+        }).when(mockMiniUrlService).exportMiniUrls(any());
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/v1/miniurls/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        "{\"miniKey\":\"abc1234\",\"fullUrl\":\"https://example.com\",\"createdAt\":null,\"updatedAt\":null,\"expiresAt\":null}\n"
+                                + "{\"miniKey\":\"zyx1234\",\"fullUrl\":\"https://bing.com\",\"createdAt\":null,\"updatedAt\":null,\"expiresAt\":null}\n"));
+    }
+
     @Test
     public void testGetMiniUrl_NotFound() throws Exception {
         String notFoundMiniKey = "doesnotexist";
@@ -220,7 +366,7 @@ public class MiniUrlControllerTest {
         MiniUrlRequestDto requestDto = new MiniUrlRequestDto();
         requestDto.setFullUrl(invalidUrl);
 
-        when(mockMiniUrlService.getOrCreateMiniUrlAsync(invalidUrl))
+        when(mockMiniUrlService.getOrCreateMiniUrlAsync(invalidUrl, null))
                 .thenReturn(CompletableFuture.failedFuture(new IllegalArgumentException("Invalid URL")));
 
         MvcResult mvcResult = mockMvc.perform(post("/api/v1/miniurls")
@@ -0,0 +1,73 @@
+package com.desireevaldes.miniurl.controllers;
+
+import com.desireevaldes.miniurl.api.RedirectController;
+import com.desireevaldes.miniurl.api.v1.MiniUrlController;
+import com.desireevaldes.miniurl.models.MiniUrl;
+import com.desireevaldes.miniurl.services.MiniUrlMetrics;
+import com.desireevaldes.miniurl.services.MiniUrlService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = {MiniUrlController.class, RedirectController.class},
+        properties = {"MINIURL_RATE_LIMIT_ENABLED=true", "MINIURL_RATE_LIMIT_PER_SECOND=0.01", "MINIURL_RATE_LIMIT_BURST=2"})
+public class RateLimitFilterTest {
+
+    private static final String MINI_KEY = "abc1234";
+    private static final String ORIGINAL_URL = "https://example.com";
+
+    @MockitoBean
+    private MiniUrlService mockMiniUrlService;
+    @MockitoBean
+    private MiniUrlMetrics mockMiniUrlMetrics;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void testLimitsEachClientToItsBurst() throws Exception {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(MINI_KEY);
+        miniUrl.setFullUrl(ORIGINAL_URL);
+        when(mockMiniUrlService.getMiniUrlByMiniKey(MINI_KEY)).thenReturn(CompletableFuture.completedFuture(miniUrl));
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/api/v1/miniurls/" + MINI_KEY).with(request -> withRemoteAddr(request, "10.0.0.1")))
+                    .andExpect(request().asyncStarted());
+        }
+        mockMvc.perform(get("/api/v1/miniurls/" + MINI_KEY).with(request -> withRemoteAddr(request, "10.0.0.1")))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "100"));
+        mockMvc.perform(get("/api/v1/miniurls/" + MINI_KEY).with(request -> withRemoteAddr(request, "10.0.0.2")))
+                .andExpect(request().asyncStarted());
+
+        verify(mockMiniUrlService, times(3)).getMiniUrlByMiniKey(MINI_KEY);
+        verify(mockMiniUrlMetrics).recordRejection(MiniUrlMetrics.RATE_LIMITED, "resolve");
+    }
+
+    @Test
+    public void testDoesNotLimitRedirects() throws Exception {
+        when(mockMiniUrlService.resolveFullUrl(MINI_KEY)).thenReturn(ORIGINAL_URL);
+
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(get("/" + MINI_KEY).with(request -> withRemoteAddr(request, "10.0.0.3")))
+                    .andExpect(status().isFound());
+        }
+
+        verifyNoInteractions(mockMiniUrlMetrics);
+    }
+
+    private static MockHttpServletRequest withRemoteAddr(MockHttpServletRequest request, String remoteAddr) {
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+}
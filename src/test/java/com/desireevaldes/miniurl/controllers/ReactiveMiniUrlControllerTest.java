@@ -0,0 +1,162 @@
+package com.desireevaldes.miniurl.controllers;
+
+import com.desireevaldes.miniurl.api.v1.ReactiveMiniUrlController;
+import com.desireevaldes.miniurl.exceptions.MiniKeyGenerationException;
+import com.desireevaldes.miniurl.exceptions.MiniUrlNotFoundException;
+import com.desireevaldes.miniurl.models.MiniUrl;
+import com.desireevaldes.miniurl.services.ReactiveMiniUrlService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@WebFluxTest(ReactiveMiniUrlController.class)
+public class ReactiveMiniUrlControllerTest {
+
+    private static final String MINI_KEY = "abc1234";
+    private static final String ORIGINAL_URL = "https://example.com";
+    private static final String UPDATED_URL = "https://news.com";
+
+    @MockitoBean
+    private ReactiveMiniUrlService mockMiniUrlService;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    private String readJson(String filename) throws Exception {
+        return new String(Files.readAllBytes(Paths.get("src/test/resources/json/" + filename)));
+    }
+
+    private static MiniUrl miniUrl(String miniKey, String fullUrl) {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(miniKey);
+        miniUrl.setFullUrl(fullUrl);
+        miniUrl.setCreatedAt(Instant.now());
+        miniUrl.setUpdatedAt(Instant.now());
+        return miniUrl;
+    }
+
+    @Test
+    public void testCreateMiniUrl() throws Exception {
+        when(mockMiniUrlService.getOrCreateMiniUrl(ORIGINAL_URL, null)).thenReturn(Mono.just(miniUrl(MINI_KEY, ORIGINAL_URL)));
+
+        webTestClient.post().uri("/api/v1/miniurls")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(readJson("miniurl-create.json"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.miniKey").isEqualTo(MINI_KEY)
+                .jsonPath("$.fullUrl").isEqualTo(ORIGINAL_URL);
+    }
+
+    @Test
+    public void testCreateMiniUrl_Invalid() throws Exception {
+        webTestClient.post().uri("/api/v1/miniurls")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{}")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verifyNoInteractions(mockMiniUrlService);
+    }
+
+    @Test
+    public void testCreateMiniUrl_KeyGenerationExhausted() throws Exception {
+        when(mockMiniUrlService.getOrCreateMiniUrl(ORIGINAL_URL, null))
+                .thenReturn(Mono.error(new MiniKeyGenerationException("Keyspace is crowded")));
+
+        webTestClient.post().uri("/api/v1/miniurls")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(readJson("miniurl-create.json"))
+                .exchange()
+                .expectStatus().isEqualTo(503);
+    }
+
+    @Test
+    public void testCreateMiniUrls() throws Exception {
+        MiniUrl miniUrl = miniUrl(MINI_KEY, ORIGINAL_URL);
+        when(mockMiniUrlService.getOrCreateMiniUrls(List.of(ORIGINAL_URL, UPDATED_URL, ORIGINAL_URL)))
+                .thenReturn(Mono.just(List.of(miniUrl, miniUrl(MINI_KEY + "X", UPDATED_URL), miniUrl)));
+
+        webTestClient.post().uri("/api/v1/miniurls/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(readJson("miniurl-batch-create.json"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(3)
+                .jsonPath("$[2].miniKey").isEqualTo(MINI_KEY);
+    }
+
+    @Test
+    public void testGetMiniUrl_NotFound() {
+        when(mockMiniUrlService.getMiniUrlByMiniKey(MINI_KEY))
+                .thenReturn(Mono.error(new MiniUrlNotFoundException("Not found")));
+
+        webTestClient.get().uri("/api/v1/miniurls/" + MINI_KEY)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void testUpdateMiniUrl() throws Exception {
+        when(mockMiniUrlService.updateMiniUrl(MINI_KEY, UPDATED_URL)).thenReturn(Mono.just(miniUrl(MINI_KEY, UPDATED_URL)));
+
+        webTestClient.put().uri("/api/v1/miniurls/" + MINI_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(readJson("miniurl-update.json"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.fullUrl").isEqualTo(UPDATED_URL);
+    }
+
+    @Test
+    public void testDeleteMiniUrl() {
+        when(mockMiniUrlService.deleteMiniUrl(MINI_KEY)).thenReturn(Mono.empty());
+
+        webTestClient.delete().uri("/api/v1/miniurls/" + MINI_KEY)
+                .exchange()
+                .expectStatus().isOk();
+
+        verify(mockMiniUrlService).deleteMiniUrl(MINI_KEY);
+    }
+
+    @Test
+    public void testGetAllMiniUrls_FullPageHasNextCursor() {
+        when(mockMiniUrlService.getMiniUrlsPage(null, 1)).thenReturn(Mono.just(List.of(miniUrl(MINI_KEY, ORIGINAL_URL))));
+
+        webTestClient.get().uri("/api/v1/miniurls?size=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("X-Next-Cursor", MINI_KEY)
+                .expectBody()
+                .jsonPath("$[0].miniKey").isEqualTo(MINI_KEY);
+    }
+
+    @Test
+    public void testExportMiniUrls() {
+        when(mockMiniUrlService.exportMiniUrls())
+                .thenReturn(Flux.just(miniUrl(MINI_KEY, ORIGINAL_URL), miniUrl(MINI_KEY + "X", UPDATED_URL)));
+
+        webTestClient.get().uri("/api/v1/miniurls/export")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .value(body -> assertEquals(2, body.strip().split("\n").length));
+    }
+}
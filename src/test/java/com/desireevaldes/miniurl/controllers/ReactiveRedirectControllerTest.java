@@ -0,0 +1,47 @@
+package com.desireevaldes.miniurl.controllers;
+
+import com.desireevaldes.miniurl.api.ReactiveRedirectController;
+import com.desireevaldes.miniurl.exceptions.MiniUrlNotFoundException;
+import com.desireevaldes.miniurl.services.ReactiveMiniUrlService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import static org.mockito.Mockito.*;
+
+@WebFluxTest(ReactiveRedirectController.class)
+public class ReactiveRedirectControllerTest {
+
+    private static final String MINI_KEY = "abc1234";
+    private static final String ORIGINAL_URL = "https://example.com";
+
+    @MockitoBean
+    private ReactiveMiniUrlService mockMiniUrlService;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    public void testRedirect() {
+        when(mockMiniUrlService.resolveFullUrl(MINI_KEY)).thenReturn(Mono.just(ORIGINAL_URL));
+
+        webTestClient.get().uri("/" + MINI_KEY)
+                .exchange()
+                .expectStatus().isFound()
+                .expectHeader().valueEquals("Location", ORIGINAL_URL)
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    public void testRedirect_NotFound() {
+        when(mockMiniUrlService.resolveFullUrl("doesnotexist"))
+                .thenReturn(Mono.error(new MiniUrlNotFoundException("Not found")));
+
+        webTestClient.get().uri("/doesnotexist")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+}
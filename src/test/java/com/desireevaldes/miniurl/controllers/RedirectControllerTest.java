@@ -0,0 +1,48 @@
+package com.desireevaldes.miniurl.controllers;
+
+import com.desireevaldes.miniurl.api.RedirectController;
+import com.desireevaldes.miniurl.exceptions.MiniUrlNotFoundException;
+import com.desireevaldes.miniurl.services.MiniUrlService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(RedirectController.class)
+public class RedirectControllerTest {
+
+    private static final String MINI_KEY = "abc1234";
+    private static final String ORIGINAL_URL = "https://example.com";
+
+    @MockitoBean
+    private MiniUrlService mockMiniUrlService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void testRedirect() throws Exception {
+        when(mockMiniUrlService.resolveFullUrl(MINI_KEY)).thenReturn(ORIGINAL_URL);
+
+        mockMvc.perform(get("/" + MINI_KEY))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Location", ORIGINAL_URL))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void testRedirect_NotFound() throws Exception {
+        String notFoundMiniKey = "doesnotexist";
+
+        when(mockMiniUrlService.resolveFullUrl(notFoundMiniKey))
+                .thenThrow(new MiniUrlNotFoundException("Not found"));
+
+        mockMvc.perform(get("/" + notFoundMiniKey))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,247 @@
+package com.desireevaldes.miniurl.repositories;
+
+import com.desireevaldes.miniurl.exceptions.MiniKeyConflictException;
+import com.desireevaldes.miniurl.models.MiniUrl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Limit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapMiniUrlStoreTest {
+
+    private static final String MINI_KEY = "abc1234";
+    private static final String FULL_URL = "https://example.com/";
+    private static final String UPDATED_URL = "https://news.com/";
+
+    @TempDir
+    private Path storeDirectory;
+
+    private final List<OffHeapMiniUrlStore> stores = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        stores.forEach(OffHeapMiniUrlStore::close);
+    }
+
+    private OffHeapMiniUrlStore openStore() {
+        OffHeapMiniUrlStore store = new OffHeapMiniUrlStore(storeDirectory.toString(), 1, 16);
+        stores.add(store);
+        return store;
+    }
+
+    private static MiniUrl newMiniUrl(String miniKey, String fullUrl) {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(miniKey);
+        miniUrl.setFullUrl(fullUrl);
+        return miniUrl;
+    }
+
+    private List<Path> storeFiles() throws IOException {
+        try (Stream<Path> files = Files.list(storeDirectory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("data-")).sorted().toList();
+        }
+    }
+
+    @Test
+    public void testSaveThenFind() throws Exception {
+        OffHeapMiniUrlStore store = openStore();
+
+        MiniUrl savedMiniUrl = store.save(newMiniUrl(MINI_KEY, FULL_URL));
+
+        assertNotNull(savedMiniUrl.getCreatedAt());
+        assertEquals(savedMiniUrl, store.findById(MINI_KEY).orElseThrow());
+        assertEquals(savedMiniUrl, store.findByMiniKey(MINI_KEY).get().orElseThrow());
+        assertEquals(MiniUrl.hashFullUrl(FULL_URL), store.findById(MINI_KEY).orElseThrow().getFullUrlHash());
+        assertEquals(List.of(savedMiniUrl), store.findByFullUrlHash(MiniUrl.hashFullUrl(FULL_URL)).get());
+        assertTrue(store.existsByMiniKey(MINI_KEY).get());
+        assertEquals(List.of(MINI_KEY), store.findExistingMiniKeys(List.of(MINI_KEY, "def5678")).get());
+        assertTrue(store.findById("def5678").isEmpty());
+    }
+
+    @Test
+    public void testUpdateReplacesBothIndexEntries() throws Exception {
+        OffHeapMiniUrlStore store = openStore();
+        MiniUrl miniUrl = store.save(newMiniUrl(MINI_KEY, FULL_URL));
+
+        miniUrl.setFullUrl(UPDATED_URL);
+        store.save(miniUrl);
+
+        assertEquals(UPDATED_URL, store.findById(MINI_KEY).orElseThrow().getFullUrl());
+        assertTrue(store.findByFullUrlHash(MiniUrl.hashFullUrl(FULL_URL)).get().isEmpty());
+        assertEquals(1, store.findByFullUrlHash(MiniUrl.hashFullUrl(UPDATED_URL)).get().size());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void testNewMiniUrlWithStoredMiniKeyConflicts() throws Exception {
+        OffHeapMiniUrlStore store = openStore();
+        store.save(newMiniUrl(MINI_KEY, FULL_URL));
+
+        assertThrows(MiniKeyConflictException.class, () -> store.save(newMiniUrl(MINI_KEY, UPDATED_URL)));
+        assertThrows(MiniKeyConflictException.class,
+                () -> store.saveAll(List.of(newMiniUrl("def5678", UPDATED_URL), newMiniUrl(MINI_KEY, UPDATED_URL))));
+        assertThrows(MiniKeyConflictException.class,
+                () -> store.saveAll(List.of(newMiniUrl("def5678", UPDATED_URL), newMiniUrl("def5678", FULL_URL))));
+
+        assertEquals(FULL_URL, store.findById(MINI_KEY).orElseThrow().getFullUrl());
+        assertTrue(store.findById("def5678").isEmpty());
+        // A stored MiniUrl, read back or just saved, is updated in place
+        MiniUrl storedMiniUrl = store.findById(MINI_KEY).orElseThrow();
+        storedMiniUrl.setFullUrl(UPDATED_URL);
+        store.saveAll(List.of(storedMiniUrl, newMiniUrl("def5678", FULL_URL)));
+        assertEquals(UPDATED_URL, store.findById(MINI_KEY).orElseThrow().getFullUrl());
+    }
+
+    @Test
+    public void testDeleteRemovesMiniUrl() throws Exception {
+        OffHeapMiniUrlStore store = openStore();
+        store.save(newMiniUrl(MINI_KEY, FULL_URL));
+
+        store.deleteById(MINI_KEY);
+
+        assertTrue(store.findById(MINI_KEY).isEmpty());
+        assertFalse(store.existsByMiniKey(MINI_KEY).get());
+        assertTrue(store.findByFullUrlHash(MiniUrl.hashFullUrl(FULL_URL)).get().isEmpty());
+    }
+
+    @Test
+    public void testReopenReplaysSavesUpdatesAndDeletes() {
+        OffHeapMiniUrlStore store = openStore();
+        MiniUrl updatedMiniUrl = store.save(newMiniUrl(MINI_KEY, FULL_URL));
+        updatedMiniUrl.setFullUrl(UPDATED_URL);
+        store.save(updatedMiniUrl);
+        store.save(newMiniUrl("def5678", FULL_URL));
+        store.save(newMiniUrl("ghi9012", FULL_URL + "deleted"));
+        store.deleteById("ghi9012");
+        store.close();
+
+        OffHeapMiniUrlStore reopenedStore = openStore();
+
+        assertEquals(2, reopenedStore.size());
+        assertEquals(updatedMiniUrl, reopenedStore.findById(MINI_KEY).orElseThrow());
+        assertEquals(FULL_URL, reopenedStore.findById("def5678").orElseThrow().getFullUrl());
+        assertTrue(reopenedStore.findById("ghi9012").isEmpty());
+    }
+
+    @Test
+    public void testExpiringRecordsReplayAndDeleteExpired() throws Exception {
+        OffHeapMiniUrlStore store = openStore();
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        MiniUrl expiredMiniUrl = newMiniUrl(MINI_KEY, FULL_URL);
+        expiredMiniUrl.setExpiresAt(now.minusSeconds(1));
+        MiniUrl expiringMiniUrl = newMiniUrl("def5678", FULL_URL);
+        expiringMiniUrl.setExpiresAt(now.plusSeconds(60));
+        store.save(expiredMiniUrl);
+        store.save(expiringMiniUrl);
+        store.save(newMiniUrl("ghi9012", FULL_URL));
+        store.close();
+
+        OffHeapMiniUrlStore reopenedStore = openStore();
+
+        assertEquals(expiringMiniUrl, reopenedStore.findById("def5678").orElseThrow());
+        assertEquals(3, reopenedStore.findByFullUrlHash(MiniUrl.hashFullUrl(FULL_URL)).get().size());
+        assertEquals(1, reopenedStore.deleteExpired(now, 10));
+        assertEquals(2, reopenedStore.size());
+        assertTrue(reopenedStore.findById(MINI_KEY).isEmpty());
+        assertNull(reopenedStore.findById("ghi9012").orElseThrow().getExpiresAt());
+    }
+
+    @Test
+    public void testCompactionKeepsOnlyLiveMiniUrls() throws Exception {
+        OffHeapMiniUrlStore store = openStore();
+        for (int i = 0; i < 2_000; i++) {
+            store.save(newMiniUrl("key" + (10000 + i), FULL_URL + i));
+        }
+        for (int i = 0; i < 2_000; i += 2) {
+            store.deleteById("key" + (10000 + i));
+        }
+        long sizeBeforeCompaction = Files.size(storeFiles().getFirst());
+
+        store.compact();
+
+        assertEquals(1_000, store.size());
+        assertTrue(store.findById("key10000").isEmpty());
+        assertEquals(FULL_URL + 1, store.findById("key10001").orElseThrow().getFullUrl());
+        assertEquals(1, store.findByFullUrlHash(MiniUrl.hashFullUrl(FULL_URL + 1)).get().size());
+        assertTrue(storeFiles().stream().allMatch(file -> file.getFileName().toString().startsWith("data-1-")),
+                "Files of the previous generation should be deleted, was " + storeFiles());
+        assertTrue(sizeBeforeCompaction > 0);
+        store.close();
+
+        OffHeapMiniUrlStore reopenedStore = openStore();
+        assertEquals(1_000, reopenedStore.size());
+        assertEquals(FULL_URL + 1999, reopenedStore.findById("key11999").orElseThrow().getFullUrl());
+    }
+
+    @Test
+    public void testGrowsAcrossSegments() {
+        OffHeapMiniUrlStore store = openStore();
+        String longUrl = FULL_URL + "a".repeat(1_500);
+        for (int i = 0; i < 2_000; i++) {
+            store.save(newMiniUrl("key" + (10000 + i), longUrl + i));
+        }
+        store.close();
+
+        OffHeapMiniUrlStore reopenedStore = openStore();
+
+        assertEquals(2_000, reopenedStore.size());
+        assertEquals(longUrl + 1999, reopenedStore.findById("key11999").orElseThrow().getFullUrl());
+    }
+
+    @Test
+    public void testReopenIgnoresTornRecord() throws Exception {
+        OffHeapMiniUrlStore store = openStore();
+        store.save(newMiniUrl(MINI_KEY, FULL_URL));
+        store.close();
+        // A record whose length made it to disk but whose payload did not
+        try (FileChannel channel = FileChannel.open(storeFiles().getFirst(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+            channel.read(header, 0);
+            channel.write(ByteBuffer.allocate(12).putInt(100).putInt(12345).putInt(-1).flip(), 8 + header.flip().getInt());
+        }
+
+        OffHeapMiniUrlStore reopenedStore = openStore();
+        reopenedStore.save(newMiniUrl("def5678", FULL_URL + "new"));
+        reopenedStore.close();
+        OffHeapMiniUrlStore reopenedAgainStore = openStore();
+
+        assertEquals(2, reopenedAgainStore.size());
+        assertTrue(reopenedAgainStore.findById(MINI_KEY).isPresent());
+        assertTrue(reopenedAgainStore.findById("def5678").isPresent());
+    }
+
+    @Test
+    public void testPagesAndStreamsInMiniKeyOrder() throws Exception {
+        OffHeapMiniUrlStore store = openStore();
+        for (String miniKey : List.of("ddd1111", "bbb1111", "eee1111", "aaa1111", "ccc1111")) {
+            store.save(newMiniUrl(miniKey, FULL_URL + miniKey));
+        }
+
+        List<MiniUrl> page = store.findByMiniKeyGreaterThanOrderByMiniKeyAsc("aaa1111", Limit.of(2)).get();
+
+        assertEquals(List.of("bbb1111", "ccc1111"), page.stream().map(MiniUrl::getMiniKey).toList());
+        assertEquals(List.of("eee1111"), store.findByMiniKeyGreaterThanOrderByMiniKeyAsc("ddd1111", Limit.of(10)).get()
+                .stream().map(MiniUrl::getMiniKey).toList());
+        try (Stream<MiniUrl> miniUrls = store.streamAll()) {
+            assertEquals(List.of("aaa1111", "bbb1111", "ccc1111", "ddd1111", "eee1111"), miniUrls.map(MiniUrl::getMiniKey).toList());
+        }
+        try (Stream<String> miniKeys = store.streamAllMiniKeys()) {
+            assertEquals(Set.of("aaa1111", "bbb1111", "ccc1111", "ddd1111", "eee1111"), Set.copyOf(miniKeys.toList()));
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.desireevaldes.miniurl.repositories;
+
+import com.desireevaldes.miniurl.models.MiniUrl;
+import com.desireevaldes.miniurl.utils.ConsistentHashRing;
+import com.desireevaldes.miniurl.utils.RandomKeyGenerator;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedMiniUrlStoreTest {
+
+    private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final int VIRTUAL_NODES = 64;
+
+    private final RandomKeyGenerator randomKeyGenerator = new RandomKeyGenerator(ALPHABET, 8);
+
+    // A fresh in-memory database per shard, with the mini_urls schema
+    private static DataSource embeddedShard() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:shard-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL;"
+                + "INIT=RUNSCRIPT FROM 'classpath:db/h2/mini_urls.sql'");
+        return dataSource;
+    }
+
+    private static List<DataSource> embeddedShards(int count) {
+        List<DataSource> shards = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            shards.add(embeddedShard());
+        }
+        return shards;
+    }
+
+    // Fails every new connection while down is set, to check which shards a call reaches
+    private static DataSource switchableShard(DataSource dataSource, AtomicBoolean down) {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    if (down.get() && method.getName().equals("getConnection")) {
+                        throw new SQLException("Shard down");
+                    }
+                    try {
+                        return method.invoke(dataSource, args);
+                    } catch (InvocationTargetException exception) {
+                        throw exception.getCause();
+                    }
+                });
+    }
+
+    private static ShardedMiniUrlStore openStore(List<DataSource> shards, int previousShardCount) {
+        return new ShardedMiniUrlStore(shards, previousShardCount, VIRTUAL_NODES, ALPHABET, Runnable::run);
+    }
+
+    private static MiniUrl newMiniUrl(String miniKey, String fullUrl) {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(miniKey);
+        miniUrl.setFullUrl(fullUrl);
+        return miniUrl;
+    }
+
+    // A MiniUrl keyed like the service keys it, with the prefix of its fullUrl
+    private MiniUrl newMiniUrl(ShardedMiniUrlStore store) {
+        String fullUrl = "https://example.com/" + UUID.randomUUID();
+        return newMiniUrl(randomKeyGenerator.generateKey(store.miniKeyPrefix(MiniUrl.hashFullUrl(fullUrl))), fullUrl);
+    }
+
+    private static long totalMiniUrls(ShardedMiniUrlStore store) {
+        long total = 0;
+        for (int shard = 0; shard < store.getShardCount(); shard++) {
+            total += store.countMiniUrls(shard);
+        }
+        return total;
+    }
+
+    @Test
+    public void testSaveThenFindOnTheShardOfTheFullUrl() throws Exception {
+        ShardedMiniUrlStore store = openStore(embeddedShards(3), 0);
+        MiniUrl miniUrl = store.save(newMiniUrl(store));
+        String miniKey = miniUrl.getMiniKey();
+        int shard = new ConsistentHashRing(3, VIRTUAL_NODES).shardFor(miniKey.substring(0, ShardedMiniUrlStore.SHARD_HINT_LENGTH));
+
+        assertNotNull(miniUrl.getCreatedAt());
+        assertEquals(1, store.countMiniUrls(shard));
+        assertEquals(1, totalMiniUrls(store));
+        assertEquals(miniUrl, store.findById(miniKey).orElseThrow());
+        assertEquals(miniUrl, store.findByMiniKey(miniKey).get().orElseThrow());
+        assertEquals(List.of(miniUrl), store.findByFullUrlHash(miniUrl.getFullUrlHash()).get());
+        assertEquals(List.of(miniUrl), store.findByFullUrlHashIn(Set.of(miniUrl.getFullUrlHash(), UUID.randomUUID())).get());
+        assertTrue(store.existsByMiniKey(miniKey).get());
+        assertEquals(List.of(miniKey), store.findExistingMiniKeys(List.of(miniKey, "zz12345")).get());
+        assertTrue(store.findById("zz12345").isEmpty());
+    }
+
+    @Test
+    public void testMiniKeyPrefixOnlyDependsOnFullUrl() {
+        ShardedMiniUrlStore store = openStore(embeddedShards(2), 0);
+        ShardedMiniUrlStore grownStore = openStore(embeddedShards(3), 0);
+        UUID fullUrlHash = MiniUrl.hashFullUrl("https://example.com/");
+
+        String prefix = store.miniKeyPrefix(fullUrlHash);
+
+        assertEquals(ShardedMiniUrlStore.SHARD_HINT_LENGTH, prefix.length());
+        assertTrue(prefix.chars().allMatch(c -> ALPHABET.indexOf(c) >= 0));
+        assertEquals(prefix, grownStore.miniKeyPrefix(fullUrlHash));
+        assertNotEquals(prefix, store.miniKeyPrefix(MiniUrl.hashFullUrl("https://example.org/")));
+    }
+
+    @Test
+    public void testSaveAllUpdateAndDelete() throws Exception {
+        ShardedMiniUrlStore store = openStore(embeddedShards(3), 0);
+        List<MiniUrl> miniUrls = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            miniUrls.add(newMiniUrl(store));
+        }
+        store.saveAll(miniUrls);
+        MiniUrl miniUrl = store.findById(miniUrls.getFirst().getMiniKey()).orElseThrow();
+
+        miniUrl.setFullUrl("https://news.com/");
+        store.save(miniUrl);
+        store.deleteById(miniUrls.getLast().getMiniKey());
+
+        assertEquals(19, totalMiniUrls(store));
+        assertEquals("https://news.com/", store.findById(miniUrl.getMiniKey()).orElseThrow().getFullUrl());
+        assertEquals(miniUrl.getCreatedAt(), store.findById(miniUrl.getMiniKey()).orElseThrow().getCreatedAt());
+        assertEquals(List.of(miniUrl.getMiniKey()), store.findByFullUrlHash(MiniUrl.hashFullUrl("https://news.com/")).get()
+                .stream().map(MiniUrl::getMiniKey).toList());
+        assertTrue(store.findById(miniUrls.getLast().getMiniKey()).isEmpty());
+    }
+
+    @Test
+    public void testDeleteExpiredSpansShardsInBatches() {
+        ShardedMiniUrlStore store = openStore(embeddedShards(3), 0);
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        List<MiniUrl> expiredMiniUrls = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            MiniUrl miniUrl = newMiniUrl(store);
+            miniUrl.setExpiresAt(now.minusSeconds(1));
+            expiredMiniUrls.add(miniUrl);
+        }
+        MiniUrl expiringMiniUrl = newMiniUrl(store);
+        expiringMiniUrl.setExpiresAt(now.plusSeconds(60));
+        MiniUrl permanentMiniUrl = newMiniUrl(store);
+        store.saveAll(new ArrayList<>(expiredMiniUrls));
+        store.save(expiringMiniUrl);
+        store.save(permanentMiniUrl);
+
+        assertEquals(expiringMiniUrl.getExpiresAt(), store.findById(expiringMiniUrl.getMiniKey()).orElseThrow().getExpiresAt());
+        assertEquals(4, store.deleteExpired(now, 4));
+        assertEquals(6, store.deleteExpired(now, 100));
+        assertEquals(0, store.deleteExpired(now, 100));
+        assertEquals(2, totalMiniUrls(store));
+        assertTrue(store.findById(expiringMiniUrl.getMiniKey()).isPresent());
+        assertTrue(store.findById(permanentMiniUrl.getMiniKey()).isPresent());
+    }
+
+    @Test
+    public void testPagesAndExportsMergeShardsInMiniKeyOrder() throws Exception {
+        ShardedMiniUrlStore store = openStore(embeddedShards(3), 0);
+        List<String> miniKeys = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            miniKeys.add(store.save(newMiniUrl(randomKeyGenerator.generateKey(), "https://example.com/" + i)).getMiniKey());
+        }
+        miniKeys.sort(null);
+
+        List<String> pagedMiniKeys = new ArrayList<>();
+        String afterMiniKey = "";
+        List<MiniUrl> page;
+        do {
+            page = store.findByMiniKeyGreaterThanOrderByMiniKeyAsc(afterMiniKey, Limit.of(7)).get();
+            page.forEach(miniUrl -> pagedMiniKeys.add(miniUrl.getMiniKey()));
+            afterMiniKey = page.isEmpty() ? afterMiniKey : page.getLast().getMiniKey();
+        } while (page.size() == 7);
+
+        assertEquals(miniKeys, pagedMiniKeys);
+        try (Stream<MiniUrl> exported = store.streamAll()) {
+            assertEquals(miniKeys, exported.map(MiniUrl::getMiniKey).toList());
+        }
+        try (Stream<String> exported = store.streamAllMiniKeys()) {
+            assertEquals(new HashSet<>(miniKeys), exported.collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    public void testRebalanceMovesRowsToAddedShardWhileServingThem() throws Exception {
+        List<DataSource> shards = embeddedShards(2);
+        ShardedMiniUrlStore store = openStore(shards, 0);
+        List<MiniUrl> miniUrls = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            miniUrls.add(newMiniUrl(store));
+        }
+        store.saveAll(miniUrls);
+
+        shards.add(embeddedShard());
+        ShardedMiniUrlStore grownStore = openStore(shards, 2);
+        ConsistentHashRing grownRing = new ConsistentHashRing(3, VIRTUAL_NODES);
+        List<MiniUrl> movingMiniUrls = miniUrls.stream()
+                .filter(miniUrl -> grownRing.shardFor(miniUrl.getMiniKey().substring(0, ShardedMiniUrlStore.SHARD_HINT_LENGTH)) == 2)
+                .toList();
+        assertFalse(movingMiniUrls.isEmpty());
+
+        // Before the move, rows are found on their previous shard, updates land on the new one and deletes hit both
+        for (MiniUrl miniUrl : miniUrls) {
+            assertEquals(miniUrl.getFullUrl(), grownStore.findById(miniUrl.getMiniKey()).orElseThrow().getFullUrl());
+        }
+        MiniUrl updatedMiniUrl = grownStore.findById(movingMiniUrls.get(0).getMiniKey()).orElseThrow();
+        updatedMiniUrl.setFullUrl("https://news.com/");
+        grownStore.save(updatedMiniUrl);
+        String deletedMiniKey = movingMiniUrls.get(1).getMiniKey();
+        grownStore.deleteById(deletedMiniKey);
+        assertEquals("https://news.com/", grownStore.findById(updatedMiniUrl.getMiniKey()).orElseThrow().getFullUrl());
+        assertTrue(grownStore.findById(deletedMiniKey).isEmpty());
+        MiniUrl unmovedMiniUrl = movingMiniUrls.get(2);
+        assertEquals(List.of(unmovedMiniUrl.getMiniKey()), grownStore.findByFullUrlHash(unmovedMiniUrl.getFullUrlHash()).get()
+                .stream().map(MiniUrl::getMiniKey).toList());
+
+        AtomicLong progress = new AtomicLong();
+        long moved = grownStore.rebalance(50, progress::addAndGet);
+
+        assertEquals(movingMiniUrls.size() - 1, moved);
+        assertEquals(moved, progress.get());
+        assertEquals(movingMiniUrls.size() - 1, grownStore.countMiniUrls(2));
+        assertEquals(miniUrls.size() - 1, totalMiniUrls(grownStore));
+        ShardedMiniUrlStore rebalancedStore = openStore(shards, 0);
+        for (MiniUrl miniUrl : miniUrls) {
+            if (!miniUrl.getMiniKey().equals(deletedMiniKey)) {
+                assertTrue(rebalancedStore.findById(miniUrl.getMiniKey()).isPresent());
+            }
+        }
+        assertEquals("https://news.com/", rebalancedStore.findById(updatedMiniUrl.getMiniKey()).orElseThrow().getFullUrl());
+        assertEquals(0, rebalancedStore.rebalance(50, ignored -> { }));
+    }
+
+    @Test
+    public void testDedupeLookupsOnlyReadTheShardOfTheFullUrl() throws Exception {
+        int shardCount = 4;
+        List<AtomicBoolean> down = new ArrayList<>();
+        List<DataSource> shards = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            down.add(new AtomicBoolean());
+            shards.add(switchableShard(embeddedShard(), down.get(i)));
+        }
+        ShardedMiniUrlStore store = openStore(shards, 0);
+        ConsistentHashRing ring = new ConsistentHashRing(shardCount, VIRTUAL_NODES);
+        MiniUrl miniUrl = store.save(newMiniUrl(store));
+        int miniKeyShard = ring.shardFor(miniUrl.getMiniKey().substring(0, ShardedMiniUrlStore.SHARD_HINT_LENGTH));
+        String updatedFullUrl;
+        int fullUrlShard;
+        do {
+            updatedFullUrl = "https://news.com/" + UUID.randomUUID();
+            fullUrlShard = ring.shardFor(store.miniKeyPrefix(MiniUrl.hashFullUrl(updatedFullUrl)));
+        } while (fullUrlShard == miniKeyShard);
+        miniUrl.setFullUrl(updatedFullUrl);
+        store.save(miniUrl);
+
+        // A new fullUrl is missed on its own shard, without asking the others
+        UUID newFullUrlHash = MiniUrl.hashFullUrl("https://example.org/" + UUID.randomUUID());
+        int newFullUrlShard = ring.shardFor(store.miniKeyPrefix(newFullUrlHash));
+        for (int i = 0; i < shardCount; i++) {
+            down.get(i).set(i != newFullUrlShard);
+        }
+        assertEquals(List.of(), store.findByFullUrlHash(newFullUrlHash).get());
+
+        // An updated fullUrl is listed on its own shard, then read from the shard of the miniKey
+        for (int i = 0; i < shardCount; i++) {
+            down.get(i).set(i != fullUrlShard && i != miniKeyShard);
+        }
+        assertEquals(List.of(miniUrl.getMiniKey()), store.findByFullUrlHash(miniUrl.getFullUrlHash()).get()
+                .stream().map(MiniUrl::getMiniKey).toList());
+
+        // Once updated again or deleted, the listed miniKey no longer matches
+        for (int i = 0; i < shardCount; i++) {
+            down.get(i).set(false);
+        }
+        UUID listedFullUrlHash = miniUrl.getFullUrlHash();
+        miniUrl.setFullUrl("https://example.com/" + UUID.randomUUID());
+        store.save(miniUrl);
+        assertEquals(List.of(), store.findByFullUrlHash(listedFullUrlHash).get());
+    }
+
+    @Test
+    public void testRebalanceListsRowsCreatedBeforeSharding() throws Exception {
+        List<DataSource> shards = embeddedShards(3);
+        ShardedMiniUrlStore store = openStore(shards, 0);
+        ConsistentHashRing ring = new ConsistentHashRing(3, VIRTUAL_NODES);
+        List<MiniUrl> legacyMiniUrls = new ArrayList<>();
+        while (legacyMiniUrls.size() < 20) {
+            MiniUrl miniUrl = newMiniUrl(randomKeyGenerator.generateKey(), "https://example.com/" + UUID.randomUUID());
+            if (ring.shardFor(miniUrl.getMiniKey().substring(0, ShardedMiniUrlStore.SHARD_HINT_LENGTH))
+                    != ring.shardFor(store.miniKeyPrefix(miniUrl.getFullUrlHash()))) {
+                legacyMiniUrls.add(miniUrl);
+            }
+        }
+        // Written straight to the shard of their miniKey, like the rows of the database sharding started from
+        Instant now = Instant.now();
+        for (MiniUrl miniUrl : legacyMiniUrls) {
+            DataSource shard = shards.get(ring.shardFor(miniUrl.getMiniKey().substring(0, ShardedMiniUrlStore.SHARD_HINT_LENGTH)));
+            new JdbcTemplate(shard).update("INSERT INTO mini_urls (mini_key, full_url, full_url_hash, created_at, updated_at)"
+                    + " VALUES (?, ?, ?, ?, ?)", miniUrl.getMiniKey(), miniUrl.getFullUrl(), miniUrl.getFullUrlHash(),
+                    Timestamp.from(now), Timestamp.from(now));
+        }
+        MiniUrl legacyMiniUrl = legacyMiniUrls.getFirst();
+        assertEquals(List.of(), store.findByFullUrlHash(legacyMiniUrl.getFullUrlHash()).get());
+
+        assertEquals(0, store.rebalance(7, ignored -> { }));
+
+        for (MiniUrl miniUrl : legacyMiniUrls) {
+            assertEquals(List.of(miniUrl.getMiniKey()), store.findByFullUrlHash(miniUrl.getFullUrlHash()).get()
+                    .stream().map(MiniUrl::getMiniKey).toList());
+        }
+        store.deleteById(legacyMiniUrl.getMiniKey());
+        store.rebalance(7, ignored -> { });
+        long listedMiniKeys = 0;
+        for (DataSource shard : shards) {
+            listedMiniKeys += new JdbcTemplate(shard).queryForObject("SELECT COUNT(*) FROM mini_url_full_url_refs", Long.class);
+        }
+        assertEquals(legacyMiniUrls.size() - 1, listedMiniKeys);
+    }
+
+    @Test
+    public void testRejectsInvalidShardCounts() {
+        assertThrows(IllegalStateException.class, () -> openStore(List.of(), 0));
+        assertThrows(IllegalStateException.class, () -> openStore(embeddedShards(2), 2));
+    }
+}
@@ -0,0 +1,166 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.exceptions.MiniUrlNotFoundException;
+import com.desireevaldes.miniurl.models.MiniUrl;
+import com.desireevaldes.miniurl.repositories.MiniUrlStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the MiniUrlService flows end to end against the storage backend configured by each subclass.
+ */
+public abstract class AbstractMiniUrlServiceFlowTest {
+
+    @Autowired
+    protected MiniUrlService miniUrlService;
+    @Autowired
+    protected MiniUrlStore miniUrlStore;
+    @Autowired
+    protected MiniUrlCache miniUrlCache;
+
+    private final List<String> createdMiniKeys = new ArrayList<>();
+
+    @AfterEach
+    public void deleteCreatedMiniUrls() {
+        createdMiniKeys.forEach(miniUrlStore::deleteById);
+    }
+
+    private static String uniqueUrl() {
+        return "https://example.com/" + UUID.randomUUID();
+    }
+
+    private MiniUrl create(String fullUrl) throws Exception {
+        MiniUrl miniUrl = miniUrlService.getOrCreateMiniUrlAsync(fullUrl).get();
+        createdMiniKeys.add(miniUrl.getMiniKey());
+        return miniUrl;
+    }
+
+    @Test
+    public void testCreateThenGetAndResolve() throws Exception {
+        String fullUrl = uniqueUrl();
+
+        MiniUrl miniUrl = create(fullUrl);
+
+        assertEquals(fullUrl, miniUrl.getFullUrl());
+        assertNotNull(miniUrl.getCreatedAt());
+        assertEquals(fullUrl, miniUrlService.getMiniUrlByMiniKey(miniUrl.getMiniKey()).get().getFullUrl());
+        assertEquals(fullUrl, miniUrlService.resolveFullUrl(miniUrl.getMiniKey()));
+    }
+
+    @Test
+    public void testResolveLoadsAndCachesWholeMiniUrl() throws Exception {
+        MiniUrl miniUrl = create(uniqueUrl());
+        miniUrlCache.invalidate(miniUrl.getMiniKey());
+
+        assertEquals(miniUrl.getFullUrl(), miniUrlService.resolveFullUrl(miniUrl.getMiniKey()));
+
+        MiniUrl cachedMiniUrl = miniUrlCache.getIfPresent(miniUrl.getMiniKey());
+        assertEquals(miniUrl.getFullUrlHash(), cachedMiniUrl.getFullUrlHash());
+        assertEquals(miniUrl.getCreatedAt().toEpochMilli(), cachedMiniUrl.getCreatedAt().toEpochMilli());
+        assertNotNull(cachedMiniUrl.getUpdatedAt());
+    }
+
+    @Test
+    public void testCreateReturnsExistingMiniUrlForSameUrl() throws Exception {
+        String fullUrl = uniqueUrl();
+
+        MiniUrl miniUrl = create(fullUrl);
+
+        assertEquals(miniUrl.getMiniKey(), create(fullUrl).getMiniKey());
+    }
+
+    @Test
+    public void testBatchCreateDedupesAndKeepsOrder() throws Exception {
+        String existingUrl = uniqueUrl();
+        String newUrl = uniqueUrl();
+        MiniUrl existingMiniUrl = create(existingUrl);
+
+        List<MiniUrl> miniUrls = miniUrlService.getOrCreateMiniUrlsAsync(List.of(newUrl, existingUrl, newUrl)).get();
+        createdMiniKeys.add(miniUrls.getFirst().getMiniKey());
+
+        assertEquals(3, miniUrls.size());
+        assertEquals(newUrl, miniUrls.getFirst().getFullUrl());
+        assertEquals(existingMiniUrl.getMiniKey(), miniUrls.get(1).getMiniKey());
+        assertEquals(miniUrls.getFirst().getMiniKey(), miniUrls.get(2).getMiniKey());
+        assertTrue(miniUrlStore.findById(miniUrls.getFirst().getMiniKey()).isPresent());
+    }
+
+    @Test
+    public void testUpdateChangesFullUrl() throws Exception {
+        MiniUrl miniUrl = create(uniqueUrl());
+        String updatedUrl = uniqueUrl();
+
+        miniUrlService.updateMiniUrlAsync(miniUrl.getMiniKey(), updatedUrl).get();
+
+        assertEquals(updatedUrl, miniUrlService.resolveFullUrl(miniUrl.getMiniKey()));
+        assertEquals(miniUrl.getMiniKey(), create(updatedUrl).getMiniKey());
+    }
+
+    @Test
+    public void testExpiredMiniUrlIsNotServedThenReaped() throws Exception {
+        String fullUrl = uniqueUrl();
+        Instant expiresAt = Instant.now().plusSeconds(2);
+        MiniUrl miniUrl = miniUrlService.getOrCreateMiniUrlAsync(fullUrl, expiresAt).get();
+        createdMiniKeys.add(miniUrl.getMiniKey());
+
+        assertEquals(expiresAt.truncatedTo(ChronoUnit.MICROS), miniUrlStore.findById(miniUrl.getMiniKey()).orElseThrow().getExpiresAt());
+        assertEquals(fullUrl, miniUrlService.resolveFullUrl(miniUrl.getMiniKey()));
+        assertEquals(miniUrl.getMiniKey(), miniUrlService.getOrCreateMiniUrlAsync(fullUrl, expiresAt).get().getMiniKey());
+        assertNotEquals(miniUrl.getMiniKey(), create(fullUrl).getMiniKey());
+
+        Thread.sleep(Duration.between(Instant.now(), expiresAt).toMillis() + 50);
+
+        assertThrows(MiniUrlNotFoundException.class, () -> miniUrlService.resolveFullUrl(miniUrl.getMiniKey()));
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> miniUrlService.getMiniUrlByMiniKey(miniUrl.getMiniKey()).get());
+        assertInstanceOf(MiniUrlNotFoundException.class, exception.getCause());
+        miniUrlStore.deleteExpired(Instant.now(), 100);
+        assertTrue(miniUrlStore.findById(miniUrl.getMiniKey()).isEmpty());
+    }
+
+    @Test
+    public void testDeleteRemovesMiniUrl() throws Exception {
+        MiniUrl miniUrl = create(uniqueUrl());
+
+        miniUrlService.deleteMiniUrlAsync(miniUrl.getMiniKey()).get();
+
+        assertTrue(miniUrlStore.findById(miniUrl.getMiniKey()).isEmpty());
+        assertThrows(MiniUrlNotFoundException.class, () -> miniUrlService.resolveFullUrl(miniUrl.getMiniKey()));
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> miniUrlService.deleteMiniUrlAsync(miniUrl.getMiniKey()).get());
+        assertInstanceOf(MiniUrlNotFoundException.class, exception.getCause());
+    }
+
+    @Test
+    public void testPageAndExportAreOrderedByMiniKey() throws Exception {
+        List<String> miniKeys = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            miniKeys.add(create(uniqueUrl()).getMiniKey());
+        }
+        miniKeys.sort(null);
+
+        List<MiniUrl> page = miniUrlService.getMiniUrlsPageAsync(miniKeys.getFirst(), 2).get();
+        List<String> exportedMiniKeys = new ArrayList<>();
+        miniUrlService.exportMiniUrls(miniUrl -> {
+            if (miniKeys.contains(miniUrl.getMiniKey())) {
+                exportedMiniKeys.add(miniUrl.getMiniKey());
+            }
+        });
+
+        assertEquals(2, page.size());
+        assertTrue(page.getFirst().getMiniKey().compareTo(miniKeys.getFirst()) > 0);
+        assertEquals(page.stream().map(MiniUrl::getMiniKey).sorted().toList(), page.stream().map(MiniUrl::getMiniKey).toList());
+        assertEquals(miniKeys, exportedMiniKeys);
+    }
+}
@@ -0,0 +1,140 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.repositories.MiniUrlClickStatsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ClickStatsServiceTest {
+
+    private static final String MINI_KEY = "abc1234";
+    private static final long BUCKET_SECONDS = 60;
+
+    @Mock
+    private MiniUrlClickStatsRepository mockClickStatsRepository;
+    @Mock
+    private JdbcTemplate mockJdbcTemplate;
+    @Mock
+    private PlatformTransactionManager mockTransactionManager;
+    @Mock
+    private Clock mockClock;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(mockTransactionManager);
+    }
+
+    private ClickStatsService newClickStatsService(boolean enabled) {
+        return new ClickStatsService(mockClickStatsRepository, mockJdbcTemplate, transactionTemplate,
+                enabled, BUCKET_SECONDS, 3, mockClock);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> captureBatch() {
+        ArgumentCaptor<List<Object[]>> rowsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mockJdbcTemplate).batchUpdate(anyString(), rowsCaptor.capture());
+        return rowsCaptor.getValue();
+    }
+
+    @Test
+    public void testFlushAllWritesAggregatedClicks() {
+        when(mockClock.millis()).thenReturn(125_000L);
+        ClickStatsService clickStatsService = newClickStatsService(true);
+
+        clickStatsService.recordClick(MINI_KEY);
+        clickStatsService.recordClick(MINI_KEY);
+        clickStatsService.recordClick("other12");
+        clickStatsService.flushAll();
+
+        List<Object[]> rows = captureBatch();
+        assertEquals(2, rows.size());
+        Object[] row = rows.stream().filter(r -> MINI_KEY.equals(r[0])).findFirst().orElseThrow();
+        assertEquals(new Timestamp(120_000L), row[1]);
+        assertEquals(2L, row[2]);
+    }
+
+    @Test
+    public void testClicksAreSplitByBucket() {
+        when(mockClock.millis()).thenReturn(0L, 59_999L, 60_000L, 60_000L);
+        ClickStatsService clickStatsService = newClickStatsService(true);
+
+        clickStatsService.recordClick(MINI_KEY);
+        clickStatsService.recordClick(MINI_KEY);
+        clickStatsService.flushAll();
+
+        List<Object[]> rows = captureBatch();
+        assertEquals(2, rows.size());
+        assertEquals(List.of(new Timestamp(0L), new Timestamp(60_000L)),
+                rows.stream().map(r -> r[1]).sorted().toList());
+    }
+
+    @Test
+    public void testFailedFlushIsRetried() {
+        when(mockClock.millis()).thenReturn(0L);
+        when(mockJdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("database down"))
+                .thenReturn(new int[]{1});
+        ClickStatsService clickStatsService = newClickStatsService(true);
+
+        clickStatsService.recordClick(MINI_KEY);
+        clickStatsService.flushAll();
+        clickStatsService.flushAll();
+
+        verify(mockJdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFailedFlushesAreMergedThenDropped() {
+        when(mockClock.millis()).thenReturn(0L);
+        ArgumentCaptor<List<Object[]>> rowsCaptor = ArgumentCaptor.forClass(List.class);
+        when(mockJdbcTemplate.batchUpdate(anyString(), rowsCaptor.capture()))
+                .thenThrow(new DataAccessResourceFailureException("database down"));
+        ClickStatsService clickStatsService = newClickStatsService(true);
+
+        clickStatsService.recordClick(MINI_KEY);
+        clickStatsService.flushAll();
+        clickStatsService.recordClick(MINI_KEY);
+        clickStatsService.flushAll();
+
+        List<Object[]> retriedRows = rowsCaptor.getAllValues().get(1);
+        assertEquals(2, retriedRows.size(), "Pending rows of a failed flush are sent again with the new ones");
+        clickStatsService.flushAll();
+        assertEquals(1, rowsCaptor.getAllValues().get(2).size(), "Rows of the same bucket and miniKey must be merged");
+        assertEquals(2L, rowsCaptor.getAllValues().get(2).get(0)[2]);
+        assertEquals(2, clickStatsService.getDroppedClicks());
+
+        clickStatsService.flushAll();
+        verify(mockJdbcTemplate, times(3)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    public void testDisabledRecordsNothing() {
+        ClickStatsService clickStatsService = newClickStatsService(false);
+
+        clickStatsService.recordClick(MINI_KEY);
+        clickStatsService.flush();
+        clickStatsService.flushAll();
+
+        assertFalse(clickStatsService.isEnabled());
+        verifyNoInteractions(mockJdbcTemplate);
+    }
+}
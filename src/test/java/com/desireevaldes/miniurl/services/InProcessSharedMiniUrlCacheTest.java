@@ -0,0 +1,63 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.models.MiniUrl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class InProcessSharedMiniUrlCacheTest {
+
+    private static final String MINI_KEY = "abc1234";
+
+    @Mock
+    private Clock mockClock;
+
+    private static MiniUrl miniUrl(String fullUrl) {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(MINI_KEY);
+        miniUrl.setFullUrl(fullUrl);
+        return miniUrl;
+    }
+
+    @Test
+    public void testStaleLoadFinishingAfterAnUpdateIsNotShared() {
+        InProcessSharedMiniUrlCache sharedMiniUrlCache = new InProcessSharedMiniUrlCache(5000, mockClock);
+        when(mockClock.millis()).thenReturn(0L, 4999L, 5000L);
+
+        // A resolve reads the old URL from the database, then an update commits and invalidates before the resolve shares it
+        MiniUrl staleMiniUrl = miniUrl("https://example.com");
+        sharedMiniUrlCache.invalidate(MINI_KEY).join();
+        sharedMiniUrlCache.put(staleMiniUrl);
+
+        assertNull(sharedMiniUrlCache.get(MINI_KEY).join(), "The stale MiniUrl must not be shared after the update");
+
+        MiniUrl updatedMiniUrl = miniUrl("https://news.com");
+        sharedMiniUrlCache.put(updatedMiniUrl);
+
+        assertSame(updatedMiniUrl, sharedMiniUrlCache.get(MINI_KEY).join(), "Puts resume once the tombstone expires");
+    }
+
+    @Test
+    public void testPutsOfOtherMiniKeysAreNotBlocked() {
+        InProcessSharedMiniUrlCache sharedMiniUrlCache = new InProcessSharedMiniUrlCache(5000, mockClock);
+        when(mockClock.millis()).thenReturn(0L);
+        sharedMiniUrlCache.invalidate("def5678").join();
+
+        MiniUrl miniUrl = miniUrl("https://example.com");
+        sharedMiniUrlCache.put(miniUrl);
+
+        assertSame(miniUrl, sharedMiniUrlCache.get(MINI_KEY).join());
+    }
+
+    @Test
+    public void testRejectsNonPositiveTombstone() {
+        assertThrows(IllegalStateException.class, () -> new InProcessSharedMiniUrlCache(0, mockClock));
+    }
+}
@@ -0,0 +1,16 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.repositories.JpaMiniUrlStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+@SpringBootTest(properties = "MINIURL_STORAGE_BACKEND=jpa")
+public class JpaMiniUrlServiceFlowTest extends AbstractMiniUrlServiceFlowTest {
+
+    @Test
+    public void testUsesJpaStore() {
+        assertInstanceOf(JpaMiniUrlStore.class, miniUrlStore);
+    }
+}
@@ -0,0 +1,57 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.repositories.MiniUrlRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MiniKeyBlockAllocatorTest {
+
+    private static final String CUSTOM_ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    @Mock
+    private MiniUrlRepository mockMiniUrlRepository;
+
+    @Test
+    public void testLeasesANewBlockWhenExhausted() {
+        MiniKeyBlockAllocator allocator = new MiniKeyBlockAllocator(mockMiniUrlRepository, "block", 2, 42L, CUSTOM_ALPHABET, 8, "jpa");
+        when(mockMiniUrlRepository.nextMiniKeyBlock()).thenReturn(0L, 1L);
+
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            keys.add(allocator.nextKey());
+        }
+
+        assertEquals(4, keys.size());
+        verify(mockMiniUrlRepository, times(2)).nextMiniKeyBlock();
+        verify(mockMiniUrlRepository, never()).existsByMiniKey(any());
+    }
+
+    @Test
+    public void testRandomStrategyIsDisabled() {
+        MiniKeyBlockAllocator allocator = new MiniKeyBlockAllocator(mockMiniUrlRepository, "random", 2, 42L, CUSTOM_ALPHABET, 8, "jpa");
+        assertFalse(allocator.isEnabled());
+    }
+
+    @Test
+    public void testRejectsUnknownStrategy() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new MiniKeyBlockAllocator(mockMiniUrlRepository, "sequential", 2, 42L, CUSTOM_ALPHABET, 8, "jpa"));
+    }
+
+    @Test
+    public void testRejectsNonPositiveBlockSize() {
+        assertThrows(IllegalStateException.class,
+                () -> new MiniKeyBlockAllocator(mockMiniUrlRepository, "block", 0, 42L, CUSTOM_ALPHABET, 8, "jpa"));
+        assertThrows(IllegalStateException.class,
+                () -> new MiniKeyBlockAllocator(mockMiniUrlRepository, "block", -1, 42L, CUSTOM_ALPHABET, 8, "jpa"));
+    }
+}
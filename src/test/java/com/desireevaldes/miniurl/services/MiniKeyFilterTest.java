@@ -0,0 +1,64 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.repositories.MiniUrlStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MiniKeyFilterTest {
+
+    @Mock
+    private MiniUrlStore mockMiniUrlStore;
+
+    @Test
+    public void testLoadsExistingKeys() {
+        MiniKeyFilter miniKeyFilter = new MiniKeyFilter(mockMiniUrlStore, true, 1000, 0.01, false, SharedMiniUrlCache.NONE, MiniUrlStore.JPA_BACKEND);
+        when(mockMiniUrlStore.streamAllMiniKeys()).thenReturn(Stream.of("abc1234", "def5678"));
+
+        assertFalse(miniKeyFilter.isDefinitelyAbsent("unknown1"), "Nothing is absent before the filter is loaded");
+        miniKeyFilter.load();
+
+        assertFalse(miniKeyFilter.isDefinitelyAbsent("abc1234"));
+        assertFalse(miniKeyFilter.isDefinitelyAbsent("def5678"));
+        assertTrue(miniKeyFilter.isDefinitelyAbsent("unknown1"));
+    }
+
+    @Test
+    public void testAddedKeysAreNeverAbsent() {
+        MiniKeyFilter miniKeyFilter = new MiniKeyFilter(mockMiniUrlStore, true, 1000, 0.01, false, SharedMiniUrlCache.NONE, MiniUrlStore.JPA_BACKEND);
+        when(mockMiniUrlStore.streamAllMiniKeys()).thenReturn(Stream.empty());
+        miniKeyFilter.load();
+
+        miniKeyFilter.add("new12345");
+
+        assertFalse(miniKeyFilter.isDefinitelyAbsent("new12345"));
+    }
+
+    @Test
+    public void testDisabledFilterNeverAnswersAbsent() {
+        MiniKeyFilter miniKeyFilter = new MiniKeyFilter(mockMiniUrlStore, false, 1000, 0.01, false, SharedMiniUrlCache.NONE, MiniUrlStore.JPA_BACKEND);
+        miniKeyFilter.load();
+
+        assertFalse(miniKeyFilter.isDefinitelyAbsent("unknown1"));
+        verifyNoInteractions(mockMiniUrlStore);
+    }
+
+    @Test
+    public void testRejectsMultiInstanceSettings() {
+        assertThrows(IllegalStateException.class, () -> new MiniKeyFilter(mockMiniUrlStore, true, 1000, 0.01,
+                true, SharedMiniUrlCache.NONE, MiniUrlStore.JPA_BACKEND));
+        assertThrows(IllegalStateException.class, () -> new MiniKeyFilter(mockMiniUrlStore, true, 1000, 0.01,
+                false, SharedMiniUrlCache.REDIS, MiniUrlStore.JPA_BACKEND));
+        assertThrows(IllegalStateException.class, () -> new MiniKeyFilter(mockMiniUrlStore, true, 1000, 0.01,
+                false, SharedMiniUrlCache.NONE, MiniUrlStore.SHARDED_BACKEND));
+        assertDoesNotThrow(() -> new MiniKeyFilter(mockMiniUrlStore, false, 1000, 0.01,
+                true, SharedMiniUrlCache.REDIS, MiniUrlStore.SHARDED_BACKEND));
+    }
+}
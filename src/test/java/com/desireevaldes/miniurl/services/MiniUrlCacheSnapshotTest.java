@@ -0,0 +1,152 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.models.MiniUrl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.health.Status;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiniUrlCacheSnapshotTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    private static MiniUrl miniUrl(String miniKey) {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(miniKey);
+        miniUrl.setFullUrl("https://example.com/" + miniKey);
+        miniUrl.setCreatedAt(NOW);
+        miniUrl.setUpdatedAt(NOW);
+        return miniUrl;
+    }
+
+    private MiniUrlCacheSnapshot snapshot(MiniUrlCache miniUrlCache, int size, Instant now) {
+        return new MiniUrlCacheSnapshot(miniUrlCache, true, directory.resolve("cache.bin").toString(), size,
+                Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    @Test
+    public void testRestoresHottestEntries() {
+        MiniUrlCache miniUrlCache = new MiniUrlCache(4, 600);
+        miniUrlCache.put(miniUrl("cold123"));
+        miniUrlCache.put(miniUrl("hot1234"));
+        miniUrlCache.put(miniUrl("warm123"));
+        for (int i = 0; i < 3; i++) {
+            miniUrlCache.getIfPresent("hot1234");
+            miniUrlCache.getIfPresent("warm123");
+        }
+        miniUrlCache.getIfPresent("hot1234");
+        MiniUrlCacheSnapshot savingSnapshot = snapshot(miniUrlCache, 2, NOW);
+        savingSnapshot.load();
+        savingSnapshot.save();
+
+        MiniUrlCache restartedCache = new MiniUrlCache(100, 600);
+        MiniUrlCacheSnapshot loadingSnapshot = snapshot(restartedCache, 2, NOW);
+        loadingSnapshot.load();
+
+        assertEquals(2, restartedCache.estimatedSize());
+        MiniUrl restored = restartedCache.getIfPresent("hot1234");
+        assertEquals("https://example.com/hot1234", restored.getFullUrl());
+        assertEquals(NOW, restored.getCreatedAt());
+        assertNotNull(restartedCache.getIfPresent("warm123"));
+        assertNull(restartedCache.getIfPresent("cold123"));
+        assertEquals(Status.UP, loadingSnapshot.health().getStatus());
+        assertEquals(2, loadingSnapshot.health().getDetails().get("restoredEntries"));
+    }
+
+    @Test
+    public void testRestoredEntriesKeepTheirRemainingTime() {
+        MiniUrlCache miniUrlCache = new MiniUrlCache(100, 60);
+        miniUrlCache.put(miniUrl("abc1234"));
+        MiniUrlCacheSnapshot savingSnapshot = snapshot(miniUrlCache, 10, NOW);
+        savingSnapshot.load();
+        savingSnapshot.save();
+
+        MiniUrlCache restartedCache = new MiniUrlCache(100, 60);
+        snapshot(restartedCache, 10, NOW.plusSeconds(50)).load();
+        Duration expiresAfter = restartedCache.expiresAfter("abc1234");
+        assertTrue(expiresAfter.compareTo(Duration.ZERO) > 0 && expiresAfter.compareTo(Duration.ofSeconds(10)) <= 0,
+                "Expected at most 10s left, was " + expiresAfter);
+
+        MiniUrlCache lateCache = new MiniUrlCache(100, 60);
+        snapshot(lateCache, 10, NOW.plusSeconds(61)).load();
+        assertEquals(0, lateCache.estimatedSize());
+    }
+
+    @Test
+    public void testKeepsEntriesCachedBeforeTheSnapshotIsLoaded() {
+        MiniUrlCache miniUrlCache = new MiniUrlCache(100, 600);
+        miniUrlCache.put(miniUrl("abc1234"));
+        MiniUrlCacheSnapshot savingSnapshot = snapshot(miniUrlCache, 10, NOW);
+        savingSnapshot.load();
+        savingSnapshot.save();
+
+        MiniUrlCache restartedCache = new MiniUrlCache(100, 600);
+        MiniUrl fresher = miniUrl("abc1234");
+        fresher.setFullUrl("https://example.com/updated");
+        restartedCache.put(fresher);
+        snapshot(restartedCache, 10, NOW).load();
+
+        assertSame(fresher, restartedCache.getIfPresent("abc1234"));
+    }
+
+    @Test
+    public void testIsOutOfServiceUntilLoadedAndDoesNotOverwriteTheSnapshot() throws Exception {
+        Path file = directory.resolve("cache.bin");
+        Files.write(file, new byte[]{1, 2, 3});
+        MiniUrlCache miniUrlCache = new MiniUrlCache(100, 600);
+        miniUrlCache.put(miniUrl("abc1234"));
+        MiniUrlCacheSnapshot miniUrlCacheSnapshot = snapshot(miniUrlCache, 10, NOW);
+
+        assertEquals(Status.OUT_OF_SERVICE, miniUrlCacheSnapshot.health().getStatus());
+        miniUrlCacheSnapshot.save();
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(file));
+
+        miniUrlCacheSnapshot.load();
+
+        assertTrue(miniUrlCacheSnapshot.isLoaded(), "A corrupt snapshot is ignored");
+        assertEquals(Status.UP, miniUrlCacheSnapshot.health().getStatus());
+        assertEquals(1, miniUrlCache.estimatedSize());
+    }
+
+    @Test
+    public void testDisabledSnapshotIsReadyAndWritesNothing() {
+        MiniUrlCache miniUrlCache = new MiniUrlCache(100, 600);
+        miniUrlCache.put(miniUrl("abc1234"));
+        MiniUrlCacheSnapshot miniUrlCacheSnapshot = new MiniUrlCacheSnapshot(miniUrlCache, false,
+                directory.resolve("cache.bin").toString(), 10, Clock.systemUTC());
+
+        miniUrlCacheSnapshot.save();
+
+        assertEquals(Status.UP, miniUrlCacheSnapshot.health().getStatus());
+        assertFalse(Files.exists(directory.resolve("cache.bin")));
+    }
+
+    @Test
+    public void testSnapshotIsIgnoredWithSeveralInstances() {
+        MiniUrlCache miniUrlCache = new MiniUrlCache(100, 600);
+        miniUrlCache.put(miniUrl("abc1234"));
+        snapshot(miniUrlCache, 10, Instant.now()).save();
+        MiniUrlCache restartedCache = new MiniUrlCache(100, 600);
+
+        for (MiniUrlCacheSnapshot miniUrlCacheSnapshot : new MiniUrlCacheSnapshot[]{
+                new MiniUrlCacheSnapshot(restartedCache, true, directory.resolve("cache.bin").toString(), 10, true, SharedMiniUrlCache.NONE),
+                new MiniUrlCacheSnapshot(restartedCache, true, directory.resolve("cache.bin").toString(), 10, false, SharedMiniUrlCache.REDIS)}) {
+            miniUrlCacheSnapshot.start();
+
+            assertTrue(miniUrlCacheSnapshot.isLoaded(), "A skipped snapshot must not hold back readiness");
+            assertEquals(Status.UP, miniUrlCacheSnapshot.health().getStatus());
+        }
+        assertEquals(0, restartedCache.estimatedSize(), "Another instance may have updated the saved entries");
+    }
+}
@@ -0,0 +1,142 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.models.MiniUrl;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiniUrlCacheTest {
+
+    private static final String MINI_KEY = "abc1234";
+    private static final String ORIGINAL_URL = "https://example.com";
+
+    @Test
+    public void testPutAndGetIfPresent() {
+        MiniUrlCache miniUrlCache = new MiniUrlCache(100, 60);
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(MINI_KEY);
+        miniUrl.setFullUrl(ORIGINAL_URL);
+
+        miniUrlCache.put(miniUrl);
+
+        assertSame(miniUrl, miniUrlCache.getIfPresent(MINI_KEY));
+        assertEquals(1, miniUrlCache.stats().hitCount());
+    }
+
+    @Test
+    public void testMissIsCounted() {
+        MiniUrlCache miniUrlCache = new MiniUrlCache(100, 60);
+
+        assertNull(miniUrlCache.getIfPresent(MINI_KEY));
+        assertEquals(1, miniUrlCache.stats().missCount());
+    }
+
+    @Test
+    public void testInvalidateRemovesEntry() {
+        MiniUrlCache miniUrlCache = new MiniUrlCache(100, 60);
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(MINI_KEY);
+        miniUrl.setFullUrl(ORIGINAL_URL);
+        miniUrlCache.put(miniUrl);
+
+        miniUrlCache.invalidate(MINI_KEY);
+
+        assertNull(miniUrlCache.getIfPresent(MINI_KEY));
+    }
+
+    @Test
+    public void testLoadStartedBeforeAnInvalidationIsNotCached() {
+        MiniUrlCache miniUrlCache = new MiniUrlCache(100, 60);
+        MiniUrl staleMiniUrl = new MiniUrl();
+        staleMiniUrl.setMiniKey(MINI_KEY);
+        staleMiniUrl.setFullUrl(ORIGINAL_URL);
+
+        // The load takes the generation and reads the old row, then an update invalidates before the load caches it
+        long generation = miniUrlCache.generation(MINI_KEY);
+        miniUrlCache.invalidate(MINI_KEY);
+
+        assertFalse(miniUrlCache.putIfCurrent(staleMiniUrl, generation));
+        assertNull(miniUrlCache.getIfPresent(MINI_KEY));
+        assertTrue(miniUrlCache.putIfCurrent(staleMiniUrl, miniUrlCache.generation(MINI_KEY)), "A load started after it is cached");
+    }
+
+    @Test
+    public void testInvalidateAllSkipsEveryLoadInProgress() {
+        MiniUrlCache miniUrlCache = new MiniUrlCache(100, 60);
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(MINI_KEY);
+        miniUrl.setFullUrl(ORIGINAL_URL);
+        long generation = miniUrlCache.generation(MINI_KEY);
+
+        miniUrlCache.invalidateAll();
+
+        assertFalse(miniUrlCache.putIfCurrent(miniUrl, generation));
+    }
+
+    @Test
+    public void testPutIfAbsentKeepsGivenExpiry() {
+        MiniUrlCache miniUrlCache = new MiniUrlCache(100, 60);
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(MINI_KEY);
+        miniUrl.setFullUrl(ORIGINAL_URL);
+
+        assertTrue(miniUrlCache.putIfAbsent(miniUrl, Duration.ofSeconds(5)));
+        assertFalse(miniUrlCache.putIfAbsent(miniUrl, Duration.ofSeconds(5)));
+
+        Duration expiresAfter = miniUrlCache.expiresAfter(MINI_KEY);
+        assertTrue(expiresAfter.compareTo(Duration.ZERO) > 0 && expiresAfter.compareTo(Duration.ofSeconds(5)) <= 0);
+        assertEquals(Duration.ZERO, miniUrlCache.expiresAfter("unknown"));
+    }
+
+    @Test
+    public void testExpiringEntryIsEvictedWhenItExpires() throws Exception {
+        MiniUrlCache miniUrlCache = new MiniUrlCache(100, 60);
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(MINI_KEY);
+        miniUrl.setFullUrl(ORIGINAL_URL);
+        miniUrl.setExpiresAt(Instant.now().plusMillis(200));
+
+        miniUrlCache.put(miniUrl);
+
+        assertTrue(miniUrlCache.expiresAfter(MINI_KEY).compareTo(Duration.ofMillis(200)) <= 0);
+        assertTrue(miniUrlCache.putIfAbsent(copyOf(miniUrl, "def5678"), Duration.ofSeconds(30)));
+        assertTrue(miniUrlCache.expiresAfter("def5678").compareTo(Duration.ofMillis(200)) <= 0);
+        // Evicted by the scheduler, without a read to notice it
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (miniUrlCache.estimatedSize() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, miniUrlCache.estimatedSize());
+        assertNull(miniUrlCache.getIfPresent(MINI_KEY));
+    }
+
+    private static MiniUrl copyOf(MiniUrl miniUrl, String miniKey) {
+        MiniUrl copy = new MiniUrl();
+        copy.setMiniKey(miniKey);
+        copy.setFullUrl(miniUrl.getFullUrl());
+        copy.setExpiresAt(miniUrl.getExpiresAt());
+        return copy;
+    }
+
+    @Test
+    public void testHottestSkipsEntriesNotUsedAgain() {
+        MiniUrlCache miniUrlCache = new MiniUrlCache(4, 60);
+        for (String miniKey : List.of("cold123", "warm123", "hot1234")) {
+            MiniUrl miniUrl = new MiniUrl();
+            miniUrl.setMiniKey(miniKey);
+            miniUrl.setFullUrl(ORIGINAL_URL);
+            miniUrlCache.put(miniUrl);
+        }
+        for (int i = 0; i < 5; i++) {
+            miniUrlCache.getIfPresent("hot1234");
+        }
+        miniUrlCache.getIfPresent("warm123");
+
+        assertEquals(Set.of("hot1234", "warm123"), miniUrlCache.hottest(2).keySet());
+    }
+}
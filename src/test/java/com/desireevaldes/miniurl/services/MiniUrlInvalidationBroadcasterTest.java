@@ -0,0 +1,104 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.models.MiniUrl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two instances against the test database: the application context, and a second near cache with its own broadcaster.
+ * They share the in-process stand-in of the shared tier.
+ */
+@SpringBootTest(properties = {"MINIURL_CACHE_INVALIDATION_ENABLED=true", "MINIURL_SHARED_CACHE=in-process"})
+public class MiniUrlInvalidationBroadcasterTest {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    @Autowired
+    private MiniUrlService miniUrlService;
+    @Autowired
+    private MiniUrlCache miniUrlCache;
+    @Autowired
+    private SharedMiniUrlCache sharedMiniUrlCache;
+    @Autowired
+    private MiniUrlInvalidationBroadcaster miniUrlInvalidationBroadcaster;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    private MiniUrlCache otherMiniUrlCache;
+    private MiniUrlInvalidationBroadcaster otherBroadcaster;
+
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        otherMiniUrlCache = new MiniUrlCache(1000, 600);
+        otherBroadcaster = new MiniUrlInvalidationBroadcaster(otherMiniUrlCache, jdbcTemplate, dataSourceProperties,
+                true, 100, "jpa");
+        otherBroadcaster.start();
+        awaitListening(miniUrlInvalidationBroadcaster);
+        awaitListening(otherBroadcaster);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        otherBroadcaster.stop();
+    }
+
+    private static void awaitListening(MiniUrlInvalidationBroadcaster broadcaster) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!broadcaster.isListening()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Broadcaster is not listening");
+            Thread.sleep(10);
+        }
+    }
+
+    private static void awaitAbsent(MiniUrlCache cache, String miniKey) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (cache.getIfPresent(miniKey) != null) {
+            assertTrue(System.currentTimeMillis() < deadline, "miniKey " + miniKey + " is still cached");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testUpdateInvalidatesOtherInstances() throws Exception {
+        String fullUrl = "https://example.com/" + UUID.randomUUID();
+        MiniUrl created = miniUrlService.getOrCreateMiniUrlAsync(fullUrl).get();
+        String miniKey = created.getMiniKey();
+        assertEquals(fullUrl, miniUrlService.resolveFullUrl(miniKey));
+        assertNotNull(sharedMiniUrlCache.get(miniKey).get());
+        otherMiniUrlCache.put(created);
+
+        miniUrlService.updateMiniUrlAsync(miniKey, fullUrl + "/updated").get();
+
+        assertNull(sharedMiniUrlCache.get(miniKey).get());
+        awaitAbsent(otherMiniUrlCache, miniKey);
+        assertEquals(fullUrl + "/updated", miniUrlService.resolveFullUrl(miniKey));
+        assertNull(sharedMiniUrlCache.get(miniKey).get(), "The shared tier is not written again until the tombstone expires");
+
+        miniUrlService.deleteMiniUrlAsync(miniKey).get();
+    }
+
+    @Test
+    public void testBroadcastReachesEveryInstance() throws Exception {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey("bcast" + UUID.randomUUID().toString().substring(0, 8));
+        miniUrl.setFullUrl("https://example.com/broadcast");
+        miniUrlCache.put(miniUrl);
+        otherMiniUrlCache.put(miniUrl);
+
+        otherBroadcaster.broadcast(miniUrl.getMiniKey());
+
+        awaitAbsent(miniUrlCache, miniUrl.getMiniKey());
+        awaitAbsent(otherMiniUrlCache, miniUrl.getMiniKey());
+    }
+}
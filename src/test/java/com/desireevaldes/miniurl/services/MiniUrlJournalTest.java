@@ -0,0 +1,223 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.exceptions.MiniKeyConflictException;
+import com.desireevaldes.miniurl.exceptions.MiniUrlUnavailableException;
+import com.desireevaldes.miniurl.models.MiniUrl;
+import com.desireevaldes.miniurl.repositories.MiniUrlStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MiniUrlJournalTest {
+
+    private static final String MINI_KEY = "abc1234";
+    private static final String FULL_URL = "https://example.com/";
+
+    @TempDir
+    private Path journalDirectory;
+    @Mock
+    private JdbcTemplate mockJdbcTemplate;
+    @Mock
+    private PlatformTransactionManager mockTransactionManager;
+    @Mock
+    private MiniKeyFilter mockMiniKeyFilter;
+
+    private final List<MiniUrlJournal> journals = new ArrayList<>();
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(mockTransactionManager);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        journals.forEach(MiniUrlJournal::stop);
+    }
+
+    private MiniUrlJournal startJournal(boolean enabled) {
+        MiniUrlJournal miniUrlJournal = new MiniUrlJournal(mockJdbcTemplate, transactionTemplate, mockMiniKeyFilter,
+                enabled, journalDirectory.toString(), 1000, MiniUrlStore.JPA_BACKEND);
+        miniUrlJournal.start();
+        journals.add(miniUrlJournal);
+        return miniUrlJournal;
+    }
+
+    private static MiniUrl newMiniUrl(String miniKey, String fullUrl) {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(miniKey);
+        miniUrl.setFullUrl(fullUrl);
+        return miniUrl;
+    }
+
+    private void failDatabaseWrites() {
+        when(mockJdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("Database down"));
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> paths = Files.list(journalDirectory)) {
+            return paths.toList();
+        }
+    }
+
+    @Test
+    public void testAppendedMiniUrlsArePendingUntilDrained() throws Exception {
+        MiniUrlJournal miniUrlJournal = startJournal(true);
+        MiniUrl miniUrl = newMiniUrl(MINI_KEY, FULL_URL);
+
+        assertEquals(List.of(miniUrl), miniUrlJournal.append(List.of(miniUrl)).get());
+        assertSame(miniUrl, miniUrlJournal.getPending(MINI_KEY));
+        assertSame(miniUrl, miniUrlJournal.getPendingByFullUrl(FULL_URL));
+        assertNotNull(miniUrl.getCreatedAt());
+
+        miniUrlJournal.drain();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<MiniUrl>> batchCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(mockJdbcTemplate).batchUpdate(anyString(), batchCaptor.capture(), eq(1000), any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(List.of(miniUrl), List.copyOf(batchCaptor.getValue()));
+        assertFalse(miniUrlJournal.isPending(MINI_KEY));
+        assertNull(miniUrlJournal.getPendingByFullUrl(FULL_URL));
+        assertEquals(1, segmentFiles().size(), "Only the new, empty segment should be left");
+    }
+
+    @Test
+    public void testSecondAppendOfPendingMiniKeyFails() throws Exception {
+        MiniUrlJournal miniUrlJournal = startJournal(true);
+        MiniUrl miniUrl = newMiniUrl(MINI_KEY, FULL_URL);
+        miniUrlJournal.append(List.of(miniUrl)).get();
+
+        CompletableFuture<List<MiniUrl>> conflictingAppend = miniUrlJournal.append(List.of(
+                newMiniUrl("def5678", "https://example.org/"), newMiniUrl(MINI_KEY, "https://example.net/")));
+
+        ExecutionException exception = assertThrows(ExecutionException.class, conflictingAppend::get);
+        assertInstanceOf(MiniKeyConflictException.class, exception.getCause());
+        assertSame(miniUrl, miniUrlJournal.getPending(MINI_KEY));
+        assertFalse(miniUrlJournal.isPending("def5678"), "The keys of a failed append must be released");
+    }
+
+    @Test
+    public void testDrainReadsBackDrainedMiniKeys() throws Exception {
+        MiniUrlJournal miniUrlJournal = startJournal(true);
+        miniUrlJournal.append(List.of(newMiniUrl(MINI_KEY, FULL_URL))).get();
+
+        miniUrlJournal.drain();
+
+        ArgumentCaptor<Object> miniKeysCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockJdbcTemplate).query(anyString(), any(RowCallbackHandler.class), miniKeysCaptor.capture());
+        assertArrayEquals(new String[]{MINI_KEY}, (String[]) miniKeysCaptor.getValue());
+    }
+
+    @Test
+    public void testFailedDrainKeepsMiniUrlsPending() throws Exception {
+        failDatabaseWrites();
+        MiniUrlJournal miniUrlJournal = startJournal(true);
+
+        miniUrlJournal.append(List.of(newMiniUrl(MINI_KEY, FULL_URL))).get();
+        miniUrlJournal.drain();
+
+        assertTrue(miniUrlJournal.isPending(MINI_KEY));
+    }
+
+    @Test
+    public void testFlushIfPendingFailsWhenTheDrainFails() throws Exception {
+        failDatabaseWrites();
+        MiniUrlJournal miniUrlJournal = startJournal(true);
+        miniUrlJournal.append(List.of(newMiniUrl(MINI_KEY, FULL_URL))).get();
+
+        assertThrows(MiniUrlUnavailableException.class, () -> miniUrlJournal.flushIfPending(MINI_KEY));
+        assertDoesNotThrow(() -> miniUrlJournal.flushIfPending("def5678"), "Keys that are not journaled are in the database");
+    }
+
+    @Test
+    public void testUndrainedMiniUrlsAreReplayedOnRestart() throws Exception {
+        failDatabaseWrites();
+        MiniUrlJournal miniUrlJournal = startJournal(true);
+        miniUrlJournal.append(List.of(newMiniUrl(MINI_KEY, FULL_URL), newMiniUrl("def5678", "https://example.org/"))).get();
+        miniUrlJournal.stop();
+
+        MiniUrlJournal restartedJournal = startJournal(true);
+
+        assertEquals(2, restartedJournal.pendingCount());
+        assertEquals(FULL_URL, restartedJournal.getPending(MINI_KEY).getFullUrl());
+        assertEquals(MINI_KEY, restartedJournal.getPendingByFullUrl(FULL_URL).getMiniKey());
+        verify(mockMiniKeyFilter).add(MINI_KEY);
+        verify(mockMiniKeyFilter).add("def5678");
+    }
+
+    @Test
+    public void testReplayIgnoresTornLastRecord() throws Exception {
+        failDatabaseWrites();
+        MiniUrlJournal miniUrlJournal = startJournal(true);
+        miniUrlJournal.append(List.of(newMiniUrl(MINI_KEY, FULL_URL))).get();
+        miniUrlJournal.stop();
+        Path segment = segmentFiles().getFirst();
+        Files.write(segment, new byte[]{0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        MiniUrlJournal restartedJournal = startJournal(true);
+
+        assertEquals(1, restartedJournal.pendingCount());
+        assertTrue(restartedJournal.isPending(MINI_KEY));
+    }
+
+    @Test
+    public void testConcurrentAppendsAreAllJournaled() throws Exception {
+        MiniUrlJournal miniUrlJournal = startJournal(true);
+        List<CompletableFuture<List<MiniUrl>>> results = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            String miniKey = "key" + (10000 + i);
+            results.add(CompletableFuture.supplyAsync(() -> newMiniUrl(miniKey, FULL_URL + miniKey))
+                    .thenCompose(miniUrl -> miniUrlJournal.append(List.of(miniUrl))));
+        }
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get();
+
+        assertEquals(100, miniUrlJournal.pendingCount());
+    }
+
+    @Test
+    public void testDisabledJournalDoesNothing() throws Exception {
+        MiniUrlJournal miniUrlJournal = startJournal(false);
+
+        miniUrlJournal.drain();
+
+        assertFalse(miniUrlJournal.isEnabled());
+        assertFalse(miniUrlJournal.isPending(MINI_KEY));
+        assertTrue(segmentFiles().isEmpty());
+        verifyNoInteractions(mockJdbcTemplate);
+    }
+
+    @Test
+    public void testRequiresJpaStorageBackend() {
+        assertThrows(IllegalStateException.class, () -> new MiniUrlJournal(mockJdbcTemplate, transactionTemplate,
+                mockMiniKeyFilter, true, journalDirectory.toString(), 1000, MiniUrlStore.OFF_HEAP_BACKEND));
+    }
+}
@@ -0,0 +1,114 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.repositories.MiniUrlStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MiniUrlReaperTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-18T12:00:00Z");
+
+    @Mock
+    private MiniUrlStore mockMiniUrlStore;
+    @Mock
+    private JdbcTemplate mockJdbcTemplate;
+
+    private MiniUrlReaper reaper(int batchSize, int maxBatches, String storageBackend) {
+        return new MiniUrlReaper(mockMiniUrlStore, mockJdbcTemplate, true, batchSize, maxBatches, 2, storageBackend,
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    public void testDeletesInBatchesUntilAShortOne() {
+        when(mockMiniUrlStore.deleteExpired(NOW, 2)).thenReturn(2, 2, 1);
+
+        assertEquals(5, reaper(2, 10, MiniUrlStore.SHARDED_BACKEND).reap());
+
+        verify(mockMiniUrlStore, times(3)).deleteExpired(NOW, 2);
+        verifyNoInteractions(mockJdbcTemplate);
+    }
+
+    @Test
+    public void testStopsAfterMaxBatches() {
+        when(mockMiniUrlStore.deleteExpired(NOW, 2)).thenReturn(2);
+
+        assertEquals(6, reaper(2, 3, MiniUrlStore.OFF_HEAP_BACKEND).reap());
+
+        verify(mockMiniUrlStore, times(3)).deleteExpired(NOW, 2);
+    }
+
+    @Test
+    public void testFailedBatchIsRetriedOnNextRun() {
+        when(mockMiniUrlStore.deleteExpired(NOW, 2)).thenReturn(2).thenThrow(new DataAccessResourceFailureException("Database down"));
+
+        assertEquals(2, reaper(2, 10, MiniUrlStore.SHARDED_BACKEND).reap());
+    }
+
+    @Test
+    public void testUnpartitionedTableIsOnlyDeletedFrom() {
+        when(mockJdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(0L);
+
+        reaper(2, 10, MiniUrlStore.JPA_BACKEND).reap();
+
+        verify(mockJdbcTemplate, never()).execute(anyString());
+        verify(mockMiniUrlStore).deleteExpired(NOW, 2);
+    }
+
+    @Test
+    public void testCreatesMissingComingPartitionsAndDropsPastOnes() {
+        when(mockJdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(1L);
+        when(mockJdbcTemplate.queryForList(anyString(), eq(String.class)))
+                .thenReturn(List.of("mini_urls_default", "mini_urls_p202608", "mini_urls_p202609", "mini_urls_p202610"));
+
+        reaper(2, 10, MiniUrlStore.JPA_BACKEND).reap();
+
+        verify(mockJdbcTemplate).execute("CREATE TABLE mini_urls_p202612 (LIKE mini_urls INCLUDING DEFAULTS); "
+                + "INSERT INTO mini_urls_p202612 SELECT * FROM mini_urls_default"
+                + " WHERE expires_at >= '2026-12-01T00:00:00Z' AND expires_at < '2027-01-01T00:00:00Z'; "
+                + "DELETE FROM mini_urls_default WHERE expires_at >= '2026-12-01T00:00:00Z' AND expires_at < '2027-01-01T00:00:00Z'; "
+                + "INSERT INTO mini_keys (mini_key) SELECT mini_key FROM mini_urls_p202612 ON CONFLICT DO NOTHING; "
+                + "CREATE UNIQUE INDEX mini_urls_p202612_mini_key_idx ON mini_urls_p202612 (mini_key); "
+                + "ALTER TABLE mini_urls ATTACH PARTITION mini_urls_p202612 FOR VALUES FROM ('2026-12-01T00:00:00Z') TO ('2027-01-01T00:00:00Z')");
+        verify(mockJdbcTemplate).execute(startsWith("CREATE TABLE mini_urls_p202611 "));
+        verify(mockJdbcTemplate, never()).execute(startsWith("CREATE TABLE mini_urls_p202610 "));
+        verify(mockJdbcTemplate, never()).execute(contains("mini_urls_p202701"));
+        // Every link of a past month has expired, no need to look
+        verify(mockJdbcTemplate).execute("ALTER TABLE mini_urls DETACH PARTITION mini_urls_p202608; "
+                + "DELETE FROM mini_keys WHERE mini_key IN (SELECT mini_key FROM mini_urls_p202608); DROP TABLE mini_urls_p202608");
+        verify(mockJdbcTemplate).execute(startsWith("ALTER TABLE mini_urls DETACH PARTITION mini_urls_p202609;"));
+        verify(mockJdbcTemplate, never()).execute(contains("DETACH PARTITION mini_urls_p202610"));
+        verify(mockJdbcTemplate, never()).execute(contains("DETACH PARTITION mini_urls_default"));
+        verify(mockJdbcTemplate, never()).queryForList(anyString(), eq(Integer.class), any());
+        verify(mockMiniUrlStore).deleteExpired(NOW, 2);
+    }
+
+    @Test
+    public void testDisabledReaperDoesNothing() {
+        MiniUrlReaper reaper = new MiniUrlReaper(mockMiniUrlStore, mockJdbcTemplate, false, 2, 10, 2,
+                MiniUrlStore.JPA_BACKEND, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        assertEquals(0, reaper.reap());
+
+        verifyNoInteractions(mockMiniUrlStore, mockJdbcTemplate);
+    }
+
+    @Test
+    public void testRejectsInvalidBatchSettings() {
+        assertThrows(IllegalStateException.class, () -> reaper(0, 10, MiniUrlStore.JPA_BACKEND));
+        assertThrows(IllegalStateException.class, () -> reaper(2, 0, MiniUrlStore.JPA_BACKEND));
+    }
+}
@@ -1,18 +1,35 @@
 package com.desireevaldes.miniurl.services;
 
+import com.desireevaldes.miniurl.config.ReplicaRoutingDataSource;
+import com.desireevaldes.miniurl.exceptions.MiniKeyConflictException;
+import com.desireevaldes.miniurl.exceptions.MiniKeyGenerationException;
+import com.desireevaldes.miniurl.exceptions.MiniUrlNotFoundException;
+import com.desireevaldes.miniurl.exceptions.MiniUrlUnavailableException;
 import com.desireevaldes.miniurl.models.MiniUrl;
-import com.desireevaldes.miniurl.repositories.MiniUrlRepository;
+import com.desireevaldes.miniurl.repositories.MiniUrlStore;
 import com.desireevaldes.miniurl.utils.CustomUrlValidator;
 import com.desireevaldes.miniurl.utils.RandomKeyGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,29 +42,60 @@ public class MiniUrlServiceTest {
     private static final String NEW_URL = "https://news.com";
 
     @Mock
-    private MiniUrlRepository mockMiniUrlRepository;
+    private MiniUrlStore mockMiniUrlStore;
     @Mock
     private CustomUrlValidator mockCustomUrlValidator;
     @Mock
     private RandomKeyGenerator mockRandomKeyGenerator;
+    @Mock
+    private MiniUrlCache mockMiniUrlCache;
+    @Mock
+    private SharedMiniUrlCache mockSharedMiniUrlCache;
+    @Mock
+    private MiniUrlInvalidationBroadcaster mockMiniUrlInvalidationBroadcaster;
+    @Mock
+    private MiniKeyBlockAllocator mockMiniKeyBlockAllocator;
+    @Mock
+    private EntityManager mockEntityManager;
+    @Mock
+    private ClickStatsService mockClickStatsService;
+    @Mock
+    private MiniKeyFilter mockMiniKeyFilter;
+    @Mock
+    private MiniUrlJournal mockMiniUrlJournal;
+    @Mock
+    private ReplicaLagGuard mockReplicaLagGuard;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @Spy
+    private MiniUrlMetrics miniUrlMetrics = new MiniUrlMetrics(meterRegistry);
 
     @InjectMocks
     private MiniUrlService miniUrlService;
 
+    @BeforeEach
+    public void setUp() {
+        lenient().when(mockCustomUrlValidator.normalizeUrl(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(mockRandomKeyGenerator.getCandidatesPerRound()).thenReturn(1);
+        lenient().when(mockRandomKeyGenerator.getMaxRounds()).thenReturn(5);
+        lenient().when(mockMiniUrlStore.miniKeyPrefix(any())).thenReturn("");
+        lenient().when(mockSharedMiniUrlCache.get(anyString())).thenReturn(CompletableFuture.completedFuture(null));
+        lenient().when(mockSharedMiniUrlCache.invalidate(anyString())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
     @Test
     public void testGetOrCreateMiniUrlAsync_ReturnsExisting() throws Exception {
         MiniUrl existingMiniUrl = new MiniUrl();
         existingMiniUrl.setMiniKey(MINI_KEY);
         existingMiniUrl.setFullUrl(ORIGINAL_URL);
 
-        when(mockMiniUrlRepository.findByFullUrl(ORIGINAL_URL))
-                .thenReturn(CompletableFuture.completedFuture(Optional.of(existingMiniUrl)));
+        when(mockMiniUrlStore.findByFullUrlHash(MiniUrl.hashFullUrl(ORIGINAL_URL)))
+                .thenReturn(CompletableFuture.completedFuture(List.of(existingMiniUrl)));
 
         MiniUrl result = miniUrlService.getOrCreateMiniUrlAsync(ORIGINAL_URL).get();
 
         assertEquals(existingMiniUrl.getMiniKey(), result.getMiniKey());
-        verify(mockMiniUrlRepository, never()).save(any());
-        verify(mockCustomUrlValidator).validateUrl(ORIGINAL_URL);
+        verify(mockMiniUrlStore, never()).save(any());
+        verify(mockCustomUrlValidator).normalizeUrl(ORIGINAL_URL);
     }
 
     @Test
@@ -56,31 +104,327 @@ public class MiniUrlServiceTest {
         newMiniUrl.setMiniKey(MINI_KEY);
         newMiniUrl.setFullUrl(ORIGINAL_URL);
 
-        when(mockMiniUrlRepository.findByFullUrl(ORIGINAL_URL))
-                .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
-        when(mockRandomKeyGenerator.generateKey()).thenReturn(MINI_KEY);
-        when(mockMiniUrlRepository.existsByMiniKey(MINI_KEY))
-                .thenReturn(CompletableFuture.completedFuture(false));
-        when(mockMiniUrlRepository.save(any(MiniUrl.class))).thenReturn(newMiniUrl);
+        when(mockMiniUrlStore.findByFullUrlHash(MiniUrl.hashFullUrl(ORIGINAL_URL)))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        when(mockRandomKeyGenerator.generateKey("")).thenReturn(MINI_KEY);
+        when(mockMiniUrlStore.findExistingMiniKeys(Set.of(MINI_KEY)))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        when(mockMiniUrlStore.save(any(MiniUrl.class))).thenReturn(newMiniUrl);
 
         MiniUrl result = miniUrlService.getOrCreateMiniUrlAsync(ORIGINAL_URL).get();
 
         assertEquals(MINI_KEY, result.getMiniKey());
-        verify(mockMiniUrlRepository).save(any(MiniUrl.class));
-        verify(mockCustomUrlValidator).validateUrl(ORIGINAL_URL);
-        verify(mockRandomKeyGenerator).generateKey();
+        verify(mockMiniUrlStore).save(any(MiniUrl.class));
+        verify(mockCustomUrlValidator).normalizeUrl(ORIGINAL_URL);
+        verify(mockRandomKeyGenerator).generateKey("");
+        verify(mockReplicaLagGuard).recordWrite(MINI_KEY);
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrlAsync_RecordsTimersAndKeyCollisions() throws Exception {
+        when(mockMiniUrlStore.findByFullUrlHash(MiniUrl.hashFullUrl(ORIGINAL_URL)))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        when(mockRandomKeyGenerator.generateKey("")).thenReturn("taken", MINI_KEY);
+        when(mockMiniUrlStore.findExistingMiniKeys(Set.of("taken"))).thenReturn(CompletableFuture.completedFuture(List.of("taken")));
+        when(mockMiniUrlStore.findExistingMiniKeys(Set.of(MINI_KEY))).thenReturn(CompletableFuture.completedFuture(List.of()));
+        when(mockMiniUrlStore.save(any(MiniUrl.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertEquals(MINI_KEY, miniUrlService.getOrCreateMiniUrlAsync(ORIGINAL_URL).get().getMiniKey());
+
+        assertEquals(1, meterRegistry.get(MiniUrlMetrics.KEY_COLLISIONS_COUNTER).counter().count());
+        assertEquals(1, meterRegistry.get(MiniUrlMetrics.KEY_GENERATION_TIMER).tag("strategy", "random").timer().count());
+        assertEquals(1, meterRegistry.get(MiniUrlMetrics.OPERATION_TIMER)
+                .tags("operation", MiniUrlMetrics.CREATE, "outcome", "success").timer().count());
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrlAsync_JournalsNewMiniUrlWhenWriteBehindEnabled() throws Exception {
+        when(mockMiniUrlJournal.isEnabled()).thenReturn(true);
+        when(mockMiniUrlJournal.append(anyList())).thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+        when(mockMiniUrlStore.findByFullUrlHash(MiniUrl.hashFullUrl(ORIGINAL_URL)))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        when(mockRandomKeyGenerator.generateKey("")).thenReturn(MINI_KEY);
+        when(mockMiniUrlStore.findExistingMiniKeys(Set.of(MINI_KEY)))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+
+        MiniUrl result = miniUrlService.getOrCreateMiniUrlAsync(ORIGINAL_URL).get();
+
+        assertEquals(MINI_KEY, result.getMiniKey());
+        assertEquals(ORIGINAL_URL, result.getFullUrl());
+        verify(mockMiniUrlJournal).append(List.of(result));
+        verify(mockMiniUrlStore, never()).save(any());
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrlAsync_RegeneratesMiniKeyTakenByConcurrentJournalAppend() throws Exception {
+        when(mockMiniUrlJournal.isEnabled()).thenReturn(true);
+        when(mockMiniUrlJournal.append(anyList()))
+                .thenReturn(CompletableFuture.failedFuture(new MiniKeyConflictException("miniKey taken is already journaled")))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+        when(mockMiniUrlStore.findByFullUrlHash(MiniUrl.hashFullUrl(ORIGINAL_URL)))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        when(mockRandomKeyGenerator.generateKey("")).thenReturn("taken", MINI_KEY);
+        when(mockMiniUrlStore.findExistingMiniKeys(anySet())).thenReturn(CompletableFuture.completedFuture(List.of()));
+
+        MiniUrl result = miniUrlService.getOrCreateMiniUrlAsync(ORIGINAL_URL).get();
+
+        assertEquals(MINI_KEY, result.getMiniKey());
+        verify(mockMiniUrlJournal, times(2)).append(anyList());
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrlAsync_ReturnsJournaledMiniUrl() throws Exception {
+        MiniUrl journaledMiniUrl = new MiniUrl();
+        journaledMiniUrl.setMiniKey(MINI_KEY);
+        journaledMiniUrl.setFullUrl(ORIGINAL_URL);
+
+        when(mockMiniUrlJournal.getPendingByFullUrl(ORIGINAL_URL)).thenReturn(journaledMiniUrl);
+
+        assertSame(journaledMiniUrl, miniUrlService.getOrCreateMiniUrlAsync(ORIGINAL_URL).get());
+        verify(mockMiniUrlStore, never()).findByFullUrlHash(any());
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrlAsync_CoalescesConcurrentIdenticalCreates() throws Exception {
+        MiniUrl newMiniUrl = new MiniUrl();
+        newMiniUrl.setMiniKey(MINI_KEY);
+        newMiniUrl.setFullUrl(ORIGINAL_URL);
+        CompletableFuture<List<MiniUrl>> pendingLookup = new CompletableFuture<>();
+
+        when(mockMiniUrlStore.findByFullUrlHash(MiniUrl.hashFullUrl(ORIGINAL_URL))).thenReturn(pendingLookup);
+        when(mockRandomKeyGenerator.generateKey("")).thenReturn(MINI_KEY);
+        when(mockMiniUrlStore.findExistingMiniKeys(Set.of(MINI_KEY)))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        when(mockMiniUrlStore.save(any(MiniUrl.class))).thenReturn(newMiniUrl);
+
+        CompletableFuture<MiniUrl> first = miniUrlService.getOrCreateMiniUrlAsync(ORIGINAL_URL);
+        CompletableFuture<MiniUrl> second = miniUrlService.getOrCreateMiniUrlAsync(ORIGINAL_URL);
+        pendingLookup.complete(List.of());
+
+        assertSame(newMiniUrl, first.get());
+        assertSame(newMiniUrl, second.get());
+        verify(mockMiniUrlStore).findByFullUrlHash(MiniUrl.hashFullUrl(ORIGINAL_URL));
+        verify(mockMiniUrlStore).save(any(MiniUrl.class));
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrlAsync_SkipsExistenceCheckIfFilteredOut() throws Exception {
+        MiniUrl newMiniUrl = new MiniUrl();
+        newMiniUrl.setMiniKey(MINI_KEY);
+        newMiniUrl.setFullUrl(ORIGINAL_URL);
+
+        when(mockMiniUrlStore.findByFullUrlHash(MiniUrl.hashFullUrl(ORIGINAL_URL)))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        when(mockRandomKeyGenerator.generateKey("")).thenReturn(MINI_KEY);
+        when(mockMiniKeyFilter.isDefinitelyAbsent(MINI_KEY)).thenReturn(true);
+        when(mockMiniUrlStore.save(any(MiniUrl.class))).thenReturn(newMiniUrl);
+
+        MiniUrl result = miniUrlService.getOrCreateMiniUrlAsync(ORIGINAL_URL).get();
+
+        assertEquals(MINI_KEY, result.getMiniKey());
+        verify(mockMiniUrlStore, never()).findExistingMiniKeys(any());
+        verify(mockMiniKeyFilter).add(MINI_KEY);
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrlAsync_CreatesNewOnHashCollision() throws Exception {
+        MiniUrl collidingMiniUrl = new MiniUrl();
+        collidingMiniUrl.setMiniKey("other12");
+        collidingMiniUrl.setFullUrl(NEW_URL);
+        MiniUrl newMiniUrl = new MiniUrl();
+        newMiniUrl.setMiniKey(MINI_KEY);
+        newMiniUrl.setFullUrl(ORIGINAL_URL);
+
+        when(mockMiniUrlStore.findByFullUrlHash(MiniUrl.hashFullUrl(ORIGINAL_URL)))
+                .thenReturn(CompletableFuture.completedFuture(List.of(collidingMiniUrl)));
+        when(mockRandomKeyGenerator.generateKey("")).thenReturn(MINI_KEY);
+        when(mockMiniUrlStore.findExistingMiniKeys(Set.of(MINI_KEY)))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        when(mockMiniUrlStore.save(any(MiniUrl.class))).thenReturn(newMiniUrl);
+
+        MiniUrl result = miniUrlService.getOrCreateMiniUrlAsync(ORIGINAL_URL).get();
+
+        assertEquals(MINI_KEY, result.getMiniKey());
+        verify(mockMiniUrlStore).save(any(MiniUrl.class));
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrlAsync_ChecksSeveralCandidateKeysInOneQuery() throws Exception {
+        when(mockMiniUrlStore.findByFullUrlHash(MiniUrl.hashFullUrl(ORIGINAL_URL)))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        when(mockRandomKeyGenerator.getCandidatesPerRound()).thenReturn(3);
+        when(mockRandomKeyGenerator.generateKey("")).thenReturn("taken12", "taken34", "free123");
+        when(mockMiniUrlStore.findExistingMiniKeys(Set.of("taken12", "taken34", "free123")))
+                .thenReturn(CompletableFuture.completedFuture(List.of("taken12", "taken34")));
+        when(mockMiniUrlStore.save(any(MiniUrl.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        MiniUrl result = miniUrlService.getOrCreateMiniUrlAsync(ORIGINAL_URL).get();
+
+        assertEquals("free123", result.getMiniKey());
+        verify(mockMiniUrlStore).findExistingMiniKeys(anyCollection());
+        verify(mockRandomKeyGenerator).recordCollisions(3, 2);
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrlAsync_FailsAfterMaxKeyGenerationRounds() {
+        when(mockMiniUrlStore.findByFullUrlHash(MiniUrl.hashFullUrl(ORIGINAL_URL)))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        when(mockRandomKeyGenerator.getMaxRounds()).thenReturn(2);
+        when(mockRandomKeyGenerator.generateKey("")).thenReturn("taken12");
+        when(mockMiniUrlStore.findExistingMiniKeys(Set.of("taken12")))
+                .thenReturn(CompletableFuture.completedFuture(List.of("taken12")));
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> miniUrlService.getOrCreateMiniUrlAsync(ORIGINAL_URL).get());
+
+        assertInstanceOf(MiniKeyGenerationException.class, exception.getCause());
+        verify(mockMiniUrlStore, times(2)).findExistingMiniKeys(anyCollection());
+        verify(mockRandomKeyGenerator, times(2)).recordCollisions(1, 1);
+        verify(mockMiniUrlStore, never()).save(any());
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrlAsync_UsesBlockAllocatorWithoutExistenceCheck() throws Exception {
+        MiniUrl newMiniUrl = new MiniUrl();
+        newMiniUrl.setMiniKey(MINI_KEY);
+        newMiniUrl.setFullUrl(ORIGINAL_URL);
+
+        when(mockMiniUrlStore.findByFullUrlHash(MiniUrl.hashFullUrl(ORIGINAL_URL)))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        when(mockMiniKeyBlockAllocator.isEnabled()).thenReturn(true);
+        when(mockMiniKeyBlockAllocator.nextKey()).thenReturn(MINI_KEY);
+        when(mockMiniUrlStore.save(any(MiniUrl.class))).thenReturn(newMiniUrl);
+
+        MiniUrl result = miniUrlService.getOrCreateMiniUrlAsync(ORIGINAL_URL).get();
+
+        assertEquals(MINI_KEY, result.getMiniKey());
+        verify(mockMiniUrlStore, never()).findExistingMiniKeys(any());
+        verify(mockRandomKeyGenerator, never()).generateKey(anyString());
     }
 
     @Test
     public void testGetOrCreateMiniUrlAsync_ThrowsIfInvalidUrl() {
         String url = "invalid-url";
 
-        doThrow(new IllegalArgumentException("Invalid URL format")).when(mockCustomUrlValidator).validateUrl(url);
+        when(mockCustomUrlValidator.normalizeUrl(url)).thenThrow(new IllegalArgumentException("Invalid URL format"));
 
         assertThrows(Exception.class, () -> {
             miniUrlService.getOrCreateMiniUrlAsync(url).get();
         });
-        verify(mockCustomUrlValidator).validateUrl(url);
+        verify(mockCustomUrlValidator).normalizeUrl(url);
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrlsAsync_DedupesAndCreatesMissing() throws Exception {
+        MiniUrl existingMiniUrl = new MiniUrl();
+        existingMiniUrl.setMiniKey(MINI_KEY);
+        existingMiniUrl.setFullUrl(ORIGINAL_URL);
+
+        when(mockMiniUrlStore.findByFullUrlHashIn(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(existingMiniUrl)));
+        when(mockRandomKeyGenerator.generateKey("")).thenReturn("new1234");
+        when(mockMiniUrlStore.findExistingMiniKeys(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        when(mockMiniUrlStore.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<MiniUrl> result = miniUrlService.getOrCreateMiniUrlsAsync(List.of(ORIGINAL_URL, NEW_URL, ORIGINAL_URL)).get();
+
+        assertEquals(3, result.size());
+        assertEquals(MINI_KEY, result.get(0).getMiniKey());
+        assertEquals("new1234", result.get(1).getMiniKey());
+        assertEquals(NEW_URL, result.get(1).getFullUrl());
+        assertSame(result.get(0), result.get(2));
+        verify(mockMiniUrlStore).findByFullUrlHashIn(Set.of(MiniUrl.hashFullUrl(ORIGINAL_URL), MiniUrl.hashFullUrl(NEW_URL)));
+        verify(mockMiniUrlStore).saveAll(argThat(miniUrls -> ((List<MiniUrl>) miniUrls).size() == 1));
+        verify(mockCustomUrlValidator, times(2)).normalizeUrl(ORIGINAL_URL);
+        verify(mockCustomUrlValidator).normalizeUrl(NEW_URL);
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrlsAsync_DedupesEquivalentUrls() throws Exception {
+        String equivalentUrl = "HTTPS://Example.com:443/";
+        MiniUrl existingMiniUrl = new MiniUrl();
+        existingMiniUrl.setMiniKey(MINI_KEY);
+        existingMiniUrl.setFullUrl(ORIGINAL_URL);
+
+        when(mockCustomUrlValidator.normalizeUrl(equivalentUrl)).thenReturn(ORIGINAL_URL);
+        when(mockMiniUrlStore.findByFullUrlHashIn(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(existingMiniUrl)));
+
+        List<MiniUrl> result = miniUrlService.getOrCreateMiniUrlsAsync(List.of(ORIGINAL_URL, equivalentUrl)).get();
+
+        assertEquals(2, result.size());
+        assertSame(existingMiniUrl, result.get(0));
+        assertSame(existingMiniUrl, result.get(1));
+        verify(mockMiniUrlStore).findByFullUrlHashIn(Set.of(MiniUrl.hashFullUrl(ORIGINAL_URL)));
+        verify(mockMiniUrlStore, never()).saveAll(anyList());
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrlsAsync_RegeneratesCollidingKeys() throws Exception {
+        when(mockMiniUrlStore.findByFullUrlHashIn(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        when(mockRandomKeyGenerator.generateKey("")).thenReturn("taken12", "free123");
+        when(mockMiniUrlStore.findExistingMiniKeys(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(List.of("taken12")))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        when(mockMiniUrlStore.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<MiniUrl> result = miniUrlService.getOrCreateMiniUrlsAsync(List.of(ORIGINAL_URL)).get();
+
+        assertEquals("free123", result.get(0).getMiniKey());
+        verify(mockMiniUrlStore, times(2)).findExistingMiniKeys(anyCollection());
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrlsAsync_KeysStartWithPrefixOfTheirUrl() throws Exception {
+        when(mockMiniUrlStore.findByFullUrlHashIn(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        when(mockMiniUrlStore.miniKeyPrefix(MiniUrl.hashFullUrl(ORIGINAL_URL))).thenReturn("aa");
+        when(mockMiniUrlStore.miniKeyPrefix(MiniUrl.hashFullUrl(NEW_URL))).thenReturn("zz");
+        when(mockRandomKeyGenerator.generateKey(anyString()))
+                .thenAnswer(invocation -> invocation.getArgument(0) + "taken");
+        when(mockRandomKeyGenerator.generateKey("zz")).thenReturn("zztaken", "zzfree1");
+        when(mockMiniUrlStore.findExistingMiniKeys(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(List.of("zztaken")))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        when(mockMiniUrlStore.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<MiniUrl> result = miniUrlService.getOrCreateMiniUrlsAsync(List.of(NEW_URL, ORIGINAL_URL)).get();
+
+        assertEquals("zzfree1", result.get(0).getMiniKey());
+        assertEquals(NEW_URL, result.get(0).getFullUrl());
+        assertEquals("aataken", result.get(1).getMiniKey());
+        assertEquals(ORIGINAL_URL, result.get(1).getFullUrl());
+        verify(mockMiniUrlStore).findExistingMiniKeys(List.of("zzfree1"));
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrlsAsync_FailsAfterMaxKeyGenerationRounds() {
+        when(mockMiniUrlStore.findByFullUrlHashIn(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        when(mockRandomKeyGenerator.getMaxRounds()).thenReturn(1);
+        when(mockRandomKeyGenerator.generateKey("")).thenReturn("taken12");
+        when(mockMiniUrlStore.findExistingMiniKeys(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(List.of("taken12")));
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> miniUrlService.getOrCreateMiniUrlsAsync(List.of(ORIGINAL_URL)).get());
+
+        assertInstanceOf(MiniKeyGenerationException.class, exception.getCause());
+        verify(mockMiniUrlStore, never()).saveAll(anyList());
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrlsAsync_ThrowsIfInvalidUrl() {
+        String url = "invalid-url";
+
+        when(mockCustomUrlValidator.normalizeUrl(url)).thenThrow(new IllegalArgumentException("Invalid URL format"));
+
+        assertThrows(Exception.class, () -> {
+            miniUrlService.getOrCreateMiniUrlsAsync(List.of(ORIGINAL_URL, url)).get();
+        });
+        verify(mockMiniUrlStore, never()).saveAll(any());
     }
 
     @Test
@@ -89,19 +433,83 @@ public class MiniUrlServiceTest {
         miniUrl.setMiniKey(MINI_KEY);
         miniUrl.setFullUrl(ORIGINAL_URL);
 
-        when(mockMiniUrlRepository.findByMiniKey(MINI_KEY))
+        when(mockMiniUrlStore.findByMiniKey(MINI_KEY))
                 .thenReturn(CompletableFuture.completedFuture(Optional.of(miniUrl)));
 
         MiniUrl result = miniUrlService.getMiniUrlByMiniKey(MINI_KEY).get();
 
         assertEquals(MINI_KEY, result.getMiniKey());
+        verify(mockMiniUrlCache).putIfCurrent(miniUrl, 0L);
+        verify(mockClickStatsService).recordClick(MINI_KEY);
+    }
+
+    @Test
+    public void testGetMiniUrlByMiniKey_ReadsSharedCacheBeforeDatabase() throws Exception {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(MINI_KEY);
+        miniUrl.setFullUrl(ORIGINAL_URL);
+
+        when(mockSharedMiniUrlCache.get(MINI_KEY)).thenReturn(CompletableFuture.completedFuture(miniUrl));
+
+        assertSame(miniUrl, miniUrlService.getMiniUrlByMiniKey(MINI_KEY).get());
+        verify(mockMiniUrlCache).putIfCurrent(miniUrl, 0L);
+        verify(mockMiniUrlStore, never()).findByMiniKey(any());
+    }
+
+    @Test
+    public void testGetMiniUrlByMiniKey_ReadsRecentlyWrittenKeyFromPrimary() throws Exception {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(MINI_KEY);
+        miniUrl.setFullUrl(ORIGINAL_URL);
+
+        when(mockReplicaLagGuard.isRecentlyWritten(MINI_KEY)).thenReturn(true);
+        when(mockMiniUrlStore.findByMiniKey(MINI_KEY)).thenAnswer(invocation -> {
+            assertTrue(ReplicaRoutingDataSource.isPrimaryForced());
+            return CompletableFuture.completedFuture(Optional.of(miniUrl));
+        });
+
+        assertEquals(miniUrl, miniUrlService.getMiniUrlByMiniKey(MINI_KEY).get());
+        assertFalse(ReplicaRoutingDataSource.isPrimaryForced());
+    }
+
+    @Test
+    public void testGetMiniUrlByMiniKey_CoalescesConcurrentLookups() throws Exception {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(MINI_KEY);
+        miniUrl.setFullUrl(ORIGINAL_URL);
+        CompletableFuture<Optional<MiniUrl>> pendingLookup = new CompletableFuture<>();
+
+        when(mockMiniUrlStore.findByMiniKey(MINI_KEY)).thenReturn(pendingLookup);
+
+        CompletableFuture<MiniUrl> first = miniUrlService.getMiniUrlByMiniKey(MINI_KEY);
+        CompletableFuture<MiniUrl> second = miniUrlService.getMiniUrlByMiniKey(MINI_KEY);
+        pendingLookup.complete(Optional.of(miniUrl));
+
+        assertSame(miniUrl, first.get());
+        assertSame(miniUrl, second.get());
+        verify(mockMiniUrlStore).findByMiniKey(MINI_KEY);
+        verify(mockClickStatsService, times(2)).recordClick(MINI_KEY);
+    }
+
+    @Test
+    public void testGetMiniUrlByMiniKey_ReturnsCachedMiniUrl() throws Exception {
+        MiniUrl cachedMiniUrl = new MiniUrl();
+        cachedMiniUrl.setMiniKey(MINI_KEY);
+        cachedMiniUrl.setFullUrl(ORIGINAL_URL);
+
+        when(mockMiniUrlCache.getIfPresent(MINI_KEY)).thenReturn(cachedMiniUrl);
+
+        MiniUrl result = miniUrlService.getMiniUrlByMiniKey(MINI_KEY).get();
+
+        assertEquals(MINI_KEY, result.getMiniKey());
+        verify(mockMiniUrlStore, never()).findByMiniKey(any());
     }
 
     @Test
     public void testGetMiniUrlByMiniKey_ThrowsIfNotFound() {
         String miniKey = "notfound";
 
-        when(mockMiniUrlRepository.findByMiniKey(miniKey))
+        when(mockMiniUrlStore.findByMiniKey(miniKey))
                 .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
 
         assertThrows(Exception.class, () -> {
@@ -109,32 +517,240 @@ public class MiniUrlServiceTest {
         });
     }
 
+    @Test
+    public void testGetMiniUrlByMiniKey_SkipsDatabaseIfFilteredOut() {
+        String miniKey = "notfound";
+
+        when(mockMiniKeyFilter.isDefinitelyAbsent(miniKey)).thenReturn(true);
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> miniUrlService.getMiniUrlByMiniKey(miniKey).get());
+        assertInstanceOf(MiniUrlNotFoundException.class, exception.getCause());
+        verify(mockMiniUrlStore, never()).findByMiniKey(any());
+    }
+
+    @Test
+    public void testResolveFullUrl_SkipsDatabaseIfFilteredOut() {
+        String miniKey = "notfound";
+
+        when(mockMiniKeyFilter.isDefinitelyAbsent(miniKey)).thenReturn(true);
+
+        assertThrows(MiniUrlNotFoundException.class, () -> miniUrlService.resolveFullUrl(miniKey));
+        verify(mockMiniUrlStore, never()).findReadOnlyByMiniKey(any());
+    }
+
+    @Test
+    public void testResolveFullUrl_ReturnsCachedFullUrl() {
+        MiniUrl cachedMiniUrl = new MiniUrl();
+        cachedMiniUrl.setMiniKey(MINI_KEY);
+        cachedMiniUrl.setFullUrl(ORIGINAL_URL);
+
+        when(mockMiniUrlCache.getIfPresent(MINI_KEY)).thenReturn(cachedMiniUrl);
+
+        assertEquals(ORIGINAL_URL, miniUrlService.resolveFullUrl(MINI_KEY));
+        verify(mockMiniUrlStore, never()).findReadOnlyByMiniKey(any());
+        verify(mockClickStatsService).recordClick(MINI_KEY);
+    }
+
+    @Test
+    public void testResolveFullUrl_ReturnsJournaledFullUrl() {
+        MiniUrl journaledMiniUrl = new MiniUrl();
+        journaledMiniUrl.setMiniKey(MINI_KEY);
+        journaledMiniUrl.setFullUrl(ORIGINAL_URL);
+
+        when(mockMiniUrlJournal.getPending(MINI_KEY)).thenReturn(journaledMiniUrl);
+
+        assertEquals(ORIGINAL_URL, miniUrlService.resolveFullUrl(MINI_KEY));
+        verify(mockMiniUrlStore, never()).findReadOnlyByMiniKey(any());
+        verify(mockClickStatsService).recordClick(MINI_KEY);
+    }
+
+    @Test
+    public void testResolveFullUrl_LoadsAndCachesOnMiss() {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(MINI_KEY);
+        miniUrl.setFullUrl(ORIGINAL_URL);
+
+        when(mockMiniUrlStore.findReadOnlyByMiniKey(MINI_KEY)).thenReturn(Optional.of(miniUrl));
+
+        assertEquals(ORIGINAL_URL, miniUrlService.resolveFullUrl(MINI_KEY));
+        verify(mockMiniUrlCache).putIfCurrent(miniUrl, 0L);
+        verify(mockSharedMiniUrlCache).put(miniUrl);
+    }
+
+    @Test
+    public void testResolveFullUrl_CachesWithGenerationTakenBeforeTheRead() {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(MINI_KEY);
+        miniUrl.setFullUrl(ORIGINAL_URL);
+
+        when(mockMiniUrlCache.generation(MINI_KEY)).thenReturn(7L);
+        when(mockMiniUrlStore.findReadOnlyByMiniKey(MINI_KEY)).thenReturn(Optional.of(miniUrl));
+
+        assertEquals(ORIGINAL_URL, miniUrlService.resolveFullUrl(MINI_KEY));
+        // An update invalidating between the read and the put bumps the generation, and the put is then skipped
+        InOrder inOrder = inOrder(mockMiniUrlCache, mockMiniUrlStore);
+        inOrder.verify(mockMiniUrlCache).generation(MINI_KEY);
+        inOrder.verify(mockMiniUrlStore).findReadOnlyByMiniKey(MINI_KEY);
+        inOrder.verify(mockMiniUrlCache).putIfCurrent(miniUrl, 7L);
+    }
+
+    @Test
+    public void testResolveFullUrl_ReadsSharedCacheBeforeDatabase() {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(MINI_KEY);
+        miniUrl.setFullUrl(ORIGINAL_URL);
+
+        when(mockSharedMiniUrlCache.get(MINI_KEY)).thenReturn(CompletableFuture.completedFuture(miniUrl));
+
+        assertEquals(ORIGINAL_URL, miniUrlService.resolveFullUrl(MINI_KEY));
+        verify(mockMiniUrlCache).putIfCurrent(miniUrl, 0L);
+        verify(mockMiniUrlStore, never()).findReadOnlyByMiniKey(any());
+        verify(mockSharedMiniUrlCache, never()).put(any());
+    }
+
+    @Test
+    public void testResolveFullUrl_ReadsRecentlyWrittenKeyFromPrimary() {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(MINI_KEY);
+        miniUrl.setFullUrl(ORIGINAL_URL);
+
+        when(mockReplicaLagGuard.isRecentlyWritten(MINI_KEY)).thenReturn(true);
+        when(mockMiniUrlStore.findReadOnlyByMiniKey(MINI_KEY)).thenAnswer(invocation -> {
+            assertTrue(ReplicaRoutingDataSource.isPrimaryForced());
+            return Optional.of(miniUrl);
+        });
+
+        assertEquals(ORIGINAL_URL, miniUrlService.resolveFullUrl(MINI_KEY));
+    }
+
+    @Test
+    public void testResolveFullUrl_ThrowsIfExpired() {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(MINI_KEY);
+        miniUrl.setFullUrl(ORIGINAL_URL);
+        miniUrl.setExpiresAt(Instant.now().minusSeconds(1));
+
+        when(mockMiniUrlStore.findReadOnlyByMiniKey(MINI_KEY)).thenReturn(Optional.of(miniUrl));
+
+        assertThrows(MiniUrlNotFoundException.class, () -> miniUrlService.resolveFullUrl(MINI_KEY));
+        verify(mockMiniUrlCache, never()).put(any());
+        verify(mockClickStatsService, never()).recordClick(any());
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrlAsync_SavesExpiringMiniUrlWithoutJournal() throws Exception {
+        Instant expiresAt = Instant.now().plus(1, ChronoUnit.DAYS).truncatedTo(ChronoUnit.MICROS);
+        MiniUrl sameUrlWithoutExpiry = new MiniUrl();
+        sameUrlWithoutExpiry.setMiniKey("other12");
+        sameUrlWithoutExpiry.setFullUrl(ORIGINAL_URL);
+
+        when(mockMiniUrlStore.findByFullUrlHash(MiniUrl.hashFullUrl(ORIGINAL_URL)))
+                .thenReturn(CompletableFuture.completedFuture(List.of(sameUrlWithoutExpiry)));
+        when(mockRandomKeyGenerator.generateKey("")).thenReturn(MINI_KEY);
+        when(mockMiniUrlStore.findExistingMiniKeys(Set.of(MINI_KEY)))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        lenient().when(mockMiniUrlJournal.isEnabled()).thenReturn(true);
+        when(mockMiniUrlStore.save(any(MiniUrl.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        MiniUrl result = miniUrlService.getOrCreateMiniUrlAsync(ORIGINAL_URL, expiresAt).get();
+
+        assertEquals(MINI_KEY, result.getMiniKey());
+        assertEquals(expiresAt, result.getExpiresAt());
+        verify(mockMiniUrlJournal, never()).append(any());
+        verify(mockMiniUrlJournal, never()).getPendingByFullUrl(any());
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrlAsync_RejectsPastExpiry() {
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> miniUrlService.getOrCreateMiniUrlAsync(ORIGINAL_URL, Instant.now().minusSeconds(1)).get());
+
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+        verify(mockMiniUrlStore, never()).save(any());
+    }
+
+    @Test
+    public void testResolveFullUrl_ThrowsIfNotFound() {
+        String miniKey = "notfound";
+
+        when(mockMiniUrlStore.findReadOnlyByMiniKey(miniKey)).thenReturn(Optional.empty());
+
+        assertThrows(MiniUrlNotFoundException.class, () -> miniUrlService.resolveFullUrl(miniKey));
+        verify(mockClickStatsService, never()).recordClick(any());
+        assertEquals(1, meterRegistry.get(MiniUrlMetrics.OPERATION_TIMER)
+                .tags("operation", MiniUrlMetrics.RESOLVE, "outcome", "not_found").timer().count());
+    }
+
     @Test
     public void testUpdateMiniUrlAsync_UpdatesIfExists() throws Exception {
         MiniUrl miniUrl = new MiniUrl();
         miniUrl.setMiniKey(MINI_KEY);
         miniUrl.setFullUrl(ORIGINAL_URL);
 
-        when(mockMiniUrlRepository.findByMiniKey(MINI_KEY))
+        when(mockMiniUrlStore.findByMiniKey(MINI_KEY))
                 .thenReturn(CompletableFuture.completedFuture(Optional.of(miniUrl)));
-        when(mockMiniUrlRepository.save(any(MiniUrl.class))).thenReturn(miniUrl);
+        when(mockMiniUrlStore.save(any(MiniUrl.class))).thenReturn(miniUrl);
 
         MiniUrl result = miniUrlService.updateMiniUrlAsync(MINI_KEY, NEW_URL).get();
         assertEquals(NEW_URL, result.getFullUrl());
-        verify(mockCustomUrlValidator).validateUrl(NEW_URL);
+        verify(mockCustomUrlValidator).normalizeUrl(NEW_URL);
+        verify(mockMiniUrlCache).invalidate(MINI_KEY);
+    }
+
+    @Test
+    public void testUpdateMiniUrlAsync_InvalidatesSharedCacheBeforeBroadcast() throws Exception {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(MINI_KEY);
+        miniUrl.setFullUrl(ORIGINAL_URL);
+        CompletableFuture<Void> sharedInvalidation = new CompletableFuture<>();
+
+        when(mockMiniUrlStore.findByMiniKey(MINI_KEY))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of(miniUrl)));
+        when(mockMiniUrlStore.save(any(MiniUrl.class))).thenReturn(miniUrl);
+        when(mockSharedMiniUrlCache.invalidate(MINI_KEY)).thenReturn(sharedInvalidation);
+
+        CompletableFuture<MiniUrl> result = miniUrlService.updateMiniUrlAsync(MINI_KEY, NEW_URL);
+        assertFalse(result.isDone());
+        verify(mockMiniUrlInvalidationBroadcaster, never()).broadcast(any());
+
+        sharedInvalidation.complete(null);
+        assertEquals(NEW_URL, result.get().getFullUrl());
+        verify(mockMiniUrlCache).invalidate(MINI_KEY);
+        verify(mockMiniUrlInvalidationBroadcaster).broadcast(MINI_KEY);
+    }
+
+    @Test
+    public void testUpdateMiniUrlAsync_FailsIfSharedCacheInvalidationFails() {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(MINI_KEY);
+        miniUrl.setFullUrl(ORIGINAL_URL);
+
+        when(mockMiniUrlStore.findByMiniKey(MINI_KEY))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of(miniUrl)));
+        when(mockMiniUrlStore.save(any(MiniUrl.class))).thenReturn(miniUrl);
+        when(mockSharedMiniUrlCache.invalidate(MINI_KEY))
+                .thenReturn(CompletableFuture.failedFuture(new MiniUrlUnavailableException("Redis is down")));
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> miniUrlService.updateMiniUrlAsync(MINI_KEY, NEW_URL).get());
+
+        assertInstanceOf(MiniUrlUnavailableException.class, exception.getCause());
+        verify(mockMiniUrlCache).invalidate(MINI_KEY);
+        verify(mockMiniUrlInvalidationBroadcaster).broadcast(MINI_KEY);
     }
 
     @Test
     public void testUpdateMiniUrlAsync_FailsIfNotFound() {
         String miniKey = "notfound";
 
-        when(mockMiniUrlRepository.findByMiniKey(miniKey))
+        when(mockMiniUrlStore.findByMiniKey(miniKey))
                 .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
 
         assertThrows(Exception.class, () -> {
             miniUrlService.updateMiniUrlAsync(miniKey, NEW_URL).get();
         });
-        verify(mockCustomUrlValidator).validateUrl(NEW_URL);
+        verify(mockCustomUrlValidator).normalizeUrl(NEW_URL);
     }
 
     @Test
@@ -143,19 +759,34 @@ public class MiniUrlServiceTest {
         miniUrl.setMiniKey(MINI_KEY);
         miniUrl.setFullUrl(ORIGINAL_URL);
 
-        when(mockMiniUrlRepository.findByMiniKey(MINI_KEY))
+        when(mockMiniUrlStore.findByMiniKey(MINI_KEY))
                 .thenReturn(CompletableFuture.completedFuture(Optional.of(miniUrl)));
-        doNothing().when(mockMiniUrlRepository).deleteById(MINI_KEY);
+        doNothing().when(mockMiniUrlStore).deleteById(MINI_KEY);
 
         miniUrlService.deleteMiniUrlAsync(MINI_KEY).get();
-        verify(mockMiniUrlRepository).deleteById(MINI_KEY);
+        verify(mockMiniUrlStore).deleteById(MINI_KEY);
+        verify(mockMiniUrlCache).invalidate(MINI_KEY);
+        verify(mockSharedMiniUrlCache).invalidate(MINI_KEY);
+        verify(mockMiniUrlInvalidationBroadcaster).broadcast(MINI_KEY);
+        verify(mockMiniUrlJournal).flushIfPending(MINI_KEY);
+    }
+
+    @Test
+    public void testDeleteMiniUrlAsync_FailsWhileStillJournaled() {
+        doThrow(new MiniUrlUnavailableException("Not saved yet")).when(mockMiniUrlJournal).flushIfPending(MINI_KEY);
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> miniUrlService.deleteMiniUrlAsync(MINI_KEY).get());
+
+        assertInstanceOf(MiniUrlUnavailableException.class, exception.getCause());
+        verify(mockMiniUrlStore, never()).findByMiniKey(any());
     }
 
     @Test
     public void testDeleteMiniUrlAsync_FailsIfNotFound() {
         String miniKey = "notfound";
 
-        when(mockMiniUrlRepository.findByMiniKey(miniKey))
+        when(mockMiniUrlStore.findByMiniKey(miniKey))
                 .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
 
         assertThrows(Exception.class, () -> {
@@ -164,7 +795,7 @@ public class MiniUrlServiceTest {
     }
 
     @Test
-    public void testGetAllMiniUrlsAsync_ReturnsAllMiniUrls() throws Exception {
+    public void testGetMiniUrlsPageAsync_ReturnsFirstPage() throws Exception {
         MiniUrl miniUrl1 = new MiniUrl();
         miniUrl1.setMiniKey("abd1234");
         miniUrl1.setFullUrl("https://google.com");
@@ -175,13 +806,51 @@ public class MiniUrlServiceTest {
 
         List<MiniUrl> allMiniUrls = List.of(miniUrl1, miniUrl2);
 
-        when(mockMiniUrlRepository.findAll()).thenReturn(allMiniUrls);
+        when(mockMiniUrlStore.findByMiniKeyGreaterThanOrderByMiniKeyAsc("", Limit.of(100)))
+                .thenReturn(CompletableFuture.completedFuture(allMiniUrls));
 
-        List<MiniUrl> result = miniUrlService.getAllMiniUrlsAsync().get();
+        List<MiniUrl> result = miniUrlService.getMiniUrlsPageAsync(null, 100).get();
 
         assertEquals(2, result.size());
         assertTrue(result.contains(miniUrl1));
         assertTrue(result.contains(miniUrl2));
-        verify(mockMiniUrlRepository).findAll();
+        verify(mockMiniUrlStore).findByMiniKeyGreaterThanOrderByMiniKeyAsc("", Limit.of(100));
+    }
+
+    @Test
+    public void testGetMiniUrlsPageAsync_UsesCursor() throws Exception {
+        when(mockMiniUrlStore.findByMiniKeyGreaterThanOrderByMiniKeyAsc(MINI_KEY, Limit.of(10)))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+
+        List<MiniUrl> result = miniUrlService.getMiniUrlsPageAsync(MINI_KEY, 10).get();
+
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void testGetMiniUrlsPageAsync_ThrowsIfPageSizeOutOfRange() {
+        assertThrows(Exception.class, () -> miniUrlService.getMiniUrlsPageAsync(null, 0).get());
+        assertThrows(Exception.class, () -> miniUrlService.getMiniUrlsPageAsync(null, MiniUrlService.MAX_PAGE_SIZE + 1).get());
+        verifyNoInteractions(mockMiniUrlStore);
+    }
+
+    @Test
+    public void testExportMiniUrls_StreamsAndDetaches() {
+        MiniUrl miniUrl1 = new MiniUrl();
+        miniUrl1.setMiniKey("abd1234");
+        miniUrl1.setFullUrl("https://google.com");
+
+        MiniUrl miniUrl2 = new MiniUrl();
+        miniUrl2.setMiniKey("zyx1234");
+        miniUrl2.setFullUrl("https://bing.com");
+
+        when(mockMiniUrlStore.streamAll()).thenReturn(Stream.of(miniUrl1, miniUrl2));
+
+        List<MiniUrl> exported = new ArrayList<>();
+        miniUrlService.exportMiniUrls(exported::add);
+
+        assertEquals(List.of(miniUrl1, miniUrl2), exported);
+        verify(mockEntityManager).detach(miniUrl1);
+        verify(mockEntityManager).detach(miniUrl2);
     }
 }
@@ -0,0 +1,29 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.repositories.OffHeapMiniUrlStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+@SpringBootTest(properties = {"MINIURL_STORAGE_BACKEND=offheap", "MINIURL_OFFHEAP_SEGMENT_MB=1", "MINIURL_OFFHEAP_EXPECTED_KEYS=1000"})
+public class OffHeapMiniUrlServiceFlowTest extends AbstractMiniUrlServiceFlowTest {
+
+    @TempDir
+    static Path storeDirectory;
+
+    @DynamicPropertySource
+    static void storeProperties(DynamicPropertyRegistry registry) {
+        registry.add("MINIURL_OFFHEAP_DIR", storeDirectory::toString);
+    }
+
+    @Test
+    public void testUsesOffHeapStore() {
+        assertInstanceOf(OffHeapMiniUrlStore.class, miniUrlStore);
+    }
+}
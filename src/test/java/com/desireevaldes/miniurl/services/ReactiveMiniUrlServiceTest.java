@@ -0,0 +1,220 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.exceptions.MiniKeyGenerationException;
+import com.desireevaldes.miniurl.exceptions.MiniUrlNotFoundException;
+import com.desireevaldes.miniurl.models.MiniUrl;
+import com.desireevaldes.miniurl.repositories.MiniUrlStore;
+import com.desireevaldes.miniurl.repositories.R2dbcMiniUrlRepository;
+import com.desireevaldes.miniurl.utils.CustomUrlValidator;
+import com.desireevaldes.miniurl.utils.RandomKeyGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReactiveMiniUrlServiceTest {
+
+    private static final String MINI_KEY = "abc1234";
+    private static final String ORIGINAL_URL = "https://example.com";
+    private static final String NEW_URL = "https://news.com";
+
+    @Mock
+    private R2dbcMiniUrlRepository mockMiniUrlRepository;
+    @Mock
+    private CustomUrlValidator mockCustomUrlValidator;
+    @Mock
+    private RandomKeyGenerator mockRandomKeyGenerator;
+    @Mock
+    private MiniUrlCache mockMiniUrlCache;
+    @Mock
+    private SharedMiniUrlCache mockSharedMiniUrlCache;
+    @Mock
+    private MiniUrlInvalidationBroadcaster mockMiniUrlInvalidationBroadcaster;
+    @Mock
+    private MiniKeyBlockAllocator mockMiniKeyBlockAllocator;
+    @Mock
+    private ClickStatsService mockClickStatsService;
+    @Mock
+    private MiniKeyFilter mockMiniKeyFilter;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ReactiveMiniUrlService miniUrlService;
+
+    @BeforeEach
+    public void setUp() {
+        lenient().when(mockCustomUrlValidator.normalizeUrl(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(mockRandomKeyGenerator.getCandidatesPerRound()).thenReturn(1);
+        lenient().when(mockRandomKeyGenerator.getMaxRounds()).thenReturn(5);
+        lenient().when(mockSharedMiniUrlCache.get(anyString())).thenReturn(CompletableFuture.completedFuture(null));
+        lenient().when(mockSharedMiniUrlCache.invalidate(anyString())).thenReturn(CompletableFuture.completedFuture(null));
+        miniUrlService = newService(false, MiniUrlStore.JPA_BACKEND);
+    }
+
+    private ReactiveMiniUrlService newService(boolean writeBehindEnabled, String storageBackend) {
+        return new ReactiveMiniUrlService(mockMiniUrlRepository, mockCustomUrlValidator, mockRandomKeyGenerator,
+                mockMiniUrlCache, mockSharedMiniUrlCache, mockMiniUrlInvalidationBroadcaster, mockMiniKeyBlockAllocator, mockClickStatsService, mockMiniKeyFilter,
+                new MiniUrlMetrics(meterRegistry), writeBehindEnabled, storageBackend);
+    }
+
+    private static MiniUrl miniUrl(String miniKey, String fullUrl) {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey(miniKey);
+        miniUrl.setFullUrl(fullUrl);
+        return miniUrl;
+    }
+
+    @Test
+    public void testRejectsServletOnlyFeatures() {
+        assertThrows(IllegalStateException.class, () -> newService(true, MiniUrlStore.JPA_BACKEND));
+        assertThrows(IllegalStateException.class, () -> newService(false, MiniUrlStore.OFF_HEAP_BACKEND));
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrl_ReturnsExisting() {
+        MiniUrl existingMiniUrl = miniUrl(MINI_KEY, ORIGINAL_URL);
+        when(mockMiniUrlRepository.findByFullUrlHash(MiniUrl.hashFullUrl(ORIGINAL_URL)))
+                .thenReturn(Flux.just(existingMiniUrl));
+
+        MiniUrl result = miniUrlService.getOrCreateMiniUrl(ORIGINAL_URL).block();
+
+        assertSame(existingMiniUrl, result);
+        verify(mockMiniUrlRepository, never()).insert(any());
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrl_CreatesNew() {
+        when(mockMiniUrlRepository.findByFullUrlHash(MiniUrl.hashFullUrl(ORIGINAL_URL))).thenReturn(Flux.empty());
+        when(mockRandomKeyGenerator.generateKey()).thenReturn(MINI_KEY);
+        when(mockMiniUrlRepository.findExistingMiniKeys(Set.of(MINI_KEY))).thenReturn(Flux.empty());
+        when(mockMiniUrlRepository.insert(any(MiniUrl.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        MiniUrl result = miniUrlService.getOrCreateMiniUrl(ORIGINAL_URL).block();
+
+        assertEquals(MINI_KEY, result.getMiniKey());
+        assertEquals(ORIGINAL_URL, result.getFullUrl());
+        verify(mockMiniKeyFilter).add(MINI_KEY);
+        assertEquals(1, meterRegistry.get(MiniUrlMetrics.OPERATION_TIMER).tag("operation", MiniUrlMetrics.CREATE)
+                .tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrl_GivesUpAfterMaxRounds() {
+        when(mockMiniUrlRepository.findByFullUrlHash(MiniUrl.hashFullUrl(ORIGINAL_URL))).thenReturn(Flux.empty());
+        when(mockRandomKeyGenerator.getMaxRounds()).thenReturn(2);
+        when(mockRandomKeyGenerator.generateKey()).thenReturn(MINI_KEY);
+        when(mockMiniUrlRepository.findExistingMiniKeys(Set.of(MINI_KEY))).thenReturn(Flux.just(MINI_KEY));
+
+        assertThrows(MiniKeyGenerationException.class, () -> miniUrlService.getOrCreateMiniUrl(ORIGINAL_URL).block());
+        verify(mockMiniUrlRepository, times(2)).findExistingMiniKeys(anyCollection());
+        verify(mockRandomKeyGenerator, times(2)).recordCollisions(1, 1);
+    }
+
+    @Test
+    public void testGetOrCreateMiniUrls_DedupesAndKeepsOrder() {
+        MiniUrl existingMiniUrl = miniUrl(MINI_KEY, ORIGINAL_URL);
+        when(mockMiniUrlRepository.findByFullUrlHashIn(anyCollection())).thenReturn(Flux.just(existingMiniUrl));
+        when(mockRandomKeyGenerator.generateKey()).thenReturn("new1234");
+        when(mockMiniUrlRepository.findExistingMiniKeys(List.of("new1234"))).thenReturn(Flux.empty());
+        when(mockMiniUrlRepository.insertAll(anyList())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        List<MiniUrl> result = miniUrlService.getOrCreateMiniUrls(List.of(NEW_URL, ORIGINAL_URL, NEW_URL)).block();
+
+        assertEquals(List.of("new1234", MINI_KEY, "new1234"), result.stream().map(MiniUrl::getMiniKey).toList());
+        verify(mockMiniUrlRepository).insertAll(argThat(miniUrls -> miniUrls.size() == 1));
+    }
+
+    @Test
+    public void testResolveFullUrl_FromCache() {
+        when(mockMiniUrlCache.getIfPresent(MINI_KEY)).thenReturn(miniUrl(MINI_KEY, ORIGINAL_URL));
+
+        assertEquals(ORIGINAL_URL, miniUrlService.resolveFullUrl(MINI_KEY).block());
+        verifyNoInteractions(mockMiniUrlRepository);
+        verify(mockClickStatsService).recordClick(MINI_KEY);
+    }
+
+    @Test
+    public void testResolveFullUrl_FromDatabaseIsCached() {
+        MiniUrl storedMiniUrl = miniUrl(MINI_KEY, ORIGINAL_URL);
+        when(mockMiniUrlRepository.findByMiniKey(MINI_KEY)).thenReturn(Mono.just(storedMiniUrl));
+
+        assertEquals(ORIGINAL_URL, miniUrlService.resolveFullUrl(MINI_KEY).block());
+        verify(mockMiniUrlCache).putIfCurrent(storedMiniUrl, 0L);
+        verify(mockSharedMiniUrlCache).put(storedMiniUrl);
+        verify(mockClickStatsService).recordClick(MINI_KEY);
+    }
+
+    @Test
+    public void testResolveFullUrl_FromSharedCache() {
+        MiniUrl sharedMiniUrl = miniUrl(MINI_KEY, ORIGINAL_URL);
+        when(mockSharedMiniUrlCache.get(MINI_KEY)).thenReturn(CompletableFuture.completedFuture(sharedMiniUrl));
+
+        assertEquals(ORIGINAL_URL, miniUrlService.resolveFullUrl(MINI_KEY).block());
+        verify(mockMiniUrlCache).putIfCurrent(sharedMiniUrl, 0L);
+        verifyNoInteractions(mockMiniUrlRepository);
+    }
+
+    @Test
+    public void testGetMiniUrlByMiniKey_NotFound() {
+        when(mockMiniUrlRepository.findByMiniKey(MINI_KEY)).thenReturn(Mono.empty());
+
+        assertThrows(MiniUrlNotFoundException.class, () -> miniUrlService.getMiniUrlByMiniKey(MINI_KEY).block());
+        assertEquals(1, meterRegistry.get(MiniUrlMetrics.OPERATION_TIMER).tag("operation", MiniUrlMetrics.LOOKUP)
+                .tag("outcome", "not_found").timer().count());
+    }
+
+    @Test
+    public void testGetMiniUrlByMiniKey_FilterSkipsDatabase() {
+        when(mockMiniKeyFilter.isDefinitelyAbsent(MINI_KEY)).thenReturn(true);
+
+        assertThrows(MiniUrlNotFoundException.class, () -> miniUrlService.getMiniUrlByMiniKey(MINI_KEY).block());
+        verifyNoInteractions(mockMiniUrlRepository);
+    }
+
+    @Test
+    public void testUpdateMiniUrl_InvalidatesCache() {
+        MiniUrl updatedMiniUrl = miniUrl(MINI_KEY, NEW_URL);
+        when(mockMiniUrlRepository.updateFullUrl(MINI_KEY, NEW_URL)).thenReturn(Mono.just(updatedMiniUrl));
+
+        assertSame(updatedMiniUrl, miniUrlService.updateMiniUrl(MINI_KEY, NEW_URL).block());
+        verify(mockMiniUrlCache).invalidate(MINI_KEY);
+        verify(mockSharedMiniUrlCache).invalidate(MINI_KEY);
+        verify(mockMiniUrlInvalidationBroadcaster).broadcast(MINI_KEY);
+    }
+
+    @Test
+    public void testUpdateMiniUrl_NotFound() {
+        when(mockMiniUrlRepository.updateFullUrl(MINI_KEY, NEW_URL)).thenReturn(Mono.empty());
+
+        assertThrows(MiniUrlNotFoundException.class, () -> miniUrlService.updateMiniUrl(MINI_KEY, NEW_URL).block());
+        verify(mockMiniUrlCache, never()).invalidate(any());
+        verify(mockMiniUrlInvalidationBroadcaster, never()).broadcast(any());
+    }
+
+    @Test
+    public void testDeleteMiniUrl() {
+        when(mockMiniUrlRepository.deleteByMiniKey(MINI_KEY)).thenReturn(Mono.just(true), Mono.just(false));
+
+        miniUrlService.deleteMiniUrl(MINI_KEY).block();
+
+        verify(mockMiniUrlCache).invalidate(MINI_KEY);
+        assertThrows(MiniUrlNotFoundException.class, () -> miniUrlService.deleteMiniUrl(MINI_KEY).block());
+    }
+
+    @Test
+    public void testGetMiniUrlsPage_RejectsInvalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> miniUrlService.getMiniUrlsPage(null, 0).block());
+        verifyNoInteractions(mockMiniUrlRepository);
+    }
+}
@@ -0,0 +1,44 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.models.MiniUrl;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RedisSharedMiniUrlCacheTest {
+
+    @Test
+    public void testEncodeDecodeRoundTrip() {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey("abc1234");
+        miniUrl.setFullUrl("https://example.com/path?q=a%20b");
+        miniUrl.setCreatedAt(Instant.parse("2025-01-02T03:04:05.123456Z"));
+        miniUrl.setUpdatedAt(Instant.parse("2025-02-03T04:05:06Z"));
+        miniUrl.setExpiresAt(Instant.parse("2030-01-01T00:00:00Z"));
+
+        MiniUrl decoded = RedisSharedMiniUrlCache.decode("abc1234", RedisSharedMiniUrlCache.encode(miniUrl));
+
+        assertEquals(miniUrl.getMiniKey(), decoded.getMiniKey());
+        assertEquals(miniUrl.getFullUrl(), decoded.getFullUrl());
+        assertEquals(miniUrl.getFullUrlHash(), decoded.getFullUrlHash());
+        assertEquals(miniUrl.getCreatedAt(), decoded.getCreatedAt());
+        assertEquals(miniUrl.getUpdatedAt(), decoded.getUpdatedAt());
+        assertEquals(miniUrl.getExpiresAt(), decoded.getExpiresAt());
+    }
+
+    @Test
+    public void testEncodeDecodeWithoutTimestamps() {
+        MiniUrl miniUrl = new MiniUrl();
+        miniUrl.setMiniKey("abc1234");
+        miniUrl.setFullUrl("https://example.com/a b");
+
+        MiniUrl decoded = RedisSharedMiniUrlCache.decode("abc1234", RedisSharedMiniUrlCache.encode(miniUrl));
+
+        assertEquals("https://example.com/a b", decoded.getFullUrl());
+        assertNull(decoded.getCreatedAt());
+        assertNull(decoded.getUpdatedAt());
+        assertNull(decoded.getExpiresAt());
+    }
+}
@@ -0,0 +1,33 @@
+package com.desireevaldes.miniurl.services;
+
+import com.desireevaldes.miniurl.repositories.ShardedMiniUrlStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+@SpringBootTest(properties = {"MINIURL_STORAGE_BACKEND=sharded", "MINIURL_SHARD_POOL_SIZE=2"})
+public class ShardedMiniUrlServiceFlowTest extends AbstractMiniUrlServiceFlowTest {
+
+    // Three embedded databases, each created with the mini_urls schema on first connection
+    @DynamicPropertySource
+    static void shardProperties(DynamicPropertyRegistry registry) {
+        StringBuilder shardUrls = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            shardUrls.append(i == 0 ? "" : ",").append("jdbc:h2:mem:shard-").append(UUID.randomUUID())
+                    .append(";DB_CLOSE_DELAY=-1;MODE=PostgreSQL;INIT=RUNSCRIPT FROM 'classpath:db/h2/mini_urls.sql'");
+        }
+        registry.add("MINIURL_SHARD_URLS", shardUrls::toString);
+    }
+
+    @Test
+    public void testUsesShardedStore() {
+        ShardedMiniUrlStore shardedMiniUrlStore = assertInstanceOf(ShardedMiniUrlStore.class, miniUrlStore);
+        assertEquals(3, shardedMiniUrlStore.getShardCount());
+    }
+}
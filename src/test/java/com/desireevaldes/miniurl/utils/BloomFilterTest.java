@@ -0,0 +1,46 @@
+package com.desireevaldes.miniurl.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BloomFilterTest {
+
+    @Test
+    public void testNoFalseNegatives() {
+        BloomFilter bloomFilter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            bloomFilter.put("key" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(bloomFilter.mightContain("key" + i), "An added key must always be reported as present");
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRateIsCloseToConfigured() {
+        BloomFilter bloomFilter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            bloomFilter.put("key" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (bloomFilter.mightContain("absent" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "False positive rate should stay near 1%, was " + falsePositives / 1000.0 + "%");
+    }
+
+    @Test
+    public void testEmptyFilterContainsNothing() {
+        BloomFilter bloomFilter = new BloomFilter(100, 0.01);
+        assertFalse(bloomFilter.mightContain("abc1234"));
+    }
+
+    @Test
+    public void testRejectsInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1.0));
+    }
+}
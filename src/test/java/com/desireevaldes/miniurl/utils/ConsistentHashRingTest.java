@@ -0,0 +1,83 @@
+package com.desireevaldes.miniurl.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsistentHashRingTest {
+
+    private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    // Every two-character shard hint of the default alphabet
+    private static String[] hints() {
+        String[] hints = new String[ALPHABET.length() * ALPHABET.length()];
+        int i = 0;
+        for (char first : ALPHABET.toCharArray()) {
+            for (char second : ALPHABET.toCharArray()) {
+                hints[i++] = "" + first + second;
+            }
+        }
+        return hints;
+    }
+
+    @Test
+    public void testSameKeyAlwaysMapsToSameShard() {
+        ConsistentHashRing ring = new ConsistentHashRing(4, 256);
+        ConsistentHashRing otherRing = new ConsistentHashRing(4, 256);
+
+        for (String hint : hints()) {
+            int shard = ring.shardFor(hint);
+            assertTrue(shard >= 0 && shard < 4);
+            assertEquals(shard, otherRing.shardFor(hint));
+        }
+    }
+
+    @Test
+    public void testSpreadsKeysEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(4, 256);
+        String[] hints = hints();
+        int[] counts = new int[4];
+
+        for (String hint : hints) {
+            counts[ring.shardFor(hint)]++;
+        }
+
+        for (int count : counts) {
+            assertEquals(hints.length / 4.0, count, hints.length / 4.0 * 0.2);
+        }
+    }
+
+    @Test
+    public void testAddingShardOnlyMovesKeysToIt() {
+        ConsistentHashRing ring = new ConsistentHashRing(4, 256);
+        ConsistentHashRing grownRing = new ConsistentHashRing(5, 256);
+        String[] hints = hints();
+        int moved = 0;
+
+        for (String hint : hints) {
+            int shard = ring.shardFor(hint);
+            int newShard = grownRing.shardFor(hint);
+            if (newShard != shard) {
+                assertEquals(4, newShard);
+                moved++;
+            }
+        }
+
+        assertEquals(hints.length / 5.0, moved, hints.length / 5.0 * 0.2);
+    }
+
+    @Test
+    public void testSingleShardOwnsEverything() {
+        ConsistentHashRing ring = new ConsistentHashRing(1, 16);
+
+        for (String hint : hints()) {
+            assertEquals(0, ring.shardFor(hint));
+        }
+    }
+
+    @Test
+    public void testRejectsEmptyRing() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(0, 256));
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(2, 0));
+    }
+}
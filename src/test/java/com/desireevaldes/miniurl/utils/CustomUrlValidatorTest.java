@@ -1,49 +1,42 @@
 package com.desireevaldes.miniurl.utils;
 
-import org.apache.commons.validator.routines.UrlValidator;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.*;
 
-@ExtendWith(MockitoExtension.class)
 public class CustomUrlValidatorTest {
 
-    @Mock
-    private UrlValidator mockUrlValidator;
-
-    @InjectMocks
-    private CustomUrlValidator customUrlValidator;
+    private final CustomUrlValidator customUrlValidator = new CustomUrlValidator();
 
     @ParameterizedTest
     @ValueSource(strings = {"http://example.com", "https://google.com"})
     public void testValidUrls(String url) {
-        when(mockUrlValidator.isValid(url)).thenReturn(true);
-
-        boolean result = customUrlValidator.validateUrl(url);
+        String result = customUrlValidator.normalizeUrl(url);
 
-        assertTrue(result);
-        verify(mockUrlValidator, times(1)).isValid(url);
+        assertTrue(result.startsWith(url));
     }
 
     @Test
     public void testInvalidUrl() {
         String invalidUrl = "invalid-url";
-        when(mockUrlValidator.isValid(invalidUrl)).thenReturn(false);
 
         IllegalArgumentException exception = assertThrows(
                 IllegalArgumentException.class,
-                () -> customUrlValidator.validateUrl(invalidUrl)
+                () -> customUrlValidator.normalizeUrl(invalidUrl)
         );
 
         assertEquals("Invalid URL format", exception.getMessage());
+    }
 
-        verify(mockUrlValidator).isValid(invalidUrl);
+    @Test
+    public void testNormalizeUrl() {
+        assertEquals("https://example.com/", customUrlValidator.normalizeUrl("HTTPS://Example.COM:443"));
+    }
+
+    @Test
+    public void testNormalizeInvalidUrl() {
+        assertThrows(IllegalArgumentException.class, () -> customUrlValidator.normalizeUrl("https://example.com/a b"));
     }
 }
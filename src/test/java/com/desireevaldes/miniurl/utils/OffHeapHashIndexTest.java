@@ -0,0 +1,80 @@
+package com.desireevaldes.miniurl.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapHashIndexTest {
+
+    private static long hash(String key) {
+        return OffHeapHashIndex.hash(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testFindsAddedValuesAfterGrowing() {
+        OffHeapHashIndex index = new OffHeapHashIndex(16);
+        for (int i = 0; i < 10_000; i++) {
+            index.add(hash("key" + i), i);
+        }
+
+        assertEquals(10_000, index.size());
+        for (int i = 0; i < 10_000; i++) {
+            long value = i;
+            assertEquals(value, index.find(hash("key" + i), candidate -> candidate == value));
+        }
+        assertEquals(-1, index.find(hash("absent"), candidate -> true));
+    }
+
+    @Test
+    public void testKeepsEveryValueOfASharedHash() {
+        OffHeapHashIndex index = new OffHeapHashIndex(16);
+        index.add(42, 1);
+        index.add(42, 2);
+        index.add(0, 3);
+
+        List<Long> values = new ArrayList<>();
+        index.forEach(42, values::add);
+
+        assertEquals(List.of(1L, 2L), values);
+        assertEquals(2, index.find(42, candidate -> candidate == 2));
+        assertEquals(3, index.find(0, candidate -> true), "A zero hash must not be mistaken for an empty slot");
+    }
+
+    @Test
+    public void testRemoveKeepsProbeChainsIntact() {
+        OffHeapHashIndex index = new OffHeapHashIndex(16);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (long value = 0; value < 5_000; value++) {
+            // Few distinct hashes, so removals happen in the middle of long probe chains
+            long hash = random.nextInt(64);
+            index.add(hash, value);
+            expected.put(value, hash);
+        }
+        for (long value = 0; value < 5_000; value += 2) {
+            assertTrue(index.remove(expected.remove(value), value));
+        }
+
+        assertEquals(2_500, index.size());
+        assertFalse(index.remove(0, 0));
+        expected.forEach((value, hash) -> assertEquals(value, index.find(hash, candidate -> candidate == value)));
+    }
+
+    @Test
+    public void testReplaceUpdatesValue() {
+        OffHeapHashIndex index = new OffHeapHashIndex(16);
+        index.add(hash("abc1234"), 7);
+
+        assertTrue(index.replace(hash("abc1234"), 7, 9));
+
+        assertEquals(9, index.find(hash("abc1234"), candidate -> true));
+        assertFalse(index.replace(hash("abc1234"), 7, 11));
+    }
+}
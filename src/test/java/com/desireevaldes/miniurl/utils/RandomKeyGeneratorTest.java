@@ -2,6 +2,11 @@ package com.desireevaldes.miniurl.utils;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class RandomKeyGeneratorTest {
@@ -37,4 +42,99 @@ public class RandomKeyGeneratorTest {
         String newKey2 = randomKeyGenerator.generateKey();
         assertNotEquals(newKey1, newKey2, "The random generated keys should mot be the same");
     }
+
+    @Test
+    public void testSharedModeUsesACustomAlphabet() {
+        RandomKeyGenerator randomKeyGenerator = new RandomKeyGenerator(newCustomAlphabet, 8, RandomKeyGenerator.SHARED_MODE);
+        String newKey = randomKeyGenerator.generateKey();
+        assertEquals(8, newKey.length());
+        assertTrue(newKey.matches("[0123456789ABCDEFG]+"));
+    }
+
+    @Test
+    public void testNonLatin1AlphabetFallsBackToSharedMode() {
+        RandomKeyGenerator randomKeyGenerator = new RandomKeyGenerator("αβγδεζηθ", 8, RandomKeyGenerator.STRIPED_MODE);
+        assertTrue(randomKeyGenerator.generateKey().matches("[αβγδεζηθ]{8}"));
+    }
+
+    @Test
+    public void testGenerateKeyKeepsPrefixInKeyLength() {
+        for (String mode : new String[]{RandomKeyGenerator.STRIPED_MODE, RandomKeyGenerator.SHARED_MODE}) {
+            RandomKeyGenerator randomKeyGenerator = new RandomKeyGenerator(customAlphabet, 8, mode);
+            String newKey = randomKeyGenerator.generateKey("Zq");
+            assertEquals(8, newKey.length());
+            assertTrue(newKey.startsWith("Zq"));
+            assertNotEquals(newKey, randomKeyGenerator.generateKey("Zq"));
+        }
+    }
+
+    @Test
+    public void testRejectsUnknownMode() {
+        assertThrows(IllegalArgumentException.class, () -> new RandomKeyGenerator(customAlphabet, 8, "threadlocal"));
+    }
+
+    @Test
+    public void testStripedModeIsUnbiased() {
+        RandomKeyGenerator randomKeyGenerator = new RandomKeyGenerator(newCustomAlphabet, 10);
+        int[] counts = new int[newCustomAlphabet.length()];
+        int keys = 10_000;
+        for (int i = 0; i < keys; i++) {
+            for (char c : randomKeyGenerator.generateKey().toCharArray()) {
+                counts[newCustomAlphabet.indexOf(c)]++;
+            }
+        }
+        // 17 characters: a modulo mapping of bytes would over-represent the first ones by ~7%
+        double expected = keys * 10.0 / newCustomAlphabet.length();
+        for (int count : counts) {
+            assertEquals(expected, count, expected * 0.05, "Each character should be drawn with the same probability");
+        }
+    }
+
+    @Test
+    public void testKeysAreUniqueAcrossThreads() throws Exception {
+        RandomKeyGenerator randomKeyGenerator = new RandomKeyGenerator(customAlphabet, 10);
+        Set<String> keys = ConcurrentHashMap.newKeySet();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int t = 0; t < 8; t++) {
+                executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        keys.add(randomKeyGenerator.generateKey());
+                    }
+                });
+            }
+        }
+        assertEquals(8000, keys.size());
+    }
+
+    @Test
+    public void testGrowsKeyLengthWhenCollisionRateExceedsThreshold() {
+        RandomKeyGenerator randomKeyGenerator = new RandomKeyGenerator(customAlphabet, 8, RandomKeyGenerator.STRIPED_MODE, 0.1, 100, 4, 5);
+
+        randomKeyGenerator.recordCollisions(99, 50);
+        assertEquals(8, randomKeyGenerator.getKeyLength(), "The length should only change once the window is full");
+        randomKeyGenerator.recordCollisions(1, 0);
+
+        assertEquals(9, randomKeyGenerator.getKeyLength());
+        assertEquals(9, randomKeyGenerator.generateKey().length());
+    }
+
+    @Test
+    public void testKeepsKeyLengthBelowCollisionThreshold() {
+        RandomKeyGenerator randomKeyGenerator = new RandomKeyGenerator(customAlphabet, 8, RandomKeyGenerator.STRIPED_MODE, 0.1, 100, 4, 5);
+
+        randomKeyGenerator.recordCollisions(100, 10);
+
+        assertEquals(8, randomKeyGenerator.getKeyLength());
+    }
+
+    @Test
+    public void testKeyLengthIsCappedAtColumnLimit() {
+        RandomKeyGenerator randomKeyGenerator = new RandomKeyGenerator(customAlphabet, 31, RandomKeyGenerator.SHARED_MODE, 0.1, 10, 4, 5);
+
+        randomKeyGenerator.recordCollisions(10, 10);
+        randomKeyGenerator.recordCollisions(10, 10);
+
+        assertEquals(RandomKeyGenerator.MINIURL_MAX_KEY_LENGTH, randomKeyGenerator.getKeyLength());
+        assertEquals(32, new RandomKeyGenerator(customAlphabet, 40).generateKey().length());
+    }
 }
@@ -0,0 +1,54 @@
+package com.desireevaldes.miniurl.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShuffledKeyEncoderTest {
+
+    String customAlphabet = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    @Test
+    public void testEncodingIsBijectiveOverKeySpace() {
+        ShuffledKeyEncoder shuffledKeyEncoder = new ShuffledKeyEncoder("0123", 7, 42L);
+        Set<String> keys = new HashSet<>();
+        for (long id = 0; id < shuffledKeyEncoder.getKeySpace(); id++) {
+            String key = shuffledKeyEncoder.encode(id);
+            assertEquals(7, key.length());
+            assertTrue(key.matches("[0123]+"));
+            keys.add(key);
+        }
+        assertEquals(16384, keys.size(), "Every id should map to a distinct key");
+    }
+
+    @Test
+    public void testConsecutiveIdsAreShuffled() {
+        ShuffledKeyEncoder shuffledKeyEncoder = new ShuffledKeyEncoder(customAlphabet, 8, 42L);
+        String key1 = shuffledKeyEncoder.encode(1);
+        String key2 = shuffledKeyEncoder.encode(2);
+        assertNotEquals(key1.substring(0, 7), key2.substring(0, 7), "Consecutive ids should not produce neighbouring keys");
+    }
+
+    @Test
+    public void testEncodingDependsOnSecret() {
+        ShuffledKeyEncoder shuffledKeyEncoder1 = new ShuffledKeyEncoder(customAlphabet, 8, 1L);
+        ShuffledKeyEncoder shuffledKeyEncoder2 = new ShuffledKeyEncoder(customAlphabet, 8, 1L);
+        ShuffledKeyEncoder shuffledKeyEncoder3 = new ShuffledKeyEncoder(customAlphabet, 8, 2L);
+        assertEquals(shuffledKeyEncoder1.encode(123), shuffledKeyEncoder2.encode(123));
+        assertNotEquals(shuffledKeyEncoder1.encode(123), shuffledKeyEncoder3.encode(123));
+    }
+
+    @Test
+    public void testThrowsWhenKeySpaceIsExhausted() {
+        ShuffledKeyEncoder shuffledKeyEncoder = new ShuffledKeyEncoder("0123", 7, 42L);
+        assertThrows(IllegalStateException.class, () -> shuffledKeyEncoder.encode(shuffledKeyEncoder.getKeySpace()));
+    }
+
+    @Test
+    public void testRejectsTooLargeKeySpace() {
+        assertThrows(IllegalArgumentException.class, () -> new ShuffledKeyEncoder(customAlphabet, 11, 42L));
+    }
+}
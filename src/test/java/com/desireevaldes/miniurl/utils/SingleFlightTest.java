@@ -0,0 +1,102 @@
+package com.desireevaldes.miniurl.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testConcurrentCallsShareOneInFlightCall() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.execute("key", () -> {
+            calls.incrementAndGet();
+            return pending;
+        });
+        CompletableFuture<String> second = singleFlight.execute("key", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+
+        assertEquals(1, calls.get());
+        assertEquals(1, singleFlight.inFlightCount());
+        assertFalse(first.isDone());
+
+        pending.complete("value");
+
+        assertEquals("value", first.get());
+        assertEquals("value", second.get());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    public void testDifferentKeysDoNotShare() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+        CompletableFuture<String> first = singleFlight.execute("a", () -> new CompletableFuture<>());
+        CompletableFuture<String> second = singleFlight.execute("b", () -> CompletableFuture.completedFuture("b"));
+
+        assertFalse(first.isDone());
+        assertEquals("b", second.get());
+    }
+
+    @Test
+    public void testKeyIsReleasedAfterCompletion() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(1, singleFlight.execute("key", () -> CompletableFuture.completedFuture(calls.incrementAndGet())).get());
+        assertEquals(2, singleFlight.execute("key", () -> CompletableFuture.completedFuture(calls.incrementAndGet())).get());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    public void testFailureIsSharedAndReleasesKey() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.execute("key", () -> pending);
+        CompletableFuture<String> second = singleFlight.execute("key", () -> pending);
+        pending.completeExceptionally(new IllegalStateException("boom"));
+
+        ExecutionException firstException = assertThrows(ExecutionException.class, first::get);
+        ExecutionException secondException = assertThrows(ExecutionException.class, second::get);
+        assertInstanceOf(IllegalStateException.class, firstException.getCause());
+        assertInstanceOf(IllegalStateException.class, secondException.getCause());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    public void testThrowingCallFailsTheFuture() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+        CompletableFuture<String> result = singleFlight.execute("key", () -> {
+            throw new IllegalArgumentException("bad");
+        });
+
+        ExecutionException exception = assertThrows(ExecutionException.class, result::get);
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    public void testCancellingOneCallerDoesNotAffectOthers() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.execute("key", () -> pending);
+        CompletableFuture<String> second = singleFlight.execute("key", () -> pending);
+        first.cancel(true);
+        pending.complete("value");
+
+        assertTrue(first.isCancelled());
+        assertEquals("value", second.get());
+    }
+}
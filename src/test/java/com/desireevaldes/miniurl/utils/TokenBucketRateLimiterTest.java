@@ -0,0 +1,94 @@
+package com.desireevaldes.miniurl.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketRateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void testBurstThenRefillRate() {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(10, 3, 100);
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.tryAcquire("client", now), "The burst must be granted at once");
+        }
+        long waitNanos = rateLimiter.tryAcquire("client", now);
+        assertEquals(SECOND / 10, waitNanos, "The next token comes after one refill interval");
+
+        assertEquals(0, rateLimiter.tryAcquire("client", now + waitNanos));
+        assertTrue(rateLimiter.tryAcquire("client", now + waitNanos) > 0);
+    }
+
+    @Test
+    public void testClientsHaveTheirOwnBuckets() {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(1, 1, 100);
+        long now = System.nanoTime();
+
+        assertEquals(0, rateLimiter.tryAcquire("client1", now));
+        assertTrue(rateLimiter.tryAcquire("client1", now) > 0);
+        assertEquals(0, rateLimiter.tryAcquire("client2", now));
+    }
+
+    @Test
+    public void testEvictIdleOnlyDropsFullBuckets() {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(1, 2, 100);
+        long now = System.nanoTime();
+        rateLimiter.tryAcquire("idle", now);
+        rateLimiter.tryAcquire("busy", now + SECOND);
+        rateLimiter.tryAcquire("busy", now + SECOND);
+
+        assertEquals(1, rateLimiter.evictIdle(now + 2 * SECOND));
+        assertEquals(1, rateLimiter.getClientCount());
+        assertTrue(rateLimiter.tryAcquire("busy", now + SECOND) > 0, "A busy client must keep its bucket");
+    }
+
+    @Test
+    public void testUntrackedClientsShareTheOverflowBucket() {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(1, 1, 16);
+        long now = System.nanoTime();
+        int granted = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (rateLimiter.tryAcquire("client" + i, now) == 0) {
+                granted++;
+            }
+        }
+
+        assertTrue(rateLimiter.getClientCount() <= 16, "Memory must stay bounded, was " + rateLimiter.getClientCount());
+        assertTrue(granted <= 17, "Untracked clients must share one bucket, granted " + granted);
+    }
+
+    @Test
+    public void testConcurrentAcquiresNeverExceedTheBurst() throws Exception {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(0.001, 100, 100);
+        long now = System.nanoTime();
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(() -> {
+                if (rateLimiter.tryAcquire("client", now) == 0) {
+                    granted.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100, granted.get());
+    }
+
+    @Test
+    public void testRejectsInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(0, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(1, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(1, 1, 0));
+    }
+}
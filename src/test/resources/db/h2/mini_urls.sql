@@ -0,0 +1,18 @@
+-- mini_urls as left by the db/<profile> scripts v1 to v6 (v7 partitioning aside), for embedded H2 shards (MODE=PostgreSQL) in tests.
+CREATE TABLE IF NOT EXISTS mini_urls (
+    mini_key VARCHAR(32) PRIMARY KEY,
+    full_url TEXT NOT NULL,
+    full_url_hash UUID NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP WITH TIME ZONE
+);
+
+CREATE INDEX IF NOT EXISTS idx_mini_urls_full_url_hash ON mini_urls(full_url_hash);
+
+-- db/<profile>/v8, for sharded stores
+CREATE TABLE IF NOT EXISTS mini_url_full_url_refs (
+    full_url_hash UUID NOT NULL,
+    mini_key VARCHAR(32) NOT NULL,
+    PRIMARY KEY (full_url_hash, mini_key)
+);